@@ -47,10 +47,10 @@ OTHER DEALINGS IN THE SOFTWARE.
     BorByte() {
     }
 
-    void perform (Object buf1, Object buf2, int count) throws MPIException {
+    void perform(Object buf1, int offset, int count) throws MPIException {
       byte[] arr1 = (byte[]) buf1;
 
-      for (int i = 0; i < count; i++) {
+      for (int i = offset; i < count; i++) {
         arr[i] = (byte) (arr1[i] | arr[i]);
       }
     }
@@ -47,10 +47,10 @@ OTHER DEALINGS IN THE SOFTWARE.
     BorLong() {
     }
 
-    void perform (Object buf1, Object buf2, int count) throws MPIException {
+    void perform(Object buf1, int offset, int count) throws MPIException {
       long[] arr1 = (long[]) buf1;
 
-      for (int i = 0; i < count; i++) {
+      for (int i = offset; i < count; i++) {
         arr[i] = (long) (arr1[i] | arr[i]);
       }
     }
@@ -45,11 +45,11 @@ OTHER DEALINGS IN THE SOFTWARE.
     BxorChar() {
     }
 
-    void perform(Object buf1, Object buf2, int count) throws MPIException {
+    void perform(Object buf1, int offset, int count) throws MPIException {
 
       char[] arr1 = (char[]) buf1;
 
-      for (int i = 0; i < count; i++) {
+      for (int i = offset; i < count; i++) {
         arr[i] = (char) (arr1[i] ^ arr[i]);
       }
 
@@ -45,11 +45,11 @@ OTHER DEALINGS IN THE SOFTWARE.
     BxorShort() {
     }
 
-    void perform(Object buf1, Object buf2, int count) throws MPIException {
+    void perform(Object buf1, int offset, int count) throws MPIException {
 
       short[] arr1 = (short[]) buf1;
 
-      for (int i = 0; i < count; i++) {
+      for (int i = offset; i < count; i++) {
         arr[i] = (short) (arr1[i] ^ arr[i]);
       }
 
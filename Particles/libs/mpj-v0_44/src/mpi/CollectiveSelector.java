@@ -0,0 +1,335 @@
+/*
+ The MIT License
+
+ Copyright (c) 2005 - 2008
+   1. Distributed Systems Group, University of Portsmouth (2005)
+   2. Community Grids Laboratory, Indiana University (2005)
+   3. Aamir Shafi (2005 - 2008)
+   4. Bryan Carpenter (2005 - 2008)
+   5. Mark Baker (2005 - 2008)
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+ NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+ THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+/*
+ * File         : CollectiveSelector.java
+ * Created      : Mon Oct 19 2026
+ */
+
+package mpi;
+
+import java.io.*;
+import java.util.*;
+
+import mpjdev.MPJDev;
+
+/**
+ * Decision table that picks the algorithm of a collective operation from
+ * the operation, the device, the communicator size and the message size.
+ * <p>
+ * Every rule is one line of five columns:
+ * <pre>
+ * # operation     device  size   bytes         algorithm
+ * allreduce       smpdev  8      0-4096        recursive_doubling
+ * allreduce       *       *      4097-         rabenseifner
+ * allgatherv      *       pof2   0-81919       recursive_doubling
+ * </pre>
+ * The operation and the device are a name or <tt>*</tt>. Sizes and bytes
+ * are <tt>*</tt>, a number, <tt>a-b</tt> or <tt>a-</tt>, the size also
+ * <tt>pof2</tt> for powers of two. The first rule that matches wins, rules
+ * of a selector come before those of its parent and the built-in
+ * defaults come last. A rule for every operation (<tt>*</tt>) only
+ * applies to the operations that know its algorithm.
+ * <p>
+ * The bytes are those of the whole vector for bcast, reduce, allreduce,
+ * allgather, allgatherv and reduce_scatter, and those of one block for
+ * gather and scatter. An algorithm that cannot handle a call (a
+ * non-commutative op, a derived datatype, a size it needs to be a power
+ * of two) is replaced by the next safe one by the operation itself.
+ * <p>
+ * The selector of all communicators is read from the file named by
+ * <tt>mpjexpress.mpi.collectives.file</tt> in mpjexpress.conf or the system
+ * property of the same name. <tt>mpjexpress.mpi.old.collectives=true</tt>
+ * puts flat tree in front of it. <tt>CollectiveTuner</tt> measures the
+ * algorithms on the target machine and writes such a file, and
+ * <tt>Intracomm.setCollectiveSelector</tt> overrides the rules for one
+ * communicator.
+ */
+public class CollectiveSelector {
+
+  public static final String BARRIER = "barrier";
+  public static final String BCAST = "bcast";
+  public static final String GATHER = "gather";
+  public static final String SCATTER = "scatter";
+  public static final String ALLGATHER = "allgather";
+  public static final String ALLGATHERV = "allgatherv";
+  public static final String REDUCE = "reduce";
+  public static final String ALLREDUCE = "allreduce";
+  public static final String REDUCE_SCATTER = "reduce_scatter";
+
+  public static final String FLAT_TREE = "flat_tree";
+  public static final String MST = "mst";
+  public static final String TREE = "tree";
+  public static final String DISSEMINATION = "dissemination";
+  public static final String BUCKET = "bucket";
+  public static final String RING = "ring";
+  public static final String RECURSIVE_DOUBLING = "recursive_doubling";
+  public static final String BRUCK = "bruck";
+  public static final String REDUCE_BCAST = "reduce_bcast";
+  public static final String RABENSEIFNER = "rabenseifner";
+  public static final String REDUCE_SCATTERV = "reduce_scatterv";
+  public static final String RECURSIVE_HALVING = "recursive_halving";
+  public static final String PAIRWISE = "pairwise";
+
+  /* Every operation followed by the algorithms it implements */
+  static final String[][] ALGORITHMS = {
+      { BARRIER, TREE, DISSEMINATION },
+      { BCAST, MST, FLAT_TREE },
+      { GATHER, MST, FLAT_TREE },
+      { SCATTER, MST, FLAT_TREE },
+      { ALLGATHER, BUCKET, RECURSIVE_DOUBLING, FLAT_TREE },
+      { ALLGATHERV, BRUCK, RECURSIVE_DOUBLING, RING, FLAT_TREE },
+      { REDUCE, MST, FLAT_TREE },
+      { ALLREDUCE, RECURSIVE_DOUBLING, RABENSEIFNER, REDUCE_BCAST, FLAT_TREE },
+      { REDUCE_SCATTER, RECURSIVE_HALVING, PAIRWISE, REDUCE_SCATTERV,
+	  FLAT_TREE } };
+
+  /*
+   * The thresholds the operations used before they had a selector; the
+   * allgatherv, allreduce and reduce_scatter ones are MPICH's.
+   */
+  static final String[] DEFAULT_RULES = {
+      "barrier        *  *     *          tree",
+      "bcast          *  *     *          mst",
+      "gather         *  *     0-16384    mst",
+      "gather         *  *     *          flat_tree",
+      "scatter        *  *     0-16384    mst",
+      "scatter        *  *     *          flat_tree",
+      "allgather      *  *     *          bucket",
+      "allgatherv     *  1-2   *          flat_tree",
+      "allgatherv     *  *     524288-    ring",
+      "allgatherv     *  pof2  0-81919    recursive_doubling",
+      "allgatherv     *  *     *          bruck",
+      "reduce         *  *     *          mst",
+      "allreduce      *  *     0-2048     recursive_doubling",
+      "allreduce      *  *     *          rabenseifner",
+      "reduce_scatter *  *     524288-    pairwise",
+      "reduce_scatter *  *     *          recursive_halving" };
+
+  public static final String FILE_PROPERTY = "mpjexpress.mpi.collectives.file";
+
+  private static final CollectiveSelector DEFAULTS = new CollectiveSelector(
+      null);
+  private static volatile CollectiveSelector global = new CollectiveSelector(
+      DEFAULTS);
+
+  static {
+    for (String rule : DEFAULT_RULES)
+      DEFAULTS.addRule(rule);
+  }
+
+  private static class Rule {
+    String operation, device, algorithm;
+    int minSize, maxSize;
+    long minBytes, maxBytes;
+    boolean pof2;
+    String text;
+
+    boolean matches(String operation, String device, int size, long bytes) {
+      return (this.operation == null || this.operation.equals(operation))
+	  && (this.device == null || this.device.equals(device))
+	  && size >= minSize && size <= maxSize
+	  && (!pof2 || (size & (size - 1)) == 0)
+	  && bytes >= minBytes && bytes <= maxBytes
+	  && knows(operation, algorithm);
+    }
+  }
+
+  /* null with onDefault for the selector of getDefault() at select time */
+  private final CollectiveSelector parent;
+  private final boolean onDefault;
+  private final List<Rule> rules = new ArrayList<Rule>();
+
+  /**
+   * Empty selector on top of the one all communicators use. That one is
+   * looked up on every select, so a selector made before MPI.Init still
+   * sees the tuning file.
+   */
+  public CollectiveSelector() {
+    this.parent = null;
+    this.onDefault = true;
+  }
+
+  private CollectiveSelector(CollectiveSelector parent) {
+    this.parent = parent;
+    this.onDefault = false;
+  }
+
+  private CollectiveSelector parent() {
+    return onDefault ? global : parent;
+  }
+
+  /** The selector of communicators without one of their own */
+  public static CollectiveSelector getDefault() {
+    return global;
+  }
+
+  /*
+   * Called by MPI.Init once mpjexpress.conf is read: the rules of the
+   * tuning file, behind flat tree everywhere for the old collectives.
+   */
+  static void init(String file, boolean oldCollectives) throws MPIException {
+    CollectiveSelector selector = new CollectiveSelector(DEFAULTS);
+
+    if (oldCollectives)
+      selector.addRule("*  *  *  *  " + FLAT_TREE);
+
+    String property = System.getProperty(FILE_PROPERTY);
+    if (property != null)
+      file = property;
+
+    if (file != null && file.length() > 0) {
+      try {
+	selector.load(new File(file));
+      }
+      catch (IOException e) {
+	throw new MPIException(e);
+      }
+    }
+    global = selector;
+  }
+
+  /** True when the operation implements the algorithm */
+  public static boolean knows(String operation, String algorithm) {
+    for (String[] row : ALGORITHMS) {
+      if (row[0].equals(operation)) {
+	for (int i = 1; i < row.length; i++)
+	  if (row[i].equals(algorithm))
+	    return true;
+	return false;
+      }
+    }
+    return false;
+  }
+
+  /** The operations followed by the algorithms each of them implements */
+  public static String[][] algorithms() {
+    String[][] copy = new String[ALGORITHMS.length][];
+    for (int i = 0; i < copy.length; i++)
+      copy[i] = ALGORITHMS[i].clone();
+    return copy;
+  }
+
+  /**
+   * Algorithm for the operation on a communicator of the given size running
+   * on the current device.
+   */
+  public String select(String operation, int size, long bytes)
+      throws MPIException {
+    return select(operation, MPJDev.deviceName, size, bytes);
+  }
+
+  public String select(String operation, String device, int size, long bytes)
+      throws MPIException {
+    for (CollectiveSelector s = this; s != null; s = s.parent()) {
+      for (Rule rule : s.rules) {
+	if (rule.matches(operation, device, size, bytes))
+	  return rule.algorithm;
+      }
+    }
+    throw new MPIException("No collective algorithm for " + operation);
+  }
+
+  /** Adds a rule in the format of the tuning file, behind the present ones */
+  public void addRule(String line) throws MPIException {
+    String[] columns = line.trim().split("\\s+");
+    if (columns.length != 5)
+      throw new MPIException("Collective rule needs 5 columns: " + line);
+
+    Rule rule = new Rule();
+    rule.text = line.trim();
+    rule.operation = columns[0].equals("*") ? null : columns[0];
+    rule.device = columns[1].equals("*") ? null : columns[1];
+    rule.algorithm = columns[4];
+
+    if (columns[2].equals("pof2")) {
+      rule.pof2 = true;
+      columns[2] = "*";
+    }
+    long[] sizes = parseRange(columns[2], line);
+    long[] bytes = parseRange(columns[3], line);
+    rule.minSize = (int) Math.min(sizes[0], Integer.MAX_VALUE);
+    rule.maxSize = (int) Math.min(sizes[1], Integer.MAX_VALUE);
+    rule.minBytes = bytes[0];
+    rule.maxBytes = bytes[1];
+
+    if (rule.operation != null && !knows(rule.operation, rule.algorithm))
+      throw new MPIException("Unknown algorithm " + rule.algorithm + " for "
+	  + rule.operation + ": " + line);
+    rules.add(rule);
+  }
+
+  private static long[] parseRange(String range, String line)
+      throws MPIException {
+    try {
+      if (range.equals("*"))
+	return new long[] { 0, Long.MAX_VALUE };
+      int dash = range.indexOf('-');
+      if (dash < 0) {
+	long value = Long.parseLong(range);
+	return new long[] { value, value };
+      }
+      long low = Long.parseLong(range.substring(0, dash));
+      long high = dash == range.length() - 1 ? Long.MAX_VALUE : Long
+	  .parseLong(range.substring(dash + 1));
+      return new long[] { low, high };
+    }
+    catch (NumberFormatException e) {
+      throw new MPIException("Bad range " + range + " in collective rule: "
+	  + line);
+    }
+  }
+
+  /** Adds the rules of a tuning file, blank lines and # comments skipped */
+  public void load(File file) throws IOException, MPIException {
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+	int comment = line.indexOf('#');
+	if (comment >= 0)
+	  line = line.substring(0, comment);
+	if (line.trim().length() > 0)
+	  addRule(line);
+      }
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  /** The own rules, one per line in the format of the tuning file */
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (Rule rule : rules)
+      text.append(rule.text).append('\n');
+    return text.toString();
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ The MIT License
+
+ Copyright (c) 2005 - 2008
+   1. Distributed Systems Group, University of Portsmouth (2005)
+   2. Community Grids Laboratory, Indiana University (2005)
+   3. Aamir Shafi (2005 - 2008)
+   4. Bryan Carpenter (2005 - 2008)
+   5. Mark Baker (2005 - 2008)
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be included
+ in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+ NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+ THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+/*
+ * File         : CollectiveTuner.java
+ * Created      : Mon Oct 19 2026
+ */
+
+package mpi;
+
+import java.io.*;
+import java.util.*;
+
+import mpjdev.MPJDev;
+
+/**
+ * Measures every algorithm of every collective operation on this machine
+ * and writes the fastest per message size as rules of a
+ * <tt>CollectiveSelector</tt> tuning file, for the device and the number of
+ * processes it runs with:
+ * <pre>
+ * mpjrun.sh -np 8 mpi.CollectiveTuner $MPJ_HOME/conf/collectives.conf
+ * </pre>
+ * Rules already in the file for other devices or process counts are kept,
+ * so the file can collect the results of several runs. It takes effect
+ * through <tt>mpjexpress.mpi.collectives.file</tt> in mpjexpress.conf.
+ */
+public class CollectiveTuner {
+
+  /* Message sizes measured, in bytes of the whole vector (one block for
+   * gather and scatter) */
+  static final int[] BYTES = { 8, 64, 512, 4096, 32768, 262144, 1048576 };
+
+  /* Repetitions per measurement, fewer for long messages */
+  static final int REPETITIONS = 50;
+  static final int LONG_REPETITIONS = 10;
+
+  /* Share of its time the present choice is allowed to lose by */
+  static final double MARGIN = 0.95;
+
+  public static void main(String[] args) throws Exception {
+    String[] rest = MPI.Init(args);
+    String file = rest.length > 0 ? rest[0] : "collectives.conf";
+
+    Intracomm comm = MPI.COMM_WORLD;
+    int rank = comm.Rank();
+    int size = comm.Size();
+    List<String> rules = new ArrayList<String>();
+
+    for (String[] row : CollectiveSelector.algorithms()) {
+      String operation = row[0];
+      int[] sweep = operation.equals(CollectiveSelector.BARRIER) ? new int[] { 0 }
+	  : BYTES;
+      String[] winners = new String[sweep.length];
+      long[] bytes = new long[sweep.length];
+
+      for (int s = 0; s < sweep.length; s++) {
+	bytes[s] = vectorBytes(operation, sweep[s], size);
+	String current = comm.getCollectiveSelector().select(operation, size,
+	    bytes[s]);
+	double[] times = new double[row.length];
+
+	for (int a = 1; a < row.length; a++) {
+	  CollectiveSelector selector = new CollectiveSelector();
+	  selector.addRule(operation + "  *  *  *  " + row[a]);
+	  comm.setCollectiveSelector(selector);
+	  double[] time = { measure(comm, operation, sweep[s]) };
+	  comm.setCollectiveSelector(null);
+
+	  comm.Allreduce(time, 0, time, 0, 1, MPI.DOUBLE, MPI.MAX);
+	  times[a] = time[0];
+	}
+
+	/* The present choice stays unless another one is clearly faster */
+	double best = Double.MAX_VALUE;
+	int winner = 1;
+	for (int a = 1; a < row.length; a++) {
+	  double time = row[a].equals(current) ? times[a] * MARGIN : times[a];
+	  if (time < best) {
+	    best = time;
+	    winner = a;
+	  }
+	}
+	winners[s] = row[winner];
+	if (rank == 0)
+	  System.out.println(operation + " " + bytes[s] + " bytes: " + winners[s]
+	      + " " + (long) (times[winner] * 1e6) + " us");
+      }
+
+      /* Consecutive sizes with the same winner share a range of bytes that
+       * starts after the previous measured size */
+      long low = 0;
+      for (int s = 0; s < sweep.length; s++) {
+	if (s < sweep.length - 1 && winners[s + 1].equals(winners[s]))
+	  continue;
+	String range;
+	if (sweep.length == 1)
+	  range = "*";
+	else if (s == sweep.length - 1)
+	  range = low + "-";
+	else
+	  range = low + "-" + bytes[s];
+	rules.add(operation + "  " + MPJDev.deviceName + "  " + size + "  "
+	    + range + "  " + winners[s]);
+	if (s < sweep.length - 1)
+	  low = bytes[s] + 1;
+      }
+    }
+
+    if (rank == 0)
+      write(new File(file), MPJDev.deviceName, size, rules);
+    MPI.Finalize();
+  }
+
+  /*
+   * Bytes the selector is asked about: the whole vector, or one block for
+   * gather and scatter. Vectors split into blocks are rounded down to
+   * whole blocks per process.
+   */
+  static long vectorBytes(String operation, int bytes, int size) {
+    if (operation.equals(CollectiveSelector.BARRIER))
+      return 0;
+    return (long) count(operation, bytes, size)
+	* (blocked(operation) ? size : 1) * MPI.DOUBLE.getByteSize();
+  }
+
+  static boolean blocked(String operation) {
+    return operation.equals(CollectiveSelector.ALLGATHER)
+	|| operation.equals(CollectiveSelector.ALLGATHERV)
+	|| operation.equals(CollectiveSelector.REDUCE_SCATTER);
+  }
+
+  /* Doubles per call, per process for the blocked operations */
+  static int count(String operation, int bytes, int size) {
+    int count = bytes / MPI.DOUBLE.getByteSize();
+    if (blocked(operation))
+      count /= size;
+    return Math.max(count, 1);
+  }
+
+  /*
+   * Best time of a few calls of operation on this process, in seconds.
+   * MPI.Wtime only counts whole seconds, so System.nanoTime is used.
+   */
+  static double measure(Intracomm comm, String operation, int bytes)
+      throws MPIException {
+    int size = comm.Size();
+    int count = count(operation, bytes, size);
+    double[] send = new double[count * size];
+    double[] recv = new double[count * size];
+    int[] counts = new int[size];
+    int[] displs = new int[size];
+    for (int i = 0; i < size; i++) {
+      counts[i] = count;
+      displs[i] = i * count;
+    }
+    Arrays.fill(send, comm.Rank() + 1);
+
+    int repetitions = bytes > 32768 ? LONG_REPETITIONS : REPETITIONS;
+    double best = Double.MAX_VALUE;
+
+    /* The first call is a warm-up */
+    for (int r = 0; r <= repetitions; r++) {
+      comm.Barrier();
+      long start = System.nanoTime();
+
+      if (operation.equals(CollectiveSelector.BARRIER))
+	comm.Barrier();
+      else if (operation.equals(CollectiveSelector.BCAST))
+	comm.Bcast(send, 0, count, MPI.DOUBLE, 0);
+      else if (operation.equals(CollectiveSelector.GATHER))
+	comm.Gather(send, 0, count, MPI.DOUBLE, recv, 0, count, MPI.DOUBLE, 0);
+      else if (operation.equals(CollectiveSelector.SCATTER))
+	comm.Scatter(send, 0, count, MPI.DOUBLE, recv, 0, count, MPI.DOUBLE, 0);
+      else if (operation.equals(CollectiveSelector.ALLGATHER))
+	comm.Allgather(send, 0, count, MPI.DOUBLE, recv, 0, count, MPI.DOUBLE);
+      else if (operation.equals(CollectiveSelector.ALLGATHERV))
+	comm.Allgatherv(send, 0, count, MPI.DOUBLE, recv, 0, counts, displs,
+	    MPI.DOUBLE);
+      else if (operation.equals(CollectiveSelector.REDUCE))
+	comm.Reduce(send, 0, recv, 0, count, MPI.DOUBLE, MPI.SUM, 0);
+      else if (operation.equals(CollectiveSelector.ALLREDUCE))
+	comm.Allreduce(send, 0, recv, 0, count, MPI.DOUBLE, MPI.SUM);
+      else if (operation.equals(CollectiveSelector.REDUCE_SCATTER))
+	comm.Reduce_scatter(send, 0, recv, 0, counts, MPI.DOUBLE, MPI.SUM);
+
+      double time = (System.nanoTime() - start) / 1e9;
+      if (r > 0)
+	best = Math.min(best, time);
+    }
+    return best;
+  }
+
+  /*
+   * Replaces the rules of the file for this device and number of processes
+   * by the measured ones, everything else in the file stays.
+   */
+  static void write(File file, String device, int size, List<String> rules)
+      throws IOException {
+    List<String> lines = new ArrayList<String>();
+    if (file.exists()) {
+      BufferedReader reader = new BufferedReader(new FileReader(file));
+      try {
+	String line;
+	while ((line = reader.readLine()) != null) {
+	  String[] columns = line.trim().split("\\s+");
+	  boolean ours = !line.trim().startsWith("#") && columns.length == 5
+	      && columns[1].equals(device) && columns[2].equals("" + size);
+	  if (!ours && !line.equals(header(device, size)))
+	    lines.add(line);
+	}
+      }
+      finally {
+	reader.close();
+      }
+    }
+    lines.add(header(device, size));
+    lines.addAll(rules);
+
+    PrintWriter writer = new PrintWriter(new FileWriter(file));
+    try {
+      for (String line : lines)
+	writer.println(line);
+    }
+    finally {
+      writer.close();
+    }
+    System.out.println("Wrote " + rules.size() + " rules to " + file);
+  }
+
+  static String header(String device, int size) {
+    return "# CollectiveTuner, " + device + " with " + size + " processes";
+  }
+}
@@ -406,6 +406,16 @@ public class Comm {
       return;
     }
 
+    if (sendsArray(buf, datatype)) {
+      try {
+	mpjdevComm.isendArray(buf, offset, count, dest, tag, pt2pt).iwait();
+      }
+      catch (Exception e) {
+	throw new MPIException(e);
+      }
+      return;
+    }
+
     Packer packer = datatype.getPacker();
 
     if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
@@ -436,6 +446,37 @@ public class Comm {
     }
   }
 
+  /*
+   * True when the elements of buf can go to the device as they are: a basic
+   * type matching the primitive array buf, on a device that copies arrays
+   * between processes itself (smpdev). Ssend, Bsend and Rsend keep packing.
+   */
+  private boolean sendsArray(Object buf, Datatype datatype) {
+    return datatype instanceof BasicType
+	&& arrayType(buf) == datatype.bufferType
+	&& mpjdevComm.sendsArrays();
+  }
+
+  private static mpjbuf.Type arrayType(Object buf) {
+    if (buf instanceof double[])
+      return mpjbuf.Type.DOUBLE;
+    if (buf instanceof int[])
+      return mpjbuf.Type.INT;
+    if (buf instanceof long[])
+      return mpjbuf.Type.LONG;
+    if (buf instanceof float[])
+      return mpjbuf.Type.FLOAT;
+    if (buf instanceof byte[])
+      return mpjbuf.Type.BYTE;
+    if (buf instanceof short[])
+      return mpjbuf.Type.SHORT;
+    if (buf instanceof char[])
+      return mpjbuf.Type.CHAR;
+    if (buf instanceof boolean[])
+      return mpjbuf.Type.BOOLEAN;
+    return null;
+  }
+
   /**
    * Send in synchronous mode.
    * <p>
@@ -924,6 +965,16 @@ public class Comm {
       return new mpi.Request(request);
     }
 
+    if (sendsArray(buf, datatype)) {
+      try {
+	return new mpi.Request(mpjdevComm.isendArray(buf, offset, count, dest,
+	    tag, pt2pt));
+      }
+      catch (Exception e) {
+	throw new MPIException(e);
+      }
+    }
+
     if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
       MPI.logger.debug("--Isend--" + tag);
       MPI.logger.debug(" creatingBuffer ");
@@ -1477,6 +1528,22 @@ public class Comm {
       MPI.logger.debug("--Recv--" + tag);
     }
 
+    if (sendsArray(buf, datatype)) {
+      mpjdev.Status status = new mpjdev.Status(source, tag, -1);
+      try {
+	status = mpjdevComm.irecvArray(buf, offset, count, source, tag, status,
+	    pt2pt).iwait();
+      }
+      catch (Exception e) {
+	throw new MPIException(e);
+      }
+
+      /* basic types have size 1, every element is one item */
+      mpi.Status st = new mpi.Status(status);
+      st.count = st.numEls;
+      return st;
+    }
+
     mpjbuf.Buffer rBuffer = datatype.createReadBuffer(count);
     Packer packer = datatype.getPacker();
     mpjdev.Status status = null;
@@ -1630,6 +1697,27 @@ public class Comm {
     if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
       MPI.logger.debug("--Irecv--" + tag);
     }
+
+    if (sendsArray(buf, datatype)) {
+      mpjdev.Request request = null;
+      try {
+	request = mpjdevComm.irecvArray(buf, offset, count, src, tag,
+	    new mpjdev.Status(src, tag, -1), pt2pt);
+      }
+      catch (Exception e) {
+	throw new MPIException(e);
+      }
+
+      request.addCompletionHandler(new mpjdev.CompletionHandler() {
+	public void handleCompletion(mpjdev.Status status) {
+	  status.count = status.numEls;
+	}
+      });
+
+      mpi.Request req = new mpi.Request(request);
+      req.datatype = datatype;
+      return req;
+    }
     /* these final variables don't look pretty here though :( */
     final mpjbuf.Buffer rBuffer = datatype.createReadBuffer(count);
     // System.out.println("createdBuffer (irecv)"+rBuffer+" src <"+src);
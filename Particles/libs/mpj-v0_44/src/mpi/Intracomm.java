@@ -82,6 +82,30 @@ public class Intracomm extends Comm {
     this.group = intracommImpl.group;
   }
 
+  /**
+   * Override the rules that pick the collective algorithms of this
+   * communicator, see <tt>CollectiveSelector</tt>. The rules of the
+   * selector come before those of all communicators, null restores them.
+   * Every process of the communicator has to set the same rules.
+   * <p>
+   * <table>
+   * <tr>
+   * <td><tt> selector </tt></td>
+   * <td>rules for this communicator or null
+   * </tr>
+   * </table>
+   */
+  public void setCollectiveSelector(CollectiveSelector selector) {
+    intracommImpl.setCollectiveSelector(selector);
+  }
+
+  /**
+   * Rules that pick the collective algorithms of this communicator.
+   */
+  public CollectiveSelector getCollectiveSelector() {
+    return intracommImpl.getCollectiveSelector();
+  }
+
   /**
    * Compare two communicators.
    * <p>
@@ -839,6 +863,53 @@ public class Intracomm extends Comm {
 
   }
 
+  /**
+   * Combine elements in input buffer of each process using the reduce
+   * operation, and scatter the combined values over the output buffers of the
+   * processes in blocks of the same size.
+   * <p>
+   * <table>
+   * <tr>
+   * <td><tt> sendbuf    </tt></td>
+   * <td>send buffer array
+   * </tr>
+   * <tr>
+   * <td><tt> sendoffset </tt></td>
+   * <td>initial offset in send buffer
+   * </tr>
+   * <tr>
+   * <td><tt> recvbuf    </tt></td>
+   * <td>receive buffer array
+   * </tr>
+   * <tr>
+   * <td><tt> recvoffset </tt></td>
+   * <td>initial offset in receive buffer
+   * </tr>
+   * <tr>
+   * <td><tt> recvcount  </tt></td>
+   * <td>number of result elements distributed to each process
+   * </tr>
+   * <tr>
+   * <td><tt> datatype   </tt></td>
+   * <td>data type of each item in send buffer
+   * </tr>
+   * <tr>
+   * <td><tt> op         </tt></td>
+   * <td>reduce operation
+   * </tr>
+   * </table>
+   * <p>
+   * Java binding of the MPI operation <tt>MPI_REDUCE_SCATTER_BLOCK</tt>.
+   */
+  public void Reduce_scatter_block(Object sendbuf, int sendoffset,
+      Object recvbuf, int recvoffset, int recvcount, Datatype datatype, Op op)
+      throws MPIException {
+
+    intracommImpl.Reduce_scatter_block(sendbuf, sendoffset, recvbuf,
+	recvoffset, recvcount, datatype, op);
+
+  }
+
   /**
    * Perform a prefix reduction on data distributed across the group.
    * <p>
@@ -43,9 +43,28 @@ import mpjbuf.*;
 public abstract class IntracommImpl
     extends Comm {
  
+  /* Rules of this communicator, null for those of all communicators */
+  CollectiveSelector selector = null;
+
   IntracommImpl() {
   }
 
+  /**
+   * Collective algorithms for this communicator, see CollectiveSelector.
+   * <p>
+   * <table>
+   * <tr><td><tt> selector </tt></td><td> rules in front of the defaults,
+   *                                      null for the defaults </tr>
+   * </table>
+   */
+  public void setCollectiveSelector(CollectiveSelector selector) {
+    this.selector = selector;
+  }
+
+  public CollectiveSelector getCollectiveSelector() {
+    return selector != null ? selector : CollectiveSelector.getDefault();
+  }
+
 
 
   /**
@@ -477,6 +496,26 @@ public abstract class IntracommImpl
   public abstract void Reduce_scatter(Object sendbuf, int sendoffset,
                              Object recvbuf, int recvoffset, int[] recvcounts,
                              Datatype datatype, Op op);
+
+  /**
+   * Reduce_scatter with the same number of result items for every process.
+   * <p>
+   * <table>
+   * <tr><td><tt> recvbuf    </tt></td><td> receive buffer array </tr>
+   * <tr><td><tt> recvoffset </tt></td><td> initial offset in receive
+   *                                        buffer </tr>
+   * <tr><td><tt> recvcount  </tt></td><td> number of result elements
+   *                                        distributed to each process </tr>
+   * <tr><td><tt> datatype   </tt></td><td> data type of each item in send
+   *                                        buffer </tr>
+   * <tr><td><tt> op         </tt></td><td> reduce operation </tr>
+   * </table>
+   * <p>
+   * Java binding of the MPI operation <tt>MPI_REDUCE_SCATTER_BLOCK</tt>.
+   */
+  public abstract void Reduce_scatter_block(Object sendbuf, int sendoffset,
+                             Object recvbuf, int recvoffset, int recvcount,
+                             Datatype datatype, Op op);
                              
                              
   /**
@@ -245,6 +245,7 @@ public class MPI {
     DataInputStream din = null;
     BufferedReader reader = null;
     String line = "";
+    String collectivesFile = null;
 
     try {
 
@@ -264,6 +265,8 @@ public class MPI {
 	  StringTokenizer tokenizer = new StringTokenizer(trimmedLine, "=");
 	  tokenizer.nextToken();
 	  isOldSelected = Boolean.parseBoolean(tokenizer.nextToken());
+	} else if (line.startsWith(CollectiveSelector.FILE_PROPERTY)) {
+	  collectivesFile = line.substring(line.indexOf('=') + 1).trim();
 	}
       }
 
@@ -273,6 +276,8 @@ public class MPI {
     catch (Exception e) {
       e.printStackTrace();
     }
+    CollectiveSelector.init(collectivesFile, isOldSelected);
+
     if (logger == null && DEBUG) {
       try {
 	if (level.toUpperCase().equals("DEBUG")) {
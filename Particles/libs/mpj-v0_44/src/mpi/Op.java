@@ -40,6 +40,7 @@ package mpi;
 public class Op {
   OpWorker worker = null;
   User_function funct = null; 
+  boolean commute = true;
   
   //TODO: Document this and later make this private and provide a 
   //	getter function
@@ -82,6 +83,7 @@ public class Op {
    */
   public Op(User_function function, boolean commute) throws MPIException {
     funct = function; 
+    this.commute = commute;
   }
   //TODO: document this new constructor
     /**
@@ -97,6 +99,7 @@ public class Op {
    */
   public Op(User_function function, boolean commute, int opCode_) throws MPIException {
     funct = function;
+    this.commute = commute;
     this.opCode = opCode_;
   }
 
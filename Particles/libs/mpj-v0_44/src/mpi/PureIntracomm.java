@@ -501,7 +501,8 @@ public class PureIntracomm extends IntracommImpl {
       return;
     }
 
-    if (EXOTIC_BARRIER) {
+    if (algorithm(CollectiveSelector.BARRIER, 0).equals(
+	CollectiveSelector.DISSEMINATION)) {
       exoticBarrier();
       return;
     }
@@ -591,7 +592,9 @@ public class PureIntracomm extends IntracommImpl {
    */
   public void Bcast(Object buf, int offset, int count, Datatype datatype,
       int root) throws MPIException {
-    if (MPI.isOldSelected) {
+    if (algorithm(CollectiveSelector.BCAST,
+	(long) count * datatype.getByteSize()).equals(
+	CollectiveSelector.FLAT_TREE)) {
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------Flat Tree Broadcast selected------");
       FT_Bcast(buf, offset, count, datatype, root);
@@ -783,11 +786,11 @@ public class PureIntracomm extends IntracommImpl {
       Datatype sendtype, Object recvbuf, int recvoffset, int recvcount,
       Datatype recvtype, int root) throws MPIException {
     // ------------------------------------------------MST_Gather---------------------------------------------------------
-    if (sendcount * sendtype.Size() <= 16384 && !MPI.isOldSelected) {
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
+    if (algorithm(CollectiveSelector.GATHER,
+	(long) sendcount * sendtype.getByteSize()).equals(
+	CollectiveSelector.MST)) {
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------MST Gather selected------");
-	MPI.logger.debug("Small Data Size 0 - 16 KB");
-      }
       int left = 0;
       int right = Size() - 1;
       System.arraycopy(sendbuf, sendoffset, recvbuf, Rank() * sendcount,
@@ -796,11 +799,8 @@ public class PureIntracomm extends IntracommImpl {
     }
     // ------------------------------------------------FT_Gather---------------------------------------------------------
     else {
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------Flat Tree Gather selected------");
-	if (!MPI.isOldSelected)
-	  MPI.logger.debug("Large Data Size > 16.1 KB");
-      }
       FT_Gather(sendbuf, sendoffset, sendcount, sendtype, recvbuf, recvoffset,
 	  recvcount, recvtype, root);
     }
@@ -1056,11 +1056,11 @@ public class PureIntracomm extends IntracommImpl {
       Datatype sendtype, Object recvbuf, int recvoffset, int recvcount,
       Datatype recvtype, int root) throws MPIException {
     // ------------------------------------------------MST_Scatter---------------------------------------------------------
-    if (sendcount * sendtype.Size() <= 16384 && !MPI.isOldSelected) {
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
+    if (algorithm(CollectiveSelector.SCATTER,
+	(long) sendcount * sendtype.getByteSize()).equals(
+	CollectiveSelector.MST)) {
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------MST Scatter selected------");
-	MPI.logger.debug("Small Data Size 0 - 16 KB");
-      }
       int left = 0;
       int right = Size() - 1;
       MST_Scatter(sendbuf, sendoffset, sendcount, sendtype, root, left, right);
@@ -1068,11 +1068,8 @@ public class PureIntracomm extends IntracommImpl {
     }
     // ------------------------------------------------FT_Scatter---------------------------------------------------------
     else {
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled()) {
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------Flat Tree Scatter selected------");
-	if (!MPI.isOldSelected)
-	  MPI.logger.debug("Large Data Size > 16.1 KB");
-      }
       FT_Scatter(sendbuf, sendoffset, sendcount, sendtype, recvbuf, recvoffset,
 	  recvcount, recvtype, root);
     }
@@ -1157,7 +1154,8 @@ public class PureIntracomm extends IntracommImpl {
       if (scount != recvcount) {
 	System.out.println(" scount shuld be equal to recvcount");
       }
-      System.arraycopy(sendbuf, soffset, recvbuf, recvoffset, recvcount);
+      System.arraycopy(sendbuf, soffset, recvbuf, recvoffset, recvcount
+	  * recvtype.size);
     }
 
     if (root == Rank()) {
@@ -1245,7 +1243,8 @@ public class PureIntracomm extends IntracommImpl {
       if (scount != recvcount) {
 	System.out.println(" scount shuld be equal to recvcount");
       }
-      System.arraycopy(sendbuf, soffset, recvbuf, recvoffset, recvcount);
+      System.arraycopy(sendbuf, soffset, recvbuf, recvoffset, recvcount
+	  * recvtype.size);
     }
 
     if (root == Rank()) {
@@ -1300,11 +1299,21 @@ public class PureIntracomm extends IntracommImpl {
   public void Allgather(Object sendbuf, int sendoffset, int sendcount,
       Datatype sendtype, Object recvbuf, int recvoffset, int recvcount,
       Datatype recvtype) throws MPIException {
-    if (MPI.isOldSelected) {
+    int size = Size();
+    String algorithm = algorithm(CollectiveSelector.ALLGATHER, (long) size
+	* recvcount * recvtype.getByteSize());
+
+    if (algorithm.equals(CollectiveSelector.FLAT_TREE)) {
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------Flat Tree Allgather Selected------");
       FT_Allgather(sendbuf, sendoffset, sendcount, sendtype, recvbuf,
 	  recvoffset, recvcount, recvtype);
+    } else if (algorithm.equals(CollectiveSelector.RECURSIVE_DOUBLING)
+	&& (size & (size - 1)) == 0) {
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Recursive Doubling Allgather Selected------");
+      RD_Allgather(sendbuf, sendoffset, sendcount, sendtype, recvbuf,
+	  recvoffset, recvcount, recvtype);
     } else {
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------MST Allgather Selected------");
@@ -1378,101 +1387,91 @@ public class PureIntracomm extends IntracommImpl {
       Datatype sendtype, Object recvbuf, int recvoffset, int recvcount,
       Datatype recvtype) throws MPIException {
 
-    if (EXOTIC_ALLGATHER) {
-
-      int me = Rank();
-      int size = Size();
+    // MPI.logger.debug("--Allgather--");
+    Request req[] = new Request[Size()];
+    int rcount = -1, roffset = -1;
 
-      int pof2 = 1;
+    for (int i = 0; i < Size(); i++) {
+      if (i != Rank())
+	req[i] = isend(sendbuf, sendoffset, sendcount, sendtype, i,
+	    allgatherTag + i + Rank(), false);
+    }
 
-      while (pof2 < size)
-	pof2 *= 2;
+    for (int i = 0; i < Size(); i++) {
+      if (i != Rank())
+	recv(recvbuf, recvoffset, recvcount, recvtype, i, allgatherTag
+	    + Rank() + i, false);
+      else {
+	rcount = recvcount;
+	roffset = recvoffset;
+      }
 
-      if (pof2 == size)
-	pof2 = 1;
-      else
-	pof2 = 0;
+      recvoffset += recvcount;
+    }
 
-      System.arraycopy(sendbuf, sendoffset, recvbuf, recvcount * me, recvcount);
+    // if (rcount != sendcount) {
+    // System.out.println("rcount not equal to sendcount");
+    // System.out.println("this is not possible, should not happen!");
+    // }
 
-      int curr_cnt = recvcount;
+    System.arraycopy(sendbuf, sendoffset, recvbuf, roffset, rcount);
 
-      int mask = 0x1;
-      int i = 0, dst;
-      int dst_tree_root, my_tree_root;
-      int send_offset, recv_offset;
-      int last_recv_cnt;
+    for (int i = 0; i < Size(); i++) {
+      if (i != Rank())
+	req[i].Wait();
+    }
 
-      while (mask < size) {
+    // MPI.logger.debug("--Allgather Ends--");
+  }
 
-	dst = me ^ mask;
+  /*
+   * Partners at distance 1, 2, 4 ... swap everything they have gathered so
+   * far, log2(size) steps. Only for power of two sizes.
+   */
+  private void RD_Allgather(Object sendbuf, int sendoffset, int sendcount,
+      Datatype sendtype, Object recvbuf, int recvoffset, int recvcount,
+      Datatype recvtype) throws MPIException {
 
-	dst_tree_root = dst >> i;
-	dst_tree_root <<= i;
+    int me = Rank();
+    int size = Size();
 
-	my_tree_root = me >> i;
-	my_tree_root <<= i;
+    System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset + recvcount * me,
+	recvcount);
 
-	send_offset = my_tree_root * recvcount;
-	recv_offset = dst_tree_root * recvcount;
+    int curr_cnt = recvcount;
 
-	Status status = sendrecv(recvbuf, send_offset, curr_cnt, sendtype, dst,
-	    allgatherTag, recvbuf, recv_offset, recvcount * mask, recvtype,
-	    dst, allgatherTag);
+    int mask = 0x1;
+    int i = 0, dst;
+    int dst_tree_root, my_tree_root;
+    int send_offset, recv_offset;
+    int last_recv_cnt;
 
-	last_recv_cnt = status.Get_count(recvtype);
-	curr_cnt += last_recv_cnt;
+    while (mask < size) {
 
-	mask <<= 1;
-	i++;
+      dst = me ^ mask;
 
-      } // end while
+      dst_tree_root = dst >> i;
+      dst_tree_root <<= i;
 
-    } // end if(true)
+      my_tree_root = me >> i;
+      my_tree_root <<= i;
 
-    else {
-      // MPI.logger.debug("--Allgather--");
-      Request req[] = new Request[Size()];
-      int rcount = -1, roffset = -1;
+      send_offset = recvoffset + my_tree_root * recvcount;
+      recv_offset = recvoffset + dst_tree_root * recvcount;
 
-      for (int i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  req[i] = isend(sendbuf, sendoffset, sendcount, sendtype, i,
-	      allgatherTag + i + Rank(), false);
-      }
+      Status status = sendrecv(recvbuf, send_offset, curr_cnt, sendtype, dst,
+	  allgatherTag, recvbuf, recv_offset, recvcount * mask, recvtype,
+	  dst, allgatherTag);
 
-      for (int i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  recv(recvbuf, recvoffset, recvcount, recvtype, i, allgatherTag
-	      + Rank() + i, false);
-	else {
-	  rcount = recvcount;
-	  roffset = recvoffset;
-	}
+      last_recv_cnt = status.Get_count(recvtype);
+      curr_cnt += last_recv_cnt;
 
-	recvoffset += recvcount;
-      }
-
-      // if (rcount != sendcount) {
-      // System.out.println("rcount not equal to sendcount");
-      // System.out.println("this is not possible, should not happen!");
-      // }
-
-      System.arraycopy(sendbuf, sendoffset, recvbuf, roffset, rcount);
-
-      for (int i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  req[i].Wait();
-      }
-    }
+      mask <<= 1;
+      i++;
 
-    // MPI.logger.debug("--Allgather Ends--");
+    } // end while
   }
 
-  static boolean EXOTIC_ALLGATHER = false;
-  static boolean EXOTIC_ALLGATHERV = false;
-  static boolean EXOTIC_BARRIER = false;
-
   /**
    * Similar to <tt>Gatherv</tt>, but all processes receive the result.
    * <p>
@@ -1521,140 +1520,286 @@ public class PureIntracomm extends IntracommImpl {
       Datatype sendtype, Object recvbuf, int recvoffset, int[] recvcount,
       int[] displs, Datatype recvtype) throws MPIException {
 
-    if (EXOTIC_ALLGATHERV) {
-      int total_count = 0;
-      Object tmp_buf = null;
-      int me = Rank();
-      int size = Size();
+    switch (allgathervAlgorithm(sendtype, recvtype, recvcount)) {
 
-      for (int i = 0; i < recvcount.length; i++) {
-	total_count += recvcount[i];
-      }
+    case ALLGATHERV_RING:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Ring Allgatherv Selected------");
+      System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset
+	  + displs[Rank()], recvcount[Rank()]);
+      RING_Allgatherv(recvbuf, recvoffset, recvcount, displs, recvtype);
+      break;
 
-      if (total_count == 0) {
-	return;
-      }
+    case ALLGATHERV_RECURSIVE_DOUBLING:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Recursive Doubling Allgatherv Selected------");
+      RD_Allgatherv(sendbuf, sendoffset, sendcount, recvbuf, recvoffset,
+	  recvcount, displs, recvtype);
+      break;
 
-      int pof2 = 1;
+    case ALLGATHERV_BRUCK:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Bruck Allgatherv Selected------");
+      BRUCK_Allgatherv(sendbuf, sendoffset, sendcount, recvbuf, recvoffset,
+	  recvcount, displs, recvtype);
+      break;
 
-      while (pof2 < size)
-	pof2 *= 2;
+    default:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Flat Tree Allgatherv Selected------");
+      FT_Allgatherv(sendbuf, sendoffset, sendcount, sendtype, recvbuf,
+	  recvoffset, recvcount, displs, recvtype);
+    }
+  }
 
-      if (pof2 == size)
-	pof2 = 1;
-      else
-	pof2 = 0;
-
-      if (sendtype == MPI.LONG) {
-	tmp_buf = new long[total_count];
-	tmp_buf = (long[]) tmp_buf;
-      } else if (sendtype == MPI.INT) {
-	tmp_buf = new int[total_count];
-	tmp_buf = (int[]) tmp_buf;
-      }
+  static final int ALLGATHERV_FLAT_TREE = 0;
+  static final int ALLGATHERV_RING = 1;
+  static final int ALLGATHERV_RECURSIVE_DOUBLING = 2;
+  static final int ALLGATHERV_BRUCK = 3;
+
+  /*
+   * Few large messages favour the ring, which only ever talks to the
+   * neighbours and moves each block once. Small messages are dominated by
+   * latency, recursive doubling and Bruck need ceil(log2(size)) steps instead
+   * of size - 1. The ring, recursive doubling and Bruck copy blocks with
+   * System.arraycopy, so they need the same basic datatype on both sides.
+   */
+  int allgathervAlgorithm(Datatype sendtype, Datatype recvtype, int[] recvcount)
+      throws MPIException {
 
-      int position = 0;
+    int size = Size();
 
-      for (int i = 0; i < me; i++) {
-	position += recvcount[i];
-      }
+    long bytes = 0;
+    for (int i = 0; i < size; i++)
+      bytes += (long) recvcount[i] * recvtype.getByteSize();
 
-      System.arraycopy(sendbuf, sendoffset, tmp_buf, position, recvcount[me]);
+    String algorithm = algorithm(CollectiveSelector.ALLGATHERV, bytes);
 
-      int curr_cnt = recvcount[me];
+    if (algorithm.equals(CollectiveSelector.FLAT_TREE)
+	|| !isArrayType(sendtype) || sendtype.baseType != recvtype.baseType)
+      return ALLGATHERV_FLAT_TREE;
+    if (algorithm.equals(CollectiveSelector.RING))
+      return ALLGATHERV_RING;
+    if (algorithm.equals(CollectiveSelector.RECURSIVE_DOUBLING))
+      return ALLGATHERV_RECURSIVE_DOUBLING;
+    return ALLGATHERV_BRUCK;
+  }
 
-      int mask = 0x1;
-      int i = 0, dst;
-      int dst_tree_root, my_tree_root;
-      int send_offset, recv_offset;
-      int last_recv_cnt;
+  /* Algorithm the selector of this communicator picks for operation */
+  String algorithm(String operation, long bytes) throws MPIException {
+    return getCollectiveSelector().select(operation, Size(), bytes);
+  }
 
-      while (mask < size) {
+  /*
+   * True for basic datatypes, whose items are single array elements. PACKED
+   * buffers and the LB/UB markers are not.
+   */
+  static boolean isArrayType(Datatype type) {
+    return type instanceof BasicType && type.baseType != Datatype.PACKED
+	&& type.baseType != Datatype.UNDEFINED
+	&& type.baseType != Datatype.NULL;
+  }
 
-	dst = me ^ mask;
+  /*
+   * Sends sendcount items to dest while receiving recvcount items from
+   * source. Empty messages are skipped, both sides of every collective below
+   * know all counts in advance so they always agree on that.
+   */
+  private void exchange(Object sendbuf, int sendoffset, int sendcount,
+      int dest, Object recvbuf, int recvoffset, int recvcount, int source,
+      Datatype datatype, int tag) throws MPIException {
 
-	dst_tree_root = dst >> i;
-	dst_tree_root <<= i;
+    Request recvRequest = null, sendRequest = null;
 
-	my_tree_root = me >> i;
-	my_tree_root <<= i;
+    if (recvcount > 0)
+      recvRequest = irecv(recvbuf, recvoffset, recvcount, datatype, source,
+	  tag, false);
+    if (sendcount > 0)
+      sendRequest = isend(sendbuf, sendoffset, sendcount, datatype, dest, tag,
+	  false);
 
-	send_offset = 0;
+    if (sendRequest != null)
+      sendRequest.Wait();
+    if (recvRequest != null)
+      recvRequest.Wait();
+  }
 
-	for (int j = 0; j < my_tree_root; j++)
-	  send_offset += recvcount[j];
+  /*
+   * size - 1 steps, in every step each process passes the block it received
+   * last to the next process and receives a new one from the previous
+   * process. The own block is already in place.
+   */
+  private void RING_Allgatherv(Object recvbuf, int recvoffset,
+      int[] recvcount, int[] displs, Datatype datatype) throws MPIException {
 
-	recv_offset = 0;
+    int me = Rank();
+    int size = Size();
+    int next = (me + 1) % size;
+    int prev = (me - 1 + size) % size;
 
-	for (int j = 0; j < dst_tree_root; j++)
-	  recv_offset += recvcount[j];
+    int sendBlock = me;
+    for (int step = 0; step < size - 1; step++) {
+      int recvBlock = (sendBlock - 1 + size) % size;
+      exchange(recvbuf, recvoffset + displs[sendBlock], recvcount[sendBlock],
+	  next, recvbuf, recvoffset + displs[recvBlock], recvcount[recvBlock],
+	  prev, datatype, allgathervTag);
+      sendBlock = recvBlock;
+    }
+  }
 
-	Status status = sendrecv(tmp_buf, send_offset, curr_cnt, sendtype, dst,
-	    allgathervTag, tmp_buf, recv_offset, total_count, recvtype, dst,
-	    allgathervTag);
+  /*
+   * Recursive doubling on the largest power of two pof2 <= size. The rem =
+   * size - pof2 extra processes first hand their block to process
+   * me - pof2 and get the complete result back at the end, so only
+   * processes below pof2 take part in the log2(pof2) doubling steps.
+   * 
+   * Blocks are gathered into a temporary buffer ordered by the doubling
+   * process that carries them (block v, then block v + pof2 for v < rem), so
+   * the blocks of every subtree are contiguous and go in one message.
+   */
+  private void RD_Allgatherv(Object sendbuf, int sendoffset, int sendcount,
+      Object recvbuf, int recvoffset, int[] recvcount, int[] displs,
+      Datatype datatype) throws MPIException {
 
-	last_recv_cnt = status.Get_count(recvtype);
-	curr_cnt += last_recv_cnt;
+    int me = Rank();
+    int size = Size();
 
-	mask <<= 1;
-	i++;
+    int pof2 = 1;
+    while (pof2 * 2 <= size)
+      pof2 *= 2;
+    int rem = size - pof2;
 
-      } // end while
+    int[] start = new int[pof2 + 1];
+    for (int v = 0; v < pof2; v++)
+      start[v + 1] = start[v] + recvcount[v]
+	  + (v < rem ? recvcount[v + pof2] : 0);
+    int total = start[pof2];
 
-      position = 0;
-      for (int j = 0; j < size; j++) {
+    if (total == 0)
+      return;
 
-	System.arraycopy(tmp_buf, position, recvbuf, recvoffset + displs[j],
-	    recvcount[j]);
-	position += recvcount[j];
+    Object tmp_buf = createTemporaryBuffer(datatype, total);
 
+    if (me >= pof2) {
+      exchange(sendbuf, sendoffset, sendcount, me - pof2, tmp_buf, 0, total,
+	  me - pof2, datatype, allgathervTag);
+    } else {
+      System.arraycopy(sendbuf, sendoffset, tmp_buf, start[me], recvcount[me]);
+      if (me < rem)
+	exchange(null, 0, 0, me + pof2, tmp_buf, start[me] + recvcount[me],
+	    recvcount[me + pof2], me + pof2, datatype, allgathervTag);
+
+      for (int mask = 1; mask < pof2; mask <<= 1) {
+	int dst = me ^ mask;
+	int my_tree_root = me & ~(mask - 1);
+	int dst_tree_root = dst & ~(mask - 1);
+
+	exchange(tmp_buf, start[my_tree_root], start[my_tree_root + mask]
+	    - start[my_tree_root], dst, tmp_buf, start[dst_tree_root],
+	    start[dst_tree_root + mask] - start[dst_tree_root], dst, datatype,
+	    allgathervTag);
       }
 
-    } // end if(true)
+      if (me < rem)
+	exchange(tmp_buf, 0, total, me + pof2, null, 0, 0, me + pof2,
+	    datatype, allgathervTag);
+    }
 
-    else {
+    for (int v = 0; v < pof2; v++) {
+      System.arraycopy(tmp_buf, start[v], recvbuf, recvoffset + displs[v],
+	  recvcount[v]);
+      if (v < rem)
+	System.arraycopy(tmp_buf, start[v] + recvcount[v], recvbuf,
+	    recvoffset + displs[v + pof2], recvcount[v + pof2]);
+    }
+  }
 
-      // MPI.logger.debug("--Allgatherv--");
-      Request req[] = new Request[Size()];
-      Request rreq[] = new Request[Size()];
-      int rcount = -1, roffset = -1, i = 0;
+  /*
+   * Bruck's algorithm, ceil(log2(size)) steps for any number of processes.
+   * The temporary buffer holds the blocks of processes me, me + 1, ... in
+   * that order. In the step with distance d every process sends its first
+   * min(d, size - d) blocks to me - d and appends the same number of blocks
+   * from me + d, which are exactly the blocks of processes me + d, me + d +
+   * 1 ... . At the end the blocks are rotated into place.
+   */
+  private void BRUCK_Allgatherv(Object sendbuf, int sendoffset,
+      int sendcount, Object recvbuf, int recvoffset, int[] recvcount,
+      int[] displs, Datatype datatype) throws MPIException {
 
-      for (i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  req[i] = isend(sendbuf, sendoffset, sendcount, sendtype, i,
-	      allgathervTag + i + Rank(), false);
-      }
+    int me = Rank();
+    int size = Size();
 
-      for (i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  rreq[i] = irecv(recvbuf, recvoffset + displs[i], recvcount[i],
-	      recvtype, i, allgathervTag + i + Rank(), false);
-	else {
-	  rcount = recvcount[i];
-	  roffset = recvoffset + displs[i];
-	}
+    int[] start = new int[size + 1];
+    for (int i = 0; i < size; i++)
+      start[i + 1] = start[i] + recvcount[(me + i) % size];
+    int total = start[size];
 
-      }
+    if (total == 0)
+      return;
 
-      // if (rcount != sendcount) {
-      // System.out.println("rcount not equal to sendcount");
-      // System.out.println("this is not possible, should not happen!");
-      // }
+    Object tmp_buf = createTemporaryBuffer(datatype, total);
+    System.arraycopy(sendbuf, sendoffset, tmp_buf, 0, recvcount[me]);
 
-      System.arraycopy(sendbuf, sendoffset, recvbuf, roffset, rcount);
+    for (int distance = 1; distance < size; distance <<= 1) {
+      int blocks = Math.min(distance, size - distance);
+      int src = (me + distance) % size;
+      int dst = (me - distance + size) % size;
 
-      for (i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  req[i].Wait();
-      }
+      exchange(tmp_buf, 0, start[blocks], dst, tmp_buf, start[distance],
+	  start[distance + blocks] - start[distance], src, datatype,
+	  allgathervTag);
+    }
 
-      for (i = 0; i < Size(); i++) {
-	if (i != Rank())
-	  rreq[i].Wait();
+    for (int i = 0; i < size; i++) {
+      int block = (me + i) % size;
+      System.arraycopy(tmp_buf, start[i], recvbuf, recvoffset + displs[block],
+	  recvcount[block]);
+    }
+  }
+
+  /*
+   * Every process sends its block to every other process directly, 2 * (size
+   * - 1) messages per process. Used for derived datatypes and with the old
+   * collectives.
+   */
+  public void FT_Allgatherv(Object sendbuf, int sendoffset, int sendcount,
+      Datatype sendtype, Object recvbuf, int recvoffset, int[] recvcount,
+      int[] displs, Datatype recvtype) throws MPIException {
+
+    // MPI.logger.debug("--Allgatherv--");
+    Request req[] = new Request[Size()];
+    Request rreq[] = new Request[Size()];
+    int rcount = -1, roffset = -1, i = 0;
+
+    for (i = 0; i < Size(); i++) {
+      if (i != Rank())
+	req[i] = isend(sendbuf, sendoffset, sendcount, sendtype, i,
+	    allgathervTag + i + Rank(), false);
+    }
+
+    for (i = 0; i < Size(); i++) {
+      if (i != Rank())
+	rreq[i] = irecv(recvbuf, recvoffset + displs[i], recvcount[i],
+	    recvtype, i, allgathervTag + i + Rank(), false);
+      else {
+	rcount = recvcount[i];
+	roffset = recvoffset + displs[i];
       }
-      // MPI.logger.debug("--Allgather Ends--");
 
     }
+
+    System.arraycopy(sendbuf, sendoffset, recvbuf, roffset, rcount);
+
+    for (i = 0; i < Size(); i++) {
+      if (i != Rank())
+	req[i].Wait();
+    }
+
+    for (i = 0; i < Size(); i++) {
+      if (i != Rank())
+	rreq[i].Wait();
+    }
+    // MPI.logger.debug("--Allgather Ends--");
   }
 
   /**
@@ -1923,7 +2068,9 @@ public class PureIntracomm extends IntracommImpl {
   public void Reduce(Object sendbuf, int sendoffset, Object recvbuf,
       int recvoffset, int count, Datatype datatype, Op op, int root)
       throws MPIException {
-    if (MPI.isOldSelected) {
+    if (algorithm(CollectiveSelector.REDUCE,
+	(long) count * datatype.getByteSize()).equals(
+	CollectiveSelector.FLAT_TREE)) {
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------Flat Tree Reduce Selected------");
       FT_Reduce(sendbuf, sendoffset, recvbuf, recvoffset, count, datatype, op,
@@ -1936,7 +2083,7 @@ public class PureIntracomm extends IntracommImpl {
       int right = Size() - 1;
       System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset, count
 	  * datatype.size);
-      MST_Reduce(recvbuf, sendoffset, count, datatype, op, root, left, right);
+      MST_Reduce(recvbuf, recvoffset, count, datatype, op, root, left, right);
     }
   }
 
@@ -1971,17 +2118,17 @@ public class PureIntracomm extends IntracommImpl {
     if (me == root) {
       if (op.worker == null) {
 	Object tmpbuf = createTemporaryBuffer(datatype, count);
-	System.arraycopy(buf, offset, tmpbuf, offset, count * datatype.size);
+	System.arraycopy(buf, offset, tmpbuf, 0, count * datatype.size);
 	recv(buf, offset, count, datatype, srce, reduceTag, false);
-	op.funct.Call(buf, offset, tmpbuf, offset, count, datatype);
-	System.arraycopy(tmpbuf, offset, buf, offset, count * datatype.size);
+	op.funct.Call(buf, offset, tmpbuf, 0, count, datatype);
+	System.arraycopy(tmpbuf, 0, buf, offset, count * datatype.size);
       } else {
 	Op opx = op.worker.getWorker(datatype);
 	opx.createInitialBuffer(buf, offset, count); // create temp array and
 						     // copy contents of recvbuf
 						     // to temp array
 	recv(buf, offset, count, datatype, srce, reduceTag, false);
-	opx.perform(buf, offset, count); // opx performs the calculation
+	opx.perform(buf, offset, offset + count); // opx performs the calculation
 	opx.getResultant(buf, offset, count); // opx copies the result to recv
 					      // buffer
 
@@ -2006,7 +2153,7 @@ public class PureIntracomm extends IntracommImpl {
 	req = isend(sendbuf, sendoffset, count, datatype, root, reduceTag,
 	    false);
       else
-	System.arraycopy(sendbuf, sendoffset, tmpbuf, sendoffset, count
+	System.arraycopy(sendbuf, sendoffset, tmpbuf, 0, count
 	    * datatype.size);
 
       if (Rank() == root) {
@@ -2015,49 +2162,45 @@ public class PureIntracomm extends IntracommImpl {
 	    continue;
 	  }
 	  recv(recvbuf, recvoffset, count, datatype, i, reduceTag, false);
-	  op.funct.Call(recvbuf, recvoffset, tmpbuf, sendoffset, count,
-	      datatype);
+	  op.funct.Call(recvbuf, recvoffset, tmpbuf, 0, count, datatype);
 	}
       }
 
       if (root != Rank())
 	req.Wait();
-
-      System.arraycopy(tmpbuf, sendoffset, recvbuf, recvoffset, count
-	  * datatype.size);
+      else
+	System.arraycopy(tmpbuf, 0, recvbuf, recvoffset, count
+	    * datatype.size);
       return;
 
     }// end if user_defined datatypes.
 
-    /* Code for pre-defined operations */
-    Op op2 = op.worker.getWorker(datatype);
-    op2.createInitialBuffer(sendbuf, sendoffset, count);
-    Request req = null;
+    /*
+     * Code for pre-defined operations, the worker keeps the running result
+     * at the offsets of recvbuf and the root receives into recvbuf.
+     */
+    if (root != Rank()) {
+      isend(sendbuf, sendoffset, count, datatype, root, reduceTag, false)
+	  .Wait();
+      return;
+    }
 
-    if (root != Rank())
-      req = isend(sendbuf, sendoffset, count, datatype, root, reduceTag, false);
-    // else
-    // op2.perform(sendbuf, sendoffset, count);
+    int elements = count * datatype.size;
+    Op op2 = op.worker.getWorker(datatype);
+    System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset, elements);
+    op2.createInitialBuffer(recvbuf, recvoffset, elements);
 
-    if (Rank() == root) {
-      for (int i = 0; i < Size(); i++) {
-	if (i == Rank()) {
-	  continue;
-	}
-	recv(recvbuf, recvoffset, count, datatype, i, reduceTag, false);
-	op2.perform(recvbuf, recvoffset, count);
+    for (int i = 0; i < Size(); i++) {
+      if (i == Rank()) {
+	continue;
       }
+      recv(recvbuf, recvoffset, count, datatype, i, reduceTag, false);
+      op2.perform(recvbuf, recvoffset, recvoffset + elements);
     }
 
-    op2.getResultant(recvbuf, recvoffset, count);
-
-    if (root != Rank())
-      req.Wait();
-
+    op2.getResultant(recvbuf, recvoffset, elements);
   }
 
-  static boolean EXOTIC_ALLREDUCE = false;
-
   /**
    * Same as <tt>reduce</tt> except that the result appears in receive buffer of
    * all process in the group.
@@ -2125,7 +2268,7 @@ public class PureIntracomm extends IntracommImpl {
       break;
 
     case Datatype.BOOLEAN:
-      tempBuffer = new byte[count * datatype.Size()];
+      tempBuffer = new boolean[count * datatype.Size()];
       break;
 
     case Datatype.INT:
@@ -2167,12 +2310,31 @@ public class PureIntracomm extends IntracommImpl {
 
   public void Allreduce(Object sendbuf, int sendoffset, Object recvbuf,
       int recvoffset, int count, Datatype datatype, Op op) throws MPIException {
-    if (MPI.isOldSelected) {
+
+    switch (allreduceAlgorithm(count, datatype, op)) {
+
+    case ALLREDUCE_RECURSIVE_DOUBLING:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Recursive Doubling Allreduce Selected------");
+      RD_Allreduce(sendbuf, sendoffset, recvbuf, recvoffset, count, datatype,
+	  op);
+      break;
+
+    case ALLREDUCE_RABENSEIFNER:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Rabenseifner Allreduce Selected------");
+      RSAG_Allreduce(sendbuf, sendoffset, recvbuf, recvoffset, count,
+	  datatype, op);
+      break;
+
+    case ALLREDUCE_FLAT_TREE:
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------Flat Tree Allreduce Selected------");
       FT_Allreduce(sendbuf, sendoffset, recvbuf, recvoffset, count, datatype,
 	  op);
-    } else {
+      break;
+
+    default:
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("-------MST Reduce + MST Broadcast Selected------");
       // ------------------------------------------------MSTReduce +
@@ -2184,6 +2346,305 @@ public class PureIntracomm extends IntracommImpl {
     }
   }
 
+  static final int ALLREDUCE_REDUCE_BCAST = 0;
+  static final int ALLREDUCE_FLAT_TREE = 1;
+  static final int ALLREDUCE_RECURSIVE_DOUBLING = 2;
+  static final int ALLREDUCE_RABENSEIFNER = 3;
+
+  /*
+   * Recursive doubling sends the whole vector log2(size) times, which is
+   * best while latency dominates. Rabenseifner's algorithm sends about twice
+   * the vector in total and spreads the reduction work over all processes,
+   * it needs at least one item per process. Both rely on the operation being
+   * commutative and on the items being consecutive array elements,
+   * everything else keeps Reduce + Bcast.
+   */
+  int allreduceAlgorithm(int count, Datatype datatype, Op op)
+      throws MPIException {
+
+    int size = Size();
+    String algorithm = algorithm(CollectiveSelector.ALLREDUCE, (long) count
+	* datatype.getByteSize());
+
+    /* Flat tree combines in a different order on every process */
+    if (!op.commute)
+      return ALLREDUCE_REDUCE_BCAST;
+    if (algorithm.equals(CollectiveSelector.FLAT_TREE))
+      return ALLREDUCE_FLAT_TREE;
+    if (size < 2 || !isContiguousType(datatype)
+	|| algorithm.equals(CollectiveSelector.REDUCE_BCAST))
+      return ALLREDUCE_REDUCE_BCAST;
+
+    int pof2 = 1;
+    while (pof2 * 2 <= size)
+      pof2 *= 2;
+
+    if (algorithm.equals(CollectiveSelector.RABENSEIFNER) && count >= pof2)
+      return ALLREDUCE_RABENSEIFNER;
+    return ALLREDUCE_RECURSIVE_DOUBLING;
+  }
+
+  /*
+   * True when count items of type are count * type.Size() consecutive array
+   * elements: basic datatypes and contiguous types built from them.
+   */
+  static boolean isContiguousType(Datatype type) throws MPIException {
+    return (isArrayType(type) || type instanceof Contiguous)
+	&& type.baseType != Datatype.PACKED && type.Size() > 0
+	&& type.Lb() == 0 && type.Extent() == type.Size();
+  }
+
+  /*
+   * inout = in op inout for count items starting at the given array offsets.
+   * The predefined workers index both arrays alike and perform() runs up to
+   * its count argument instead of offset + count, so arrays sharing the
+   * offset are reduced in place and others through copies starting at 0.
+   */
+  void reduceLocal(Object in, int inoffset, Object inout, int inoutoffset,
+      int count, Datatype datatype, Op op) throws MPIException {
+
+    if (count == 0)
+      return;
+
+    if (op.worker == null) {
+      op.funct.Call(in, inoffset, inout, inoutoffset, count, datatype);
+      return;
+    }
+
+    int elements = count * datatype.Size();
+    Op opx = op.worker.getWorker(datatype);
+
+    if (inoffset == inoutoffset) {
+      opx.createInitialBuffer(inout, inoutoffset, elements);
+      opx.perform(in, inoffset, inoffset + elements);
+      opx.getResultant(inout, inoutoffset, elements);
+      return;
+    }
+
+    Object inCopy = in, inoutCopy = inout;
+
+    if (inoffset != 0) {
+      inCopy = createTemporaryBuffer(datatype, count);
+      System.arraycopy(in, inoffset, inCopy, 0, elements);
+    }
+    if (inoutoffset != 0) {
+      inoutCopy = createTemporaryBuffer(datatype, count);
+      System.arraycopy(inout, inoutoffset, inoutCopy, 0, elements);
+    }
+
+    opx.createInitialBuffer(inoutCopy, 0, elements);
+    opx.perform(inCopy, 0, elements);
+    opx.getResultant(inoutCopy, 0, elements);
+
+    if (inoutoffset != 0)
+      System.arraycopy(inoutCopy, 0, inout, inoutoffset, elements);
+  }
+
+  /*
+   * Reduces away the rem = size - pof2 extra processes before the power of
+   * two algorithms: in the 2 * rem lowest processes every even process hands
+   * its vector to the odd one above and sits out. Returns the rank among the
+   * pof2 remaining processes, or -1 for a process that sits out. tmp_buf
+   * is laid out like recvbuf.
+   */
+  private int foldExtraProcesses(Object recvbuf, int recvoffset, int count,
+      Datatype datatype, Op op, Object tmp_buf, int rem, int tag)
+      throws MPIException {
+
+    int me = Rank();
+
+    if (me >= 2 * rem)
+      return me - rem;
+
+    if (me % 2 == 0) {
+      exchange(recvbuf, recvoffset, count, me + 1, null, 0, 0, me + 1,
+	  datatype, tag);
+      return -1;
+    }
+
+    exchange(null, 0, 0, me - 1, tmp_buf, recvoffset, count, me - 1, datatype,
+	tag);
+    reduceLocal(tmp_buf, recvoffset, recvbuf, recvoffset, count, datatype, op);
+    return me / 2;
+  }
+
+  /* Hands the result back to the processes that sat out */
+  private void unfoldExtraProcesses(Object recvbuf, int recvoffset,
+      int count, Datatype datatype, int rem, int tag) throws MPIException {
+
+    int me = Rank();
+
+    if (me >= 2 * rem)
+      return;
+
+    if (me % 2 == 0)
+      exchange(null, 0, 0, me + 1, recvbuf, recvoffset, count, me + 1,
+	  datatype, tag);
+    else
+      exchange(recvbuf, recvoffset, count, me - 1, null, 0, 0, me - 1,
+	  datatype, tag);
+  }
+
+  /*
+   * Scratch array with count items at the same offset as in the array it
+   * shadows, so reduceLocal() works on both without copies.
+   */
+  private Object createShadowBuffer(Datatype datatype, int count, int offset) {
+    int unit = datatype.Size();
+    return createTemporaryBuffer(datatype, count + (offset + unit - 1) / unit);
+  }
+
+  /* Real rank of rank newrank among the pof2 processes left after folding */
+  private static int unfoldedRank(int newrank, int rem) {
+    return newrank < rem ? newrank * 2 + 1 : newrank + rem;
+  }
+
+  /*
+   * log2(pof2) steps in which partners at distance 1, 2, 4 ... exchange
+   * their partial results and both reduce them. Every process ends up with
+   * the same bits, the operation is commutative.
+   */
+  private void RD_Allreduce(Object sendbuf, int sendoffset, Object recvbuf,
+      int recvoffset, int count, Datatype datatype, Op op)
+      throws MPIException {
+
+    int size = Size();
+    int elements = count * datatype.Size();
+
+    System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset, elements);
+
+    int pof2 = 1;
+    while (pof2 * 2 <= size)
+      pof2 *= 2;
+    int rem = size - pof2;
+
+    Object tmp_buf = createShadowBuffer(datatype, count, recvoffset);
+
+    int newrank = foldExtraProcesses(recvbuf, recvoffset, count, datatype, op,
+	tmp_buf, rem, allreduceTag);
+
+    if (newrank != -1) {
+      for (int mask = 1; mask < pof2; mask <<= 1) {
+	int dst = unfoldedRank(newrank ^ mask, rem);
+
+	exchange(recvbuf, recvoffset, count, dst, tmp_buf, recvoffset, count,
+	    dst, datatype, allreduceTag);
+	reduceLocal(tmp_buf, recvoffset, recvbuf, recvoffset, count, datatype,
+	    op);
+      }
+    }
+
+    unfoldExtraProcesses(recvbuf, recvoffset, count, datatype, rem,
+	allreduceTag);
+  }
+
+  /*
+   * Rabenseifner's algorithm: a reduce-scatter by recursive halving, after
+   * which process i holds the reduced block i of pof2 blocks, then an
+   * allgather of the blocks by recursive doubling along the same pairs in
+   * reverse order. Follows the MPICH implementation.
+   */
+  private void RSAG_Allreduce(Object sendbuf, int sendoffset, Object recvbuf,
+      int recvoffset, int count, Datatype datatype, Op op)
+      throws MPIException {
+
+    int size = Size();
+    int unit = datatype.Size();
+
+    System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset, count * unit);
+
+    int pof2 = 1;
+    while (pof2 * 2 <= size)
+      pof2 *= 2;
+    int rem = size - pof2;
+
+    Object tmp_buf = createShadowBuffer(datatype, count, recvoffset);
+
+    int newrank = foldExtraProcesses(recvbuf, recvoffset, count, datatype, op,
+	tmp_buf, rem, allreduceTag);
+
+    if (newrank != -1) {
+      int[] cnts = new int[pof2];
+      int[] disps = new int[pof2];
+      for (int i = 0; i < pof2; i++)
+	cnts[i] = count / pof2 + (i < count % pof2 ? 1 : 0);
+      for (int i = 1; i < pof2; i++)
+	disps[i] = disps[i - 1] + cnts[i - 1];
+
+      int mask = 1;
+      int send_idx = 0, recv_idx = 0, last_idx = pof2;
+
+      while (mask < pof2) {
+	int newdst = newrank ^ mask;
+	int dst = unfoldedRank(newdst, rem);
+	int send_cnt = 0, recv_cnt = 0;
+
+	if (newrank < newdst) {
+	  send_idx = recv_idx + pof2 / (mask * 2);
+	  for (int i = send_idx; i < last_idx; i++)
+	    send_cnt += cnts[i];
+	  for (int i = recv_idx; i < send_idx; i++)
+	    recv_cnt += cnts[i];
+	} else {
+	  recv_idx = send_idx + pof2 / (mask * 2);
+	  for (int i = send_idx; i < recv_idx; i++)
+	    send_cnt += cnts[i];
+	  for (int i = recv_idx; i < last_idx; i++)
+	    recv_cnt += cnts[i];
+	}
+
+	exchange(recvbuf, recvoffset + disps[send_idx] * unit, send_cnt, dst,
+	    tmp_buf, recvoffset + disps[recv_idx] * unit, recv_cnt, dst,
+	    datatype, allreduceTag);
+	reduceLocal(tmp_buf, recvoffset + disps[recv_idx] * unit, recvbuf,
+	    recvoffset + disps[recv_idx] * unit, recv_cnt, datatype, op);
+
+	send_idx = recv_idx;
+	mask <<= 1;
+
+	// last_idx is still needed by the allgather after the last step
+	if (mask < pof2)
+	  last_idx = recv_idx + pof2 / mask;
+      }
+
+      mask >>= 1;
+      while (mask > 0) {
+	int newdst = newrank ^ mask;
+	int dst = unfoldedRank(newdst, rem);
+	int send_cnt = 0, recv_cnt = 0;
+
+	if (newrank < newdst) {
+	  if (mask != pof2 / 2)
+	    last_idx = last_idx + pof2 / (mask * 2);
+
+	  recv_idx = send_idx + pof2 / (mask * 2);
+	  for (int i = send_idx; i < recv_idx; i++)
+	    send_cnt += cnts[i];
+	  for (int i = recv_idx; i < last_idx; i++)
+	    recv_cnt += cnts[i];
+	} else {
+	  recv_idx = send_idx - pof2 / (mask * 2);
+	  for (int i = send_idx; i < last_idx; i++)
+	    send_cnt += cnts[i];
+	  for (int i = recv_idx; i < send_idx; i++)
+	    recv_cnt += cnts[i];
+	}
+
+	exchange(recvbuf, recvoffset + disps[send_idx] * unit, send_cnt, dst,
+	    recvbuf, recvoffset + disps[recv_idx] * unit, recv_cnt, dst,
+	    datatype, allreduceTag);
+
+	if (newrank > newdst)
+	  send_idx = recv_idx;
+
+	mask >>= 1;
+      }
+    }
+
+    unfoldExtraProcesses(recvbuf, recvoffset, count, datatype, rem,
+	allreduceTag);
+  }
+
   public void FT_Allreduce(Object sendbuf, int sendoffset, Object recvbuf,
       int recvoffset, int count, Datatype datatype, Op op) throws MPIException {
 
@@ -2208,15 +2669,14 @@ public class PureIntracomm extends IntracommImpl {
 	  req[i] = isend(sendbuf, sendoffset, count, datatype, i, allreduceTag,
 	      false);
 	else
-	  System.arraycopy(sendbuf, sendoffset, tmpbuf, sendoffset, count
+	  System.arraycopy(sendbuf, sendoffset, tmpbuf, 0, count
 	      * datatype.size);
       }
 
       for (int i = 0; i < Size(); i++) {
 	if (i != Rank()) {
 	  recv(recvbuf, recvoffset, count, datatype, i, allreduceTag, false);
-	  op.funct.Call(recvbuf, recvoffset, tmpbuf, sendoffset, count,
-	      datatype);
+	  op.funct.Call(recvbuf, recvoffset, tmpbuf, 0, count, datatype);
 	}
       }
 
@@ -2226,7 +2686,7 @@ public class PureIntracomm extends IntracommImpl {
       }
 
       // why is it count.datatype.size ???
-      System.arraycopy(tmpbuf, sendoffset, recvbuf, recvoffset, count
+      System.arraycopy(tmpbuf, 0, recvbuf, recvoffset, count
 	  * datatype.size);
       return;
 
@@ -2234,33 +2694,6 @@ public class PureIntracomm extends IntracommImpl {
 
     else {
 
-      if (EXOTIC_ALLREDUCE) {
-
-	Op op2 = op.worker.getWorker(datatype);
-
-	op2.createInitialBuffer(sendbuf, sendoffset, count * datatype.size);
-	op2.getResultant(recvbuf, recvoffset, count);
-
-	int mask = 0x1;
-	int i = 0, dst;
-	int me = Rank();
-	int size = Size();
-
-	while (mask < size) {
-
-	  dst = me ^ mask;
-
-	  sendrecv(recvbuf, sendoffset, count, datatype, dst, allreduceTag,
-	      sendbuf, recvoffset, count, datatype, dst, allreduceTag);
-
-	  op2.perform(sendbuf, recvoffset, count);
-	  op2.getResultant(recvbuf, recvoffset, count);
-	  mask <<= 1;
-	}
-
-	return;
-      }
-
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("Pre defined ops");
 
@@ -2269,7 +2702,10 @@ public class PureIntracomm extends IntracommImpl {
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("got worker");
 
-      op2.createInitialBuffer(sendbuf, sendoffset, count * datatype.size);
+      /* The running result is kept at the offsets of recvbuf */
+      int elements = count * datatype.size;
+      System.arraycopy(sendbuf, sendoffset, recvbuf, recvoffset, elements);
+      op2.createInitialBuffer(recvbuf, recvoffset, elements);
 
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("created initial buffer ");
@@ -2291,11 +2727,11 @@ public class PureIntracomm extends IntracommImpl {
       for (int i = 0; i < Size(); i++) {
 	if (i != Rank()) {
 	  recv(recvbuf, recvoffset, count, datatype, i, allreduceTag, false);
-	  op2.perform(recvbuf, recvoffset, count);
+	  op2.perform(recvbuf, recvoffset, recvoffset + elements);
 	}
       }
 
-      op2.getResultant(recvbuf, recvoffset, count);
+      op2.getResultant(recvbuf, recvoffset, elements);
 
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
 	MPI.logger.debug("got resultant ..");
@@ -2355,104 +2791,282 @@ public class PureIntracomm extends IntracommImpl {
   public void Reduce_scatter(Object sendbuf, int sendoffset, Object recvbuf,
       int recvoffset, int[] recvcounts, Datatype datatype, Op op)
       throws MPIException {
-    if (MPI.isOldSelected) {
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
-	MPI.logger.debug("-------Flat Tree Reduce_Scatter selected------");
 
-      FT_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
+    switch (reduceScatterAlgorithm(recvcounts, datatype, op)) {
+
+    case REDUCE_SCATTER_RECURSIVE_HALVING:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Recursive Halving Reduce_scatter Selected------");
+      RH_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
 	  datatype, op);
+      break;
 
-    } else {
+    case REDUCE_SCATTER_PAIRWISE:
       if (MPI.DEBUG && MPI.logger.isDebugEnabled())
-	MPI.logger.debug("-------BKT Reduce_Scatter selected------");
-      // ---------------------MSTReduce +
-      // MSTScatter(v)---------------------------------------
+	MPI.logger.debug("-------Pairwise Exchange Reduce_scatter Selected------");
+      PE_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
+	  datatype, op);
+      break;
 
-      BKT_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
+    case REDUCE_SCATTER_REDUCE_SCATTERV:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------MST Reduce + Scatterv Selected------");
+      MST_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
 	  datatype, op);
+      break;
 
+    default:
+      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
+	MPI.logger.debug("-------Flat Tree Reduce_Scatter selected------");
+      FT_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
+	  datatype, op);
     }
   }
 
-  private void BKT_Reduce_scatter(Object buf, int offset, Object recvbuf,
-      int recvoffset, int[] recvcounts, Datatype datatype, Op op)
+  /**
+   * Reduce_scatter with the same number of result items for every process.
+   * <p>
+   * <table>
+   * <tr>
+   * <td><tt> sendbuf    </tt></td>
+   * <td>send buffer array
+   * </tr>
+   * <tr>
+   * <td><tt> sendoffset </tt></td>
+   * <td>initial offset in send buffer
+   * </tr>
+   * <tr>
+   * <td><tt> recvbuf    </tt></td>
+   * <td>receive buffer array
+   * </tr>
+   * <tr>
+   * <td><tt> recvoffset </tt></td>
+   * <td>initial offset in receive buffer
+   * </tr>
+   * <tr>
+   * <td><tt> recvcount  </tt></td>
+   * <td>number of result elements distributed to each process
+   * </tr>
+   * <tr>
+   * <td><tt> datatype   </tt></td>
+   * <td>data type of each item in send buffer
+   * </tr>
+   * <tr>
+   * <td><tt> op         </tt></td>
+   * <td>reduce operation
+   * </tr>
+   * </table>
+   * <p>
+   * Java binding of the MPI operation <tt>MPI_REDUCE_SCATTER_BLOCK</tt>.
+   */
+
+  public void Reduce_scatter_block(Object sendbuf, int sendoffset,
+      Object recvbuf, int recvoffset, int recvcount, Datatype datatype, Op op)
+      throws MPIException {
+
+    int[] recvcounts = new int[Size()];
+    Arrays.fill(recvcounts, recvcount);
+    Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
+	datatype, op);
+  }
+
+  static final int REDUCE_SCATTER_FLAT_TREE = 0;
+  static final int REDUCE_SCATTER_REDUCE_SCATTERV = 1;
+  static final int REDUCE_SCATTER_RECURSIVE_HALVING = 2;
+  static final int REDUCE_SCATTER_PAIRWISE = 3;
+
+  /*
+   * Recursive halving sends and reduces n/2 + n/4 + ... items in log2(size)
+   * steps, but a process forwards blocks of others on the way. Pairwise
+   * exchange takes size - 1 steps in which every block goes straight to its
+   * owner, which pays off for long vectors as long as no block is much
+   * bigger than the others: every step lasts as long as the biggest block,
+   * so with irregular blocks recursive halving is used instead.
+   * Non-commutative operations keep the order of Reduce + Scatterv.
+   */
+  int reduceScatterAlgorithm(int[] recvcounts, Datatype datatype, Op op)
       throws MPIException {
 
-    int me = Rank();
     int size = Size();
-    int prev = me - 1;
-    if (prev < 0)
-      prev = size - 1;
-    int next = me + 1;
-    if (next == size)
-      next = 0;
 
-    int count = 0;
-    for (int i = 0; i < recvcounts.length; i++)
-      count += recvcounts[i];
+    long total = 0, largest = 0;
+    for (int i = 0; i < size; i++) {
+      total += recvcounts[i];
+      largest = Math.max(largest, recvcounts[i]);
+    }
+
+    String algorithm = algorithm(CollectiveSelector.REDUCE_SCATTER, total
+	* datatype.getByteSize());
+
+    if (algorithm.equals(CollectiveSelector.FLAT_TREE)
+	|| !isContiguousType(datatype))
+      return REDUCE_SCATTER_FLAT_TREE;
+    if (size < 2 || !op.commute
+	|| algorithm.equals(CollectiveSelector.REDUCE_SCATTERV))
+      return REDUCE_SCATTER_REDUCE_SCATTERV;
+    if (algorithm.equals(CollectiveSelector.PAIRWISE)
+	&& largest * size <= 2 * total)
+      return REDUCE_SCATTER_PAIRWISE;
+    return REDUCE_SCATTER_RECURSIVE_HALVING;
+  }
 
-    Request s_req[] = new Request[Size() - 1];
-    Request r_req[] = new Request[Size() - 1];
+  /*
+   * The whole vector is reduced into a scratch array by recursive halving:
+   * in every step partners split the blocks they are still responsible for,
+   * each sends the half it gives up and reduces the half it keeps. Extra
+   * processes of a non power of two size are folded into their neighbours,
+   * which then own both blocks and hand one back at the end. Follows the
+   * MPICH implementation.
+   */
+  private void RH_Reduce_scatter(Object sendbuf, int sendoffset,
+      Object recvbuf, int recvoffset, int[] recvcounts, Datatype datatype,
+      Op op) throws MPIException {
 
-    int isend_offset = 0, irecv_offset = 0;
-    for (int i = 0; i < prev; i++)
-      isend_offset += recvcounts[i];
-    for (int i = 0; i < me; i++)
-      irecv_offset += recvcounts[i];
+    int me = Rank();
+    int size = Size();
+    int unit = datatype.Size();
+
+    int[] disps = new int[size];
+    for (int i = 1; i < size; i++)
+      disps[i] = disps[i - 1] + recvcounts[i - 1];
+    int total = disps[size - 1] + recvcounts[size - 1];
+
+    Object tmp_results = createTemporaryBuffer(datatype, total);
+    Object tmp_recvbuf = createTemporaryBuffer(datatype, total);
+    System.arraycopy(sendbuf, sendoffset, tmp_results, 0, total * unit);
+
+    int pof2 = 1;
+    while (pof2 * 2 <= size)
+      pof2 *= 2;
+    int rem = size - pof2;
+
+    int newrank = foldExtraProcesses(tmp_results, 0, total, datatype, op,
+	tmp_recvbuf, rem, reducescatterTag);
+
+    if (newrank != -1) {
+      int[] newcnts = new int[pof2];
+      int[] newdisps = new int[pof2];
+      for (int i = 0; i < pof2; i++) {
+	int old_i = unfoldedRank(i, rem);
+	newcnts[i] = recvcounts[old_i];
+	newdisps[i] = disps[old_i];
+	if (old_i < 2 * rem) {
+	  newcnts[i] += recvcounts[old_i - 1];
+	  newdisps[i] = disps[old_i - 1];
+	}
+      }
 
-    Op opx = null;
-    if (op.worker != null) {
-      opx = op.worker.getWorker(datatype);
-      opx.createInitialBuffer(buf, offset, count);
-    }
+      int send_idx = 0, recv_idx = 0, last_idx = pof2;
+      for (int mask = pof2 / 2; mask > 0; mask >>= 1) {
+	int newdst = newrank ^ mask;
+	int dst = unfoldedRank(newdst, rem);
+	int send_cnt = 0, recv_cnt = 0;
 
-    Object tmpbuf = createTemporaryBuffer(datatype, count);
+	if (newrank < newdst) {
+	  send_idx = recv_idx + mask;
+	  for (int i = send_idx; i < last_idx; i++)
+	    send_cnt += newcnts[i];
+	  for (int i = recv_idx; i < send_idx; i++)
+	    recv_cnt += newcnts[i];
+	} else {
+	  recv_idx = send_idx + mask;
+	  for (int i = send_idx; i < recv_idx; i++)
+	    send_cnt += newcnts[i];
+	  for (int i = recv_idx; i < last_idx; i++)
+	    recv_cnt += newcnts[i];
+	}
 
-    for (int i = (size - 2); i >= 0; i--) {
-      s_req[i] = isend(buf, isend_offset, recvcounts[prev], datatype, prev,
-	  reducescatterTag, false);
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
-	MPI.logger.debug("Sent to " + prev);
-      r_req[i] = irecv(tmpbuf, irecv_offset, recvcounts[me], datatype, next,
-	  reducescatterTag, false);
-      r_req[i].Wait();
-      if (MPI.DEBUG && MPI.logger.isDebugEnabled())
-	MPI.logger.debug(me + " got from " + next);
-      if (op.worker == null) {
-	op.funct.Call(buf, irecv_offset, tmpbuf, irecv_offset, recvcounts[me],
-	    datatype);
-	System.arraycopy(tmpbuf, irecv_offset, buf, irecv_offset,
-	    recvcounts[me]);
-      } else {
-	opx.perform(tmpbuf, offset, count); // opx perform calculations
-	opx.getResultant(buf, offset, count); // opx copies the result
-					      // to buf
+	exchange(tmp_results, newdisps[send_idx] * unit, send_cnt, dst,
+	    tmp_recvbuf, newdisps[recv_idx] * unit, recv_cnt, dst, datatype,
+	    reducescatterTag);
+	reduceLocal(tmp_recvbuf, newdisps[recv_idx] * unit, tmp_results,
+	    newdisps[recv_idx] * unit, recv_cnt, datatype, op);
+
+	send_idx = recv_idx;
+	last_idx = recv_idx + mask;
       }
+
+      System.arraycopy(tmp_results, disps[me] * unit, recvbuf, recvoffset,
+	  recvcounts[me] * unit);
     }
 
-    for (int i = (size - 2); i >= 0; i--) {
-      s_req[i].Wait();
+    // the folded processes get their block from the neighbour that owned it
+    if (me < 2 * rem) {
+      if (me % 2 == 0)
+	exchange(null, 0, 0, me + 1, recvbuf, recvoffset, recvcounts[me],
+	    me + 1, datatype, reducescatterTag);
+      else
+	exchange(tmp_results, disps[me - 1] * unit, recvcounts[me - 1],
+	    me - 1, null, 0, 0, me - 1, datatype, reducescatterTag);
     }
-    // copy resultant of each process to recvbuf
-    System
-	.arraycopy(buf, irecv_offset, recvbuf, recvoffset, recvcounts[Rank()]);
   }
 
-  public void FT_Reduce_scatter(Object sendbuf, int sendoffset, Object recvbuf,
-      int recvoffset, int[] recvcounts, Datatype datatype, Op op)
-      throws MPIException {
+  /*
+   * In step i every process sends its contribution to the block of the
+   * process i ahead and reduces the contribution of the process i behind
+   * into its own block, size - 1 steps without forwarding.
+   */
+  private void PE_Reduce_scatter(Object sendbuf, int sendoffset,
+      Object recvbuf, int recvoffset, int[] recvcounts, Datatype datatype,
+      Op op) throws MPIException {
+
+    int me = Rank();
+    int size = Size();
+    int unit = datatype.Size();
 
-    int root = 0, myself = Rank();
-    int sendcount = 0;
+    int[] disps = new int[size];
+    for (int i = 1; i < size; i++)
+      disps[i] = disps[i - 1] + recvcounts[i - 1];
 
-    for (int k = 0; k < recvcounts.length; k++) {
-      sendcount += recvcounts[k];
+    System.arraycopy(sendbuf, sendoffset + disps[me] * unit, recvbuf,
+	recvoffset, recvcounts[me] * unit);
+
+    Object tmp_buf = createShadowBuffer(datatype, recvcounts[me], recvoffset);
+
+    for (int i = 1; i < size; i++) {
+      int dst = (me + i) % size;
+      int src = (me - i + size) % size;
+
+      exchange(sendbuf, sendoffset + disps[dst] * unit, recvcounts[dst], dst,
+	  tmp_buf, recvoffset, recvcounts[me], src, datatype,
+	  reducescatterTag);
+      reduceLocal(tmp_buf, recvoffset, recvbuf, recvoffset, recvcounts[me],
+	  datatype, op);
     }
+  }
 
-    Reduce(sendbuf, sendoffset, recvbuf, recvoffset, sendcount, datatype, op,
-	root);
-    Scatter(recvbuf, recvoffset, recvcounts[myself], datatype, recvbuf,
-	recvoffset, recvcounts[myself], datatype, root);
+  /*
+   * Reduce of the whole vector to process 0 followed by Scatterv of the
+   * blocks, for operations that have to be applied in rank order.
+   */
+  private void MST_Reduce_scatter(Object sendbuf, int sendoffset,
+      Object recvbuf, int recvoffset, int[] recvcounts, Datatype datatype,
+      Op op) throws MPIException {
+
+    int size = Size();
+    int unit = datatype.Size();
+
+    int[] displs = new int[size];
+    for (int i = 1; i < size; i++)
+      displs[i] = displs[i - 1] + recvcounts[i - 1] * unit;
+    int total = (displs[size - 1] + recvcounts[size - 1] * unit) / unit;
+
+    Object tmpbuf = createTemporaryBuffer(datatype, total);
+    Reduce(sendbuf, sendoffset, tmpbuf, 0, total, datatype, op, 0);
+    Scatterv(tmpbuf, 0, recvcounts, displs, datatype, recvbuf, recvoffset,
+	recvcounts[Rank()], datatype, 0);
+  }
+
+  public void FT_Reduce_scatter(Object sendbuf, int sendoffset, Object recvbuf,
+      int recvoffset, int[] recvcounts, Datatype datatype, Op op)
+      throws MPIException {
+
+    /*
+     * recvbuf only has room for the own block and the blocks may differ in
+     * size, so the whole vector goes through a temporary buffer and Scatterv.
+     */
+    MST_Reduce_scatter(sendbuf, sendoffset, recvbuf, recvoffset, recvcounts,
+	datatype, op);
   }
 
   /**
@@ -91,6 +91,25 @@ public abstract class Comm {
   public abstract void ssend(mpjbuf.Buffer buf, int dest, int tag, boolean pt2pt)
       throws MPJDevException;
 
+  /**
+   * True when isendArray and irecvArray can be used: the device moves the
+   * elements of basic type arrays between processes itself, without packing
+   * them into mpjbuf buffers.
+   */
+  public boolean sendsArrays() {
+    return false;
+  }
+
+  public Request isendArray(Object buf, int offset, int count, int dest,
+      int tag, boolean pt2pt) throws MPJDevException {
+    throw new MPJDevException("Device does not send arrays");
+  }
+
+  public Request irecvArray(Object buf, int offset, int count, int src,
+      int tag, mpjdev.Status status, boolean pt2pt) throws MPJDevException {
+    throw new MPJDevException("Device does not receive arrays");
+  }
+
   public int size() throws MPJDevException {
     return this.group.size();
   }
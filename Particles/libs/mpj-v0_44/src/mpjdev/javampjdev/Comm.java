@@ -990,6 +990,71 @@ public class Comm extends mpjdev.Comm {
         
     }
     
+    /**
+     * Threads of one JVM (smpdev) copy basic type arrays straight from the
+     * sender's array into the receiver's.
+     */
+    public boolean sendsArrays() {
+        return device instanceof xdev.smpdev.SMPDevice;
+    }
+    
+    public mpjdev.Request isendArray(Object buf, int offset, int count,
+                                     int dest, int tag, boolean pt2pt)
+    throws MPJDevException {
+        
+        if (dest < 0) {
+            throw new MPJDevException(
+                                      "In Comm.isend(), requested negative message destination: " + dest);
+        }
+        else if (dest >= size()) {
+            throw new MPJDevException("In Comm.isend(), requested destination "
+                                      + dest +
+                                      " does not exist in communicator of size " + size());
+        }
+        
+        int context = pt2pt ? sendctxt : collctxt;
+        
+        return ((xdev.smpdev.SMPDevice) device).isend(buf, offset, count,
+                                                      group.ids[dest], tag, context);
+    }
+    
+    public mpjdev.Request irecvArray(Object buf, int offset, int count,
+                                     int src, int tag, mpjdev.Status status,
+                                     boolean pt2pt) throws MPJDevException {
+        
+        if (src < 0 && src != -2) {
+            throw new MPJDevException(
+                                      "In Comm.irecv(), requested negative message destination: "
+                                      + src);
+        }
+        else if (src >= this.size() && src != -2) {
+            throw new MPJDevException("In Comm.irecv(), requested source " + src +
+                                      " does not exist in communicator of size " +
+                                      this.size());
+        }
+        
+        int context = pt2pt ? recvctxt : collctxt;
+        ProcessID srcID = src == MPI.ANY_SOURCE ? xdev.Device.ANY_SRC
+                                                : group.ids[src];
+        
+        mpjdev.Request request = ((xdev.smpdev.SMPDevice) device).irecv(buf,
+                                      offset, count, srcID, tag, context, status);
+        
+        request.addCompletionHandler(new mpjdev.CompletionHandler() {
+            public void handleCompletion(mpjdev.Status status) {
+                /* This loop is trying to find the matching receive */
+                for (int j = 0; j < group.ids.length; j++) {
+                    if (group.ids[j].uuid().equals(status.srcID)) {
+                        status.source = j;
+                        break;
+                    }
+                }
+            }
+        });
+        
+        return request;
+    }
+    
     public mpjdev.Request isend(mpjbuf.Buffer buf, int dest, int tag,
                                 boolean pt2pt) throws MPJDevException {
         
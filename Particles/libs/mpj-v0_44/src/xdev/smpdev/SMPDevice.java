@@ -181,6 +181,44 @@ public class SMPDevice implements Device {
         return req;
 
     }
+    /**
+     * Non-blocking standard-mode send of a basic type array, see
+     * SMPDeviceImpl.isend(Object, int, int, ProcessID, int, int).
+     */
+    public mpjdev.Request isend(Object buf, int offset, int count,
+            ProcessID destID, int tag, int context) throws XDevException {
+
+        mpjdev.Request req = null;
+
+        try {
+            req = xdev.smpdev.SMPDeviceImpl.WORLD.isend(buf, offset, count,
+                    destID, tag, context);
+        } catch (Exception e) {
+            throw new XDevException(e);
+        }
+
+        return req;
+    }
+
+    /**
+     * Non-blocking receive into a basic type array.
+     */
+    public mpjdev.Request irecv(Object buf, int offset, int count,
+            ProcessID srcID, int tag, int context, mpjdev.Status status)
+            throws XDevException {
+
+        mpjdev.Request req = null;
+
+        try {
+            req = xdev.smpdev.SMPDeviceImpl.WORLD.irecv(buf, offset, count,
+                    srcID, tag, context, status);
+        } catch (Exception e) {
+            throw new XDevException(e);
+        }
+
+        return req;
+    }
+
    /**
    * Blocking probe method
    * @param srcID The sourceID of the sender
@@ -269,6 +269,9 @@ public class SMPDeviceImpl {
 /////////////////// *message copying stuff* ///////////////////////
              //   System.out.println(" isend -- matching recv size "+  ((NIOBuffer)(matchingRecv.buffer.getStaticBuffer())).getCapacity() +" receiver "+destID+" context "+context);
              //   System.out.println(" isend -- buf size "+ buf.getSize()+" sender "+myID);
+                if (matchingRecv.array != null) {
+                    unpack(send, matchingRecv);
+                } else {
                 matchingRecv.buffer.setSize(buf.getSize());
 //out.println(id() + " setting the size in the next line to <"+ 
                 //                matchingRecv.buffer.getSize() +">") ;
@@ -303,6 +306,7 @@ public class SMPDeviceImpl {
                         ((NIOBuffer) buf.getStaticBuffer()).getBuffer());
                 ((NIOBuffer) matchingRecv.buffer.getStaticBuffer()).getBuffer().flip();
                 ((NIOBuffer) buf.getStaticBuffer()).getBuffer().clear();
+                }
 
 
                 matchingRecv.status.srcID = myID.uuid();
@@ -365,6 +369,9 @@ public class SMPDeviceImpl {
               status);
       
         SMPSendRequest matchingSend = sendQueue.rem(recv);
+        if (matchingSend.array != null) {
+          pack(matchingSend, buf);
+        } else {
         buf.setSize(matchingSend.buffer.getSize());
         if (matchingSend.buffer.getDynamicBuffer() != null) {
           buf.setDynamicBuffer(matchingSend.buffer.getDynamicBuffer());
@@ -390,6 +397,7 @@ public class SMPDeviceImpl {
         ((NIOBuffer) buf.getStaticBuffer()).getBuffer().flip();
         
         ((NIOBuffer) matchingSend.buffer.getStaticBuffer()).getBuffer().clear();
+        }
 
         
         
@@ -474,6 +482,9 @@ public class SMPDeviceImpl {
 /////////////////// *message copying stuff* ///////////////////////
 //out.println(id() + " setting the size in the next line to <"+ 
                 //                                       matchingSend.buffer.getSize() +">") ;
+                if (matchingSend.array != null) {
+                    pack(matchingSend, buf);
+                } else {
                 buf.setSize(matchingSend.buffer.getSize());
                 if (matchingSend.buffer.getDynamicBuffer() != null) {
                     buf.setDynamicBuffer(matchingSend.buffer.getDynamicBuffer());
@@ -511,6 +522,7 @@ public class SMPDeviceImpl {
          */
 
         ((NIOBuffer) matchingSend.buffer.getStaticBuffer()).getBuffer().clear();
+                }
 
 
                 recv.status =status;
@@ -553,6 +565,239 @@ public class SMPDeviceImpl {
     }
 
 
+    /**
+     * Sends of at most this many bytes straight from an array are copied
+     * when no receive is waiting and complete at once (eager), longer ones
+     * stay pending until the receive copies them straight out of the
+     * sender's array (rendezvous). Same limit as the niodev default.
+     */
+    public static final int EAGER_LIMIT = 128 * 1024;
+
+    /**
+     * Non-blocking send of `count' elements of a basic type array starting
+     * at `offset', without packing them into an mpjbuf.Buffer. A receive
+     * into an array gets them with a single System.arraycopy, a receive
+     * into a buffer gets them packed.
+     */
+    public mpjdev.Request isend(Object buf, int offset, int count,
+            ProcessID destID, int tag, int context) throws XDevException {
+
+        ProcessID myID = id();
+        mpjbuf.Type type = typeOf(buf);
+        SMPSendRequest send = new SMPSendRequest(buf, offset, count, type,
+                context, destID, myID, tag);
+
+        synchronized (SMPDeviceImpl.class) {
+
+            SMPRecvRequest matchingRecv = recvQueue.rem(send);
+
+            if (matchingRecv != null) {
+                if (matchingRecv.array != null) {
+                    copy(send, matchingRecv);
+                } else {
+                    pack(send, matchingRecv.buffer);
+                }
+
+                matchingRecv.status.srcID = myID.uuid();
+                matchingRecv.status.tag = tag;
+                matchingRecv.status.numEls = count;
+                matchingRecv.status.type = type;
+                matchingRecv.numEls = count;
+                matchingRecv.type = type;
+                matchingRecv.setPending(false);
+
+                SMPRequest.WaitSet waiting = matchingRecv.getWaitSet();
+                if (waiting != null) {
+                    waiting.select(matchingRecv);
+                }
+
+                send.setPending(false);
+            } else if ((long) count * bytes(type) <= EAGER_LIMIT) {
+                send.array = java.lang.reflect.Array.newInstance(
+                        buf.getClass().getComponentType(), count);
+                System.arraycopy(buf, offset, send.array, 0, count);
+                send.arrayOffset = 0;
+                send.setPending(false);
+                sendQueue.add(send);
+            } else {
+                send.setPending(true);
+                sendQueue.add(send);
+            }
+        }
+
+        if (mpi.MPI.DEBUG && SMPDevice.logger.isDebugEnabled()) {
+            SMPDevice.logger.debug("isend of " + count + " " + type.getCode()
+                    + " elements, pending " + send.isPending());
+        }
+        return send;
+    }
+
+    /**
+     * Non-blocking receive of at most `count' elements into a basic type
+     * array starting at `offset', without unpacking them from an
+     * mpjbuf.Buffer.
+     */
+    public mpjdev.Request irecv(Object buf, int offset, int count,
+            ProcessID srcID, int tag, int context, mpjdev.Status status)
+            throws XDevException {
+
+        ProcessID myID = id();
+        SMPRecvRequest recv = new SMPRecvRequest(buf, offset, count, context,
+                myID, srcID, tag, status);
+
+        synchronized (SMPDeviceImpl.class) {
+
+            SMPSendRequest matchingSend = sendQueue.rem(recv);
+
+            if (matchingSend != null) {
+                if (matchingSend.array != null) {
+                    copy(matchingSend, recv);
+                } else {
+                    unpack(matchingSend, recv);
+                }
+
+                recv.status.srcID = matchingSend.srcID.uuid();
+                recv.status.tag = matchingSend.tag;
+                recv.status.numEls = matchingSend.numEls;
+                recv.status.type = matchingSend.type;
+                recv.type = matchingSend.type;
+                recv.numEls = matchingSend.numEls;
+
+                matchingSend.setPending(false);
+
+                SMPRequest.WaitSet waiting = matchingSend.getWaitSet();
+                if (waiting != null) {
+                    waiting.select(matchingSend);
+                }
+
+                recv.setPending(false);
+            } else {
+                recv.setPending(true);
+                recvQueue.add(recv);
+            }
+        }
+        return recv;
+    }
+
+    /* Array to array, the only copy of the message */
+    private static void copy(SMPSendRequest send, SMPRecvRequest recv)
+            throws XDevException {
+
+        if (send.array.getClass() != recv.array.getClass()) {
+            throw new XDevException("Message of type " + send.type.getCode()
+                    + " received into " + recv.array.getClass().getName());
+        }
+        checkCount(send.numEls, recv.arrayCount);
+        System.arraycopy(send.array, send.arrayOffset, recv.array,
+                recv.arrayOffset, send.numEls);
+    }
+
+    /*
+     * Packed message into an array. The SMPSendRequest constructor has
+     * read the section header, the elements are read straight from the
+     * sender's buffer.
+     */
+    private static void unpack(SMPSendRequest send, SMPRecvRequest recv)
+            throws XDevException {
+
+        checkCount(send.numEls, recv.arrayCount);
+        mpjbuf.Buffer buf = send.buffer;
+        Object array = recv.array;
+        int offset = recv.arrayOffset, count = send.numEls;
+
+        try {
+            if (array instanceof double[])
+                buf.read((double[]) array, offset, count);
+            else if (array instanceof int[])
+                buf.read((int[]) array, offset, count);
+            else if (array instanceof long[])
+                buf.read((long[]) array, offset, count);
+            else if (array instanceof float[])
+                buf.read((float[]) array, offset, count);
+            else if (array instanceof byte[])
+                buf.read((byte[]) array, offset, count);
+            else if (array instanceof short[])
+                buf.read((short[]) array, offset, count);
+            else if (array instanceof char[])
+                buf.read((char[]) array, offset, count);
+            else
+                buf.read((boolean[]) array, offset, count);
+        } catch (BufferException e) {
+            throw new XDevException(e);
+        }
+    }
+
+    /* Array into a receive that still uses a buffer, packed like Packer */
+    private static void pack(SMPSendRequest send, mpjbuf.Buffer buf)
+            throws XDevException {
+
+        Object array = send.array;
+        int offset = send.arrayOffset, count = send.numEls;
+
+        try {
+            buf.clear();
+            buf.putSectionHeader(send.type);
+            if (array instanceof double[])
+                buf.write((double[]) array, offset, count);
+            else if (array instanceof int[])
+                buf.write((int[]) array, offset, count);
+            else if (array instanceof long[])
+                buf.write((long[]) array, offset, count);
+            else if (array instanceof float[])
+                buf.write((float[]) array, offset, count);
+            else if (array instanceof byte[])
+                buf.write((byte[]) array, offset, count);
+            else if (array instanceof short[])
+                buf.write((short[]) array, offset, count);
+            else if (array instanceof char[])
+                buf.write((char[]) array, offset, count);
+            else
+                buf.write((boolean[]) array, offset, count);
+            buf.commit();
+        } catch (BufferException e) {
+            throw new XDevException(e);
+        }
+    }
+
+    private static void checkCount(int numEls, int capacity)
+            throws XDevException {
+        if (numEls > capacity) {
+            throw new XDevException("Message of " + numEls + " elements is "
+                    + "longer than the receive of " + capacity);
+        }
+    }
+
+    /* mpjbuf type of the elements of a basic type array */
+    static mpjbuf.Type typeOf(Object array) throws XDevException {
+        if (array instanceof double[])
+            return mpjbuf.Type.DOUBLE;
+        else if (array instanceof int[])
+            return mpjbuf.Type.INT;
+        else if (array instanceof long[])
+            return mpjbuf.Type.LONG;
+        else if (array instanceof float[])
+            return mpjbuf.Type.FLOAT;
+        else if (array instanceof byte[])
+            return mpjbuf.Type.BYTE;
+        else if (array instanceof short[])
+            return mpjbuf.Type.SHORT;
+        else if (array instanceof char[])
+            return mpjbuf.Type.CHAR;
+        else if (array instanceof boolean[])
+            return mpjbuf.Type.BOOLEAN;
+        throw new XDevException("Not an array of a basic type: " + array);
+    }
+
+    private static int bytes(mpjbuf.Type type) {
+        if (type == mpjbuf.Type.DOUBLE || type == mpjbuf.Type.LONG)
+            return 8;
+        if (type == mpjbuf.Type.INT || type == mpjbuf.Type.FLOAT)
+            return 4;
+        if (type == mpjbuf.Type.SHORT || type == mpjbuf.Type.CHAR)
+            return 2;
+        return 1;
+    }
+
     public mpjdev.Status iprobe(ProcessID srcID, int tag,
             int context) throws XDevException {
 
@@ -67,5 +67,27 @@ public class SMPRecvRequest extends SMPRequest {
             sequenceNum = nextSequenceNum++ ;
         }
     }
+
+    /*
+     * Basic type array the message is copied straight into, instead of
+     * `buffer', with room for `arrayCount' elements.
+     */
+    Object array ;
+    int arrayOffset, arrayCount ;
+
+    SMPRecvRequest(Object array, int offset, int count, int context,
+		    ProcessID destID, ProcessID sourceID, int tag,
+		    mpjdev.Status status) {
+        completed = false;
+        key = new SMPDeviceImpl.Key(context, destID, sourceID, tag) ;
+        this.array = array ;
+        this.arrayOffset = offset ;
+        this.arrayCount = count ;
+        this.status = status;
+        this.srcID = sourceID;
+        synchronized(SMPRecvRequest.class) {
+            sequenceNum = nextSequenceNum++ ;
+        }
+    }
 }
 
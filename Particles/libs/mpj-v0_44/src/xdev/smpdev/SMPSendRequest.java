@@ -76,12 +76,7 @@ int bufoffset = 0;
         } ;
 */ 
 
-        keys = new SMPDeviceImpl.Key[]{
-                    new SMPDeviceImpl.Key(context,destID, sourceID, tag),
-                    new SMPDeviceImpl.Key(context, destID,sourceID, SMPDevice.ANY_TAG),
-                    new SMPDeviceImpl.Key(context, destID,xdev.Device.ANY_SRC, tag),
-                    new SMPDeviceImpl.Key(context, destID,xdev.Device.ANY_SRC, SMPDevice.ANY_TAG)
-                };
+        setKeys(context, destID, sourceID, tag);
 
 /*
          keys = new SMPDeviceImpl.Key[]{
@@ -91,9 +86,6 @@ int bufoffset = 0;
                     new SMPDeviceImpl.Key(context, xdev.Device.ANY_SRC, SMPDevice.ANY_TAG)
                 };
 */
-        next = new SMPSendRequest[4];
-        prev = new SMPSendRequest[4];
-
         this.buffer = buf;
        // this.sourceID = sourceID;
         this.tag = tag;
@@ -108,5 +100,42 @@ int bufoffset = 0;
         UUID srcUUID = sourceID.uuid();
         this.status = new mpjdev.Status(srcUUID, tag, -1); //jd
     }
+
+    /*
+     * Elements of a basic type array the receiver copies straight from,
+     * without an mpjbuf.Buffer in between. See SMPDeviceImpl.isend(Object,
+     * ...) for when the array is the user's and when a private copy.
+     */
+    Object array;
+    int arrayOffset;
+
+    SMPSendRequest(Object array, int offset, int count, mpjbuf.Type type,
+            int context, ProcessID destID, ProcessID sourceID, int tag) {
+
+        completed = false;
+        setKeys(context, destID, sourceID, tag);
+
+        this.array = array;
+        this.arrayOffset = offset;
+        this.numEls = count;
+        this.type = type;
+        this.tag = tag;
+        this.context = context;
+        this.srcID = sourceID;
+        this.status = new mpjdev.Status(sourceID.uuid(), tag, -1);
+    }
+
+    private void setKeys(int context, ProcessID destID, ProcessID sourceID,
+            int tag) {
+
+        keys = new SMPDeviceImpl.Key[]{
+                    new SMPDeviceImpl.Key(context,destID, sourceID, tag),
+                    new SMPDeviceImpl.Key(context, destID,sourceID, SMPDevice.ANY_TAG),
+                    new SMPDeviceImpl.Key(context, destID,xdev.Device.ANY_SRC, tag),
+                    new SMPDeviceImpl.Key(context, destID,xdev.Device.ANY_SRC, SMPDevice.ANY_TAG)
+                };
+        next = new SMPSendRequest[4];
+        prev = new SMPSendRequest[4];
+    }
 }
 
@@ -244,12 +244,15 @@ public class TestSuite {
     reduce p97 = new reduce(args);
     allgather p100 = new allgather(args);
     allreduce p95 = new allreduce(args);
+    allreduce_algorithms p95_ = new allreduce_algorithms(args);
     allgatherv p91 = new allgatherv(args);
+    allgatherv_algorithms p91_ = new allgatherv_algorithms(args);
     alltoallv p92 = new alltoallv(args);
     gatherv p93 = new gatherv(args);
     scatter p94 = new scatter(args);
      scatterv p98 = new scatterv(args);
      reduce_scatter p101 = new reduce_scatter(args); 
+     reduce_scatter_algorithms p101_ = new reduce_scatter_algorithms(args);
      scan p90 = new scan(args); 
      allgatherO p102 = new allgatherO(args);   	
      alltoallO p103 = new alltoallO(args);
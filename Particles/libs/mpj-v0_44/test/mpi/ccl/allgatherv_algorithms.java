@@ -0,0 +1,88 @@
+package mpi.ccl;
+
+/*
+ * File         : allgatherv_algorithms.java
+ * Created      : Mon Oct 19 2026
+ */
+
+import mpi.*;
+
+/*
+ * Runs Allgatherv with every algorithm CollectiveSelector knows for it, on
+ * equal, uneven and partly empty blocks placed in reverse rank order with
+ * gaps between them.
+ */
+public class allgatherv_algorithms {
+  static public void main(String[] args) throws Exception {
+    try {
+      allgatherv_algorithms a = new allgatherv_algorithms(args);
+    }
+    catch (Exception e) {
+    }
+  }
+
+  public allgatherv_algorithms() {
+  }
+
+  public allgatherv_algorithms(String[] args) throws Exception {
+
+    String[] algorithms = { CollectiveSelector.BRUCK,
+	CollectiveSelector.RECURSIVE_DOUBLING, CollectiveSelector.RING,
+	CollectiveSelector.FLAT_TREE };
+
+    MPI.Init(args);
+    int myself = MPI.COMM_WORLD.Rank();
+    int tasks = MPI.COMM_WORLD.Size();
+
+    int[] counts = new int[tasks];
+    int[] displs = new int[tasks];
+
+    for (String algorithm : algorithms) {
+      CollectiveSelector selector = new CollectiveSelector();
+      selector.addRule("allgatherv  *  *  *  " + algorithm);
+      MPI.COMM_WORLD.setCollectiveSelector(selector);
+
+      for (int pattern = 0; pattern < 3; pattern++) {
+	int length = 0;
+	for (int r = 0; r < tasks; r++) {
+	  if (pattern == 0)
+	    counts[r] = 5;
+	  else if (pattern == 1)
+	    counts[r] = (r * 7 + 3) % 5;
+	  else
+	    counts[r] = r == 1 ? 0 : 1000 + r;
+	}
+	for (int r = tasks - 1; r >= 0; r--) {
+	  displs[r] = length + 2;
+	  length += counts[r] + 2;
+	}
+
+	int[] out = new int[counts[myself] + 1];
+	for (int i = 0; i < counts[myself]; i++)
+	  out[i + 1] = myself * 10000 + i;
+	int[] in = new int[length];
+
+	MPI.COMM_WORLD.Allgatherv(out, 1, counts[myself], MPI.INT, in, 0,
+	    counts, displs, MPI.INT);
+
+	check: for (int r = 0; r < tasks; r++) {
+	  for (int i = 0; i < counts[r]; i++) {
+	    if (in[displs[r] + i] != r * 10000 + i) {
+	      System.out.println(algorithm + " pattern " + pattern
+		  + ": bad answer (" + in[displs[r] + i] + ") at index "
+		  + (displs[r] + i) + " (should be " + (r * 10000 + i)
+		  + ") on proc. : " + myself);
+	      break check;
+	    }
+	  }
+	}
+      }
+    }
+
+    MPI.COMM_WORLD.setCollectiveSelector(null);
+    MPI.COMM_WORLD.Barrier();
+    if (myself == 0)
+      System.out.println("Allgatherv algorithms TEST COMPLETE");
+    MPI.Finalize();
+  }
+}
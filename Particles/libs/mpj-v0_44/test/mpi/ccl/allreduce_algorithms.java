@@ -0,0 +1,101 @@
+package mpi.ccl;
+
+/*
+ * File         : allreduce_algorithms.java
+ * Created      : Mon Oct 19 2026
+ */
+
+import mpi.*;
+
+/*
+ * Runs Allreduce with every algorithm CollectiveSelector knows for it, on
+ * vectors shorter and longer than the communicator, with a built-in and a
+ * user defined operation.
+ */
+public class allreduce_algorithms {
+  static public void main(String[] args) throws Exception {
+    try {
+      allreduce_algorithms a = new allreduce_algorithms(args);
+    }
+    catch (Exception e) {
+    }
+  }
+
+  public allreduce_algorithms() {
+  }
+
+  public allreduce_algorithms(String[] args) throws Exception {
+
+    String[] algorithms = { CollectiveSelector.RECURSIVE_DOUBLING,
+	CollectiveSelector.RABENSEIFNER, CollectiveSelector.REDUCE_BCAST,
+	CollectiveSelector.FLAT_TREE };
+    int[] lengths = { 1, 3, 7, 64, 1001 };
+
+    Op longSum = new Op(new User_function() {
+      public void Call(Object invec, int inoffset, Object inoutvec,
+	  int inoutoffset, int count, Datatype datatype) {
+	long[] in = (long[]) invec;
+	long[] inout = (long[]) inoutvec;
+	for (int i = 0; i < count; i++)
+	  inout[inoutoffset + i] += in[inoffset + i];
+      }
+    }, true);
+
+    MPI.Init(args);
+    int myself = MPI.COMM_WORLD.Rank();
+    int tasks = MPI.COMM_WORLD.Size();
+
+    for (String algorithm : algorithms) {
+      CollectiveSelector selector = new CollectiveSelector();
+      selector.addRule("allreduce  *  *  *  " + algorithm);
+      MPI.COMM_WORLD.setCollectiveSelector(selector);
+
+      for (int length : lengths) {
+	int[] intOut = new int[length + 1];
+	int[] intIn = new int[length + 2];
+	double[] doubleOut = new double[length];
+	double[] doubleIn = new double[length];
+	long[] longOut = new long[length];
+	long[] longIn = new long[length];
+	for (int i = 0; i < length; i++) {
+	  intOut[i + 1] = myself * 100 + i;
+	  doubleOut[i] = (myself * 37 + i * 11) % 101;
+	  longOut[i] = ((long) myself << 32) + i;
+	}
+
+	MPI.COMM_WORLD.Allreduce(intOut, 1, intIn, 2, length, MPI.INT,
+	    MPI.SUM);
+	MPI.COMM_WORLD.Allreduce(doubleOut, 0, doubleIn, 0, length,
+	    MPI.DOUBLE, MPI.MAX);
+	MPI.COMM_WORLD.Allreduce(longOut, 0, longIn, 0, length, MPI.LONG,
+	    longSum);
+
+	for (int i = 0; i < length; i++) {
+	  int intAnswer = 100 * tasks * (tasks - 1) / 2 + tasks * i;
+	  double doubleAnswer = 0;
+	  long longAnswer = 0;
+	  for (int r = 0; r < tasks; r++) {
+	    doubleAnswer = Math.max(doubleAnswer, (r * 37 + i * 11) % 101);
+	    longAnswer += ((long) r << 32) + i;
+	  }
+
+	  if (intIn[i + 2] != intAnswer || doubleIn[i] != doubleAnswer
+	      || longIn[i] != longAnswer) {
+	    System.out.println(algorithm + " length " + length
+		+ ": bad answer (" + intIn[i + 2] + ", " + doubleIn[i]
+		+ ", " + longIn[i] + ") at index " + i + " (should be ("
+		+ intAnswer + ", " + doubleAnswer + ", " + longAnswer
+		+ ")) on proc. : " + myself);
+	    break;
+	  }
+	}
+      }
+    }
+
+    MPI.COMM_WORLD.setCollectiveSelector(null);
+    MPI.COMM_WORLD.Barrier();
+    if (myself == 0)
+      System.out.println("Allreduce algorithms TEST COMPLETE");
+    MPI.Finalize();
+  }
+}
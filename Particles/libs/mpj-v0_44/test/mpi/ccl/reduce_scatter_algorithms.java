@@ -0,0 +1,99 @@
+package mpi.ccl;
+
+/*
+ * File         : reduce_scatter_algorithms.java
+ * Created      : Mon Oct 19 2026
+ */
+
+import mpi.*;
+
+/*
+ * Runs Reduce_scatter with every algorithm CollectiveSelector knows for it,
+ * on equal, uneven, partly empty and very unbalanced blocks.
+ */
+public class reduce_scatter_algorithms {
+  static public void main(String[] args) throws Exception {
+    try {
+      reduce_scatter_algorithms a = new reduce_scatter_algorithms(args);
+    }
+    catch (Exception e) {
+    }
+  }
+
+  public reduce_scatter_algorithms() {
+  }
+
+  public reduce_scatter_algorithms(String[] args) throws Exception {
+
+    String[] algorithms = { CollectiveSelector.RECURSIVE_HALVING,
+	CollectiveSelector.PAIRWISE, CollectiveSelector.REDUCE_SCATTERV,
+	CollectiveSelector.FLAT_TREE };
+
+    MPI.Init(args);
+    int myself = MPI.COMM_WORLD.Rank();
+    int tasks = MPI.COMM_WORLD.Size();
+
+    int[] recvcounts = new int[tasks];
+
+    for (String algorithm : algorithms) {
+      CollectiveSelector selector = new CollectiveSelector();
+      selector.addRule("reduce_scatter  *  *  *  " + algorithm);
+      MPI.COMM_WORLD.setCollectiveSelector(selector);
+
+      for (int pattern = 0; pattern < 4; pattern++) {
+	int total = 0;
+	for (int r = 0; r < tasks; r++) {
+	  if (pattern == 0)
+	    recvcounts[r] = 10;
+	  else if (pattern == 1)
+	    recvcounts[r] = (r * 7) % 4;
+	  else if (pattern == 2)
+	    recvcounts[r] = r == tasks / 2 ? 3000 : 1;
+	  else
+	    recvcounts[r] = 700 + r;
+	  total += recvcounts[r];
+	}
+
+	int[] out = new int[total + 1];
+	double[] doubleOut = new double[total];
+	for (int i = 0; i < total; i++) {
+	  out[i + 1] = i + myself;
+	  doubleOut[i] = (myself * 37 + i * 11) % 101;
+	}
+	int[] in = new int[recvcounts[myself] + 2];
+	double[] doubleIn = new double[recvcounts[myself]];
+
+	MPI.COMM_WORLD.Reduce_scatter(out, 1, in, 2, recvcounts, MPI.INT,
+	    MPI.SUM);
+	MPI.COMM_WORLD.Reduce_scatter(doubleOut, 0, doubleIn, 0, recvcounts,
+	    MPI.DOUBLE, MPI.MAX);
+
+	int first = 0;
+	for (int r = 0; r < myself; r++)
+	  first += recvcounts[r];
+
+	for (int k = 0; k < recvcounts[myself]; k++) {
+	  int i = first + k;
+	  int answer = tasks * i + tasks * (tasks - 1) / 2;
+	  double doubleAnswer = 0;
+	  for (int r = 0; r < tasks; r++)
+	    doubleAnswer = Math.max(doubleAnswer, (r * 37 + i * 11) % 101);
+
+	  if (in[k + 2] != answer || doubleIn[k] != doubleAnswer) {
+	    System.out.println(algorithm + " pattern " + pattern
+		+ ": bad answer (" + in[k + 2] + ", " + doubleIn[k]
+		+ ") at index " + k + " (should be (" + answer + ", "
+		+ doubleAnswer + ")) on proc. : " + myself);
+	    break;
+	  }
+	}
+      }
+    }
+
+    MPI.COMM_WORLD.setCollectiveSelector(null);
+    MPI.COMM_WORLD.Barrier();
+    if (myself == 0)
+      System.out.println("Reduce_scatter algorithms TEST COMPLETE");
+    MPI.Finalize();
+  }
+}
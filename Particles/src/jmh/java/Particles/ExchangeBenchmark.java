@@ -0,0 +1,87 @@
+package Particles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/// Pack and unpack halves of gatherAllParticleData, everything around the Allgatherv calls.
+/// Pack copies the slice owned by one of the given number of ranks, unpack always writes every particle.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeBenchmark {
+
+    @Param({"500", "2000", "8000", "100000"})
+    int particles;
+
+    @Param({"1", "4", "16"})
+    int ranks;
+
+    private ParticleSimulationDistributed distributed;
+    private int sliceEnd;
+
+    private double[] threadPositionsX;
+    private double[] threadPositionsY;
+    private double[] threadCharges;
+    private double[] threadVelocitiesX;
+    private double[] threadVelocitiesY;
+
+    private double[] allPositionsX;
+    private double[] allPositionsY;
+    private double[] allCharges;
+    private double[] allVelocitiesX;
+    private double[] allVelocitiesY;
+
+    @Setup
+    public void setUp() {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = particles;
+        config.particleSeed = 42;
+        distributed = new ParticleSimulationDistributed(config);
+
+        sliceEnd = particles / ranks;
+        threadPositionsX = new double[sliceEnd];
+        threadPositionsY = new double[sliceEnd];
+        threadCharges = new double[sliceEnd];
+        threadVelocitiesX = new double[sliceEnd];
+        threadVelocitiesY = new double[sliceEnd];
+
+        allPositionsX = new double[particles];
+        allPositionsY = new double[particles];
+        allCharges = new double[particles];
+        allVelocitiesX = new double[particles];
+        allVelocitiesY = new double[particles];
+        for (int i = 0; i < particles; i++) {
+            Particle particle = distributed.particles.get(i);
+            allPositionsX[i] = particle.x;
+            allPositionsY[i] = particle.y;
+            allCharges[i] = particle.charge;
+            allVelocitiesX[i] = particle.velocityX;
+            allVelocitiesY[i] = particle.velocityY;
+        }
+    }
+
+    @Benchmark
+    public double[] pack() {
+        distributed.packLocalParticleData(0, sliceEnd, threadPositionsX, threadPositionsY, threadCharges, threadVelocitiesX, threadVelocitiesY);
+        return threadPositionsX;
+    }
+
+    @Benchmark
+    public void unpack() {
+        distributed.unpackAllParticleData(allPositionsX, allPositionsY, allCharges, allVelocitiesX, allVelocitiesY);
+    }
+}
@@ -0,0 +1,137 @@
+package Particles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/// Force, boundary and integration kernels of every engine on identical particle sets.
+/// Every invocation is one full pass over all particles, the same work a single cycle does.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForceKernelBenchmark {
+
+    @Param({"500", "2000", "8000"})
+    int particles;
+
+    private ParticleSimulationSequential sequential;
+    private ParticleSimulationParallel parallel;
+    private ParticleSimulationDistributed distributed;
+    private ExecutorService executor;
+    private int numberOfThreads;
+
+    private double[] allPositionsX;
+    private double[] allPositionsY;
+    private double[] allCharges;
+
+    /// Fresh particles every iteration, otherwise later iterations measure a clumped state
+    @Setup(Level.Iteration)
+    public void setUp() {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = particles;
+        config.particleSeed = 42;
+
+        sequential = new ParticleSimulationSequential(config);
+        parallel = new ParticleSimulationParallel(config);
+        distributed = new ParticleSimulationDistributed(config);
+
+        if (executor == null) {
+            numberOfThreads = Runtime.getRuntime().availableProcessors();
+            executor = Executors.newFixedThreadPool(numberOfThreads);
+        }
+
+        allPositionsX = new double[particles];
+        allPositionsY = new double[particles];
+        allCharges = new double[particles];
+        for (int i = 0; i < particles; i++) {
+            Particle particle = distributed.particles.get(i);
+            allPositionsX[i] = particle.x;
+            allPositionsY[i] = particle.y;
+            allCharges[i] = particle.charge;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void sequentialCalculateForces() {
+        sequential.calculateForces();
+    }
+
+    @Benchmark
+    public void sequentialApplyForce() {
+        for (int i = 0; i < particles; i++) {
+            Particle particle1 = sequential.particles.get(i);
+            for (int j = i + 1; j < particles; j++) {
+                sequential.applyForce(particle1, sequential.particles.get(j));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sequentialApplyBoundaryForces() {
+        for (int i = 0; i < particles; i++) {
+            sequential.applyBoundaryForces(sequential.particles.get(i));
+        }
+    }
+
+    @Benchmark
+    public void sequentialUpdatePositions() {
+        sequential.updatePositions();
+    }
+
+    @Benchmark
+    public void parallelCalculateForces() {
+        parallel.calculateForcesParallel(executor, numberOfThreads);
+    }
+
+    @Benchmark
+    public void parallelApplyBoundaryForces() {
+        for (int i = 0; i < particles; i++) {
+            parallel.applyBoundaryForces(parallel.particles.get(i));
+        }
+    }
+
+    @Benchmark
+    public void parallelUpdatePositions() {
+        parallel.updatePositions();
+    }
+
+    /// A single rank owning every particle, which is the per-rank kernel without the exchange
+    @Benchmark
+    public void distributedComputeForces() {
+        distributed.computeForcesDistributed(0, particles, allPositionsX, allPositionsY, allCharges);
+    }
+
+    @Benchmark
+    public void distributedApplyBoundaryForces() {
+        for (int i = 0; i < particles; i++) {
+            distributed.applyBoundaryForces(distributed.particles.get(i));
+        }
+    }
+
+    @Benchmark
+    public void distributedUpdatePositions() {
+        distributed.updatePositions(0, particles);
+    }
+}
@@ -0,0 +1,51 @@
+package Particles;
+
+import Utils.Logger;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.profile.LinuxPerfAsmProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/// Entry point of benchmarks.jar, accepts the regular JMH command line options.
+/// The GC profiler is always attached so allocation regressions show up next to the timings,
+/// perfasm is attached when perf is available (Linux, hsdis on the library path for disassembly).
+public class JmhMain {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+
+        if (isPerfAvailable()) {
+            options.addProfiler(LinuxPerfAsmProfiler.class);
+        }
+        else {
+            Logger.warn("perf not found, running without the perfasm profiler");
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    private static boolean isPerfAvailable() {
+        if (!System.getProperty("os.name").startsWith("Linux")) {
+            return false;
+        }
+        try {
+            return new ProcessBuilder("perf", "--version").start().waitFor() == 0;
+        }
+        catch (IOException e) {
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
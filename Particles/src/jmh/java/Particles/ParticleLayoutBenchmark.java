@@ -0,0 +1,112 @@
+package Particles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/// The same symmetric pair kernel once over List<Particle> objects and once over primitive arrays (struct of arrays).
+/// Positions are never moved so both variants always see the same data.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticleLayoutBenchmark {
+
+    @Param({"500", "2000", "8000"})
+    int particles;
+
+    private double minimumDistance;
+    private List<Particle> objects;
+
+    private double[] positionsX;
+    private double[] positionsY;
+    private double[] charges;
+    private double[] forcesX;
+    private double[] forcesY;
+
+    @Setup
+    public void setUp() {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = particles;
+        config.particleSeed = 42;
+        minimumDistance = config.minimumDistance;
+        objects = new ParticleSimulationSequential(config).particles;
+
+        positionsX = new double[particles];
+        positionsY = new double[particles];
+        charges = new double[particles];
+        forcesX = new double[particles];
+        forcesY = new double[particles];
+        for (int i = 0; i < particles; i++) {
+            Particle particle = objects.get(i);
+            positionsX[i] = particle.x;
+            positionsY[i] = particle.y;
+            charges[i] = particle.charge;
+        }
+    }
+
+    @Benchmark
+    public void objectLayout(Blackhole blackhole) {
+        for (int i = 0; i < particles; i++) {
+            Particle particle = objects.get(i);
+            particle.forceX = 0;
+            particle.forceY = 0;
+        }
+
+        for (int i = 0; i < particles; i++) {
+            Particle particle1 = objects.get(i);
+            for (int j = i + 1; j < particles; j++) {
+                Particle particle2 = objects.get(j);
+                PairForce.apply(particle1, particle2, minimumDistance);
+            }
+        }
+        blackhole.consume(objects.get(0).forceX);
+    }
+
+    @Benchmark
+    public void primitiveLayout(Blackhole blackhole) {
+        for (int i = 0; i < particles; i++) {
+            forcesX[i] = 0;
+            forcesY[i] = 0;
+        }
+
+        for (int i = 0; i < particles; i++) {
+            double x = positionsX[i];
+            double y = positionsY[i];
+            double charge = charges[i];
+            double sumX = 0;
+            double sumY = 0;
+
+            for (int j = i + 1; j < particles; j++) {
+                double distanceX = positionsX[j] - x;
+                double distanceY = positionsY[j] - y;
+                double strength = PairForce.strength(distanceX, distanceY, charge * charges[j], minimumDistance);
+                double forceX = strength * distanceX;
+                double forceY = strength * distanceY;
+
+                sumX += forceX;
+                sumY += forceY;
+                forcesX[j] -= forceX;
+                forcesY[j] -= forceY;
+            }
+
+            forcesX[i] += sumX;
+            forcesY[i] += sumY;
+        }
+        blackhole.consume(forcesX[0]);
+    }
+}
@@ -0,0 +1,55 @@
+package Benchmark;
+
+import Particles.SimulationMode;
+
+import java.util.List;
+
+public class BenchmarkConfig {
+
+    /// Modes the matrix is run for
+    List<SimulationMode> modes = List.of(SimulationMode.SEQUENTIAL, SimulationMode.PARALLEL, SimulationMode.DISTRIBUTED);
+
+    /// Number of particles while testing by limiting particles
+    int fixedParticles = 3000;
+
+    /// Number of cycles while testing by limiting cycles
+    int fixedCycles = 10000;
+
+    /// Starting value and increment of the varied parameter in both series
+    int start = 500;
+    int increment = 500;
+
+    /// Maximum number of configurations per series
+    int steps = 10;
+
+    /// A series stops early once the mean runtime of a configuration exceeds this limit
+    /// default - 5 minutes
+    long maxRuntimeMs = 5 * 60 * 1000;
+
+    /// Runs per configuration that are measured, the README asks for at least three
+    int repeats = 3;
+
+    /// Runs per configuration that are executed before measuring and thrown away
+    int warmup = 1;
+
+    /// Fixed seed so every run of every mode simulates the same initial distribution
+    long seed = 42;
+
+    /// Number of MPJ processes for distributed runs
+    /// default - number of cores
+    int processes = Runtime.getRuntime().availableProcessors();
+
+    /// MPJ Express installation used to start distributed runs
+    /// default - MPJ_HOME environment variable or the bundled libs/mpj-v0_44
+    String mpjHome = System.getenv("MPJ_HOME") != null ? System.getenv("MPJ_HOME") : "libs/mpj-v0_44";
+
+    /// Path prefix of the result files, .csv and .json are appended
+    String output = "benchmark";
+
+    /// Previous result CSV to compare against, null disables the comparison
+    String baseline = null;
+
+    /// A configuration counts as a regression if it is this much slower than the baseline
+    /// and the confidence intervals of both results do not overlap
+    double regressionThreshold = 0.05;
+}
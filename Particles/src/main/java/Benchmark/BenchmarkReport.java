@@ -0,0 +1,118 @@
+package Benchmark;
+
+import Particles.SimulationMode;
+import Utils.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class BenchmarkReport {
+    private static final String CSV_HEADER = "mode,series,particles,cycles,repeats,mean_ms,stddev_ms,ci95_ms,cycles_per_second,runs_ms";
+
+    static void writeCsv(List<BenchmarkResult> results, Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (BenchmarkResult result : results) {
+            StringBuilder runs = new StringBuilder();
+            for (int i = 0; i < result.runtimesMs.length; i++) {
+                if (i > 0) {
+                    runs.append(';');
+                }
+                runs.append((long) result.runtimesMs[i]);
+            }
+            lines.add(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%s",
+                    result.mode, result.series, result.particles, result.cycles, result.runtimesMs.length,
+                    result.meanMs, result.standardDeviationMs, result.confidenceIntervalMs, result.cyclesPerSecond(), runs));
+        }
+        Files.write(path, lines);
+    }
+
+    static void writeJson(List<BenchmarkResult> results, BenchmarkConfig config, Path path) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"seed\": ").append(config.seed).append(",\n");
+        json.append("  \"warmup\": ").append(config.warmup).append(",\n");
+        json.append("  \"repeats\": ").append(config.repeats).append(",\n");
+        json.append("  \"processes\": ").append(config.processes).append(",\n");
+        json.append("  \"cores\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.vm.version")).append("\",\n");
+        json.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            BenchmarkResult result = results.get(i);
+            json.append(String.format(Locale.ROOT,
+                    "    {\"mode\": \"%s\", \"series\": \"%s\", \"particles\": %d, \"cycles\": %d, \"meanMs\": %.1f, \"stddevMs\": %.1f, \"ci95Ms\": %.1f, \"cyclesPerSecond\": %.1f, \"runsMs\": [",
+                    result.mode, result.series, result.particles, result.cycles,
+                    result.meanMs, result.standardDeviationMs, result.confidenceIntervalMs, result.cyclesPerSecond()));
+            for (int j = 0; j < result.runtimesMs.length; j++) {
+                if (j > 0) {
+                    json.append(", ");
+                }
+                json.append((long) result.runtimesMs[j]);
+            }
+            json.append("]}");
+            json.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        Files.writeString(path, json);
+    }
+
+    static Map<String, BenchmarkResult> readCsv(Path path) throws IOException {
+        Map<String, BenchmarkResult> results = new HashMap<>();
+        List<String> lines = Files.readAllLines(path);
+        for (int i = 1; i < lines.size(); i++) {
+            String[] columns = lines.get(i).split(",");
+            if (columns.length < 8) {
+                continue;
+            }
+            BenchmarkResult result = new BenchmarkResult(
+                    SimulationMode.valueOf(columns[0]), columns[1],
+                    Integer.parseInt(columns[2]), Integer.parseInt(columns[3]),
+                    Double.parseDouble(columns[5]), Double.parseDouble(columns[6]), Double.parseDouble(columns[7]));
+            results.put(result.key(), result);
+        }
+        return results;
+    }
+
+    /// Logs the change against the baseline for every configuration and returns the number of regressions
+    static int compare(List<BenchmarkResult> results, Map<String, BenchmarkResult> baseline, double threshold) {
+        int regressions = 0;
+        Logger.info(String.format(Locale.ROOT, "%-12s %-10s %9s %7s %12s %12s %8s", "mode", "series", "particles", "cycles", "baseline ms", "current ms", "change"));
+
+        for (BenchmarkResult result : results) {
+            BenchmarkResult previous = baseline.get(result.key());
+            if (previous == null) {
+                continue;
+            }
+
+            double change = (result.meanMs - previous.meanMs) / previous.meanMs;
+            boolean overlapping = result.meanMs - result.confidenceIntervalMs <= previous.meanMs + previous.confidenceIntervalMs
+                    && previous.meanMs - previous.confidenceIntervalMs <= result.meanMs + result.confidenceIntervalMs;
+
+            String verdict = "";
+            if (!overlapping && change > threshold) {
+                verdict = " REGRESSION";
+                regressions++;
+            }
+            else if (!overlapping && change < -threshold) {
+                verdict = " improvement";
+            }
+
+            String line = String.format(Locale.ROOT, "%-12s %-10s %9d %7d %12.1f %12.1f %+7.1f%%%s",
+                    result.mode, result.series, result.particles, result.cycles, previous.meanMs, result.meanMs, change * 100, verdict);
+            if (verdict.equals(" REGRESSION")) {
+                Logger.warn(line);
+            }
+            else {
+                Logger.info(line);
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,46 @@
+package Benchmark;
+
+import Particles.SimulationMode;
+import Utils.Statistics;
+
+public class BenchmarkResult {
+    final SimulationMode mode;
+    final String series;
+    final int particles;
+    final int cycles;
+    final double[] runtimesMs;
+    final double meanMs;
+    final double standardDeviationMs;
+    final double confidenceIntervalMs;
+
+    BenchmarkResult(SimulationMode mode, String series, int particles, int cycles, double[] runtimesMs) {
+        this.mode = mode;
+        this.series = series;
+        this.particles = particles;
+        this.cycles = cycles;
+        this.runtimesMs = runtimesMs;
+        this.meanMs = Statistics.mean(runtimesMs);
+        this.standardDeviationMs = Statistics.standardDeviation(runtimesMs);
+        this.confidenceIntervalMs = Statistics.confidenceInterval95(runtimesMs);
+    }
+
+    /// Constructor for results read back from a previous CSV, the single runs are not stored there
+    BenchmarkResult(SimulationMode mode, String series, int particles, int cycles, double meanMs, double standardDeviationMs, double confidenceIntervalMs) {
+        this.mode = mode;
+        this.series = series;
+        this.particles = particles;
+        this.cycles = cycles;
+        this.runtimesMs = new double[0];
+        this.meanMs = meanMs;
+        this.standardDeviationMs = standardDeviationMs;
+        this.confidenceIntervalMs = confidenceIntervalMs;
+    }
+
+    String key() {
+        return mode + "/" + series + "/" + particles + "/" + cycles;
+    }
+
+    double cyclesPerSecond() {
+        return cycles / (meanMs / 1000);
+    }
+}
@@ -0,0 +1,225 @@
+package Benchmark;
+
+import Particles.SimulationMode;
+import Utils.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/// Runs the test matrix from the README.
+/// Testing by limiting particles: particles fixed, cycles increased every step.
+/// Testing by limiting cycles: cycles fixed, particles increased every step.
+/// Every run is a fresh JVM (or a fresh MPJ job for distributed mode) so runs do not influence each other.
+public class BenchmarkRunner {
+    private static final Pattern RUNTIME_PATTERN = Pattern.compile("Simulation completed in (\\d+) ms");
+    /// A run may take up to maxRuntimeMs before its series stops, one that needs this much longer is treated as hung
+    private static final long RUN_TIMEOUT_MARGIN_MS = 60 * 1000;
+
+    static final String SERIES_LIMITED_PARTICLES = "particles";
+    static final String SERIES_LIMITED_CYCLES = "cycles";
+
+    private final BenchmarkConfig config;
+
+    public BenchmarkRunner(BenchmarkConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) {
+        BenchmarkConfig config = parseArgs(args);
+        BenchmarkRunner runner = new BenchmarkRunner(config);
+        System.exit(runner.run());
+    }
+
+    /// Returns the process exit code, 1 if a regression against the baseline was found
+    public int run() {
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        for (SimulationMode mode : config.modes) {
+            runSeries(mode, SERIES_LIMITED_PARTICLES, results);
+            runSeries(mode, SERIES_LIMITED_CYCLES, results);
+        }
+
+        try {
+            Path csv = Path.of(config.output + ".csv");
+            Path json = Path.of(config.output + ".json");
+            BenchmarkReport.writeCsv(results, csv);
+            BenchmarkReport.writeJson(results, config, json);
+            Logger.info("Results written to " + csv + " and " + json);
+
+            if (config.baseline != null) {
+                int regressions = BenchmarkReport.compare(results, BenchmarkReport.readCsv(Path.of(config.baseline)), config.regressionThreshold);
+                Logger.info("Regressions against " + config.baseline + ": " + regressions);
+                return regressions > 0 ? 1 : 0;
+            }
+        }
+        catch (IOException e) {
+            Logger.error("Writing benchmark results failed: " + e.getMessage());
+            return 2;
+        }
+        return 0;
+    }
+
+    private void runSeries(SimulationMode mode, String series, List<BenchmarkResult> results) {
+        for (int step = 0; step < config.steps; step++) {
+            int value = config.start + step * config.increment;
+            int particles = series.equals(SERIES_LIMITED_PARTICLES) ? config.fixedParticles : value;
+            int cycles = series.equals(SERIES_LIMITED_PARTICLES) ? value : config.fixedCycles;
+
+            double[] runtimes = new double[config.repeats];
+            try {
+                for (int i = 0; i < config.warmup; i++) {
+                    runOnce(mode, particles, cycles);
+                }
+                for (int i = 0; i < config.repeats; i++) {
+                    runtimes[i] = runOnce(mode, particles, cycles);
+                }
+            }
+            catch (IOException | IllegalStateException e) {
+                Logger.error("Run " + mode + " with " + particles + " particles and " + cycles + " cycles failed: " + e.getMessage());
+                return;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            BenchmarkResult result = new BenchmarkResult(mode, series, particles, cycles, runtimes);
+            results.add(result);
+            Logger.info(String.format(Locale.ROOT, "%s limited %s: %d particles, %d cycles -> %.1f ms (sd %.1f, 95%% CI +-%.1f)",
+                    mode, series, particles, cycles, result.meanMs, result.standardDeviationMs, result.confidenceIntervalMs));
+
+            if (result.meanMs > config.maxRuntimeMs) {
+                Logger.info("Runtime limit reached, stopping the series");
+                return;
+            }
+        }
+    }
+
+    private double runOnce(SimulationMode mode, int particles, int cycles) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        String classPath = System.getProperty("java.class.path");
+
+        if (mode == SimulationMode.DISTRIBUTED) {
+            boolean windows = System.getProperty("os.name").toLowerCase(Locale.ROOT).startsWith("windows");
+            command.add(Path.of(config.mpjHome, "bin", windows ? "mpjrun.bat" : "mpjrun.sh").toAbsolutePath().toString());
+            command.addAll(List.of("-np", String.valueOf(config.processes), "-dev", "multicore", "-cp", classPath));
+        }
+        else {
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(List.of("-cp", classPath));
+        }
+
+        command.add("Particles.Main");
+        command.addAll(List.of(
+                "--mode", mode.toString().toLowerCase(Locale.ROOT),
+                "--particles", String.valueOf(particles),
+                "--cycles", String.valueOf(cycles),
+                "--seed", String.valueOf(config.seed),
+                "--gui", "false"));
+
+        // Output goes to a file so a hung run cannot block the runner on a read, the timeout below always applies
+        Path output = Files.createTempFile("particles-benchmark", ".log");
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output.toFile());
+            builder.environment().put("MPJ_HOME", new File(config.mpjHome).getAbsolutePath());
+            Process process = builder.start();
+
+            long timeoutMs = config.maxRuntimeMs + RUN_TIMEOUT_MARGIN_MS;
+            boolean exited = process.waitFor(timeoutMs, TimeUnit.MILLISECONDS);
+            if (!exited) {
+                // A run that hangs on shutdown may still have reported its runtime
+                process.destroyForcibly();
+                process.waitFor();
+            }
+
+            long runtime = -1;
+            try (BufferedReader reader = Files.newBufferedReader(output, Charset.defaultCharset())) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = RUNTIME_PATTERN.matcher(line);
+                    if (matcher.find()) {
+                        runtime = Long.parseLong(matcher.group(1));
+                    }
+                }
+            }
+            if (runtime < 0) {
+                throw new IllegalStateException(exited ? "no runtime reported, exit code " + process.exitValue()
+                        : "no runtime reported within " + timeoutMs + " ms, run killed");
+            }
+            return runtime;
+        }
+        finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private static BenchmarkConfig parseArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+
+        for (int i = 0; i < args.length; i++) {
+            try{
+                if(args[i].equals("--modes")){
+                    config.modes = Arrays.stream(args[i+1].split(",")).map(mode -> SimulationMode.valueOf(mode.trim().toUpperCase())).toList();
+                }
+                else if(args[i].equals("--fixedParticles")){
+                    config.fixedParticles = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--fixedCycles")){
+                    config.fixedCycles = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--start")){
+                    config.start = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--increment")){
+                    config.increment = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--steps")){
+                    config.steps = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--maxRuntime")){
+                    config.maxRuntimeMs = Long.parseLong(args[i+1]);
+                }
+                else if(args[i].equals("--repeats")){
+                    config.repeats = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--warmup")){
+                    config.warmup = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--seed")){
+                    config.seed = Long.parseLong(args[i+1]);
+                }
+                else if(args[i].equals("--processes")){
+                    config.processes = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--mpjHome")){
+                    config.mpjHome = args[i+1];
+                }
+                else if(args[i].equals("--output")){
+                    config.output = args[i+1];
+                }
+                else if(args[i].equals("--baseline")){
+                    config.baseline = args[i+1];
+                }
+                else if(args[i].equals("--threshold")){
+                    config.regressionThreshold = Double.parseDouble(args[i+1]);
+                }
+            }
+            catch (Exception e){
+                Logger.error(e.getMessage());
+            }
+        }
+
+        return config;
+    }
+}
@@ -0,0 +1,324 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Puts settled particles to sleep so the pair loop can skip them.
+/// A particle whose speed and net force stay below config.sleepVelocity and config.sleepForce
+/// for config.sleepCycles cycles is asleep: it does not move and the forces between two sleeping particles
+/// are kept as a frozen field instead of being recomputed. Only pairs with at least one awake particle are computed.
+/// A sleeping particle wakes up as soon as its net force grows above twice config.sleepForce,
+/// for example because an awake particle came close.
+public class ActivityTracker {
+    private final SimulationConfig config;
+    private final List<Particle> particles;
+    private final double minimumDistance;
+    private final double wakeForce;
+
+    private int n;
+    private boolean[] asleep;
+    private int[] quietCycles;
+    private double[] frozenForceX;
+    private double[] frozenForceY;
+    private int[] activeIndices;
+    private int[] sleepingIndices;
+    private int activeCount;
+    private int sleepingCount;
+    private int eventsSinceRebuild = 0;
+    private long pairsLastCycle = 0;
+
+    private double[][] threadForcesX = new double[0][];
+    private double[][] threadForcesY = new double[0][];
+
+    public ActivityTracker(SimulationConfig config, List<Particle> particles) {
+        this.config = config;
+        this.particles = particles;
+        this.minimumDistance = config.minimumDistance;
+        this.wakeForce = 2 * config.sleepForce;
+
+        this.n = particles.size();
+        this.asleep = new boolean[n];
+        this.quietCycles = new int[n];
+        this.frozenForceX = new double[n];
+        this.frozenForceY = new double[n];
+        this.activeIndices = new int[n];
+        this.sleepingIndices = new int[n];
+        rebuildIndices();
+    }
+
+    public boolean isAsleep(int i) {
+        return asleep[i];
+    }
+
+    public int activeCount() {
+        return activeCount;
+    }
+
+    public long pairsLastCycle() {
+        return pairsLastCycle;
+    }
+
+    /// Adds all pair forces to the (zeroed) particle forces: awake-awake and awake-asleep pairs are computed,
+    /// asleep-asleep pairs come from the frozen field.
+    /// Without an executor the pairs are computed on the calling thread.
+    public void computePairForces(ExecutorService executor, int numberOfThreads) {
+        pairsLastCycle = (long) activeCount * (activeCount - 1) / 2 + (long) activeCount * sleepingCount;
+
+        if (executor == null || numberOfThreads <= 1) {
+            for (int a = 0; a < activeCount; a++) {
+                Particle particle1 = particles.get(activeIndices[a]);
+                for (int b = a + 1; b < activeCount; b++) {
+                    applyForce(particle1, particles.get(activeIndices[b]));
+                }
+                for (int s = 0; s < sleepingCount; s++) {
+                    applyForce(particle1, particles.get(sleepingIndices[s]));
+                }
+            }
+        }
+        else {
+            computePairForcesParallel(executor, numberOfThreads);
+        }
+
+        for (int s = 0; s < sleepingCount; s++) {
+            int i = sleepingIndices[s];
+            Particle particle = particles.get(i);
+            particle.forceX += frozenForceX[i];
+            particle.forceY += frozenForceY[i];
+        }
+    }
+
+    private void computePairForcesParallel(ExecutorService executor, int numberOfThreads) {
+        if (threadForcesX.length != numberOfThreads || threadForcesX[0].length < n) {
+            threadForcesX = new double[numberOfThreads][n];
+            threadForcesY = new double[numberOfThreads][n];
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            int threadId = t;
+            tasks.add(Executors.callable(() -> {
+                double[] forcesX = threadForcesX[threadId];
+                double[] forcesY = threadForcesY[threadId];
+                Arrays.fill(forcesX, 0, n, 0);
+                Arrays.fill(forcesY, 0, n, 0);
+
+                /// Every thread takes every numberOfThreads-th awake particle, which evens out the triangular awake-awake part
+                for (int a = threadId; a < activeCount; a += numberOfThreads) {
+                    int i = activeIndices[a];
+                    for (int b = a + 1; b < activeCount; b++) {
+                        applyForce(i, activeIndices[b], forcesX, forcesY);
+                    }
+                    for (int s = 0; s < sleepingCount; s++) {
+                        applyForce(i, sleepingIndices[s], forcesX, forcesY);
+                    }
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+
+        tasks.clear();
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int mergeStart = t * particlesPerThread;
+            int mergeEnd = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> {
+                for (int j = mergeStart; j < mergeEnd; j++) {
+                    Particle particle = particles.get(j);
+                    for (int threadId = 0; threadId < numberOfThreads; threadId++) {
+                        particle.forceX += threadForcesX[threadId][j];
+                        particle.forceY += threadForcesY[threadId][j];
+                    }
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+    }
+
+    /// Follows a reordering or a population change of the particles, element i of order is the old index of the particle now at i
+    /// and -1 for a new particle, which starts awake.
+    /// A pure reordering keeps the frozen field, after a population change it is rebuilt because removed or merged sleepers contributed to it.
+    public void permute(int[] order, int count) {
+        boolean[] oldAsleep = asleep;
+        int[] oldQuietCycles = quietCycles;
+        double[] oldFrozenForceX = frozenForceX;
+        double[] oldFrozenForceY = frozenForceY;
+        boolean populationChanged = count != n;
+
+        int capacity = ParticlePopulation.capacityFor(asleep.length, count);
+        asleep = new boolean[capacity];
+        quietCycles = new int[capacity];
+        frozenForceX = new double[capacity];
+        frozenForceY = new double[capacity];
+        if (capacity != activeIndices.length) {
+            activeIndices = new int[capacity];
+            sleepingIndices = new int[capacity];
+        }
+        n = count;
+
+        for (int i = 0; i < n; i++) {
+            int old = order[i];
+            if (old < 0) {
+                populationChanged = true;
+                continue;
+            }
+            asleep[i] = oldAsleep[old];
+            quietCycles[i] = oldQuietCycles[old];
+            frozenForceX[i] = oldFrozenForceX[old];
+            frozenForceY[i] = oldFrozenForceY[old];
+        }
+        if (populationChanged) {
+            rebuildFrozenField();
+        }
+        else {
+            rebuildIndices();
+        }
+    }
+
+    /// Wakes every sleeping particle whose net force (pairs and walls) has grown too large, call before integrating
+    public void wakeDisturbed() {
+        boolean changed = false;
+        for (int s = 0; s < sleepingCount; s++) {
+            int i = sleepingIndices[s];
+            Particle particle = particles.get(i);
+            if (Math.abs(particle.forceX) > wakeForce || Math.abs(particle.forceY) > wakeForce) {
+                wake(i);
+                changed = true;
+            }
+        }
+        if (changed) {
+            rebuildIndices();
+        }
+    }
+
+    /// Puts awake particles that have been quiet long enough to sleep, call after integrating
+    public void settle() {
+        double sleepVelocitySquared = config.sleepVelocity * config.sleepVelocity;
+        boolean changed = false;
+
+        for (int a = 0; a < activeCount; a++) {
+            int i = activeIndices[a];
+            Particle particle = particles.get(i);
+            double speedSquared = particle.velocityX * particle.velocityX + particle.velocityY * particle.velocityY;
+            if (speedSquared < sleepVelocitySquared && Math.abs(particle.forceX) < config.sleepForce && Math.abs(particle.forceY) < config.sleepForce) {
+                quietCycles[i]++;
+                if (quietCycles[i] >= config.sleepCycles) {
+                    sleep(i);
+                    changed = true;
+                }
+            }
+            else {
+                quietCycles[i] = 0;
+            }
+        }
+
+        /// Adding and removing pairs one by one accumulates rounding errors, so once in a while the field is rebuilt
+        if (eventsSinceRebuild > n) {
+            rebuildFrozenField();
+        }
+        if (changed) {
+            rebuildIndices();
+        }
+    }
+
+    private void sleep(int k) {
+        Particle particle = particles.get(k);
+        particle.velocityX = 0;
+        particle.velocityY = 0;
+        frozenForceX[k] = 0;
+        frozenForceY[k] = 0;
+
+        for (int s = 0; s < sleepingCount; s++) {
+            int i = sleepingIndices[s];
+            if (asleep[i]) {
+                addFrozenPair(i, k, 1);
+            }
+        }
+        asleep[k] = true;
+        /// Particles falling asleep later in the same pass must see this one
+        sleepingIndices[sleepingCount++] = k;
+        eventsSinceRebuild++;
+    }
+
+    private void wake(int k) {
+        asleep[k] = false;
+        quietCycles[k] = 0;
+        frozenForceX[k] = 0;
+        frozenForceY[k] = 0;
+
+        for (int s = 0; s < sleepingCount; s++) {
+            int i = sleepingIndices[s];
+            if (asleep[i]) {
+                addFrozenPair(i, k, -1);
+            }
+        }
+        eventsSinceRebuild++;
+    }
+
+    /// Adds (sign 1) or removes (sign -1) the force between sleeping particle i and particle k to the frozen field of both
+    private void addFrozenPair(int i, int k, int sign) {
+        Particle particle1 = particles.get(i);
+        Particle particle2 = particles.get(k);
+        double distanceX = particle2.x - particle1.x;
+        double distanceY = particle2.y - particle1.y;
+        double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2.charge, minimumDistance);
+        double forceX = sign * strength * distanceX;
+        double forceY = sign * strength * distanceY;
+
+        frozenForceX[i] += forceX;
+        frozenForceY[i] += forceY;
+        if (sign > 0) {
+            frozenForceX[k] -= forceX;
+            frozenForceY[k] -= forceY;
+        }
+    }
+
+    private void rebuildFrozenField() {
+        rebuildIndices();
+        for (int s = 0; s < sleepingCount; s++) {
+            frozenForceX[sleepingIndices[s]] = 0;
+            frozenForceY[sleepingIndices[s]] = 0;
+        }
+        for (int s = 0; s < sleepingCount; s++) {
+            for (int t = s + 1; t < sleepingCount; t++) {
+                addFrozenPair(sleepingIndices[s], sleepingIndices[t], 1);
+            }
+        }
+        eventsSinceRebuild = 0;
+    }
+
+    private void rebuildIndices() {
+        activeCount = 0;
+        sleepingCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (asleep[i]) {
+                sleepingIndices[sleepingCount++] = i;
+            }
+            else {
+                activeIndices[activeCount++] = i;
+            }
+        }
+    }
+
+    private void applyForce(Particle particle1, Particle particle2) {
+        PairForce.apply(particle1, particle2, minimumDistance);
+    }
+
+    private void applyForce(int i, int j, double[] forcesX, double[] forcesY) {
+        Particle particle1 = particles.get(i);
+        Particle particle2 = particles.get(j);
+        double distanceX = particle2.x - particle1.x;
+        double distanceY = particle2.y - particle1.y;
+        double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2.charge, minimumDistance);
+        double forceX = strength * distanceX;
+        double forceY = strength * distanceY;
+
+        forcesX[i] += forceX;
+        forcesY[i] += forceY;
+        forcesX[j] -= forceX;
+        forcesY[j] -= forceY;
+    }
+}
@@ -0,0 +1,282 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Pair forces with a single inverse cube per pair instead of a square root and three divisions:
+/// force = charge1 * charge2 * distance * (1 / sqrt(max(distanceSquared, minimumDistance^2)))^3.
+/// The minimum distance is applied to the squared distance with Math.max, so the inner loop has no branch.
+/// With config.newtonSteps the inverse square root starts from the bit level guess for doubles and is refined
+/// by that many Newton steps. Every step about squares the relative error of the guess (3.4%, then about 1.7e-3,
+/// 4.5e-6 and 3e-11), the force is off by up to three times that. Without steps it is 1 / Math.sqrt, which the JIT
+/// turns into vector square roots and divisions, on CPUs with wide vectors that is the fastest variant and only rounds
+/// differently from the exact kernels. configure logs the error measured against the exact kernel.
+/// For Particle lists positions and charges are copied into plain arrays once per cycle and the triangle of pairs is
+/// split like PairwiseKernel. On a ParticleStore the rows are read from the store itself, nothing is copied to the heap.
+/// Not exact, so AutoTuner never picks it, it is only used when selected with --kernel approximate.
+public class ApproximateKernel implements StoreKernel {
+    /// Bit level first guess of 1 / sqrt(x) for doubles
+    private static final long MAGIC = 0x5FE6EB50C7B537A9L;
+    private static final int REPORT_SAMPLES = 1 << 16;
+    private static final int REPORT_PARTICLES = 2000;
+
+    private int newtonSteps = 0;
+    private double[] positionsX = new double[0];
+    private double[] positionsY = new double[0];
+    private double[] charges = new double[0];
+    private double[][] threadForcesX = new double[0][];
+    private double[][] threadForcesY = new double[0][];
+
+    @Override
+    public String name() {
+        return "approximate";
+    }
+
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+
+    @Override
+    public void configure(SimulationConfig config) {
+        if (config.newtonSteps < 0) {
+            throw new IllegalArgumentException("Newton steps must not be negative: " + config.newtonSteps);
+        }
+        newtonSteps = config.newtonSteps;
+        if (config.logProgress) {
+            Logger.info(errorReport(config));
+        }
+    }
+
+    /// 1 / sqrt(x) for positive x, from the bit level guess refined by steps Newton steps, or exact for no steps
+    static double inverseSqrt(double x, int steps) {
+        if (steps == 0) {
+            return 1 / Math.sqrt(x);
+        }
+        double half = 0.5 * x;
+        double y = Double.longBitsToDouble(MAGIC - (Double.doubleToRawLongBits(x) >> 1));
+        for (int s = 0; s < steps; s++) {
+            y = y * (1.5 - half * y * y);
+        }
+        return y;
+    }
+
+    @Override
+    public long apply(List<Particle> particles, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        int n = particles.size();
+        prepare(n, executor == null ? 1 : numberOfThreads);
+        for (int i = 0; i < n; i++) {
+            Particle particle = particles.get(i);
+            positionsX[i] = particle.x;
+            positionsY[i] = particle.y;
+            charges[i] = particle.charge;
+        }
+
+        long pairs = computeForces(n, minimumDistance, executor, numberOfThreads);
+
+        for (int i = 0; i < n; i++) {
+            Particle particle = particles.get(i);
+            for (int threadId = 0; threadId < threadForcesX.length; threadId++) {
+                particle.forceX += threadForcesX[threadId][i];
+                particle.forceY += threadForcesY[threadId][i];
+            }
+        }
+        return pairs;
+    }
+
+    /// Reads the store directly and keeps nothing on the heap, every particle sums its own row like RowKernel,
+    /// so threads need no force buffers at the price of computing every pair twice
+    @Override
+    public long apply(ParticleStore store, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        int n = store.size();
+        double minimumDistanceSquared = minimumDistance * minimumDistance;
+
+        if (executor == null || numberOfThreads <= 1) {
+            computeRows(store, 0, n, minimumDistanceSquared);
+            return (long) n * (n - 1);
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int start = t * particlesPerThread;
+            int end = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> computeRows(store, start, end, minimumDistanceSquared)));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+        return (long) n * (n - 1);
+    }
+
+    private void prepare(int n, int numberOfThreads) {
+        int threads = Math.max(1, numberOfThreads);
+        if (positionsX.length < n) {
+            int capacity = ParticlePopulation.capacityFor(positionsX.length, n);
+            positionsX = new double[capacity];
+            positionsY = new double[capacity];
+            charges = new double[capacity];
+        }
+        if (threadForcesX.length != threads || threadForcesX[0].length < n) {
+            int capacity = threadForcesX.length > 0 ? ParticlePopulation.capacityFor(threadForcesX[0].length, n) : n;
+            threadForcesX = new double[threads][capacity];
+            threadForcesY = new double[threads][capacity];
+        }
+    }
+
+    /// Pair forces of the packed particles into the thread force buffers
+    private long computeForces(int n, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        double minimumDistanceSquared = minimumDistance * minimumDistance;
+        if (threadForcesX.length == 1) {
+            computeRows(0, 1, n, minimumDistanceSquared);
+        }
+        else {
+            List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+            for (int t = 0; t < numberOfThreads; t++) {
+                int threadId = t;
+                tasks.add(Executors.callable(() -> computeRows(threadId, numberOfThreads, n, minimumDistanceSquared)));
+            }
+            ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+        }
+        return (long) n * (n - 1) / 2;
+    }
+
+    /// Rows threadId, threadId + stride ... of the triangle of pairs, with Newton's third law
+    private void computeRows(int threadId, int stride, int n, double minimumDistanceSquared) {
+        double[] x = positionsX;
+        double[] y = positionsY;
+        double[] q = charges;
+        double[] forcesX = threadForcesX[threadId];
+        double[] forcesY = threadForcesY[threadId];
+        int steps = newtonSteps;
+        Arrays.fill(forcesX, 0, n, 0);
+        Arrays.fill(forcesY, 0, n, 0);
+
+        for (int i = threadId; i < n; i += stride) {
+            double x1 = x[i];
+            double y1 = y[i];
+            double charge1 = q[i];
+            double sumX = 0;
+            double sumY = 0;
+            if (steps == 0) {
+                for (int j = i + 1; j < n; j++) {
+                    double distanceX = x[j] - x1;
+                    double distanceY = y[j] - y1;
+                    double distanceSquared = Math.max(distanceX * distanceX + distanceY * distanceY, minimumDistanceSquared);
+                    double inverseDistance = 1 / Math.sqrt(distanceSquared);
+                    double strength = charge1 * q[j] * inverseDistance * inverseDistance * inverseDistance;
+                    double forceX = strength * distanceX;
+                    double forceY = strength * distanceY;
+
+                    sumX += forceX;
+                    sumY += forceY;
+                    forcesX[j] -= forceX;
+                    forcesY[j] -= forceY;
+                }
+            }
+            else {
+                for (int j = i + 1; j < n; j++) {
+                    double distanceX = x[j] - x1;
+                    double distanceY = y[j] - y1;
+                    double distanceSquared = Math.max(distanceX * distanceX + distanceY * distanceY, minimumDistanceSquared);
+                    double inverseDistance = inverseSqrt(distanceSquared, steps);
+                    double strength = charge1 * q[j] * inverseDistance * inverseDistance * inverseDistance;
+                    double forceX = strength * distanceX;
+                    double forceY = strength * distanceY;
+
+                    sumX += forceX;
+                    sumY += forceY;
+                    forcesX[j] -= forceX;
+                    forcesY[j] -= forceY;
+                }
+            }
+            forcesX[i] += sumX;
+            forcesY[i] += sumY;
+        }
+    }
+
+    /// Full rows start to end of the store, only their own forces are written
+    private void computeRows(ParticleStore store, int start, int end, double minimumDistanceSquared) {
+        int n = store.size();
+        int steps = newtonSteps;
+        for (int i = start; i < end; i++) {
+            double x1 = store.x(i);
+            double y1 = store.y(i);
+            double charge1 = store.charge(i);
+            double sumX = 0;
+            double sumY = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double distanceX = store.x(j) - x1;
+                double distanceY = store.y(j) - y1;
+                double distanceSquared = Math.max(distanceX * distanceX + distanceY * distanceY, minimumDistanceSquared);
+                double inverseDistance = inverseSqrt(distanceSquared, steps);
+                double strength = charge1 * store.charge(j) * inverseDistance * inverseDistance * inverseDistance;
+                sumX += strength * distanceX;
+                sumY += strength * distanceY;
+            }
+            store.addForce(i, sumX, sumY);
+        }
+    }
+
+    /// Measured error against PairwiseKernel for the settings of config.
+    /// Per pair the only approximated factor is the inverse cube, it is compared over every distance the box allows
+    /// (log spaced, which covers the error pattern of the guess that repeats every factor of four).
+    /// Net forces are compared on the first particles of the run, where forces cancel their relative error can be larger.
+    public static String errorReport(SimulationConfig config) {
+        double minimumSquared = config.minimumDistance * config.minimumDistance;
+        double maximumSquared = Math.max(minimumSquared, (double) config.width * config.width + (double) config.height * config.height);
+        double logRange = Math.log(maximumSquared / minimumSquared);
+        double pairError = 0;
+        for (int s = 0; s <= REPORT_SAMPLES; s++) {
+            double distanceSquared = minimumSquared * Math.exp(logRange * s / REPORT_SAMPLES);
+            double exact = 1 / (distanceSquared * Math.sqrt(distanceSquared));
+            double inverseDistance = inverseSqrt(distanceSquared, config.newtonSteps);
+            double approximate = inverseDistance * inverseDistance * inverseDistance;
+            pairError = Math.max(pairError, Math.abs(approximate - exact) / exact);
+        }
+
+        int n = Math.min(config.numOfParticles, REPORT_PARTICLES);
+        List<Particle> exactParticles = reportParticles(config, n);
+        List<Particle> approximateParticles = reportParticles(config, n);
+        new PairwiseKernel().apply(exactParticles, config.minimumDistance, null, 1);
+        ApproximateKernel kernel = new ApproximateKernel();
+        kernel.newtonSteps = config.newtonSteps;
+        kernel.apply(approximateParticles, config.minimumDistance, null, 1);
+
+        double forceError = 0;
+        double forceErrorSum = 0;
+        int counted = 0;
+        for (int i = 0; i < n; i++) {
+            Particle exact = exactParticles.get(i);
+            Particle approximate = approximateParticles.get(i);
+            double magnitude = Math.hypot(exact.forceX, exact.forceY);
+            if (magnitude > 0) {
+                double error = Math.hypot(approximate.forceX - exact.forceX, approximate.forceY - exact.forceY) / magnitude;
+                forceError = Math.max(forceError, error);
+                forceErrorSum += error;
+                counted++;
+            }
+        }
+
+        return String.format(Locale.ROOT, "Approximate kernel with %d Newton steps: max relative error %.2e per pair, "
+                        + "%.2e max and %.2e mean on the net forces of %d particles",
+                config.newtonSteps, pairError, forceError, counted > 0 ? forceErrorSum / counted : 0.0, n);
+    }
+
+    /// The first n particles of the run and nothing else, the cost of the report does not grow with numOfParticles
+    private static List<Particle> reportParticles(SimulationConfig config, int n) {
+        List<Particle> particles = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            particles.add(ParticleGenerator.create(config, i));
+        }
+        return particles;
+    }
+}
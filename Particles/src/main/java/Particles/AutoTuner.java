@@ -0,0 +1,251 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Picks the fastest settings of the parallel engine on this machine.
+/// The force kernel is measured on a sample of the particles, one knob at a time
+/// (threads, then partition, then reduction, then tile size, then the ForceKernel plugins), keeping the best value of each.
+/// Results are cached in config.tuneCache so the next start with the same CPU, JVM and particle count skips the measuring.
+public class AutoTuner {
+    private static final int MAX_SAMPLE_PARTICLES = 2000;
+    private static final long MEASURE_NANOS = 25_000_000L;
+    private static final int WARMUP_CYCLES = 2;
+    private static final int[] TILE_SIZES = {0, 256, 1024};
+
+    private final SimulationConfig config;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+
+    /// One measured combination of settings
+    private record Candidate(int threads, ForcePartition partition, ForceReduction reduction, int tileSize, String kernel) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "threads=%d partition=%s reduction=%s tileSize=%d kernel=%s", threads, partition, reduction, tileSize, kernel);
+        }
+    }
+
+    public AutoTuner(SimulationConfig config) {
+        this.config = config;
+    }
+
+    public void tune() {
+        String key = cacheKey();
+        Candidate cached = readCache(key);
+        if (cached != null) {
+            Logger.info("Auto tuning: using cached " + cached + " from " + config.tuneCache);
+            apply(cached);
+            return;
+        }
+
+        long tuningStart = System.nanoTime();
+        int sampleParticles = Math.min(config.numOfParticles, MAX_SAMPLE_PARTICLES);
+        Logger.info("Auto tuning on " + sampleParticles + " particles for " + cpuModel() + " with " + cores + " cores");
+
+        Candidate best = new Candidate(cores, ForcePartition.CONTIGUOUS, ForceReduction.MERGE, 0, ForceKernel.BUILTIN);
+        double bestTime = Double.MAX_VALUE;
+
+        /// The first measurement would otherwise include compiling the kernel and look worse than it is
+        measure(best, sampleParticles, false);
+
+        List<Candidate> threadCandidates = new ArrayList<>();
+        for (int threads : new int[]{Math.max(1, cores / 4), Math.max(1, cores / 2), cores}) {
+            Candidate candidate = new Candidate(threads, best.partition, best.reduction, best.tileSize, best.kernel);
+            if (!threadCandidates.contains(candidate)) {
+                threadCandidates.add(candidate);
+            }
+        }
+        for (Candidate candidate : threadCandidates) {
+            double time = measure(candidate, sampleParticles, true);
+            if (time < bestTime) {
+                bestTime = time;
+                best = candidate;
+            }
+        }
+
+        for (ForcePartition partition : ForcePartition.values()) {
+            Candidate candidate = new Candidate(best.threads, partition, best.reduction, best.tileSize, best.kernel);
+            if (candidate.equals(best)) {
+                continue;
+            }
+            double time = measure(candidate, sampleParticles, true);
+            if (time < bestTime) {
+                bestTime = time;
+                best = candidate;
+            }
+        }
+
+        for (ForceReduction reduction : ForceReduction.values()) {
+            Candidate candidate = new Candidate(best.threads, best.partition, reduction, best.tileSize, best.kernel);
+            if (candidate.equals(best)) {
+                continue;
+            }
+            double time = measure(candidate, sampleParticles, true);
+            if (time < bestTime) {
+                bestTime = time;
+                best = candidate;
+            }
+        }
+
+        for (int tileSize : TILE_SIZES) {
+            Candidate candidate = new Candidate(best.threads, best.partition, best.reduction, tileSize, best.kernel);
+            if (candidate.equals(best) || tileSize >= sampleParticles) {
+                continue;
+            }
+            double time = measure(candidate, sampleParticles, true);
+            if (time < bestTime) {
+                bestTime = time;
+                best = candidate;
+            }
+        }
+
+        /// Kernels replace the built in loop, so partition, reduction and tile size do not matter for them.
+        /// Approximate kernels are only used when asked for, tuning must not change the results.
+        for (String kernel : Plugins.names(ForceKernel.class)) {
+            if (!Plugins.load(ForceKernel.class, kernel).isExact()) {
+                continue;
+            }
+            Candidate candidate = new Candidate(best.threads, best.partition, best.reduction, best.tileSize, kernel);
+            double time = measure(candidate, sampleParticles, true);
+            if (time < bestTime) {
+                bestTime = time;
+                best = candidate;
+            }
+        }
+
+        Logger.info(String.format(Locale.ROOT, "Auto tuning chose %s (%.2f ms per force cycle) after %d ms",
+                best, bestTime / 1e6, (System.nanoTime() - tuningStart) / 1_000_000));
+        apply(best);
+        writeCache(key, best);
+    }
+
+    /// Average nanoseconds of one force calculation with the given settings
+    private double measure(Candidate candidate, int sampleParticles, boolean report) {
+        SimulationConfig sample = new SimulationConfig();
+        sample.numOfParticles = sampleParticles;
+        sample.particleSeed = config.particleSeed;
+        sample.width = config.width;
+        sample.height = config.height;
+        sample.minimumDistance = config.minimumDistance;
+        sample.maximumSpeed = config.maximumSpeed;
+        sample.boundaryCharge = config.boundaryCharge;
+        sample.threads = candidate.threads;
+        sample.partition = candidate.partition;
+        sample.reduction = candidate.reduction;
+        sample.tileSize = candidate.tileSize;
+        sample.kernel = candidate.kernel;
+
+        ParticleSimulationParallel simulation = new ParticleSimulationParallel(sample);
+        ExecutorService executor = Executors.newFixedThreadPool(candidate.threads);
+        try {
+            for (int i = 0; i < WARMUP_CYCLES; i++) {
+                simulation.calculateForcesParallel(executor, candidate.threads);
+            }
+
+            long start = System.nanoTime();
+            long elapsed;
+            int cycles = 0;
+            do {
+                simulation.calculateForcesParallel(executor, candidate.threads);
+                cycles++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MEASURE_NANOS);
+
+            double time = (double) elapsed / cycles;
+            if (report) {
+                Logger.info(String.format(Locale.ROOT, "  %s: %.3f ms", candidate, time / 1e6));
+            }
+            return time;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private void apply(Candidate candidate) {
+        config.threads = candidate.threads;
+        config.partition = candidate.partition;
+        config.reduction = candidate.reduction;
+        config.tileSize = candidate.tileSize;
+        config.kernel = candidate.kernel;
+    }
+
+    /// Settings depend on the machine, the JVM and roughly on the problem size, so particle counts are bucketed by power of two
+    private String cacheKey() {
+        int bucket = Integer.highestOneBit(Math.max(1, config.numOfParticles));
+        String key = cpuModel() + "|" + cores + "|" + System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + "|" + bucket;
+        return key.replaceAll("\\s+", "_");
+    }
+
+    private Candidate readCache(String key) {
+        Path path = Path.of(config.tuneCache);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(path)) {
+            properties.load(input);
+            String value = properties.getProperty(key);
+            if (value == null) {
+                return null;
+            }
+            String[] parts = value.split(",");
+            /// Entries written before kernels were tuned have no fifth part
+            String kernel = parts.length > 4 ? parts[4] : ForceKernel.BUILTIN;
+            return new Candidate(Integer.parseInt(parts[0]), ForcePartition.valueOf(parts[1]), ForceReduction.valueOf(parts[2]), Integer.parseInt(parts[3]), kernel);
+        }
+        catch (IOException | RuntimeException e) {
+            Logger.warn("Ignoring tuning cache " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(String key, Candidate candidate) {
+        Path path = Path.of(config.tuneCache);
+        Properties properties = new Properties();
+        try {
+            if (Files.exists(path)) {
+                try (InputStream input = Files.newInputStream(path)) {
+                    properties.load(input);
+                }
+            }
+            properties.setProperty(key, candidate.threads + "," + candidate.partition + "," + candidate.reduction + "," + candidate.tileSize + "," + candidate.kernel);
+            try (OutputStream output = Files.newOutputStream(path)) {
+                properties.store(output, "Particles auto tuning results");
+            }
+        }
+        catch (IOException e) {
+            Logger.warn("Writing tuning cache " + path + " failed: " + e.getMessage());
+        }
+    }
+
+    private static String cpuModel() {
+        String identifier = System.getenv("PROCESSOR_IDENTIFIER");
+        if (identifier != null) {
+            return identifier;
+        }
+
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/cpuinfo"))) {
+                if (line.startsWith("model name")) {
+                    return line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+        }
+        catch (IOException | RuntimeException ignored) {
+            /// Not Linux, fall back to the architecture
+        }
+        return System.getProperty("os.arch");
+    }
+}
@@ -0,0 +1,197 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Gives every particle its own power of two timestep.
+/// A particle on level k is kicked (force computed, velocity updated) only every 2^k cycles with a 2^k times larger step,
+/// in between it keeps drifting with its last velocity, so one cycle still advances the simulation by the base step.
+/// Levels go up to config.timestepLevels and are chosen from the force: the allowed step is sqrt(timestepAccuracy * minimumDistance / |force|).
+/// Particles only move to a coarser level on cycles where that level is kicked, so every level stays a block.
+public class BlockTimestep {
+    private final SimulationConfig config;
+    private final List<Particle> particles;
+    private final double minimumDistance;
+    private final double baseStep;
+    private final int maxLevel;
+    private int n;
+
+    private int[] level;
+    private boolean[] active;
+    private int[] activeIndices;
+    private int[] inactiveIndices;
+    private final double[] dampingOfLevel;
+    private final int[] particlesOnLevel;
+    private int activeCount = 0;
+    private int inactiveCount = 0;
+    private long cycle = 0;
+    private long pairsLastCycle = 0;
+
+    public BlockTimestep(SimulationConfig config, List<Particle> particles, double baseStep) {
+        this.config = config;
+        this.particles = particles;
+        this.minimumDistance = config.minimumDistance;
+        this.baseStep = baseStep;
+        this.maxLevel = config.timestepLevels;
+        this.n = particles.size();
+
+        this.level = new int[n];
+        this.active = new boolean[n];
+        this.activeIndices = new int[n];
+        this.inactiveIndices = new int[n];
+        this.particlesOnLevel = new int[maxLevel + 1];
+        particlesOnLevel[0] = n;
+
+        /// Damping is applied once per cycle, a kick covering 2^k cycles applies it 2^k times
+        this.dampingOfLevel = new double[maxLevel + 1];
+        for (int k = 0; k <= maxLevel; k++) {
+            dampingOfLevel[k] = Math.pow(config.damping, 1 << k);
+        }
+    }
+
+    /// Number of particles on every level, index 0 is the finest
+    public int[] particlesOnLevel() {
+        return particlesOnLevel.clone();
+    }
+
+    public int activeCount() {
+        return activeCount;
+    }
+
+    public long pairsLastCycle() {
+        return pairsLastCycle;
+    }
+
+    public boolean isActive(int i) {
+        return active[i];
+    }
+
+    /// Velocity step of particle i, only meaningful while it is active
+    public double kickStep(int i) {
+        return baseStep * (1 << level[i]);
+    }
+
+    public double damping(int i) {
+        return dampingOfLevel[level[i]];
+    }
+
+    /// Follows a reordering or a population change of the particles, element i of order is the old index of the particle now at i
+    /// and -1 for a new particle, which starts on the finest level
+    public void permute(int[] order, int count) {
+        int[] oldLevel = level;
+        int capacity = ParticlePopulation.capacityFor(level.length, count);
+        level = new int[capacity];
+        if (capacity != active.length) {
+            active = new boolean[capacity];
+            activeIndices = new int[capacity];
+            inactiveIndices = new int[capacity];
+        }
+        n = count;
+
+        Arrays.fill(particlesOnLevel, 0);
+        for (int i = 0; i < n; i++) {
+            level[i] = order[i] >= 0 ? oldLevel[order[i]] : 0;
+            particlesOnLevel[level[i]]++;
+        }
+    }
+
+    /// Call once per cycle before computeForces, selects the particles whose level is kicked this cycle
+    public void beginCycle(long cycle) {
+        this.cycle = cycle;
+        activeCount = 0;
+        inactiveCount = 0;
+        for (int i = 0; i < n; i++) {
+            active[i] = cycle % (1L << level[i]) == 0;
+            if (active[i]) {
+                activeIndices[activeCount++] = i;
+            }
+            else {
+                inactiveIndices[inactiveCount++] = i;
+            }
+        }
+    }
+
+    /// Adds the pair forces of the active particles to their (zeroed) forces, inactive particles keep zero.
+    /// Without an executor pairs of two active particles are computed once for both,
+    /// with one every thread takes every numberOfThreads-th active particle and only writes its force.
+    public void computeForces(ExecutorService executor, int numberOfThreads) {
+        if (executor == null || numberOfThreads <= 1) {
+            for (int a = 0; a < activeCount; a++) {
+                Particle particle1 = particles.get(activeIndices[a]);
+                for (int b = a + 1; b < activeCount; b++) {
+                    applyForce(particle1, particles.get(activeIndices[b]), true);
+                }
+                for (int s = 0; s < inactiveCount; s++) {
+                    applyForce(particle1, particles.get(inactiveIndices[s]), false);
+                }
+            }
+            pairsLastCycle = (long) activeCount * (activeCount - 1) / 2 + (long) activeCount * inactiveCount;
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            int threadId = t;
+            tasks.add(Executors.callable(() -> {
+                for (int a = threadId; a < activeCount; a += numberOfThreads) {
+                    int i = activeIndices[a];
+                    Particle particle1 = particles.get(i);
+                    for (int j = 0; j < n; j++) {
+                        if (j != i) {
+                            applyForce(particle1, particles.get(j), false);
+                        }
+                    }
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+        pairsLastCycle = (long) activeCount * (n - 1);
+    }
+
+    /// Picks the level of every active particle from its force (pairs and walls), call before integrating
+    public void assignLevels() {
+        for (int a = 0; a < activeCount; a++) {
+            int i = activeIndices[a];
+            Particle particle = particles.get(i);
+            double force = Math.sqrt(particle.forceX * particle.forceX + particle.forceY * particle.forceY);
+
+            int wanted = maxLevel;
+            if (force > 0) {
+                double allowedStep = Math.sqrt(config.timestepAccuracy * minimumDistance / force);
+                wanted = (int) Math.floor(Math.log(allowedStep / baseStep) / Math.log(2));
+            }
+            wanted = Math.max(0, Math.min(maxLevel, wanted));
+
+            /// Coarsen one level at a time and only if the coarser block is kicked this cycle
+            if (wanted > level[i]) {
+                wanted = level[i] + 1;
+                if (cycle % (1L << wanted) != 0) {
+                    wanted = level[i];
+                }
+            }
+            particlesOnLevel[level[i]]--;
+            particlesOnLevel[wanted]++;
+            level[i] = wanted;
+        }
+    }
+
+    /// Only updates particle2 as well when both, otherwise particle2 gets its share when it is active itself
+    private void applyForce(Particle particle1, Particle particle2, boolean both) {
+        double distanceX = particle2.x - particle1.x;
+        double distanceY = particle2.y - particle1.y;
+        double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2.charge, minimumDistance);
+        double forceX = strength * distanceX;
+        double forceY = strength * distanceY;
+
+        particle1.forceX += forceX;
+        particle1.forceY += forceY;
+        if (both) {
+            particle2.forceX -= forceX;
+            particle2.forceY -= forceY;
+        }
+    }
+}
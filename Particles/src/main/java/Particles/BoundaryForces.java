@@ -0,0 +1,37 @@
+package Particles;
+
+/// Repelling force of the charged walls, shared by all engines
+public final class BoundaryForces {
+    private static final double WALL_MARGIN = 15.0;
+
+    private BoundaryForces() {
+    }
+
+    public static void apply(SimulationConfig config, Particle particle) {
+        double boundaryForce = config.boundaryCharge;
+
+        /// Left wall
+        if (particle.x < WALL_MARGIN) {
+            double distance = Math.max(1, particle.x);
+            particle.forceX += boundaryForce / (distance * distance);
+        }
+
+        /// Right wall
+        if (particle.x > config.width - WALL_MARGIN) {
+            double distance = Math.max(1, config.width - particle.x);
+            particle.forceX -= boundaryForce / (distance * distance);
+        }
+
+        /// Ceiling
+        if (particle.y < WALL_MARGIN) {
+            double distance = Math.max(1, particle.y);
+            particle.forceY += boundaryForce / (distance * distance);
+        }
+
+        /// Floor
+        if (particle.y > config.height - WALL_MARGIN) {
+            double distance = Math.max(1, config.height - particle.y);
+            particle.forceY -= boundaryForce / (distance * distance);
+        }
+    }
+}
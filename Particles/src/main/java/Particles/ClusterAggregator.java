@@ -0,0 +1,358 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Treats dense clumps as macro particles for the far field.
+/// Particles closer than config.clusterLinkDistance are linked with a union-find over a cell list,
+/// linked groups of at least config.minClusterSize particles are clusters.
+/// Every particle still interacts pairwise with the particles of its own cluster, with unclustered particles
+/// and with clusters it is close to. A cluster that looks small from the particle
+/// (radius / distance below config.clusterOpeningAngle) only acts through its monopole and dipole moment.
+/// Links are recomputed every config.clusterRefreshCycles cycles, the moments every cycle.
+public class ClusterAggregator {
+    private final SimulationConfig config;
+    private final List<Particle> particles;
+    private final double minimumDistance;
+    private int n;
+
+    private final int cellsX;
+    private final int cellsY;
+    private final int[] cellHead;
+    private int[] cellNext;
+    private int[] parent;
+    private int[] setSize;
+
+    /// Cluster id of every particle, -1 for unclustered particles
+    private int[] clusterOf;
+    /// Members of cluster c are clusterMembers[clusterStart[c] .. clusterStart[c + 1])
+    private int[] clusterStart;
+    private int[] clusterMembers;
+    private int[] singletons;
+    private int clusterCount = 0;
+    private int singletonCount = 0;
+
+    private double[] clusterCharge;
+    private double[] centerX;
+    private double[] centerY;
+    private double[] dipoleX;
+    private double[] dipoleY;
+    private double[] radius;
+
+    private boolean relinkPending = true;
+    private long interactionsLastCycle = 0;
+    private long[] threadInteractions = new long[0];
+
+    public ClusterAggregator(SimulationConfig config, List<Particle> particles) {
+        this.config = config;
+        this.particles = particles;
+        this.minimumDistance = config.minimumDistance;
+        this.n = particles.size();
+
+        this.cellsX = (int) Math.ceil(config.width / config.clusterLinkDistance) + 1;
+        this.cellsY = (int) Math.ceil(config.height / config.clusterLinkDistance) + 1;
+        this.cellHead = new int[cellsX * cellsY];
+        allocate(n);
+    }
+
+    private void allocate(int capacity) {
+        this.cellNext = new int[capacity];
+        this.parent = new int[capacity];
+        this.setSize = new int[capacity];
+
+        this.clusterOf = new int[capacity];
+        this.clusterStart = new int[capacity + 1];
+        this.clusterMembers = new int[capacity];
+        this.singletons = new int[capacity];
+
+        this.clusterCharge = new double[capacity];
+        this.centerX = new double[capacity];
+        this.centerY = new double[capacity];
+        this.dipoleX = new double[capacity];
+        this.dipoleY = new double[capacity];
+        this.radius = new double[capacity];
+    }
+
+    public int clusterCount() {
+        return clusterCount;
+    }
+
+    public int clusteredParticles() {
+        return n - singletonCount;
+    }
+
+    /// Cluster membership is stored by index, so after a reordering or a population change it is recomputed on the next refresh
+    public void permute(int[] order, int count) {
+        int capacity = ParticlePopulation.capacityFor(parent.length, count);
+        if (capacity != parent.length) {
+            allocate(capacity);
+        }
+        n = count;
+        clusterCount = 0;
+        singletonCount = 0;
+        relinkPending = true;
+    }
+
+    /// Pairwise and multipole interactions of the last force calculation, counted per target particle
+    public long interactionsLastCycle() {
+        return interactionsLastCycle;
+    }
+
+    /// Call once per cycle before computeForces
+    public void refresh(long cycle) {
+        if (relinkPending || cycle % config.clusterRefreshCycles == 0) {
+            link();
+            relinkPending = false;
+        }
+        updateMoments();
+    }
+
+    /// Adds the pair and far field forces to the (zeroed) particle forces.
+    /// Every target particle only writes its own force, so targets can be split between threads without a merge.
+    public void computeForces(ExecutorService executor, int numberOfThreads) {
+        if (executor == null || numberOfThreads <= 1) {
+            interactionsLastCycle = computeTargets(0, 1);
+            return;
+        }
+
+        if (threadInteractions.length != numberOfThreads) {
+            threadInteractions = new long[numberOfThreads];
+        }
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            int threadId = t;
+            tasks.add(Executors.callable(() -> {
+                threadInteractions[threadId] = computeTargets(threadId, numberOfThreads);
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+
+        interactionsLastCycle = 0;
+        for (long interactions : threadInteractions) {
+            interactionsLastCycle += interactions;
+        }
+    }
+
+    /// Targets first, step, first + step ... of the singletons followed by the cluster members, so big clusters are spread over all threads.
+    /// With a single thread (step 1) pairs between singletons and pairs inside a cluster are computed once for both particles.
+    private long computeTargets(int first, int step) {
+        long interactions = 0;
+        double openingAngleSquared = config.clusterOpeningAngle * config.clusterOpeningAngle;
+        boolean symmetric = step == 1;
+
+        for (int k = first; k < n; k += step) {
+            boolean singleton = k < singletonCount;
+            int i = singleton ? singletons[k] : clusterMembers[k - singletonCount];
+            Particle target = particles.get(i);
+            int own = clusterOf[i];
+
+            if (own >= 0) {
+                int from = symmetric ? k - singletonCount + 1 : clusterStart[own];
+                for (int m = from; m < clusterStart[own + 1]; m++) {
+                    int j = clusterMembers[m];
+                    if (j != i) {
+                        applyForce(target, particles.get(j), symmetric);
+                        interactions++;
+                    }
+                }
+            }
+
+            int from = symmetric && singleton ? k + 1 : 0;
+            for (int s = from; s < singletonCount; s++) {
+                int j = singletons[s];
+                if (j != i) {
+                    applyForce(target, particles.get(j), symmetric && singleton);
+                    interactions++;
+                }
+            }
+
+            for (int c = 0; c < clusterCount; c++) {
+                if (c == own) {
+                    continue;
+                }
+                double distanceX = centerX[c] - target.x;
+                double distanceY = centerY[c] - target.y;
+                double distanceSquared = distanceX * distanceX + distanceY * distanceY;
+
+                if (radius[c] * radius[c] < openingAngleSquared * distanceSquared) {
+                    /// Field of a charge plus dipole at the center: E = Q R / d^3 + p / d^3 - 3 R (R . p) / d^5
+                    double distance = Math.sqrt(distanceSquared);
+                    double inverseCube = 1 / (distanceSquared * distance);
+                    double dipoleAlongR = distanceX * dipoleX[c] + distanceY * dipoleY[c];
+                    double fieldX = (clusterCharge[c] * distanceX + dipoleX[c]) * inverseCube - 3 * distanceX * dipoleAlongR * inverseCube / distanceSquared;
+                    double fieldY = (clusterCharge[c] * distanceY + dipoleY[c]) * inverseCube - 3 * distanceY * dipoleAlongR * inverseCube / distanceSquared;
+                    target.forceX += target.charge * fieldX;
+                    target.forceY += target.charge * fieldY;
+                    interactions++;
+                }
+                else {
+                    for (int m = clusterStart[c]; m < clusterStart[c + 1]; m++) {
+                        applyForce(target, particles.get(clusterMembers[m]), false);
+                    }
+                    interactions += clusterStart[c + 1] - clusterStart[c];
+                }
+            }
+        }
+        return interactions;
+    }
+
+    /// Only updates the source as well when both, otherwise the source gets its share when it is the target itself
+    private void applyForce(Particle target, Particle source, boolean both) {
+        double distanceX = source.x - target.x;
+        double distanceY = source.y - target.y;
+        double strength = PairForce.strength(distanceX, distanceY, target.charge * source.charge, minimumDistance);
+        double forceX = strength * distanceX;
+        double forceY = strength * distanceY;
+
+        target.forceX += forceX;
+        target.forceY += forceY;
+        if (both) {
+            source.forceX -= forceX;
+            source.forceY -= forceY;
+        }
+    }
+
+    /// Union-find over the cell list, then the members of every big enough set are stored cluster by cluster
+    private void link() {
+        double linkDistance = config.clusterLinkDistance;
+        double linkDistanceSquared = linkDistance * linkDistance;
+
+        Arrays.fill(cellHead, -1);
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            setSize[i] = 1;
+            int cell = cellOf(particles.get(i));
+            cellNext[i] = cellHead[cell];
+            cellHead[cell] = i;
+        }
+
+        for (int i = 0; i < n; i++) {
+            Particle particle = particles.get(i);
+            int cellX = cellX(particle);
+            int cellY = cellY(particle);
+            for (int y = Math.max(0, cellY - 1); y <= Math.min(cellsY - 1, cellY + 1); y++) {
+                for (int x = Math.max(0, cellX - 1); x <= Math.min(cellsX - 1, cellX + 1); x++) {
+                    for (int j = cellHead[y * cellsX + x]; j >= 0; j = cellNext[j]) {
+                        if (j <= i) {
+                            continue;
+                        }
+                        Particle other = particles.get(j);
+                        double distanceX = other.x - particle.x;
+                        double distanceY = other.y - particle.y;
+                        if (distanceX * distanceX + distanceY * distanceY < linkDistanceSquared) {
+                            union(i, j);
+                        }
+                    }
+                }
+            }
+        }
+
+        /// Roots of big sets get consecutive cluster ids, members are then counted and placed like a counting sort
+        int[] clusterOfRoot = cellNext;
+        Arrays.fill(clusterOfRoot, -1);
+        clusterCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (parent[i] == i && setSize[i] >= config.minClusterSize) {
+                clusterOfRoot[i] = clusterCount++;
+            }
+        }
+
+        Arrays.fill(clusterStart, 0);
+        singletonCount = 0;
+        for (int i = 0; i < n; i++) {
+            int cluster = clusterOfRoot[find(i)];
+            clusterOf[i] = cluster;
+            if (cluster >= 0) {
+                clusterStart[cluster + 1]++;
+            }
+            else {
+                singletons[singletonCount++] = i;
+            }
+        }
+        for (int c = 0; c < clusterCount; c++) {
+            clusterStart[c + 1] += clusterStart[c];
+        }
+        int[] fill = Arrays.copyOf(clusterStart, clusterCount);
+        for (int i = 0; i < n; i++) {
+            if (clusterOf[i] >= 0) {
+                clusterMembers[fill[clusterOf[i]]++] = i;
+            }
+        }
+    }
+
+    /// Center, total charge, dipole and radius of every cluster for the current positions
+    private void updateMoments() {
+        for (int c = 0; c < clusterCount; c++) {
+            int size = clusterStart[c + 1] - clusterStart[c];
+            double sumX = 0;
+            double sumY = 0;
+            double charge = 0;
+            for (int m = clusterStart[c]; m < clusterStart[c + 1]; m++) {
+                Particle particle = particles.get(clusterMembers[m]);
+                sumX += particle.x;
+                sumY += particle.y;
+                charge += particle.charge;
+            }
+            double cx = sumX / size;
+            double cy = sumY / size;
+
+            double px = 0;
+            double py = 0;
+            double maxDistanceSquared = 0;
+            for (int m = clusterStart[c]; m < clusterStart[c + 1]; m++) {
+                Particle particle = particles.get(clusterMembers[m]);
+                double dx = particle.x - cx;
+                double dy = particle.y - cy;
+                px += particle.charge * dx;
+                py += particle.charge * dy;
+                maxDistanceSquared = Math.max(maxDistanceSquared, dx * dx + dy * dy);
+            }
+
+            centerX[c] = cx;
+            centerY[c] = cy;
+            clusterCharge[c] = charge;
+            dipoleX[c] = px;
+            dipoleY[c] = py;
+            radius[c] = Math.sqrt(maxDistanceSquared);
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (setSize[rootA] < setSize[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        setSize[rootA] += setSize[rootB];
+    }
+
+    private int cellX(Particle particle) {
+        return Math.max(0, Math.min(cellsX - 1, (int) (particle.x / config.clusterLinkDistance)));
+    }
+
+    private int cellY(Particle particle) {
+        return Math.max(0, Math.min(cellsY - 1, (int) (particle.y / config.clusterLinkDistance)));
+    }
+
+    private int cellOf(Particle particle) {
+        return cellY(particle) * cellsX + cellX(particle);
+    }
+}
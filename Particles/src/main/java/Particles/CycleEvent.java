@@ -0,0 +1,63 @@
+package Particles;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/// One event per simulation cycle with the time spent in every phase,
+/// only recorded while a flight recording is running (for example -XX:StartFlightRecording)
+@Name("Particles.Cycle")
+@Label("Simulation Cycle")
+@Category("Particles")
+@Description("Time spent in every phase of one simulation cycle")
+@StackTrace(false)
+class CycleEvent extends jdk.jfr.Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Rank")
+    int rank;
+
+    @Label("Cycle")
+    long cycle;
+
+    @Label("Active Particles")
+    @Description("Particles that were not asleep, -1 when sleeping is off")
+    int activeParticles;
+
+    @Label("Zero") @Timespan
+    long zero;
+
+    @Label("Pair Forces") @Timespan
+    long pairForces;
+
+    @Label("Merge") @Timespan
+    long merge;
+
+    @Label("Boundary") @Timespan
+    long boundary;
+
+    @Label("Integrate") @Timespan
+    long integrate;
+
+    @Label("Pack") @Timespan
+    long pack;
+
+    @Label("Collective") @Timespan
+    long collective;
+
+    @Label("Unpack") @Timespan
+    long unpack;
+
+    @Label("Wait") @Timespan
+    long waitTime;
+
+    @Label("Reorder") @Timespan
+    long reorder;
+
+    @Label("Population") @Timespan
+    long population;
+}
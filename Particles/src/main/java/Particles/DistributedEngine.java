@@ -0,0 +1,39 @@
+package Particles;
+
+import mpi.MPI;
+
+public class DistributedEngine implements SimulationEngine {
+    /// Ensemble members report in the output file, the base config never runs on its own
+    private boolean ensemble = false;
+
+    @Override
+    public String name() {
+        return "distributed";
+    }
+
+    @Override
+    public void start(String[] args, SimulationConfig config) {
+        MPI.Init(args);
+        ensemble = config.ensembleSpec != null;
+    }
+
+    @Override
+    public void run(SimulationConfig config) {
+        if (config.ensembleSpec != null) {
+            new DistributedEnsembleRunner(config).run();
+        }
+        else {
+            new ParticleSimulationDistributed(config).runDistributed();
+        }
+    }
+
+    @Override
+    public boolean reportsSummary() {
+        return !ensemble && MPI.COMM_WORLD.Rank() == 0;
+    }
+
+    @Override
+    public void stop() {
+        MPI.Finalize();
+    }
+}
@@ -0,0 +1,243 @@
+package Particles;
+
+import Utils.Logger;
+import mpi.Intracomm;
+import mpi.MPI;
+import mpi.Request;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/// Runs the members of an EnsembleSpec on one MPI job.
+/// MPI.COMM_WORLD is split into groups of ranks, every group runs its share of the members one after another
+/// on its own communicator. The leaders (rank 0 of every group) send each result to world rank 0,
+/// which writes the ensemble CSV.
+public class DistributedEnsembleRunner {
+    private static final int RESULT_TAG = 36;
+    /// member, processes, runtimeMs, kineticEnergy, meanSpeed
+    private static final int RESULT_LENGTH = 5;
+
+    private final SimulationConfig config;
+
+    public DistributedEnsembleRunner(SimulationConfig config) {
+        this.config = config;
+    }
+
+    public void run() {
+        Intracomm world = MPI.COMM_WORLD;
+        int worldRank = world.Rank();
+        int worldSize = world.Size();
+
+        List<SimulationConfig> members = readMembers(world, worldRank);
+        if (members == null || members.isEmpty()) {
+            return;
+        }
+        for (SimulationConfig member : members) {
+            EnsembleRunner.prepare(member);
+            member.mode = SimulationMode.DISTRIBUTED;
+        }
+
+        int groups = Math.min(members.size(), worldSize);
+        int[] groupSizes = new int[groups];
+        int[] groupOfRank = new int[worldSize];
+        for (int rank = 0; rank < worldSize; rank++) {
+            /// Consecutive ranks form a group, so groups stay on as few nodes as possible
+            int group = (int) ((long) rank * groups / worldSize);
+            groupOfRank[rank] = group;
+            groupSizes[group]++;
+        }
+        int[] groupOfMember = assignMembers(members, groupSizes);
+
+        int group = groupOfRank[worldRank];
+        Intracomm groupComm = world.Split(group, worldRank);
+        boolean leader = groupComm.Rank() == 0;
+        if (worldRank == 0) {
+            Logger.info("Running " + members.size() + " ensemble members in " + groups + " groups on " + worldSize + " processes");
+        }
+
+        BufferedWriter writer = null;
+        if (worldRank == 0) {
+            try {
+                writer = Files.newBufferedWriter(Path.of(config.ensembleOutput));
+                writer.write(EnsembleResult.CSV_HEADER);
+                writer.newLine();
+                writer.flush();
+            }
+            catch (IOException e) {
+                Logger.error("Opening " + config.ensembleOutput + " failed: " + e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        int received = 0;
+        List<Request> pendingSends = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            if (groupOfMember[i] != group) {
+                continue;
+            }
+
+            double[] result = runMember(i, members.get(i), groupComm);
+            if (!leader) {
+                continue;
+            }
+            if (worldRank == 0) {
+                write(writer, members, result);
+                received++;
+                /// Write whatever other groups finished in the meantime
+                while (world.Iprobe(MPI.ANY_SOURCE, RESULT_TAG) != null) {
+                    write(writer, members, receive(world));
+                    received++;
+                }
+            }
+            else {
+                pendingSends.add(world.Isend(result, 0, RESULT_LENGTH, MPI.DOUBLE, 0, RESULT_TAG));
+            }
+        }
+
+        if (worldRank == 0) {
+            for (; received < members.size(); received++) {
+                write(writer, members, receive(world));
+            }
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+            catch (IOException e) {
+                Logger.error("Closing " + config.ensembleOutput + " failed: " + e.getMessage());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Logger.info(String.format(Locale.ROOT, "Ensemble of %d members completed in %.1f s (%.2f members per second), results in %s",
+                    members.size(), seconds, members.size() / seconds, config.ensembleOutput));
+        }
+        if (!pendingSends.isEmpty()) {
+            Request.Waitall(pendingSends.toArray(new Request[0]));
+        }
+        groupComm.Free();
+    }
+
+    /// World rank 0 reads the sweep file and broadcasts it, the other nodes do not need to see the file
+    private List<SimulationConfig> readMembers(Intracomm world, int worldRank) {
+        byte[] spec = new byte[0];
+        int[] length = {-1};
+        if (worldRank == 0) {
+            try {
+                spec = Files.readAllBytes(Path.of(config.ensembleSpec));
+                length[0] = spec.length;
+            }
+            catch (IOException e) {
+                Logger.error("Reading ensemble " + config.ensembleSpec + " failed: " + e.getMessage());
+            }
+        }
+
+        world.Bcast(length, 0, 1, MPI.INT, 0);
+        if (length[0] < 0) {
+            return null;
+        }
+        if (worldRank != 0) {
+            spec = new byte[length[0]];
+        }
+        world.Bcast(spec, 0, length[0], MPI.BYTE, 0);
+
+        try {
+            return EnsembleSpec.parse(new String(spec, StandardCharsets.UTF_8).lines().toList(), config.ensembleSpec, config);
+        }
+        catch (IllegalArgumentException e) {
+            if (worldRank == 0) {
+                Logger.error("Reading ensemble " + config.ensembleSpec + " failed: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /// Largest members first, each to the group that would finish it earliest given the work it already has.
+    /// Every rank computes the same assignment, so nothing has to be communicated.
+    static int[] assignMembers(List<SimulationConfig> members, int[] groupSizes) {
+        Integer[] order = new Integer[members.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> work(members.get(i))).reversed());
+
+        double[] load = new double[groupSizes.length];
+        int[] groupOfMember = new int[members.size()];
+        for (int member : order) {
+            double work = work(members.get(member));
+            int best = 0;
+            for (int group = 1; group < groupSizes.length; group++) {
+                if ((load[group] + work) / groupSizes[group] < (load[best] + work) / groupSizes[best]) {
+                    best = group;
+                }
+            }
+            load[best] += work;
+            groupOfMember[member] = best;
+        }
+        return groupOfMember;
+    }
+
+    private static double work(SimulationConfig member) {
+        return (double) member.numOfParticles * member.numOfParticles * member.cycles;
+    }
+
+    /// Runs one member on the group, returns its result on the leader and null elsewhere
+    private static double[] runMember(int index, SimulationConfig member, Intracomm groupComm) {
+        groupComm.Barrier();
+        long start = System.nanoTime();
+
+        ParticleSimulationDistributed simulation = new ParticleSimulationDistributed(member, groupComm);
+        simulation.runDistributed();
+
+        groupComm.Barrier();
+        double runtimeMs = (System.nanoTime() - start) / 1e6;
+
+        /// Every rank only knows the final state of its own particles
+        double[] local = new double[2];
+        for (int i = simulation.ownedStart; i < simulation.ownedEnd; i++) {
+            Particle particle = simulation.particles.get(i);
+            double speedSquared = particle.velocityX * particle.velocityX + particle.velocityY * particle.velocityY;
+            local[0] += 0.5 * speedSquared;
+            local[1] += Math.sqrt(speedSquared);
+        }
+        double[] total = new double[2];
+        groupComm.Reduce(local, 0, total, 0, 2, MPI.DOUBLE, MPI.SUM, 0);
+
+        if (groupComm.Rank() != 0) {
+            return null;
+        }
+        int count = simulation.particles.size();
+        double meanSpeed = count == 0 ? 0 : total[1] / count;
+        return new double[]{index, groupComm.Size(), runtimeMs, total[0], meanSpeed};
+    }
+
+    private static double[] receive(Intracomm world) {
+        double[] result = new double[RESULT_LENGTH];
+        world.Recv(result, 0, RESULT_LENGTH, MPI.DOUBLE, MPI.ANY_SOURCE, RESULT_TAG);
+        return result;
+    }
+
+    private static void write(BufferedWriter writer, List<SimulationConfig> members, double[] values) {
+        int member = (int) values[0];
+        EnsembleResult result = new EnsembleResult(member, members.get(member), (int) values[1], values[2], values[3], values[4]);
+        Logger.info(String.format(Locale.ROOT, "Member %d (%d particles, %d processes) finished in %.0f ms",
+                member, result.config.numOfParticles, result.threads, result.runtimeMs));
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(result.toCsv());
+            writer.newLine();
+            writer.flush();
+        }
+        catch (IOException e) {
+            Logger.error("Writing result of member " + member + " failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package Particles;
+
+import java.util.List;
+import java.util.Locale;
+
+/// Outcome of one ensemble member, one line of the ensemble CSV
+public class EnsembleResult {
+    static final String CSV_HEADER = "member,particles,cycles,boundaryCharge,damping,minimumDistance,maximumSpeed,clumping,seed,threads,runtimeMs,cyclesPerSecond,kineticEnergy,meanSpeed";
+
+    final int member;
+    final SimulationConfig config;
+    final int threads;
+    final double runtimeMs;
+    final double kineticEnergy;
+    final double meanSpeed;
+
+    EnsembleResult(int member, SimulationConfig config, int threads, double runtimeMs, double kineticEnergy, double meanSpeed) {
+        this.member = member;
+        this.config = config;
+        this.threads = threads;
+        this.runtimeMs = runtimeMs;
+        this.kineticEnergy = kineticEnergy;
+        this.meanSpeed = meanSpeed;
+    }
+
+    /// Summarizes the final state of the particles, every particle has unit mass
+    static EnsembleResult of(int member, SimulationConfig config, int threads, double runtimeMs, List<Particle> particles) {
+        double kineticEnergy = 0;
+        double speedSum = 0;
+        for (Particle particle : particles) {
+            double speedSquared = particle.velocityX * particle.velocityX + particle.velocityY * particle.velocityY;
+            kineticEnergy += 0.5 * speedSquared;
+            speedSum += Math.sqrt(speedSquared);
+        }
+        return new EnsembleResult(member, config, threads, runtimeMs, kineticEnergy, particles.isEmpty() ? 0 : speedSum / particles.size());
+    }
+
+    double cyclesPerSecond() {
+        return runtimeMs > 0 ? config.cycles / (runtimeMs / 1000) : 0;
+    }
+
+    String toCsv() {
+        return String.format(Locale.ROOT, "%d,%d,%d,%s,%s,%s,%s,%b,%d,%d,%.1f,%.1f,%.6e,%.6e",
+                member, config.numOfParticles, config.cycles, config.boundaryCharge, config.damping, config.minimumDistance,
+                config.maximumSpeed, config.clumping, config.particleSeed, threads, runtimeMs, cyclesPerSecond(), kineticEnergy, meanSpeed);
+    }
+}
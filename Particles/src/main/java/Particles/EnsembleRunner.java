@@ -0,0 +1,128 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/// Runs every member of an EnsembleSpec in this JVM on one shared ForkJoinPool.
+/// Small members run on the sequential engine as a single task, so many of them are packed onto the pool at once.
+/// Large members run on the parallel engine with as many tasks as their pair count justifies.
+/// The largest members are submitted first so the small ones fill the gaps at the end.
+public class EnsembleRunner {
+    /// Pair interactions per cycle worth one thread, roughly a few milliseconds of work
+    private static final long PAIRS_PER_THREAD = 2_000_000;
+
+    private final SimulationConfig config;
+    private final int parallelism;
+
+    public EnsembleRunner(SimulationConfig config) {
+        this.config = config;
+        this.parallelism = config.threads > 0 ? config.threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void run() {
+        List<SimulationConfig> members;
+        try {
+            members = EnsembleSpec.read(Path.of(config.ensembleSpec), config);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            Logger.error("Reading ensemble " + config.ensembleSpec + " failed: " + e.getMessage());
+            return;
+        }
+
+        Logger.info("Running " + members.size() + " ensemble members on " + parallelism + " threads");
+        long start = System.nanoTime();
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            order.add(i);
+            prepare(members.get(i));
+        }
+        order.sort(Comparator.comparingLong((Integer i) -> pairs(members.get(i))).reversed());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (BufferedWriter writer = Files.newBufferedWriter(Path.of(config.ensembleOutput))) {
+            writer.write(EnsembleResult.CSV_HEADER);
+            writer.newLine();
+            writer.flush();
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i : order) {
+                tasks.add(pool.submit(() -> write(writer, runMember(i, members.get(i), pool))));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            Logger.error("Ensemble failed: " + e.getMessage());
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Logger.info(String.format(Locale.ROOT, "Ensemble of %d members completed in %.1f s (%.2f members per second), results in %s",
+                members.size(), seconds, members.size() / seconds, config.ensembleOutput));
+    }
+
+    /// Ensemble members never show or publish anything, only the CSV line counts
+    static void prepare(SimulationConfig member) {
+        member.enableGUI = false;
+        member.streamAddress = null;
+        member.metrics = false;
+        member.profile = false;
+        member.logProgress = false;
+        member.autoTune = false;
+    }
+
+    private EnsembleResult runMember(int index, SimulationConfig member, ForkJoinPool pool) {
+        int threads = (int) Math.max(1, Math.min(parallelism, (pairs(member) + PAIRS_PER_THREAD - 1) / PAIRS_PER_THREAD));
+        long start = System.nanoTime();
+
+        List<Particle> particles;
+        if (threads == 1) {
+            member.mode = SimulationMode.SEQUENTIAL;
+            ParticleSimulationSequential simulation = new ParticleSimulationSequential(member);
+            simulation.runSequential();
+            particles = simulation.particles;
+        }
+        else {
+            member.mode = SimulationMode.PARALLEL;
+            member.threads = threads;
+            ParticleSimulationParallel simulation = new ParticleSimulationParallel(member);
+            simulation.runParallel(pool, threads);
+            particles = simulation.particles;
+        }
+
+        return EnsembleResult.of(index, member, threads, (System.nanoTime() - start) / 1e6, particles);
+    }
+
+    private static void write(BufferedWriter writer, EnsembleResult result) {
+        synchronized (writer) {
+            try {
+                writer.write(result.toCsv());
+                writer.newLine();
+                writer.flush();
+            }
+            catch (IOException e) {
+                Logger.error("Writing result of member " + result.member + " failed: " + e.getMessage());
+            }
+        }
+        Logger.info(String.format(Locale.ROOT, "Member %d (%d particles, %d threads) finished in %.0f ms",
+                result.member, result.config.numOfParticles, result.threads, result.runtimeMs));
+    }
+
+    private static long pairs(SimulationConfig member) {
+        return (long) member.numOfParticles * (member.numOfParticles - 1) / 2;
+    }
+}
@@ -0,0 +1,85 @@
+package Particles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Sweep file for ensemble runs.
+/// Every line is a parameter followed by the values to try, the ensemble is every combination of them:
+///
+/// # comment
+/// particles = 500, 1000, 2000
+/// boundaryCharge = 100, 1000
+/// damping = 0.99, 0.99995
+///
+/// Parameters that are not listed keep the value from the command line.
+public class EnsembleSpec {
+
+    private EnsembleSpec() {
+    }
+
+    public static List<SimulationConfig> read(Path path, SimulationConfig base) throws IOException {
+        return parse(Files.readAllLines(path), path.toString(), base);
+    }
+
+    /// source is only used in error messages
+    public static List<SimulationConfig> parse(List<String> lines, String source, SimulationConfig base) {
+        List<SimulationConfig> members = new ArrayList<>();
+        members.add(base.copy());
+
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": expected parameter = values");
+            }
+            String parameter = line.substring(0, separator).strip();
+            String[] values = line.substring(separator + 1).split(",");
+
+            List<SimulationConfig> expanded = new ArrayList<>(members.size() * values.length);
+            for (SimulationConfig member : members) {
+                for (String value : values) {
+                    SimulationConfig copy = member.copy();
+                    set(copy, parameter, value.strip(), source, lineNumber);
+                    expanded.add(copy);
+                }
+            }
+            members = expanded;
+        }
+        return members;
+    }
+
+    private static void set(SimulationConfig config, String parameter, String value, String source, int lineNumber) {
+        switch (parameter) {
+            case "particles" -> config.numOfParticles = Integer.parseInt(value);
+            case "cycles" -> config.cycles = Integer.parseInt(value);
+            case "seed" -> config.particleSeed = Long.parseLong(value);
+            case "boundaryCharge" -> config.boundaryCharge = Double.parseDouble(value);
+            case "damping" -> config.damping = Double.parseDouble(value);
+            case "clumping" -> config.clumping = Boolean.parseBoolean(value);
+            case "minimumDistance" -> config.minimumDistance = Double.parseDouble(value);
+            case "maximumSpeed" -> config.maximumSpeed = Double.parseDouble(value);
+            case "width" -> config.width = Integer.parseInt(value);
+            case "height" -> config.height = Integer.parseInt(value);
+            case "clustering" -> config.clustering = Boolean.parseBoolean(value);
+            case "clusterOpeningAngle" -> config.clusterOpeningAngle = Double.parseDouble(value);
+            case "timestepLevels" -> config.timestepLevels = Integer.parseInt(value);
+            case "timestepAccuracy" -> config.timestepAccuracy = Double.parseDouble(value);
+            case "reorderCycles" -> config.reorderCycles = Integer.parseInt(value);
+            case "spawnRate" -> config.spawnRate = Double.parseDouble(value);
+            case "absorbingWalls" -> config.absorbingWalls = Boolean.parseBoolean(value);
+            case "mergeDistance" -> config.mergeDistance = Double.parseDouble(value);
+            case "kernel" -> config.kernel = value;
+            case "newtonSteps" -> config.newtonSteps = Integer.parseInt(value);
+            default -> throw new IllegalArgumentException(source + ":" + lineNumber + ": unknown parameter " + parameter);
+        }
+    }
+}
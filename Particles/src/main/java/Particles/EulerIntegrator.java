@@ -0,0 +1,60 @@
+package Particles;
+
+/// Semi-implicit Euler step: the velocity is updated from the force first and the position from the new velocity.
+/// Speeds are capped at config.maximumSpeed and particles that leave the box are put back on the wall
+/// with a fifth of their speed pointing inwards.
+public class EulerIntegrator implements Integrator {
+    private SimulationConfig config;
+
+    @Override
+    public String name() {
+        return "euler";
+    }
+
+    @Override
+    public void configure(SimulationConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void advance(Particle particle, boolean kick, double step, double damping) {
+        if (kick) {
+            particle.velocityX += particle.forceX * step;
+            particle.velocityY += particle.forceY * step;
+
+            if (config.clumping) {
+                particle.velocityX = particle.velocityX * damping;
+                particle.velocityY = particle.velocityY * damping;
+            }
+
+            double particleSpeed = Math.sqrt(particle.velocityX * particle.velocityX + particle.velocityY * particle.velocityY);
+
+            if (particleSpeed > config.maximumSpeed) {
+                double maxVelocityMultiplier = config.maximumSpeed / particleSpeed;
+                particle.velocityX *= maxVelocityMultiplier;
+                particle.velocityY *= maxVelocityMultiplier;
+            }
+        }
+
+        particle.x += particle.velocityX * SLOW_DOWN;
+        particle.y += particle.velocityY * SLOW_DOWN;
+
+        if (particle.x <= 0) {
+            particle.x = 0;
+            particle.velocityX = Math.abs(particle.velocityX) * 0.2;
+        }
+        else if (particle.x >= config.width) {
+            particle.x = config.width;
+            particle.velocityX = -1 * Math.abs(particle.velocityX) * 0.2;
+        }
+
+        if (particle.y <= 0) {
+            particle.y = 0;
+            particle.velocityY = Math.abs(particle.velocityY) * 0.2;
+        }
+        else if (particle.y >= config.height) {
+            particle.y = config.height;
+            particle.velocityY = -1 * Math.abs(particle.velocityY) * 0.2;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package Particles;
+
+import mpi.Intracomm;
+
+/// How the distributed engine shares the owned particles of every rank with all ranks, selected with --exchange.
+public interface ExchangeStrategy extends SimulationPlugin {
+
+    /// local[field] holds the myCount values of this rank for every field, after the call all[field] holds every rank's values
+    /// at the given displacements. Every rank passes the same fields in the same order.
+    void exchange(Intracomm comm, double[][] local, int myCount, double[][] all, int[] counts, int[] displacements);
+}
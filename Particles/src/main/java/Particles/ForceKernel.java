@@ -0,0 +1,36 @@
+package Particles;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/// Pair force loop of the shared memory engines, selected with --kernel.
+/// The engines can switch kernels between cycles, see ParticleSimulationParallel.switchKernel.
+/// Kernels that also run on a ParticleStore implement StoreKernel.
+public interface ForceKernel extends SimulationPlugin {
+
+    /// Selects the engine's own pair loop instead of a plugin
+    String BUILTIN = "builtin";
+
+    /// Loads the kernel called name and configures it for config, null for BUILTIN (and no name at all)
+    static ForceKernel load(String name, SimulationConfig config) {
+        if (name == null || name.equalsIgnoreCase(BUILTIN)) {
+            return null;
+        }
+        ForceKernel kernel = Plugins.load(ForceKernel.class, name);
+        kernel.configure(config);
+        return kernel;
+    }
+
+    /// Called once after loading, before the first apply
+    default void configure(SimulationConfig config) {
+    }
+
+    /// False for kernels that trade accuracy for speed, AutoTuner only compares exact kernels
+    default boolean isExact() {
+        return true;
+    }
+
+    /// Adds the force of every pair to the zeroed forces of the particles and returns the number of pairs computed.
+    /// Without an executor everything runs on the calling thread.
+    long apply(List<Particle> particles, double minimumDistance, ExecutorService executor, int numberOfThreads);
+}
@@ -0,0 +1,9 @@
+package Particles;
+
+/// How the rows of the pair loop are split between threads in the parallel engine
+public enum ForcePartition {
+    /// Equal number of rows per thread, the first threads get more pairs because row i has n - i - 1 of them
+    CONTIGUOUS,
+    /// Row ranges chosen so every thread gets about the same number of pairs
+    BALANCED
+}
@@ -0,0 +1,9 @@
+package Particles;
+
+/// How the parallel engine combines the forces computed by different threads
+public enum ForceReduction {
+    /// Every pair is computed once, threads write into their own force arrays which are merged afterwards
+    MERGE,
+    /// Every thread computes the full rows of its own particles, twice the pair work but no merge
+    ROWS
+}
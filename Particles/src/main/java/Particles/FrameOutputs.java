@@ -0,0 +1,74 @@
+package Particles;
+
+import java.util.List;
+
+/// Everything that consumes frames of a running simulation, the local GUI and the remote frame stream.
+/// Engines only talk to this class so they do not have to care which outputs are enabled.
+public class FrameOutputs {
+    private final GUI gui;
+    private final ParticleSnapshotBuffer snapshots;
+    private final FrameStreamServer streamServer;
+
+    private FrameOutputs(GUI gui, ParticleSnapshotBuffer snapshots, FrameStreamServer streamServer) {
+        this.gui = gui;
+        this.snapshots = snapshots;
+        this.streamServer = streamServer;
+    }
+
+    public static FrameOutputs open(SimulationConfig config) {
+        /// Sources and sinks leave gaps in the ids, frames then follow the memory order
+        boolean byId = !ParticlePopulation.isDynamic(config);
+
+        GUI gui = null;
+        ParticleSnapshotBuffer snapshots = null;
+        if (config.enableGUI) {
+            snapshots = new ParticleSnapshotBuffer(config.numOfParticles, byId);
+            gui = new GUI(config, snapshots);
+            gui.start();
+        }
+
+        FrameStreamServer streamServer = null;
+        if (config.streamAddress != null) {
+            streamServer = new FrameStreamServer(config, config.numOfParticles, byId);
+            streamServer.start();
+        }
+
+        return new FrameOutputs(gui, snapshots, streamServer);
+    }
+
+    public void publish(List<Particle> particles, int count, long cycle) {
+        if (snapshots != null && snapshots.isFrameWanted()) {
+            snapshots.publish(particles, count, cycle);
+        }
+        if (streamServer != null && streamServer.isFrameWanted()) {
+            streamServer.publish(particles, count, cycle);
+        }
+    }
+
+    public void publish(double[] positionsX, double[] positionsY, double[] charges, int count, long cycle) {
+        if (snapshots != null && snapshots.isFrameWanted()) {
+            snapshots.publish(positionsX, positionsY, charges, count, cycle);
+        }
+        if (streamServer != null && streamServer.isFrameWanted()) {
+            streamServer.publish(positionsX, positionsY, charges, count, cycle);
+        }
+    }
+
+    public void update(int cyclesPerSecond) {
+        if (gui != null) {
+            gui.update(cyclesPerSecond);
+        }
+        if (streamServer != null) {
+            streamServer.update(cyclesPerSecond);
+        }
+    }
+
+    public void close() {
+        if (gui != null) {
+            gui.stop();
+        }
+        if (streamServer != null) {
+            streamServer.stop();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package Particles;
+
+import java.util.List;
+
+/// Receiver of finished simulation frames.
+/// Implementations must never block the publishing compute thread.
+public interface FrameSink {
+
+    /// Cheap check done every cycle so frames nobody will look at are not copied
+    boolean isFrameWanted();
+
+    void publish(List<Particle> particles, int count, long cycle);
+
+    void publish(double[] positionsX, double[] positionsY, double[] charges, int count, long cycle);
+}
@@ -0,0 +1,261 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/// Streams simulation frames to a single remote FrameViewer over TCP or a Unix domain socket.
+/// The compute thread copies frames into a small ring of preallocated frames and never waits,
+/// when the viewer falls behind and the ring is full new frames are simply dropped.
+/// A dedicated sender thread drains the ring into the socket.
+public class FrameStreamServer implements FrameSink {
+
+    /// 'PART', written in front of every frame so a viewer can detect a broken stream
+    static final int MAGIC = 0x50415254;
+    static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 4;
+    static final int PARTICLE_BYTES = 3 * 4;
+
+    private static final int RING_SIZE = 4;
+    private static final int MAX_FPS = 60;
+    private static final long FRAME_TIME_NANOS = 1_000_000_000L / MAX_FPS;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+    private static final long STOP_TIMEOUT_MILLIS = 1_000L;
+
+    private final SimulationConfig config;
+    private final SocketAddress address;
+    /// A slot is only replaced by the compute thread while it is free, publishing the frame hands the new buffer to the sender
+    private final ByteBuffer[] ring = new ByteBuffer[RING_SIZE];
+    /// Particles from a list are written at their id, only possible while the ids are exactly 0 .. count - 1
+    private final boolean byId;
+
+    /// Written only by the compute thread
+    private final AtomicLong published = new AtomicLong();
+
+    /// Written only by the sender thread
+    private final AtomicLong sent = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile boolean viewerConnected = false;
+    private volatile int currentCPS = 0;
+    private long nextFrameTime = 0;
+    private long droppedFrames = 0;
+
+    private ServerSocketChannel serverChannel;
+    /// The connected viewer, closed by stop so a sender blocked on a viewer that stopped reading returns
+    private volatile SocketChannel viewer;
+    private Thread senderThread;
+
+    public FrameStreamServer(SimulationConfig config, int capacity, boolean byId) {
+        this.config = config;
+        this.address = parseAddress(config.streamAddress);
+        this.byId = byId;
+        for (int i = 0; i < RING_SIZE; i++) {
+            ring[i] = ByteBuffer.allocateDirect(HEADER_BYTES + capacity * PARTICLE_BYTES);
+        }
+    }
+
+    /// Accepts "port", "host:port" or "unix:/path/to/socket"
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        }
+
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            return new InetSocketAddress("localhost", Integer.parseInt(address));
+        }
+        return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+    }
+
+    static SocketChannel connect(String address) throws IOException {
+        SocketAddress socketAddress = parseAddress(address);
+        if (socketAddress instanceof UnixDomainSocketAddress) {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(socketAddress);
+            return channel;
+        }
+        return SocketChannel.open(socketAddress);
+    }
+
+    public void start() {
+        try {
+            if (address instanceof UnixDomainSocketAddress unixAddress) {
+                Files.deleteIfExists(unixAddress.getPath());
+                serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            }
+            else {
+                serverChannel = ServerSocketChannel.open();
+            }
+            serverChannel.bind(address);
+        }
+        catch (IOException e) {
+            Logger.error("Could not open frame stream on " + config.streamAddress + ": " + e.getMessage());
+            running = false;
+            return;
+        }
+
+        Logger.info("Streaming frames on " + config.streamAddress);
+        senderThread = new Thread(this::serve, "FrameStream");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            SocketChannel connectedViewer = viewer;
+            if (connectedViewer != null) {
+                connectedViewer.close();
+            }
+            if (address instanceof UnixDomainSocketAddress unixAddress) {
+                Files.deleteIfExists(unixAddress.getPath());
+            }
+        }
+        catch (IOException e) {
+            Logger.error("Closing frame stream failed: " + e.getMessage());
+        }
+
+        if (senderThread != null) {
+            LockSupport.unpark(senderThread);
+            try {
+                senderThread.join(STOP_TIMEOUT_MILLIS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (senderThread.isAlive()) {
+                Logger.warn("Frame stream sender did not stop within {} ms", STOP_TIMEOUT_MILLIS);
+            }
+        }
+
+        if (droppedFrames > 0) {
+            Logger.info("Frame stream dropped {} frames because the viewer fell behind", droppedFrames);
+        }
+    }
+
+    public void update(int cyclesPerSecond) {
+        currentCPS = cyclesPerSecond;
+    }
+
+    @Override
+    public boolean isFrameWanted() {
+        if (!viewerConnected) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        if (now - nextFrameTime < 0) {
+            return false;
+        }
+        nextFrameTime = now + FRAME_TIME_NANOS;
+
+        if (published.get() - sent.get() >= RING_SIZE) {
+            droppedFrames++;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void publish(List<Particle> particles, int count, long cycle) {
+        ByteBuffer frame = beginFrame(count, cycle);
+        /// Written by id so reordering the particles in memory does not shuffle the frame
+        int particlesStart = frame.position();
+        for (int i = 0; i < count; i++) {
+            Particle particle = particles.get(i);
+            int position = particlesStart + (byId ? particle.id : i) * 3 * Float.BYTES;
+            frame.putFloat(position, (float) particle.x);
+            frame.putFloat(position + Float.BYTES, (float) particle.y);
+            frame.putFloat(position + 2 * Float.BYTES, (float) particle.charge);
+        }
+        frame.position(particlesStart + count * 3 * Float.BYTES);
+        endFrame(frame);
+    }
+
+    @Override
+    public void publish(double[] positionsX, double[] positionsY, double[] charges, int count, long cycle) {
+        ByteBuffer frame = beginFrame(count, cycle);
+        for (int i = 0; i < count; i++) {
+            frame.putFloat((float) positionsX[i]);
+            frame.putFloat((float) positionsY[i]);
+            frame.putFloat((float) charges[i]);
+        }
+        endFrame(frame);
+    }
+
+    private ByteBuffer beginFrame(int count, long cycle) {
+        int slot = (int) (published.get() % RING_SIZE);
+        ByteBuffer frame = ring[slot];
+        if (frame.capacity() < HEADER_BYTES + count * PARTICLE_BYTES) {
+            int capacity = ParticlePopulation.capacityFor((frame.capacity() - HEADER_BYTES) / PARTICLE_BYTES, count);
+            frame = ByteBuffer.allocateDirect(HEADER_BYTES + capacity * PARTICLE_BYTES);
+            ring[slot] = frame;
+        }
+        frame.clear();
+        frame.putInt(MAGIC);
+        frame.putInt(config.width);
+        frame.putInt(config.height);
+        frame.putInt(currentCPS);
+        frame.putLong(cycle);
+        frame.putInt(count);
+        return frame;
+    }
+
+    private void endFrame(ByteBuffer frame) {
+        frame.flip();
+        published.lazySet(published.get() + 1);
+        LockSupport.unpark(senderThread);
+    }
+
+    private void serve() {
+        while (running) {
+            try (SocketChannel viewer = serverChannel.accept()) {
+                this.viewer = viewer;
+                if (!running) {
+                    break;
+                }
+                Logger.info("Frame viewer connected");
+                sent.set(published.get());
+                viewerConnected = true;
+
+                while (running) {
+                    long next = sent.get();
+                    if (next == published.get()) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                        continue;
+                    }
+
+                    ByteBuffer frame = ring[(int) (next % RING_SIZE)];
+                    while (frame.hasRemaining()) {
+                        viewer.write(frame);
+                    }
+                    sent.lazySet(next + 1);
+                }
+            }
+            catch (IOException e) {
+                if (running) {
+                    Logger.warn("Frame viewer disconnected: " + e.getMessage());
+                }
+            }
+            finally {
+                viewerConnected = false;
+                viewer = null;
+            }
+        }
+    }
+}
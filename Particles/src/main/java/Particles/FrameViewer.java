@@ -0,0 +1,92 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/// Standalone viewer for a simulation started with --stream.
+/// Reads frames from the FrameStreamServer and shows them with the regular GUI,
+/// so a headless (for example distributed) run can be watched from a separate process.
+public class FrameViewer {
+    private final SimulationConfig config;
+
+    public FrameViewer(SimulationConfig config) {
+        this.config = config;
+    }
+
+    public void run() {
+        GUI gui = null;
+        try (SocketChannel channel = FrameStreamServer.connect(config.viewAddress)) {
+            Logger.info("Connected to frame stream " + config.viewAddress);
+
+            ByteBuffer header = ByteBuffer.allocateDirect(FrameStreamServer.HEADER_BYTES);
+            ByteBuffer body = ByteBuffer.allocateDirect(0);
+            float[] positionsX = new float[0];
+            float[] positionsY = new float[0];
+            float[] charges = new float[0];
+            ParticleSnapshotBuffer snapshots = null;
+
+            while (true) {
+                readFully(channel, header.clear());
+                header.flip();
+                if (header.getInt() != FrameStreamServer.MAGIC) {
+                    Logger.error("Frame stream is corrupted");
+                    break;
+                }
+                int width = header.getInt();
+                int height = header.getInt();
+                int cyclesPerSecond = header.getInt();
+                long cycle = header.getLong();
+                int count = header.getInt();
+
+                if (count > positionsX.length) {
+                    body = ByteBuffer.allocateDirect(count * FrameStreamServer.PARTICLE_BYTES);
+                    positionsX = new float[count];
+                    positionsY = new float[count];
+                    charges = new float[count];
+                }
+
+                body.clear().limit(count * FrameStreamServer.PARTICLE_BYTES);
+                readFully(channel, body);
+                body.flip();
+                for (int i = 0; i < count; i++) {
+                    positionsX[i] = body.getFloat();
+                    positionsY[i] = body.getFloat();
+                    charges[i] = body.getFloat();
+                }
+
+                if (gui == null) {
+                    config.width = width;
+                    config.height = height;
+                    snapshots = new ParticleSnapshotBuffer(positionsX.length);
+                    gui = new GUI(config, snapshots);
+                    gui.start();
+                }
+
+                snapshots.publish(positionsX, positionsY, charges, count, cycle);
+                gui.update(cyclesPerSecond);
+            }
+        }
+        catch (EOFException e) {
+            Logger.info("Frame stream closed by the simulation");
+        }
+        catch (IOException e) {
+            Logger.error("Frame stream failed: " + e.getMessage());
+        }
+
+        if (gui != null) {
+            gui.stop();
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
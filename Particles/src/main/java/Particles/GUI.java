@@ -1,45 +1,23 @@
 package Particles;
 
-import Utils.Logger;
-
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 public class GUI extends JFrame {
     private final JPanel panel;
-    private final List<Particle> particles;
-    private final List<ParticlePositionCopy> particleCopy;
-    private final SimulationConfig config;
+    private final ParticleSnapshotBuffer snapshots;
     private volatile boolean running = true;
     private Thread renderThread;
     private static final int FPS = 60;
-    private static final long FRAME_TIME = 1000 / FPS;
-    private int currentCPS = 0;
+    private static final long FRAME_TIME_NANOS = 1_000_000_000L / FPS;
+    private static final Font CPS_FONT = new Font("serif", Font.BOLD, 30);
+    private final ParticleRasterizer rasterizer = new ParticleRasterizer();
+    private volatile int currentCPS = 0;
     private long startTime = 0;
 
-    private static class ParticlePositionCopy {
-        double x;
-        double y;
-        double charge;
-
-        ParticlePositionCopy(double x, double y, double charge) {
-            this.x = x;
-            this.y = y;
-            this.charge = charge;
-        }
-    }
-
-    public GUI(SimulationConfig config, List<Particle> particles) {
-        this.config = config;
-        this.particles = particles;
-        this.particleCopy = new ArrayList<>(config.numOfParticles);
-
-        for (int i = 0; i < config.numOfParticles; i++) {
-            Particle particle = particles.get(i);
-            particleCopy.add(new ParticlePositionCopy(particle.x, particle.y, particle.charge));
-        }
+    public GUI(SimulationConfig config, ParticleSnapshotBuffer snapshots) {
+        this.snapshots = snapshots;
 
         setTitle("Particles");
         setSize(config.width, config.height);
@@ -53,36 +31,25 @@ public class GUI extends JFrame {
 
     public void start() {
         renderThread = new Thread(() -> {
+            long nextFrame = System.nanoTime();
             while (running) {
-                long startTime = System.currentTimeMillis();
-
-                updateParticleCopy();
                 panel.repaint();
 
-                long elapsed = System.currentTimeMillis() - startTime;
-                long sleepTime = FRAME_TIME - elapsed;
-                if (System.currentTimeMillis() - startTime < FRAME_TIME) {
-                    try {
-                        Thread.sleep(FRAME_TIME - (System.currentTimeMillis() - startTime));
-                    } catch (InterruptedException e) {
-                        Logger.error(e.getMessage());
-                    }
+                /// Pace against absolute deadlines so the sleep granularity does not add up,
+                /// if we fell behind skip the missed frames instead of trying to catch up
+                nextFrame += FRAME_TIME_NANOS;
+                long sleepTime = nextFrame - System.nanoTime();
+                if (sleepTime > 0) {
+                    LockSupport.parkNanos(sleepTime);
+                }
+                else {
+                    nextFrame = System.nanoTime();
                 }
             }
-        });
+        }, "Render");
         renderThread.start();
     }
 
-    public void updateParticleCopy() {
-        for (int i = 0; i < config.numOfParticles; i++) {
-            Particle p = particles.get(i);
-            ParticlePositionCopy s = particleCopy.get(i);
-            s.x = p.x;
-            s.y = p.y;
-            s.charge = p.charge;
-        }
-    }
-
     public void stop() {
         running = false;
         try {
@@ -90,6 +57,7 @@ public class GUI extends JFrame {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        rasterizer.shutdown();
         this.dispose();
     }
 
@@ -106,25 +74,13 @@ public class GUI extends JFrame {
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
             Graphics2D g2 = (Graphics2D) g;
-            g2.setColor(Color.BLACK);
-            g2.fillRect(0, 0, getWidth(), getHeight());
 
-            for(int i = 0; i < config.numOfParticles; i++) {
-                ParticlePositionCopy currentParticleCopy = particleCopy.get(i);
-
-                if (currentParticleCopy.charge > 0) {
-                    g2.setColor(Color.RED);
-                } else {
-                    g2.setColor(Color.BLUE);
-                }
-
-                int size = 6;
-                g2.fillOval((int) currentParticleCopy.x - size / 2, (int) currentParticleCopy.y - size / 2, size, size);
-            }
+            ParticleSnapshotBuffer.Snapshot snapshot = snapshots.latest();
+            g2.drawImage(rasterizer.render(snapshot, getWidth(), getHeight()), 0, 0, null);
 
             g2.setColor(Color.WHITE);
-            g2.setFont(new Font("serif", Font.BOLD, 30));
-            g2.drawString("CPS:" + String.valueOf(currentCPS), 0, 25);
+            g2.setFont(CPS_FONT);
+            g2.drawString("CPS:" + currentCPS, 0, 25);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package Particles;
+
+/// Moves a particle by one cycle using its force, selected with --integrator.
+/// Shared by all engines, which only decide which particles are advanced and with which step.
+public interface Integrator extends SimulationPlugin {
+
+    /// Simulated time of one cycle
+    double SLOW_DOWN = 0.1;
+
+    /// Called once before the first cycle
+    default void configure(SimulationConfig config) {
+    }
+
+    /// kick updates the velocity with force * step and applies damping first, the particle then moves one base step.
+    /// Without a kick the particle only drifts with its current velocity.
+    void advance(Particle particle, boolean kick, double step, double damping);
+}
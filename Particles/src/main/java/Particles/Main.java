@@ -1,46 +1,45 @@
 package Particles;
 
 import Utils.Logger;
-import mpi.MPI;
 
 public class Main {
 
     public static void main(String[] args) {
         SimulationConfig config = parseArgs(args);
 
-        long startTime = System.currentTimeMillis();
-        if(config.mode == SimulationMode.SEQUENTIAL){
-            ParticleSimulationSequential sequentialSimulation = new ParticleSimulationSequential(config);
-            sequentialSimulation.runSequential();
+        if (config.viewAddress != null) {
+            new FrameViewer(config).run();
+            System.exit(0);
+        }
+
+        if (config.ensembleSpec != null && config.mode != SimulationMode.DISTRIBUTED) {
+            new EnsembleRunner(config).run();
+            System.exit(0);
         }
-        else if (config.mode == SimulationMode.PARALLEL){
-            ParticleSimulationParallel parallelSimulation = new ParticleSimulationParallel(config);
-            parallelSimulation.runParallel();
+
+        SimulationEngine engine;
+        try {
+            engine = Plugins.load(SimulationEngine.class, config.engine != null ? config.engine : config.mode.name());
         }
-        else if (config.mode == SimulationMode.DISTRIBUTED){
-            MPI.Init(args);
-            ParticleSimulationDistributed distributedSimulation = new ParticleSimulationDistributed(config);
-            distributedSimulation.runDistributed();
+        catch (IllegalArgumentException e) {
+            Logger.error(e.getMessage());
+            System.exit(1);
+            return;
         }
+        engine.start(args, config);
 
+        long startTime = System.currentTimeMillis();
+        engine.run(config);
         long endTime = System.currentTimeMillis();
 
-        if(config.mode == SimulationMode.DISTRIBUTED && MPI.COMM_WORLD.Rank() == 0) {
-            Logger.info("Simulation completed in " + (endTime - startTime) + " ms");
-            Logger.info("Cycles: " + config.cycles);
-            Logger.info("Particles: " + config.numOfParticles);
-            Logger.info("Average calculations per second: " + Math.round((double)config.cycles / ((double)(endTime - startTime) / 1000)));
-        }
-        else if(config.mode == SimulationMode.SEQUENTIAL ||  config.mode == SimulationMode.PARALLEL){
+        if (engine.reportsSummary()) {
             Logger.info("Simulation completed in " + (endTime - startTime) + " ms");
             Logger.info("Cycles: " + config.cycles);
             Logger.info("Particles: " + config.numOfParticles);
             Logger.info("Average calculations per second: " + Math.round((double)config.cycles / ((double)(endTime - startTime) / 1000)));
         }
 
-        if(config.mode == SimulationMode.DISTRIBUTED){
-            MPI.Finalize();
-        }
+        engine.stop();
         System.exit(0);
     }
 
@@ -52,6 +51,27 @@ public class Main {
                 if(args[i].equals("--mode")){
                     config.mode = SimulationMode.valueOf(args[i+1].toUpperCase());
                 }
+                else if(args[i].equals("--engine")){
+                    config.engine = args[i+1];
+                }
+                else if(args[i].equals("--kernel")){
+                    config.kernel = args[i+1];
+                }
+                else if(args[i].equals("--newtonSteps")){
+                    config.newtonSteps = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--integrator")){
+                    config.integrator = args[i+1];
+                }
+                else if(args[i].equals("--exchange")){
+                    config.exchange = args[i+1];
+                }
+                else if(args[i].equals("--storeFile")){
+                    config.storeFile = args[i+1];
+                }
+                else if(args[i].equals("--checkpointCycles")){
+                    config.checkpointCycles = Integer.parseInt(args[i+1]);
+                }
                 else if(args[i].equals("--particles")){
                     config.numOfParticles = Integer.parseInt(args[i+1]);
                 }
@@ -85,6 +105,99 @@ public class Main {
                 else if(args[i].equals("--maxSpeed")){
                     config.maximumSpeed = Double.parseDouble(args[i+1]);
                 }
+                else if(args[i].equals("--sleeping")){
+                    config.sleeping = Boolean.parseBoolean(args[i+1]);
+                }
+                else if(args[i].equals("--sleepVelocity")){
+                    config.sleepVelocity = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--sleepForce")){
+                    config.sleepForce = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--sleepCycles")){
+                    config.sleepCycles = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--clustering")){
+                    config.clustering = Boolean.parseBoolean(args[i+1]);
+                }
+                else if(args[i].equals("--clusterLinkDistance")){
+                    config.clusterLinkDistance = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--minClusterSize")){
+                    config.minClusterSize = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--clusterOpeningAngle")){
+                    config.clusterOpeningAngle = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--clusterRefreshCycles")){
+                    config.clusterRefreshCycles = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--timestepLevels")){
+                    config.timestepLevels = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--timestepAccuracy")){
+                    config.timestepAccuracy = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--reorderCycles")){
+                    config.reorderCycles = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--spawnRate")){
+                    config.spawnRate = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--spawnRegion")){
+                    config.spawnRegion = args[i+1];
+                }
+                else if(args[i].equals("--maxParticles")){
+                    config.maxParticles = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--absorbingWalls")){
+                    config.absorbingWalls = Boolean.parseBoolean(args[i+1]);
+                }
+                else if(args[i].equals("--mergeDistance")){
+                    config.mergeDistance = Double.parseDouble(args[i+1]);
+                }
+                else if(args[i].equals("--threads")){
+                    config.threads = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--partition")){
+                    config.partition = ForcePartition.valueOf(args[i+1].toUpperCase());
+                }
+                else if(args[i].equals("--reduction")){
+                    config.reduction = ForceReduction.valueOf(args[i+1].toUpperCase());
+                }
+                else if(args[i].equals("--tileSize")){
+                    config.tileSize = Integer.parseInt(args[i+1]);
+                }
+                else if(args[i].equals("--autoTune")){
+                    config.autoTune = Boolean.parseBoolean(args[i+1]);
+                }
+                else if(args[i].equals("--tuneCache")){
+                    config.tuneCache = args[i+1];
+                }
+                else if(args[i].equals("--profile")){
+                    config.profile = Boolean.parseBoolean(args[i+1]);
+                }
+                else if(args[i].equals("--metrics")){
+                    config.metrics = Boolean.parseBoolean(args[i+1]);
+                }
+                else if(args[i].equals("--logLevel")){
+                    Logger.setLevel(parseEnum(Logger.LogLevel.class, args[i+1]));
+                }
+                else if(args[i].equals("--logFormat")){
+                    Logger.setFormat(parseEnum(Logger.LogFormat.class, args[i+1]));
+                }
+                else if(args[i].equals("--ensemble")){
+                    config.ensembleSpec = args[i+1];
+                }
+                else if(args[i].equals("--ensembleOutput")){
+                    config.ensembleOutput = args[i+1];
+                }
+                else if(args[i].equals("--stream")){
+                    config.streamAddress = args[i+1];
+                }
+                else if(args[i].equals("--view")){
+                    config.viewAddress = args[i+1];
+                }
             }
             catch (Exception e){
                 Logger.error(e.getMessage());
@@ -93,4 +206,14 @@ public class Main {
 
         return config;
     }
-}
\ No newline at end of file
+
+    /// Logger enums are capitalized (Info, Json), the command line accepts any case
+    private static <T extends Enum<T>> T parseEnum(Class<T> type, String value) {
+        for (T constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + value);
+    }
+}
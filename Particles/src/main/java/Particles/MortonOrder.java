@@ -0,0 +1,149 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Reorders particles along a Morton (Z-order) curve so particles that are close in space are close in memory.
+/// Positions are quantized to 16 bits per axis and interleaved into a 32 bit code, the codes are sorted
+/// with an LSD radix sort of four 8 bit digits. Every pass is split between threads: each thread counts the digits
+/// of its own slice, the counts are turned into per thread offsets and each thread scatters its slice, which keeps the sort stable.
+/// The sorted particles are copied into new objects so they are also allocated next to each other.
+/// Particle.id keeps the original index, frames are written in id order so outputs do not see the reordering.
+public class MortonOrder {
+    private static final int RADIX_BITS = 8;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    private static final int PASSES = 32 / RADIX_BITS;
+
+    private final SimulationConfig config;
+    private int n;
+
+    private int[] codes = new int[0];
+    private int[] codesScratch = new int[0];
+    private int[] order = new int[0];
+    private int[] orderScratch = new int[0];
+    private int[][] counts = new int[0][];
+
+    public MortonOrder(SimulationConfig config) {
+        this.config = config;
+    }
+
+    /// Sorts particles in place and returns the permutation, element i of the result is the old index of the particle now at i.
+    /// The returned array is reused by the next call and may be longer than the list. Without an executor everything runs on the calling thread.
+    public int[] reorder(List<Particle> particles, ExecutorService executor, int numberOfThreads) {
+        n = particles.size();
+        int capacity = ParticlePopulation.capacityFor(codes.length, n);
+        if (capacity != codes.length) {
+            codes = new int[capacity];
+            codesScratch = new int[capacity];
+            order = new int[capacity];
+            orderScratch = new int[capacity];
+        }
+        int threads = executor == null ? 1 : Math.max(1, Math.min(numberOfThreads, n / BUCKETS));
+        if (counts.length != threads) {
+            counts = new int[threads][BUCKETS];
+        }
+
+        runSlices(executor, threads, (threadId, start, end) -> {
+            for (int i = start; i < end; i++) {
+                Particle particle = particles.get(i);
+                codes[i] = mortonCode(particle.x, particle.y);
+                order[i] = i;
+            }
+        });
+
+        for (int pass = 0; pass < PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+
+            runSlices(executor, threads, (threadId, start, end) -> {
+                int[] threadCounts = counts[threadId];
+                Arrays.fill(threadCounts, 0);
+                for (int i = start; i < end; i++) {
+                    threadCounts[(codes[i] >>> shift) & (BUCKETS - 1)]++;
+                }
+            });
+
+            /// Exclusive prefix over (digit, thread), so thread t writes digit d right after threads before it
+            int offset = 0;
+            for (int digit = 0; digit < BUCKETS; digit++) {
+                for (int t = 0; t < threads; t++) {
+                    int count = counts[t][digit];
+                    counts[t][digit] = offset;
+                    offset += count;
+                }
+            }
+
+            runSlices(executor, threads, (threadId, start, end) -> {
+                int[] threadOffsets = counts[threadId];
+                for (int i = start; i < end; i++) {
+                    int target = threadOffsets[(codes[i] >>> shift) & (BUCKETS - 1)]++;
+                    codesScratch[target] = codes[i];
+                    orderScratch[target] = order[i];
+                }
+            });
+
+            int[] swap = codes;
+            codes = codesScratch;
+            codesScratch = swap;
+            swap = order;
+            order = orderScratch;
+            orderScratch = swap;
+        }
+
+        Particle[] sorted = new Particle[n];
+        runSlices(executor, threads, (threadId, start, end) -> {
+            for (int i = start; i < end; i++) {
+                sorted[i] = particles.get(order[i]).copy();
+            }
+        });
+        for (int i = 0; i < n; i++) {
+            particles.set(i, sorted[i]);
+        }
+        return order;
+    }
+
+    /// Interleaves the bits of the quantized x (even bits) and y (odd bits)
+    int mortonCode(double x, double y) {
+        int quantizedX = quantize(x, config.width);
+        int quantizedY = quantize(y, config.height);
+        return spreadBits(quantizedX) | (spreadBits(quantizedY) << 1);
+    }
+
+    private static int quantize(double value, double extent) {
+        int quantized = (int) (value / extent * 65535);
+        return Math.max(0, Math.min(65535, quantized));
+    }
+
+    /// Moves bit k of a 16 bit value to bit 2k
+    private static int spreadBits(int value) {
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    private interface SliceTask {
+        void run(int threadId, int start, int end);
+    }
+
+    private void runSlices(ExecutorService executor, int threads, SliceTask task) {
+        if (threads == 1) {
+            task.run(0, 0, n);
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(threads);
+        int particlesPerThread = n / threads;
+        for (int t = 0; t < threads; t++) {
+            int threadId = t;
+            int start = t * particlesPerThread;
+            int end = t == threads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> task.run(threadId, start, end)));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Particle reordering");
+    }
+}
@@ -0,0 +1,23 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.io.IOException;
+
+public class OffHeapEngine implements SimulationEngine {
+
+    @Override
+    public String name() {
+        return "offheap";
+    }
+
+    @Override
+    public void run(SimulationConfig config) {
+        try {
+            new ParticleSimulationOffHeap(config).runOffHeap();
+        }
+        catch (IOException e) {
+            Logger.error("Particle store " + config.storeFile + " failed: " + e.getMessage());
+        }
+    }
+}
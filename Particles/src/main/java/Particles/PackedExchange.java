@@ -0,0 +1,54 @@
+package Particles;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+/// Interleaves all fields into one buffer and exchanges it with a single Allgatherv,
+/// which pays the latency of one collective instead of one per field at the cost of packing and unpacking.
+public class PackedExchange implements ExchangeStrategy {
+    private double[] sendBuffer = new double[0];
+    private double[] receiveBuffer = new double[0];
+    private int[] packedCounts = new int[0];
+    private int[] packedDisplacements = new int[0];
+
+    @Override
+    public String name() {
+        return "packed";
+    }
+
+    @Override
+    public void exchange(Intracomm comm, double[][] local, int myCount, double[][] all, int[] counts, int[] displacements) {
+        int fields = local.length;
+        /// The arrays of all may be larger than the particle count once the population has grown
+        int last = counts.length - 1;
+        int total = displacements[last] + counts[last];
+        if (sendBuffer.length < myCount * fields) {
+            sendBuffer = new double[myCount * fields];
+        }
+        if (receiveBuffer.length < total * fields) {
+            receiveBuffer = new double[total * fields];
+        }
+        if (packedCounts.length != counts.length) {
+            packedCounts = new int[counts.length];
+            packedDisplacements = new int[counts.length];
+        }
+        for (int rank = 0; rank < counts.length; rank++) {
+            packedCounts[rank] = counts[rank] * fields;
+            packedDisplacements[rank] = displacements[rank] * fields;
+        }
+
+        for (int i = 0; i < myCount; i++) {
+            for (int field = 0; field < fields; field++) {
+                sendBuffer[i * fields + field] = local[field][i];
+            }
+        }
+
+        comm.Allgatherv(sendBuffer, 0, myCount * fields, MPI.DOUBLE, receiveBuffer, 0, packedCounts, packedDisplacements, MPI.DOUBLE);
+
+        for (int i = 0; i < total; i++) {
+            for (int field = 0; field < fields; field++) {
+                all[field][i] = receiveBuffer[i * fields + field];
+            }
+        }
+    }
+}
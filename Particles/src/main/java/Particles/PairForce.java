@@ -0,0 +1,37 @@
+package Particles;
+
+/// Coulomb force between two particles, shared by every kernel and engine loop so they cannot drift apart.
+/// Distances below the minimum distance count as the minimum distance, which avoids the division by 0.
+public final class PairForce {
+
+    private PairForce() {
+    }
+
+    /// Factor that turns the distance vector from particle 1 to particle 2 into the force on particle 1:
+    /// forceX = strength * distanceX, forceY = strength * distanceY, and the opposite force acts on particle 2
+    public static double strength(double distanceX, double distanceY, double chargeProduct, double minimumDistance) {
+        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
+        double distance = Math.sqrt(distanceSquared);
+
+        if (distance < minimumDistance) {
+            distance = minimumDistance;
+            distanceSquared = distance * distance;
+        }
+
+        return chargeProduct / (distanceSquared * distance);
+    }
+
+    /// Adds the force of the pair to both particles, Newton's third law
+    public static void apply(Particle particle1, Particle particle2, double minimumDistance) {
+        double distanceX = particle2.x - particle1.x;
+        double distanceY = particle2.y - particle1.y;
+        double strength = strength(distanceX, distanceY, particle1.charge * particle2.charge, minimumDistance);
+        double forceX = strength * distanceX;
+        double forceY = strength * distanceY;
+
+        particle1.forceX += forceX;
+        particle1.forceY += forceY;
+        particle2.forceX -= forceX;
+        particle2.forceY -= forceY;
+    }
+}
@@ -0,0 +1,182 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Every pair once with Newton's third law. On several threads every thread takes every numberOfThreads-th row
+/// of the triangle into its own force buffers, which are merged afterwards.
+public class PairwiseKernel implements StoreKernel {
+    private double[][] threadForcesX = new double[0][];
+    private double[][] threadForcesY = new double[0][];
+
+    @Override
+    public String name() {
+        return "pairwise";
+    }
+
+    @Override
+    public long apply(List<Particle> particles, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        int n = particles.size();
+        long pairs = (long) n * (n - 1) / 2;
+
+        if (executor == null || numberOfThreads <= 1) {
+            for (int i = 0; i < n; i++) {
+                Particle particle1 = particles.get(i);
+                for (int j = i + 1; j < n; j++) {
+                    Particle particle2 = particles.get(j);
+                    PairForce.apply(particle1, particle2, minimumDistance);
+                }
+            }
+            return pairs;
+        }
+
+        if (threadForcesX.length != numberOfThreads || threadForcesX[0].length != n) {
+            threadForcesX = new double[numberOfThreads][n];
+            threadForcesY = new double[numberOfThreads][n];
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            int threadId = t;
+            tasks.add(Executors.callable(() -> {
+                double[] forcesX = threadForcesX[threadId];
+                double[] forcesY = threadForcesY[threadId];
+                Arrays.fill(forcesX, 0);
+                Arrays.fill(forcesY, 0);
+
+                for (int i = threadId; i < n; i += numberOfThreads) {
+                    Particle particle1 = particles.get(i);
+                    double sumX = 0;
+                    double sumY = 0;
+                    for (int j = i + 1; j < n; j++) {
+                        Particle particle2 = particles.get(j);
+                        double distanceX = particle2.x - particle1.x;
+                        double distanceY = particle2.y - particle1.y;
+                        double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2.charge, minimumDistance);
+                        double forceX = strength * distanceX;
+                        double forceY = strength * distanceY;
+
+                        sumX += forceX;
+                        sumY += forceY;
+                        forcesX[j] -= forceX;
+                        forcesY[j] -= forceY;
+                    }
+                    forcesX[i] += sumX;
+                    forcesY[i] += sumY;
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+
+        tasks.clear();
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int mergeStart = t * particlesPerThread;
+            int mergeEnd = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> {
+                for (int j = mergeStart; j < mergeEnd; j++) {
+                    Particle particle = particles.get(j);
+                    for (int threadId = 0; threadId < numberOfThreads; threadId++) {
+                        particle.forceX += threadForcesX[threadId][j];
+                        particle.forceY += threadForcesY[threadId][j];
+                    }
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Particle force merge");
+        return pairs;
+    }
+
+    @Override
+    public long apply(ParticleStore store, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        int n = store.size();
+        long pairs = (long) n * (n - 1) / 2;
+
+        if (executor == null || numberOfThreads <= 1) {
+            for (int i = 0; i < n; i++) {
+                double x = store.x(i);
+                double y = store.y(i);
+                double charge = store.charge(i);
+                double sumX = 0;
+                double sumY = 0;
+                for (int j = i + 1; j < n; j++) {
+                    double distanceX = store.x(j) - x;
+                    double distanceY = store.y(j) - y;
+                    double strength = PairForce.strength(distanceX, distanceY, charge * store.charge(j), minimumDistance);
+                    double forceX = strength * distanceX;
+                    double forceY = strength * distanceY;
+
+                    sumX += forceX;
+                    sumY += forceY;
+                    store.addForce(j, -forceX, -forceY);
+                }
+                store.addForce(i, sumX, sumY);
+            }
+            return pairs;
+        }
+
+        /// The buffers are on the heap, for very large stores the rows kernel needs no buffers at all
+        if (threadForcesX.length != numberOfThreads || threadForcesX[0].length != n) {
+            threadForcesX = new double[numberOfThreads][n];
+            threadForcesY = new double[numberOfThreads][n];
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        for (int t = 0; t < numberOfThreads; t++) {
+            int threadId = t;
+            tasks.add(Executors.callable(() -> {
+                double[] forcesX = threadForcesX[threadId];
+                double[] forcesY = threadForcesY[threadId];
+                Arrays.fill(forcesX, 0);
+                Arrays.fill(forcesY, 0);
+
+                for (int i = threadId; i < n; i += numberOfThreads) {
+                    double x = store.x(i);
+                    double y = store.y(i);
+                    double charge = store.charge(i);
+                    double sumX = 0;
+                    double sumY = 0;
+                    for (int j = i + 1; j < n; j++) {
+                        double distanceX = store.x(j) - x;
+                        double distanceY = store.y(j) - y;
+                        double strength = PairForce.strength(distanceX, distanceY, charge * store.charge(j), minimumDistance);
+                        double forceX = strength * distanceX;
+                        double forceY = strength * distanceY;
+
+                        sumX += forceX;
+                        sumY += forceY;
+                        forcesX[j] -= forceX;
+                        forcesY[j] -= forceY;
+                    }
+                    forcesX[i] += sumX;
+                    forcesY[i] += sumY;
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+
+        tasks.clear();
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int mergeStart = t * particlesPerThread;
+            int mergeEnd = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> {
+                for (int j = mergeStart; j < mergeEnd; j++) {
+                    double sumX = 0;
+                    double sumY = 0;
+                    for (int threadId = 0; threadId < numberOfThreads; threadId++) {
+                        sumX += threadForcesX[threadId][j];
+                        sumY += threadForcesY[threadId][j];
+                    }
+                    store.addForce(j, sumX, sumY);
+                }
+            }));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Particle force merge");
+        return pairs;
+    }
+}
@@ -0,0 +1,22 @@
+package Particles;
+
+public class ParallelEngine implements SimulationEngine {
+
+    @Override
+    public String name() {
+        return "parallel";
+    }
+
+    /// Tuning happens before the clock starts, it is a property of the machine and not of the run
+    @Override
+    public void start(String[] args, SimulationConfig config) {
+        if (config.autoTune) {
+            new AutoTuner(config).tune();
+        }
+    }
+
+    @Override
+    public void run(SimulationConfig config) {
+        new ParticleSimulationParallel(config).runParallel();
+    }
+}
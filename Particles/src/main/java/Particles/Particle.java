@@ -1,6 +1,8 @@
 package Particles;
 
 public class Particle {
+    /// Index at creation, stays the same when particles are reordered in memory
+    final int id;
     double x;
     double y;
     double velocityX;
@@ -9,7 +11,8 @@ public class Particle {
     double forceY;
     double charge;
 
-    public Particle(double x, double y, double velocityX, double velocityY, double charge) {
+    public Particle(int id, double x, double y, double velocityX, double velocityY, double charge) {
+        this.id = id;
         this.x = x;
         this.y = y;
         this.velocityX = velocityX;
@@ -18,5 +21,11 @@ public class Particle {
         this.forceX = 0;
         this.forceY = 0;
     }
-}
 
+    Particle copy() {
+        Particle copy = new Particle(id, x, y, velocityX, velocityY, charge);
+        copy.forceX = forceX;
+        copy.forceY = forceY;
+        return copy;
+    }
+}
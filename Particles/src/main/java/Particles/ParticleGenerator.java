@@ -0,0 +1,71 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/// Counter based generator of the initial particles.
+/// Every random value is a SplitMix64 hash of the seed and a counter derived from the particle index,
+/// so any slice of the particles can be generated on its own by any thread or rank
+/// and all three modes start from the same particles for the same seed.
+/// Even indices get a positive charge and odd indices a negative one, like the alternating charges before.
+public final class ParticleGenerator {
+    private static final int VALUES_PER_PARTICLE = 5;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private ParticleGenerator() {
+    }
+
+    /// Returns all config.numOfParticles particles, only the ones in [start, end) are generated,
+    /// the others are zero placeholders for a mode that receives them from other ranks.
+    /// parallel splits the generation between the threads of the common pool.
+    public static List<Particle> generate(SimulationConfig config, int start, int end, boolean parallel) {
+        Particle[] particles = new Particle[config.numOfParticles];
+        if (parallel) {
+            Arrays.parallelSetAll(particles, i -> i >= start && i < end ? create(config, i) : new Particle(i, 0, 0, 0, 0, 0));
+        }
+        else {
+            Arrays.setAll(particles, i -> i >= start && i < end ? create(config, i) : new Particle(i, 0, 0, 0, 0, 0));
+        }
+        return new ArrayList<>(Arrays.asList(particles));
+    }
+
+    /// Fills every particle of the store, split between the threads of the common pool
+    public static void generate(SimulationConfig config, ParticleStore store) {
+        IntStream.range(0, store.size()).parallel().forEach(i -> store.store(i, create(config, i)));
+    }
+
+    public static Particle create(SimulationConfig config, int i) {
+        return create(config, i, 0, 0, config.width, config.height);
+    }
+
+    /// Particle i placed in the given region instead of the whole box, used for particles spawned later in the run
+    public static Particle create(SimulationConfig config, int i, double left, double top, double width, double height) {
+        long seed = mix(config.particleSeed);
+        long counter = (long) i * VALUES_PER_PARTICLE;
+
+        double x = left + uniform(seed, counter) * width;
+        double y = top + uniform(seed, counter + 1) * height;
+
+        double startingVelocityX = uniform(seed, counter + 2) - 0.5;
+        double startingVelocityY = uniform(seed, counter + 3) - 0.5;
+
+        double chargeStrength = 0.5 + uniform(seed, counter + 4) * 1.5;
+        double charge = i % 2 == 0 ? chargeStrength : -chargeStrength;
+
+        return new Particle(i, x, y, startingVelocityX, startingVelocityY, charge);
+    }
+
+    /// Uniform double in [0, 1) from the top 53 bits of the hash
+    static double uniform(long seed, long counter) {
+        return (mix(seed + (counter + 1) * GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+    }
+
+    /// SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,244 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// Sources and sinks that change the number of particles while the simulation runs.
+/// Once per cycle particles on an absorbing wall are removed, particles closer than config.mergeDistance
+/// merge pairwise and config.spawnRate new particles are appended in config.spawnRegion.
+/// Removed particles are dropped in one stable compaction pass, so the survivors keep their order
+/// (and with it the Morton order and the slices of the distributed ranks).
+/// New particles get fresh ids from the counter based generator, so every mode and every rank spawns the same ones.
+/// Helpers that keep per particle arrays follow the change through permute(order, count)
+/// and size their arrays with capacityFor, which grows them geometrically and shrinks them once they are mostly empty.
+public class ParticlePopulation {
+    private final SimulationConfig config;
+    private final List<Particle> particles;
+    private final double regionLeft;
+    private final double regionTop;
+    private final double regionWidth;
+    private final double regionHeight;
+    private final double cellSize;
+    private final int cellsX;
+    private final int cellsY;
+    private final int[] cellHead;
+
+    private int[] cellNext = new int[0];
+    private boolean[] removed = new boolean[0];
+    private boolean[] mergedThisCycle = new boolean[0];
+    private int[] order = new int[0];
+    private int capacity;
+    private int nextId;
+    private double spawnCredit = 0;
+
+    private long spawned = 0;
+    private long absorbed = 0;
+    private long merged = 0;
+
+    public ParticlePopulation(SimulationConfig config, List<Particle> particles) {
+        this.config = config;
+        this.particles = particles;
+        this.nextId = config.numOfParticles;
+        this.capacity = particles.size();
+
+        if (config.spawnRegion == null) {
+            regionLeft = 0;
+            regionTop = 0;
+            regionWidth = config.width;
+            regionHeight = config.height;
+        }
+        else {
+            String[] parts = config.spawnRegion.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Spawn region must be x,y,width,height: " + config.spawnRegion);
+            }
+            regionLeft = Double.parseDouble(parts[0].strip());
+            regionTop = Double.parseDouble(parts[1].strip());
+            regionWidth = Double.parseDouble(parts[2].strip());
+            regionHeight = Double.parseDouble(parts[3].strip());
+        }
+
+        /// Cells at least as big as the merge distance, so merge partners are always in neighbouring cells
+        this.cellSize = Math.max(config.mergeDistance, 1);
+        this.cellsX = config.mergeDistance > 0 ? (int) Math.ceil(config.width / cellSize) + 1 : 0;
+        this.cellsY = config.mergeDistance > 0 ? (int) Math.ceil(config.height / cellSize) + 1 : 0;
+        this.cellHead = new int[cellsX * cellsY];
+    }
+
+    /// True when config asks for any source or sink, without them the particle count never changes
+    public static boolean isDynamic(SimulationConfig config) {
+        return config.spawnRate > 0 || config.absorbingWalls || config.mergeDistance > 0;
+    }
+
+    /// Length for a per particle array that has to hold count particles and is currently current long.
+    /// Grows to at least twice the current length and shrinks to twice the count once less than a quarter is used,
+    /// so a population that keeps changing size does not reallocate every cycle.
+    public static int capacityFor(int current, int count) {
+        if (count > current) {
+            return Math.max(count, 2 * current);
+        }
+        if (count < current / 4) {
+            return Math.min(current, Math.max(16, 2 * count));
+        }
+        return current;
+    }
+
+    public long spawned() {
+        return spawned;
+    }
+
+    public long absorbed() {
+        return absorbed;
+    }
+
+    public long merged() {
+        return merged;
+    }
+
+    /// Applies the sinks and sources of this cycle.
+    /// Returns null when nothing changed, otherwise the new order: element i is the old index of the particle now at i
+    /// or -1 for a new particle, for i below particles.size(). The array is reused by the next call.
+    public int[] update() {
+        int n = particles.size();
+        if (removed.length < n) {
+            removed = new boolean[capacityFor(removed.length, n)];
+            mergedThisCycle = new boolean[removed.length];
+            cellNext = new int[removed.length];
+        }
+        Arrays.fill(removed, 0, n, false);
+
+        int removedCount = 0;
+        if (config.absorbingWalls) {
+            removedCount += absorb(n);
+        }
+        if (config.mergeDistance > 0) {
+            removedCount += merge(n);
+        }
+
+        spawnCredit += config.spawnRate;
+        int spawnCount = (int) spawnCredit;
+        spawnCredit -= spawnCount;
+        if (config.maxParticles > 0) {
+            spawnCount = Math.max(0, Math.min(spawnCount, config.maxParticles - (n - removedCount)));
+        }
+
+        if (removedCount == 0 && spawnCount == 0) {
+            return null;
+        }
+
+        int count = n - removedCount + spawnCount;
+        if (order.length < count) {
+            order = new int[capacityFor(order.length, count)];
+        }
+
+        /// Stable compaction, survivors move down over the removed particles
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (!removed[i]) {
+                particles.set(kept, particles.get(i));
+                order[kept++] = i;
+            }
+        }
+        particles.subList(kept, n).clear();
+
+        for (int s = 0; s < spawnCount; s++) {
+            particles.add(ParticleGenerator.create(config, nextId++, regionLeft, regionTop, regionWidth, regionHeight));
+            order[kept++] = -1;
+        }
+        spawned += spawnCount;
+
+        /// The list only grows on its own, give memory back once most of it is unused
+        int wanted = capacityFor(capacity, count);
+        if (wanted < capacity && particles instanceof ArrayList<Particle> list) {
+            list.trimToSize();
+            list.ensureCapacity(wanted);
+        }
+        capacity = wanted;
+        return order;
+    }
+
+    /// The integrator puts particles that leave the box back on the wall, so a particle on the wall has reached it
+    private int absorb(int n) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            Particle particle = particles.get(i);
+            if (particle.x <= 0 || particle.x >= config.width || particle.y <= 0 || particle.y >= config.height) {
+                removed[i] = true;
+                count++;
+            }
+        }
+        absorbed += count;
+        return count;
+    }
+
+    /// Every particle merges with at most one other per cycle, its nearest unmerged neighbour with a higher index.
+    /// The merged particle keeps the lower index and id, sits at the midpoint and moves with the mean velocity.
+    private int merge(int n) {
+        double mergeDistanceSquared = config.mergeDistance * config.mergeDistance;
+
+        Arrays.fill(cellHead, -1);
+        Arrays.fill(mergedThisCycle, 0, n, false);
+        for (int i = n - 1; i >= 0; i--) {
+            int cell = cellOf(particles.get(i));
+            cellNext[i] = cellHead[cell];
+            cellHead[cell] = i;
+        }
+
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (removed[i] || mergedThisCycle[i]) {
+                continue;
+            }
+            Particle particle = particles.get(i);
+            int cellX = cellX(particle);
+            int cellY = cellY(particle);
+
+            int nearest = -1;
+            double nearestDistanceSquared = mergeDistanceSquared;
+            for (int y = Math.max(0, cellY - 1); y <= Math.min(cellsY - 1, cellY + 1); y++) {
+                for (int x = Math.max(0, cellX - 1); x <= Math.min(cellsX - 1, cellX + 1); x++) {
+                    for (int j = cellHead[y * cellsX + x]; j >= 0; j = cellNext[j]) {
+                        if (j <= i || removed[j] || mergedThisCycle[j]) {
+                            continue;
+                        }
+                        Particle other = particles.get(j);
+                        double distanceX = other.x - particle.x;
+                        double distanceY = other.y - particle.y;
+                        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
+                        if (distanceSquared < nearestDistanceSquared) {
+                            nearest = j;
+                            nearestDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+            }
+
+            if (nearest >= 0) {
+                Particle other = particles.get(nearest);
+                particle.x = (particle.x + other.x) / 2;
+                particle.y = (particle.y + other.y) / 2;
+                particle.velocityX = (particle.velocityX + other.velocityX) / 2;
+                particle.velocityY = (particle.velocityY + other.velocityY) / 2;
+                particle.charge += other.charge;
+                mergedThisCycle[i] = true;
+                removed[nearest] = true;
+                count++;
+            }
+        }
+        merged += count;
+        return count;
+    }
+
+    private int cellX(Particle particle) {
+        return Math.max(0, Math.min(cellsX - 1, (int) (particle.x / cellSize)));
+    }
+
+    private int cellY(Particle particle) {
+        return Math.max(0, Math.min(cellsY - 1, (int) (particle.y / cellSize)));
+    }
+
+    private int cellOf(Particle particle) {
+        return cellY(particle) * cellsX + cellX(particle);
+    }
+}
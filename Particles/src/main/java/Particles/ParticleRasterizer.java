@@ -0,0 +1,223 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Draws particle snapshots straight into the int[] pixel buffer of a BufferedImage.
+/// The image is split into horizontal bands that are rasterized in parallel, every band
+/// only writes its own rows so no synchronisation is needed between them.
+/// When there are more particles than pixels single particles are no longer distinguishable,
+/// so the rasterizer switches to a density heatmap coloured by the net charge of every pixel.
+public class ParticleRasterizer {
+
+    private static final int BACKGROUND = 0x000000;
+    private static final int POSITIVE = 0xFF0000;
+    private static final int NEGATIVE = 0x0000FF;
+
+    /// Same footprint as the fillOval(x - 3, y - 3, 6, 6) used before
+    private static final int PARTICLE_SIZE = 6;
+    private static final int PARTICLE_OFFSET = PARTICLE_SIZE / 2;
+    private static final int[] SPAN_START = new int[PARTICLE_SIZE];
+    private static final int[] SPAN_END = new int[PARTICLE_SIZE];
+
+    static {
+        double radius = PARTICLE_SIZE / 2.0;
+        for (int row = 0; row < PARTICLE_SIZE; row++) {
+            double centerY = row + 0.5 - radius;
+            double halfWidth = Math.sqrt(Math.max(0, radius * radius - centerY * centerY));
+            SPAN_START[row] = (int) Math.ceil(radius - halfWidth - 0.5);
+            SPAN_END[row] = (int) Math.floor(radius + halfWidth - 0.5);
+        }
+    }
+
+    private final int numberOfBands;
+    private final int[] bandMaxDensity;
+    private final ExecutorService executor;
+    private final List<Callable<Integer>> splatTasks = new ArrayList<>();
+    private final List<Callable<Integer>> densityTasks = new ArrayList<>();
+    private final List<Callable<Integer>> shadeTasks = new ArrayList<>();
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int[] density;
+    private float[] positiveCharge;
+    private float[] negativeCharge;
+    private int width;
+    private int height;
+    private int maxDensity;
+    private ParticleSnapshotBuffer.Snapshot snapshot;
+
+    public ParticleRasterizer() {
+        /// Keep most of the cores for the compute threads
+        this.numberOfBands = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        this.bandMaxDensity = new int[numberOfBands];
+        this.executor = Executors.newFixedThreadPool(numberOfBands, runnable -> {
+            Thread thread = new Thread(runnable, "Rasterizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int band = 0; band < numberOfBands; band++) {
+            int tempBand = band;
+            splatTasks.add(() -> splatBand(tempBand));
+            densityTasks.add(() -> accumulateDensityBand(tempBand));
+            shadeTasks.add(() -> shadeDensityBand(tempBand));
+        }
+    }
+
+    /// Returns true when the snapshot does not fit into the image as single particles
+    public boolean isDensityMode(ParticleSnapshotBuffer.Snapshot snapshot) {
+        return (long) snapshot.count > (long) width * height;
+    }
+
+    public BufferedImage render(ParticleSnapshotBuffer.Snapshot snapshot, int width, int height) {
+        ensureCapacity(Math.max(1, width), Math.max(1, height));
+        this.snapshot = snapshot;
+
+        if (isDensityMode(snapshot)) {
+            if (density == null) {
+                /// Lazily allocated, only very large runs ever need these
+                density = new int[this.width * this.height];
+                positiveCharge = new float[this.width * this.height];
+                negativeCharge = new float[this.width * this.height];
+            }
+            runBands(densityTasks);
+            maxDensity = Arrays.stream(bandMaxDensity).max().orElse(1);
+            runBands(shadeTasks);
+        }
+        else {
+            runBands(splatTasks);
+        }
+
+        this.snapshot = null;
+        return image;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void ensureCapacity(int width, int height) {
+        if (image != null && this.width == width && this.height == height) {
+            return;
+        }
+
+        this.width = width;
+        this.height = height;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.density = null;
+        this.positiveCharge = null;
+        this.negativeCharge = null;
+    }
+
+    private void runBands(List<Callable<Integer>> tasks) {
+        try {
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            Logger.error("Rasterizing failed: " + e.getCause());
+        }
+    }
+
+    private int bandStart(int band) {
+        return (int) ((long) height * band / numberOfBands);
+    }
+
+    private int splatBand(int band) {
+        int bandStart = bandStart(band);
+        int bandEnd = bandStart(band + 1);
+        Arrays.fill(pixels, bandStart * width, bandEnd * width, BACKGROUND);
+
+        ParticleSnapshotBuffer.Snapshot snapshot = this.snapshot;
+        for (int i = 0; i < snapshot.count; i++) {
+            int top = (int) snapshot.y[i] - PARTICLE_OFFSET;
+            if (top >= bandEnd || top + PARTICLE_SIZE <= bandStart) {
+                continue;
+            }
+
+            int left = (int) snapshot.x[i] - PARTICLE_OFFSET;
+            int color = snapshot.charge[i] > 0 ? POSITIVE : NEGATIVE;
+            int firstRow = Math.max(0, bandStart - top);
+            int lastRow = Math.min(PARTICLE_SIZE, bandEnd - top);
+
+            for (int row = firstRow; row < lastRow; row++) {
+                int from = Math.max(0, left + SPAN_START[row]);
+                int to = Math.min(width - 1, left + SPAN_END[row]);
+                int rowOffset = (top + row) * width;
+                for (int column = from; column <= to; column++) {
+                    pixels[rowOffset + column] = color;
+                }
+            }
+        }
+        return band;
+    }
+
+    private int accumulateDensityBand(int band) {
+        int bandStart = bandStart(band);
+        int bandEnd = bandStart(band + 1);
+
+        Arrays.fill(density, bandStart * width, bandEnd * width, 0);
+        Arrays.fill(positiveCharge, bandStart * width, bandEnd * width, 0);
+        Arrays.fill(negativeCharge, bandStart * width, bandEnd * width, 0);
+
+        ParticleSnapshotBuffer.Snapshot snapshot = this.snapshot;
+        int bandMax = 0;
+        for (int i = 0; i < snapshot.count; i++) {
+            int y = Math.min(height - 1, Math.max(0, (int) snapshot.y[i]));
+            if (y < bandStart || y >= bandEnd) {
+                continue;
+            }
+            int x = Math.min(width - 1, Math.max(0, (int) snapshot.x[i]));
+            int pixel = y * width + x;
+
+            float charge = snapshot.charge[i];
+            if (charge > 0) {
+                positiveCharge[pixel] += charge;
+            }
+            else {
+                negativeCharge[pixel] -= charge;
+            }
+            bandMax = Math.max(bandMax, ++density[pixel]);
+        }
+
+        bandMaxDensity[band] = bandMax;
+        return band;
+    }
+
+    private int shadeDensityBand(int band) {
+        int from = bandStart(band) * width;
+        int to = bandStart(band + 1) * width;
+        double logMax = Math.log1p(maxDensity);
+
+        for (int pixel = from; pixel < to; pixel++) {
+            int count = density[pixel];
+            if (count == 0) {
+                pixels[pixel] = BACKGROUND;
+                continue;
+            }
+
+            /// Brightness follows the log of the density, hue goes from blue over purple to red with the net charge
+            double intensity = 0.25 + 0.75 * Math.log1p(count) / logMax;
+            double positiveShare = positiveCharge[pixel] / (positiveCharge[pixel] + negativeCharge[pixel]);
+            int red = (int) (255 * intensity * positiveShare);
+            int blue = (int) (255 * intensity * (1 - positiveShare));
+            pixels[pixel] = (red << 16) | blue;
+        }
+        return band;
+    }
+}
@@ -1,76 +1,81 @@
 package Particles;
 
 import Utils.Logger;
+import mpi.Intracomm;
 import mpi.MPI;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 public class ParticleSimulationDistributed {
-    private final List<Particle> particles;
+    /// Largest difference between the biggest and the smallest slice, relative to the mean slice, before slices are split evenly again
+    private static final double REBALANCE_TOLERANCE = 0.1;
+
+    final List<Particle> particles;
     private final SimulationConfig config;
-    private final Random random;
     private final double DAMPING;
     private final double MINIMUM_DISTANCE;
-    private final double MAXIMUM_SPEED;
-
-    private static final double SLOW_DOWN = 0.1;
+    private final PhaseProfiler profiler;
+    private final Intracomm comm;
+    private final SimulationMetrics metrics;
+    private final MortonOrder morton;
+    private final ParticlePopulation population;
+    private final Integrator integrator;
+    private final ExchangeStrategy exchange;
 
 
     private boolean firstCollect = true;
+    /// Particles this rank integrates, only these are up to date after the last cycle
+    int ownedStart;
+    int ownedEnd;
+    /// Slice of every rank, the counts and displacements of the exchange
+    private final int[] sliceCounts;
+    private final int[] sliceStarts;
     private int cyclesPerSecond = 0;
     private int numberOfCompleteCycles = 0;
     private long startTime;
-    private int chargeModifier = 1;
 
     public ParticleSimulationDistributed(SimulationConfig config) {
+        this(config, MPI.COMM_WORLD);
+    }
+
+    /// Runs the simulation on the processes of comm only, ensembles give every member its own communicator
+    public ParticleSimulationDistributed(SimulationConfig config, Intracomm comm) {
         this.config = config;
+        this.comm = comm;
         this.DAMPING = config.damping;
         this.MINIMUM_DISTANCE = config.minimumDistance;
-        this.MAXIMUM_SPEED = config.maximumSpeed;
-        this.random = new Random(config.particleSeed);
-        this.particles = new ArrayList<>();
-        initializeParticles();
-    }
-
-    private void initializeParticles() {
-        for (int i = 0; i < config.numOfParticles; i++) {
-            double x = random.nextDouble() * config.width;
-            double y = random.nextDouble() * config.height;
-
-            double startingVelocityX = (random.nextDouble() - 0.5);
-            double startingVelocityY = (random.nextDouble() - 0.5);
-
-            double chargeStrength = 0.5 + random.nextDouble() * 1.5;
-            double charge = chargeStrength * chargeModifier;
-            chargeModifier = chargeModifier * -1;
-
-            Particle tempParticle = new Particle(x, y, startingVelocityX, startingVelocityY, charge);
-            particles.add(tempParticle);
-        }
+        this.profiler = new PhaseProfiler(config.profile || config.metrics, "distributed");
+        this.metrics = new SimulationMetrics("distributed", config.numOfParticles, profiler);
+        this.morton = config.reorderCycles > 0 ? new MortonOrder(config) : null;
+        this.integrator = Plugins.load(Integrator.class, config.integrator);
+        integrator.configure(config);
+        this.exchange = Plugins.load(ExchangeStrategy.class, config.exchange);
+
+        /// Every rank only generates its own slice, the first gather brings the rest.
+        /// Without MPI (benchmarks) there is no communicator and this process owns every particle.
+        int rank = comm != null ? comm.Rank() : 0;
+        int size = comm != null ? comm.Size() : 1;
+        this.sliceCounts = new int[size];
+        this.sliceStarts = new int[size];
+        splitEvenly(config.numOfParticles);
+        ownedStart = sliceStarts[rank];
+        ownedEnd = ownedStart + sliceCounts[rank];
+        this.particles = ParticleGenerator.generate(config, ownedStart, ownedEnd, false);
+        this.population = ParticlePopulation.isDynamic(config) ? new ParticlePopulation(config, particles) : null;
     }
 
     public void runDistributed() {
-        int rank = MPI.COMM_WORLD.Rank();
-        int size = MPI.COMM_WORLD.Size();
-
-        int particlesPerProcess = config.numOfParticles / size;
-        int start = rank * particlesPerProcess;
-        int end;
-
-        if (rank == size - 1) {
-            end = config.numOfParticles;
-        }
-        else {
-            end = (rank + 1) * particlesPerProcess;
+        int rank = comm.Rank();
+        profiler.setRank(rank);
+        if (config.metrics) {
+            metrics.register(rank);
         }
 
-
-        GUI gui = null;
-        if (config.enableGUI && MPI.COMM_WORLD.Rank() == 0) {
-            gui = new GUI(config, particles);
-            gui.start();
+        /// Only rank 0 holds every particle after a gather, so it is the only one that can show or stream frames
+        FrameOutputs outputs = null;
+        if (rank == 0) {
+            outputs = FrameOutputs.open(config);
         }
 
         double[] allPositionsX = new double[config.numOfParticles];
@@ -80,33 +85,87 @@ public class ParticleSimulationDistributed {
         double[] allVelocitiesY = new double[config.numOfParticles];
 
         for (int cycle = 0; cycle < config.cycles; cycle++) {
-            gatherAllParticleData(allPositionsX, allPositionsY, allCharges, allVelocitiesX, allVelocitiesY, size, start, end);
+            profiler.beginCycle();
+
+            gatherAllParticleData(allPositionsX, allPositionsY, allCharges, allVelocitiesX, allVelocitiesY);
+
+            /// Every rank applies the same sources and sinks to the same gathered particles, so they stay in agreement without talking
+            if (population != null) {
+                long phaseStart = profiler.start();
+                int[] order = population.update();
+                if (order != null) {
+                    int count = particles.size();
+                    rebalance(order, count, rank);
+                    int capacity = ParticlePopulation.capacityFor(allPositionsX.length, count);
+                    if (capacity != allPositionsX.length) {
+                        allPositionsX = new double[capacity];
+                        allPositionsY = new double[capacity];
+                        allCharges = new double[capacity];
+                        allVelocitiesX = new double[capacity];
+                        allVelocitiesY = new double[capacity];
+                    }
+                    refillAllParticleData(allPositionsX, allPositionsY, allCharges);
+                    metrics.setParticleCount(count);
+                }
+                profiler.lap(SimulationPhase.POPULATION, phaseStart);
+            }
 
-            computeForcesDistributed(start, end, allPositionsX, allPositionsY, allCharges);
+            /// Every rank holds the same particles after the gather, so all of them sort the same way and every slice becomes a compact region
+            if (morton != null && cycle % config.reorderCycles == 0) {
+                reorderParticles(allPositionsX, allPositionsY, allCharges);
+            }
 
-            updatePositions(start, end);
+            /// After the gather rank 0 holds the complete previous cycle, which is exactly what a frame needs
+            if (outputs != null) {
+                if (morton != null) {
+                    outputs.publish(particles, particles.size(), cycle);
+                }
+                else {
+                    outputs.publish(allPositionsX, allPositionsY, allCharges, particles.size(), cycle);
+                }
+            }
+
+            computeForcesDistributed(ownedStart, ownedEnd, allPositionsX, allPositionsY, allCharges);
+
+            long phaseStart = profiler.start();
+            updatePositions(ownedStart, ownedEnd);
+            profiler.lap(SimulationPhase.INTEGRATE, phaseStart);
+
+            profiler.endCycle(cycle);
+            metrics.addPairInteractions((long) (ownedEnd - ownedStart) * (particles.size() - 1));
+            metrics.cycleCompleted();
 
             if (rank == 0) {
                 cyclesPerSecond++;
                 if (System.currentTimeMillis() - startTime > 1000) {
                     numberOfCompleteCycles += cyclesPerSecond;
                     startTime = System.currentTimeMillis();
-                    Logger.info("Number of cycles completed: " + numberOfCompleteCycles + "/" + config.cycles);
-                    if (gui != null) {
-                        gui.update(cyclesPerSecond);
+                    if (config.logProgress) {
+                        Logger.info("Number of cycles completed: {}/{}", numberOfCompleteCycles, config.cycles);
+                        if (population != null) {
+                            Logger.info("Particles: {} ({} spawned)", particles.size(), population.spawned());
+                            Logger.info("Particles removed: {} absorbed, {} merged", population.absorbed(), population.merged());
+                        }
                     }
+                    outputs.update(cyclesPerSecond);
                     cyclesPerSecond = 0;
                 }
             }
         }
 
-        if (rank == 0 && gui != null) {
-            gui.stop();
+        if (outputs != null) {
+            outputs.close();
+        }
+        metrics.unregister();
+        if (config.profile) {
+            profiler.logSummary();
         }
-
     }
 
-    private void gatherAllParticleData(double[] allPositionsX, double[] allPositionsY, double[] allCharges, double[] allVelocitiesX, double[] allVelocitiesY, int size, int start, int end) {
+    private void gatherAllParticleData(double[] allPositionsX, double[] allPositionsY, double[] allCharges, double[] allVelocitiesX, double[] allVelocitiesY) {
+        long phaseStart = profiler.start();
+        int start = ownedStart;
+        int end = ownedEnd;
         int myCount = end - start;
         double[] threadPositionsX = new double[myCount];
         double[] threadPositionsY = new double[myCount];
@@ -114,7 +173,32 @@ public class ParticleSimulationDistributed {
         double[] threadVelocitiesX = new double[myCount];
         double[] threadVelocitiesY = new double[myCount];
 
+        packLocalParticleData(start, end, threadPositionsX, threadPositionsY, threadCharges, threadVelocitiesX, threadVelocitiesY);
 
+        phaseStart = profiler.lap(SimulationPhase.PACK, phaseStart);
+
+        /// Only while profiling, the barrier separates waiting for the slowest rank from the transfer itself
+        if (config.profile) {
+            comm.Barrier();
+            phaseStart = profiler.lap(SimulationPhase.WAIT, phaseStart);
+        }
+
+        /// Charges only change through merges, which every rank applies on its own, so they only travel with the first exchange
+        if(firstCollect){
+            exchange.exchange(comm, new double[][]{threadPositionsX, threadPositionsY, threadCharges, threadVelocitiesX, threadVelocitiesY}, myCount,
+                    new double[][]{allPositionsX, allPositionsY, allCharges, allVelocitiesX, allVelocitiesY}, sliceCounts, sliceStarts);
+        }
+        else {
+            exchange.exchange(comm, new double[][]{threadPositionsX, threadPositionsY, threadVelocitiesX, threadVelocitiesY}, myCount,
+                    new double[][]{allPositionsX, allPositionsY, allVelocitiesX, allVelocitiesY}, sliceCounts, sliceStarts);
+        }
+        phaseStart = profiler.lap(SimulationPhase.COLLECTIVE, phaseStart);
+
+        unpackAllParticleData(allPositionsX, allPositionsY, allCharges, allVelocitiesX, allVelocitiesY);
+        profiler.lap(SimulationPhase.UNPACK, phaseStart);
+    }
+
+    void packLocalParticleData(int start, int end, double[] threadPositionsX, double[] threadPositionsY, double[] threadCharges, double[] threadVelocitiesX, double[] threadVelocitiesY) {
         for (int i = start; i < end; i++) {
             Particle tempParticle = particles.get(i);
             int localIndex = i - start;
@@ -124,64 +208,113 @@ public class ParticleSimulationDistributed {
             threadVelocitiesX[localIndex] = tempParticle.velocityX;
             threadVelocitiesY[localIndex] = tempParticle.velocityY;
         }
+    }
 
-        int[] receiveCounts = new int[size];
-        int[] receiveDisplacements = new int[size];
-
-        for (int i = 0; i < size; i++) {
-            int threadStart = i * (config.numOfParticles / size);
-            int threadEnd;
-
-            if(i == size - 1) {
-                threadEnd = config.numOfParticles;
-            }
-            else{
-                threadEnd = (i + 1) * (config.numOfParticles / size);
-            }
-            int count = threadEnd - threadStart;
-
-            receiveCounts[i] = count;
-            receiveDisplacements[i] = threadStart;
-        }
-
-        MPI.COMM_WORLD.Allgatherv(threadPositionsX, 0, myCount, MPI.DOUBLE, allPositionsX, 0, receiveCounts, receiveDisplacements, MPI.DOUBLE);
-        MPI.COMM_WORLD.Allgatherv(threadPositionsY, 0, myCount, MPI.DOUBLE, allPositionsY, 0, receiveCounts, receiveDisplacements, MPI.DOUBLE);
-        if(firstCollect){
-            MPI.COMM_WORLD.Allgatherv(threadCharges, 0, myCount, MPI.DOUBLE, allCharges, 0, receiveCounts, receiveDisplacements, MPI.DOUBLE);
-        }
-        MPI.COMM_WORLD.Allgatherv(threadVelocitiesX, 0, myCount, MPI.DOUBLE, allVelocitiesX, 0, receiveCounts, receiveDisplacements, MPI.DOUBLE);
-        MPI.COMM_WORLD.Allgatherv(threadVelocitiesY, 0, myCount, MPI.DOUBLE, allVelocitiesY, 0, receiveCounts, receiveDisplacements, MPI.DOUBLE);
-
-        for (int i = 0; i < config.numOfParticles; i++) {
+    void unpackAllParticleData(double[] allPositionsX, double[] allPositionsY, double[] allCharges, double[] allVelocitiesX, double[] allVelocitiesY) {
+        for (int i = 0; i < particles.size(); i++) {
             Particle tempParticle = particles.get(i);
             tempParticle.x = allPositionsX[i];
             tempParticle.y = allPositionsY[i];
             if(firstCollect){
                 tempParticle.charge = allCharges[i];
-                firstCollect = false;
             }
             tempParticle.velocityX = allVelocitiesX[i];
             tempParticle.velocityY = allVelocitiesY[i];
         }
+        firstCollect = false;
+    }
+
+    /// Sorts the particles along a Morton curve, the gathered arrays read by the force loop follow the new order
+    private void reorderParticles(double[] allPositionsX, double[] allPositionsY, double[] allCharges) {
+        long phaseStart = profiler.start();
+        morton.reorder(particles, null, 1);
+        refillAllParticleData(allPositionsX, allPositionsY, allCharges);
+        profiler.lap(SimulationPhase.REORDER, phaseStart);
     }
 
-    private void computeForcesDistributed(int start, int end, double[] allPositionsX, double[] allPositionsY, double[] allCharges) {
+    /// Copies the particles back into the gathered arrays read by the force loop after they moved in memory
+    private void refillAllParticleData(double[] allPositionsX, double[] allPositionsY, double[] allCharges) {
+        for (int i = 0; i < particles.size(); i++) {
+            Particle particle = particles.get(i);
+            allPositionsX[i] = particle.x;
+            allPositionsY[i] = particle.y;
+            allCharges[i] = particle.charge;
+        }
+    }
+
+    private void splitEvenly(int count) {
+        int size = sliceCounts.length;
+        int particlesPerProcess = count / size;
+        for (int i = 0; i < size; i++) {
+            sliceStarts[i] = i * particlesPerProcess;
+            sliceCounts[i] = i == size - 1 ? count - sliceStarts[i] : particlesPerProcess;
+        }
+    }
+
+    /// Follows a population change: every rank keeps the survivors of its slice and the last rank takes the new particles,
+    /// which were appended at the end. Only once the slices drift too far apart are they split evenly again.
+    /// Every rank holds every particle after the gather, so moving slice boundaries costs no communication.
+    private void rebalance(int[] order, int count, int rank) {
+        int size = sliceCounts.length;
+        int[] oldEnds = new int[size];
+        for (int r = 0; r < size; r++) {
+            oldEnds[r] = sliceStarts[r] + sliceCounts[r];
+        }
+
+        /// The compaction is stable, so the old indices of the survivors are still ascending
+        Arrays.fill(sliceCounts, 0);
+        int owner = 0;
+        for (int i = 0; i < count; i++) {
+            if (order[i] < 0) {
+                sliceCounts[size - 1]++;
+                continue;
+            }
+            while (order[i] >= oldEnds[owner]) {
+                owner++;
+            }
+            sliceCounts[owner]++;
+        }
+
+        int smallest = Integer.MAX_VALUE;
+        int largest = 0;
+        for (int r = 0; r < size; r++) {
+            sliceStarts[r] = r == 0 ? 0 : sliceStarts[r - 1] + sliceCounts[r - 1];
+            smallest = Math.min(smallest, sliceCounts[r]);
+            largest = Math.max(largest, sliceCounts[r]);
+        }
+        if (largest - smallest > Math.max(1, REBALANCE_TOLERANCE * count / size)) {
+            splitEvenly(count);
+        }
+
+        ownedStart = sliceStarts[rank];
+        ownedEnd = ownedStart + sliceCounts[rank];
+    }
+
+    void computeForcesDistributed(int start, int end, double[] allPositionsX, double[] allPositionsY, double[] allCharges) {
+        long phaseStart = profiler.start();
         for (int i = start; i < end; i++) {
             particles.get(i).forceX = 0;
             particles.get(i).forceY = 0;
         }
+        phaseStart = profiler.lap(SimulationPhase.ZERO, phaseStart);
 
+        int n = particles.size();
         for (int i = start; i < end; i++) {
-            for (int j = 0; j < config.numOfParticles; j++) {
+            for (int j = 0; j < n; j++) {
                 if (i != j) {
                     applyForceDistributed(i, j, allPositionsX, allPositionsY, allCharges);
                 }
             }
+        }
+        phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
+
+        for (int i = start; i < end; i++) {
             applyBoundaryForces(particles.get(i));
         }
+        profiler.lap(SimulationPhase.BOUNDARY, phaseStart);
     }
 
-    private void applyForceDistributed(int i, int j, double[] allPositionsX, double[] allPositionsY, double[] allCharges) {
+    void applyForceDistributed(int i, int j, double[] allPositionsX, double[] allPositionsY, double[] allCharges) {
         Particle particle1 = particles.get(i);
 
         double particle2X = allPositionsX[j];
@@ -190,116 +323,21 @@ public class ParticleSimulationDistributed {
 
         double distanceX = particle2X - particle1.x;
         double distanceY = particle2Y - particle1.y;
-        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
-        double distance = Math.sqrt(distanceSquared);
-
-        if (distance < MINIMUM_DISTANCE) {
-            distance = MINIMUM_DISTANCE;
-            distanceSquared = distance * distance;
-        }
-
-        double particleAttraction = (particle1.charge * particle2Charge) / distanceSquared;
-
-        double fx = particleAttraction * (distanceX / distance);
-        double fy = particleAttraction * (distanceY / distance);
+        double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2Charge, MINIMUM_DISTANCE);
+        double fx = strength * distanceX;
+        double fy = strength * distanceY;
 
         particle1.forceX += fx;
         particle1.forceY += fy;
     }
 
-    private void applyBoundaryForces(Particle particle) {
-        double boundaryForce = config.boundaryCharge;
-        double wallMargin = 15.0;
-
-        /// Left wall
-        if (particle.x < wallMargin) {
-            double distance;
-            if (particle.x < 1) {
-                distance = 1;
-            }
-            else {
-                distance = particle.x;
-            }
-            particle.forceX += boundaryForce / (distance * distance);
-        }
-
-        /// Right wall
-        if (particle.x > config.width - wallMargin) {
-            double distance;
-            if (config.width - particle.x < 1) {
-                distance = 1;
-            }
-            else {
-                distance = config.width - particle.x;
-            }
-            particle.forceX -= boundaryForce / (distance * distance);
-
-        }
-
-        /// Ceiling
-        if (particle.y < wallMargin) {
-            double distance;
-            if (particle.y < 1) {
-                distance = 1;
-            }
-            else {
-                distance = particle.y;
-            }
-            particle.forceY += boundaryForce / (distance * distance);
-        }
-
-        /// Floor
-        if (particle.y > config.height - wallMargin) {
-            double distance;
-            if (config.height - particle.y < 1) {
-                distance = 1;
-            }
-            else {
-                distance = config.height - particle.y;
-            }
-            particle.forceY -= boundaryForce / (distance * distance);
-        }
+    void applyBoundaryForces(Particle particle) {
+        BoundaryForces.apply(config, particle);
     }
 
-    private void updatePositions(int start, int end) {
+    void updatePositions(int start, int end) {
         for (int i = start; i < end; i++) {
-            Particle currentParticle = particles.get(i);
-            currentParticle.velocityX += currentParticle.forceX * SLOW_DOWN;
-            currentParticle.velocityY += currentParticle.forceY * SLOW_DOWN;
-
-            if (config.clumping) {
-                currentParticle.velocityX = currentParticle.velocityX * DAMPING;
-                currentParticle.velocityY = currentParticle.velocityY * DAMPING;
-            }
-
-            double particleSpeed = Math.sqrt(currentParticle.velocityX * currentParticle.velocityX + currentParticle.velocityY * currentParticle.velocityY);
-
-            if (particleSpeed > MAXIMUM_SPEED) {
-                double maxVelocityMultiplier = MAXIMUM_SPEED / particleSpeed;
-                currentParticle.velocityX *= maxVelocityMultiplier;
-                currentParticle.velocityY *= maxVelocityMultiplier;
-            }
-
-            currentParticle.x += currentParticle.velocityX * SLOW_DOWN;
-            currentParticle.y += currentParticle.velocityY * SLOW_DOWN;
-
-            if (currentParticle.x <= 0) {
-                currentParticle.x = 0;
-                currentParticle.velocityX = Math.abs(currentParticle.velocityX) * 0.2;
-            }
-            else if (currentParticle.x >= config.width) {
-                currentParticle.x = config.width;
-                currentParticle.velocityX = -1 * Math.abs(currentParticle.velocityX) * 0.2;
-            }
-
-            if (currentParticle.y <= 0) {
-                currentParticle.y = 0;
-                currentParticle.velocityY = Math.abs(currentParticle.velocityY) * 0.2;
-            }
-            else if (currentParticle.y >= config.height) {
-                currentParticle.y = config.height;
-                currentParticle.velocityY = -1 * Math.abs(currentParticle.velocityY) * 0.2;
-            }
+            integrator.advance(particles.get(i), true, Integrator.SLOW_DOWN, DAMPING);
         }
     }
 }
\ No newline at end of file
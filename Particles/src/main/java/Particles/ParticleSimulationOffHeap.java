@@ -0,0 +1,171 @@
+package Particles;
+
+import Utils.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Shared memory simulation on a ParticleStore instead of Particle objects, for runs too large for the heap.
+/// Pair forces come from a StoreKernel (rows unless --kernel says otherwise), wall forces and the integrator
+/// work on a per thread scratch Particle that every particle is loaded into and stored back from.
+/// With config.storeFile the particles are checkpointed to that file every config.checkpointCycles cycles and at the end,
+/// an existing file is resumed from its last checkpoint.
+/// Frames, sleeping, clustering, block timesteps, reordering and sources or sinks are not available here.
+public class ParticleSimulationOffHeap {
+    final ParticleStore store;
+    private final SimulationConfig config;
+    private final double DAMPING;
+    private final double MINIMUM_DISTANCE;
+    private final PhaseProfiler profiler;
+    private final SimulationMetrics metrics;
+    private final Integrator integrator;
+    private StoreKernel kernel;
+    /// Set by switchKernel from any thread, picked up at the start of the next cycle
+    private volatile StoreKernel requestedKernel;
+    private volatile boolean kernelRequested = false;
+    private final long firstCycle;
+
+    private int cyclesPerSecond = 0;
+    private int numberOfCompleteCycles = 0;
+    private long startTime;
+
+    public ParticleSimulationOffHeap(SimulationConfig config) throws IOException {
+        this.config = config;
+        this.DAMPING = config.damping;
+        this.MINIMUM_DISTANCE = config.minimumDistance;
+
+        if (config.storeFile != null) {
+            this.store = ParticleStore.open(Path.of(config.storeFile), config.numOfParticles);
+        }
+        else {
+            this.store = ParticleStore.allocate(config.numOfParticles);
+        }
+        if (store.isResumed()) {
+            this.firstCycle = store.completedCycles();
+            Logger.info("Resuming {} particles after cycle {} from {}", store.size(), firstCycle, config.storeFile);
+        }
+        else {
+            this.firstCycle = 0;
+            ParticleGenerator.generate(config, store);
+        }
+
+        this.profiler = new PhaseProfiler(config.profile || config.metrics, "offheap");
+        this.metrics = new SimulationMetrics("offheap", store.size(), profiler);
+        this.integrator = Plugins.load(Integrator.class, config.integrator);
+        integrator.configure(config);
+        this.kernel = loadKernel(config.kernel);
+
+        if (config.enableGUI || config.streamAddress != null || config.sleeping || config.clustering || config.timestepLevels > 0
+                || config.reorderCycles > 0 || ParticlePopulation.isDynamic(config)) {
+            Logger.warn("The offheap engine ignores frames, sleeping, clustering, timestep levels, reordering and sources or sinks");
+        }
+    }
+
+    /// The store has no pair loop of its own, builtin means the rows kernel.
+    /// Kernels without a store loop are rejected here, at startup or by the JMX switch, instead of in the first cycle.
+    private StoreKernel loadKernel(String name) {
+        ForceKernel kernel = ForceKernel.load(name == null || name.equalsIgnoreCase(ForceKernel.BUILTIN) ? "rows" : name, config);
+        if (!(kernel instanceof StoreKernel storeKernel)) {
+            throw new IllegalArgumentException("Force kernel " + kernel.name() + " does not support particle stores");
+        }
+        return storeKernel;
+    }
+
+    public void runOffHeap() throws IOException {
+        int numberOfThreads = config.threads > 0 ? config.threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        if (config.metrics) {
+            metrics.setKernelControl(this::kernelName, this::switchKernel);
+            metrics.register(0);
+        }
+
+        long cycle = firstCycle;
+        for (; cycle < config.cycles; cycle++) {
+            profiler.beginCycle();
+
+            if (kernelRequested) {
+                kernelRequested = false;
+                kernel = requestedKernel;
+                Logger.info("Force kernel switched to {}", kernelName());
+            }
+
+            long phaseStart = profiler.start();
+            forEachSlice(executor, numberOfThreads, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    store.zeroForce(i);
+                }
+            });
+            phaseStart = profiler.lap(SimulationPhase.ZERO, phaseStart);
+
+            metrics.addPairInteractions(kernel.apply(store, MINIMUM_DISTANCE, executor, numberOfThreads));
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
+
+            forEachSlice(executor, numberOfThreads, (start, end) -> {
+                Particle particle = new Particle(0, 0, 0, 0, 0, 0);
+                for (int i = start; i < end; i++) {
+                    store.load(i, particle);
+                    BoundaryForces.apply(config, particle);
+                    integrator.advance(particle, true, Integrator.SLOW_DOWN, DAMPING);
+                    store.store(i, particle);
+                }
+            });
+            profiler.lap(SimulationPhase.INTEGRATE, phaseStart);
+
+            profiler.endCycle(cycle);
+            metrics.cycleCompleted();
+
+            if (config.checkpointCycles > 0 && (cycle + 1) % config.checkpointCycles == 0) {
+                store.checkpoint(cycle + 1);
+            }
+
+            cyclesPerSecond++;
+            if (System.currentTimeMillis() - startTime > 1000) {
+                numberOfCompleteCycles += cyclesPerSecond;
+                startTime = System.currentTimeMillis();
+                if (config.logProgress) {
+                    Logger.info("Number of cycles completed: {}/{}", firstCycle + numberOfCompleteCycles, config.cycles);
+                }
+                cyclesPerSecond = 0;
+            }
+        }
+
+        executor.shutdown();
+        store.checkpoint(cycle);
+        metrics.unregister();
+        if (config.profile) {
+            profiler.logSummary();
+        }
+    }
+
+    private interface SliceTask {
+        void run(int start, int end);
+    }
+
+    /// Runs task on numberOfThreads contiguous slices of the particles and waits for all of them
+    private void forEachSlice(ExecutorService executor, int numberOfThreads, SliceTask task) {
+        int n = store.size();
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int start = t * particlesPerThread;
+            int end = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> task.run(start, end)));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Particle update");
+    }
+
+    /// Replaces the force kernel at the start of the next cycle
+    public void switchKernel(String name) {
+        requestedKernel = loadKernel(name);
+        kernelRequested = true;
+    }
+
+    public String kernelName() {
+        return kernel.name();
+    }
+}
@@ -4,177 +4,343 @@ import Utils.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ParticleSimulationParallel {
-    private final List<Particle> particles;
+    final List<Particle> particles;
     private final SimulationConfig config;
-    private final Random random;
     private final double DAMPING;
     private final double MINIMUM_DISTANCE;
-    private final double MAXIMUM_SPEED;
-
-    private static final double SLOW_DOWN = 0.1;
+    private final PhaseProfiler profiler;
+    private final SimulationMetrics metrics;
+    private final ActivityTracker activity;
+    private final ClusterAggregator clusters;
+    private final BlockTimestep timestep;
+    private final MortonOrder morton;
+    private final ParticlePopulation population;
+    private final Integrator integrator;
+    private ForceKernel kernel;
+    /// Set by switchKernel from any thread, picked up at the start of the next cycle
+    private volatile ForceKernel requestedKernel;
+    private volatile boolean kernelRequested = false;
 
 
     private int cyclesPerSecond = 0;
     private int numberOfCompleteCycles = 0;
     private long startTime;
-    private int chargeModifier = 1;
 
     public ParticleSimulationParallel(SimulationConfig config) {
         this.config = config;
         this.DAMPING = config.damping;
         this.MINIMUM_DISTANCE = config.minimumDistance;
-        this.MAXIMUM_SPEED = config.maximumSpeed;
-        this.random = new Random(config.particleSeed);
-        this.particles = new ArrayList<>();
-        initializeParticles();
-    }
-
-    private void initializeParticles() {
-        for (int i = 0; i < config.numOfParticles; i++) {
-            double x = random.nextDouble() * config.width;
-            double y = random.nextDouble() * config.height;
-
-            double startingVelocityX = (random.nextDouble() - 0.5);
-            double startingVelocityY = (random.nextDouble() - 0.5);
-
-            double chargeStrength = 0.5 + random.nextDouble() * 1.5;
-            double charge = chargeStrength * chargeModifier;
-            chargeModifier = chargeModifier * -1;
-
-            Particle tempParticle = new Particle(x, y, startingVelocityX, startingVelocityY, charge);
-            particles.add(tempParticle);
+        this.profiler = new PhaseProfiler(config.profile || config.metrics, "parallel");
+        this.metrics = new SimulationMetrics("parallel", config.numOfParticles, profiler);
+        this.particles = ParticleGenerator.generate(config, 0, config.numOfParticles, true);
+        this.clusters = config.clustering ? new ClusterAggregator(config, particles) : null;
+        this.activity = config.sleeping && !config.clustering ? new ActivityTracker(config, particles) : null;
+        this.timestep = config.timestepLevels > 0 && !config.clustering && !config.sleeping ? new BlockTimestep(config, particles, Integrator.SLOW_DOWN) : null;
+        this.morton = config.reorderCycles > 0 ? new MortonOrder(config) : null;
+        this.population = ParticlePopulation.isDynamic(config) ? new ParticlePopulation(config, particles) : null;
+        this.integrator = Plugins.load(Integrator.class, config.integrator);
+        integrator.configure(config);
+        this.kernel = ForceKernel.load(config.kernel, config);
+
+        if (config.clustering && (config.sleeping || config.timestepLevels > 0)) {
+            Logger.warn("Clustering takes precedence, --sleeping and --timestepLevels are ignored");
+        }
+        else if (config.sleeping && config.timestepLevels > 0) {
+            Logger.warn("Sleeping takes precedence, --timestepLevels is ignored");
         }
     }
 
     public void runParallel() {
-        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        int numberOfThreads = config.threads > 0 ? config.threads : Runtime.getRuntime().availableProcessors();
         ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        runParallel(executor, numberOfThreads);
+        executor.shutdown();
+    }
 
-        GUI gui = null;
-        if (config.enableGUI) {
-            gui = new GUI(config, particles);
-            gui.start();
+    /// Runs on a pool owned by the caller, the work of every phase is split into numberOfThreads tasks
+    public void runParallel(ExecutorService executor, int numberOfThreads) {
+        FrameOutputs outputs = FrameOutputs.open(config);
+        if (config.metrics) {
+            metrics.setKernelControl(this::kernelName, this::switchKernel);
+            metrics.register(0);
         }
 
         for (int cycle = 0; cycle < config.cycles; cycle++) {
+            profiler.beginCycle();
+
+            if (kernelRequested) {
+                kernelRequested = false;
+                kernel = requestedKernel;
+                Logger.info("Force kernel switched to {}", kernelName());
+            }
+            if (population != null) {
+                updatePopulation();
+            }
+            if (morton != null && cycle % config.reorderCycles == 0) {
+                reorderParticles(executor, numberOfThreads);
+            }
+            if (clusters != null) {
+                clusters.refresh(cycle);
+            }
+            if (timestep != null) {
+                timestep.beginCycle(cycle);
+            }
             calculateForcesParallel(executor, numberOfThreads);
 
+            long phaseStart = profiler.start();
+            if (activity != null) {
+                activity.wakeDisturbed();
+            }
+            if (timestep != null) {
+                timestep.assignLevels();
+                profiler.setActiveParticles(timestep.activeCount());
+            }
             updatePositions();
+            if (activity != null) {
+                activity.settle();
+                profiler.setActiveParticles(activity.activeCount());
+            }
+            profiler.lap(SimulationPhase.INTEGRATE, phaseStart);
+
+            profiler.endCycle(cycle);
+            metrics.cycleCompleted();
+
+            outputs.publish(particles, particles.size(), cycle);
 
             cyclesPerSecond++;
             if (System.currentTimeMillis() - startTime > 1000) {
                 numberOfCompleteCycles += cyclesPerSecond;
                 startTime = System.currentTimeMillis();
-                Logger.info("Number of cycles completed: " + numberOfCompleteCycles + "/" + config.cycles);
-                if (gui != null) {
-                    gui.update(cyclesPerSecond);
+                if (config.logProgress) {
+                    Logger.info("Number of cycles completed: {}/{}", numberOfCompleteCycles, config.cycles);
+                    if (activity != null) {
+                        Logger.info("Active particles: {}/{}", activity.activeCount(), particles.size());
+                    }
+                    if (population != null) {
+                        Logger.info("Particles: {} ({} spawned)", particles.size(), population.spawned());
+                        Logger.info("Particles removed: {} absorbed, {} merged", population.absorbed(), population.merged());
+                    }
+                    if (clusters != null) {
+                        Logger.info("Clusters: {} holding {} particles", clusters.clusterCount(), clusters.clusteredParticles());
+                    }
+                    if (timestep != null) {
+                        int[] particlesOnLevel = timestep.particlesOnLevel();
+                        for (int level = 0; level < particlesOnLevel.length; level++) {
+                            Logger.info("Timestep level {}: {} particles", level, particlesOnLevel[level]);
+                        }
+                    }
                 }
+                outputs.update(cyclesPerSecond);
                 cyclesPerSecond = 0;
             }
         }
 
-        executor.shutdown();
-        if (gui != null) {
-            gui.stop();
+        outputs.close();
+        metrics.unregister();
+        if (config.profile) {
+            profiler.logSummary();
         }
     }
 
 
-    private void calculateForcesParallel(ExecutorService executor, int numberOfThreads) {
-        for (int i = 0; i < config.numOfParticles; i++) {
+    void calculateForcesParallel(ExecutorService executor, int numberOfThreads) {
+        long phaseStart = profiler.start();
+        int n = particles.size();
+        for (int i = 0; i < n; i++) {
             particles.get(i).forceX = 0;
             particles.get(i).forceY = 0;
         }
         int[] start = new int[numberOfThreads];
         int[] end = new int[numberOfThreads];
-        int particlesPerThread = config.numOfParticles / numberOfThreads;
-        double[][] threadForcesX = new double[numberOfThreads][config.numOfParticles];
-        double[][] threadForcesY = new double[numberOfThreads][config.numOfParticles];
+        partitionRows(numberOfThreads, start, end);
 
-        for(int i = 0; i < numberOfThreads; i++){
-            start[i] = i * particlesPerThread;
-            if(i == numberOfThreads - 1) {
-                end[i] = config.numOfParticles;
-            }
-            else{
-                end[i] = (i + 1) * particlesPerThread;
+        phaseStart = profiler.lap(SimulationPhase.ZERO, phaseStart);
+
+        if (clusters != null) {
+            clusters.computeForces(executor, numberOfThreads);
+            metrics.addPairInteractions(clusters.interactionsLastCycle());
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
+        }
+        else if (activity != null) {
+            activity.computePairForces(executor, numberOfThreads);
+            metrics.addPairInteractions(activity.pairsLastCycle());
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
+        }
+        else if (timestep != null) {
+            timestep.computeForces(executor, numberOfThreads);
+            metrics.addPairInteractions(timestep.pairsLastCycle());
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
+        }
+        else if (kernel != null) {
+            metrics.addPairInteractions(kernel.apply(particles, MINIMUM_DISTANCE, executor, numberOfThreads));
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
+        }
+        else if (config.reduction == ForceReduction.ROWS) {
+            List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+
+            for (int i = 0; i < numberOfThreads; i++) {
+                int tempThreadId = i;
+                tasks.add(Executors.callable(() -> {
+                    for (int j = start[tempThreadId]; j < end[tempThreadId]; j++) {
+                        applyRowForces(j);
+                    }
+                    metrics.addPairInteractions((long) (end[tempThreadId] - start[tempThreadId]) * (n - 1));
+                }));
             }
+
+            invokeAll(executor, tasks, "Force computation");
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
         }
+        else {
+            double[][] threadForcesX = new double[numberOfThreads][n];
+            double[][] threadForcesY = new double[numberOfThreads][n];
+
+            List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+
+            for (int i = 0; i < numberOfThreads; i++) {
+                int tempThreadId = i;
+                tasks.add(Executors.callable(() -> {
+                    long pairs = 0;
+                    int tileSize = config.tileSize > 0 ? config.tileSize : n;
+                    /// Tiles keep a block of the inner particles in cache while all rows of the thread pass over it
+                    for (int tileStart = start[tempThreadId] + 1; tileStart < n; tileStart += tileSize) {
+                        int tileEnd = Math.min(tileStart + tileSize, n);
+                        for (int j = start[tempThreadId]; j < end[tempThreadId] && j < tileEnd - 1; j++) {
+                            for (int k = Math.max(j + 1, tileStart); k < tileEnd; k++) {
+                                applyForceParallel(j, k, threadForcesX[tempThreadId], threadForcesY[tempThreadId]);
+                            }
+                            pairs += tileEnd - Math.max(j + 1, tileStart);
+                        }
+                    }
+                    metrics.addPairInteractions(pairs);
+                }));
+            }
+
+            invokeAll(executor, tasks, "Force computation");
+            phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
 
-        CountDownLatch latch = new CountDownLatch(numberOfThreads);
+            List<Callable<Object>> mergeTasks = new ArrayList<>(numberOfThreads);
 
-        for (int i = 0; i < numberOfThreads; i++) {
-            int tempThreadId = i;
-            executor.submit(() -> {
-                for (int j = start[tempThreadId]; j < end[tempThreadId]; j++) {
-                    for (int k = j + 1; k < config.numOfParticles; k++) {
-                        applyForceParallel(j, k, threadForcesX[tempThreadId], threadForcesY[tempThreadId]);
+            /// The merge is split evenly, every particle costs the same here
+            int particlesPerThread = n / numberOfThreads;
+            for (int i = 0; i < numberOfThreads; i++) {
+                int mergeStart = i * particlesPerThread;
+                int mergeEnd = i == numberOfThreads - 1 ? n : (i + 1) * particlesPerThread;
+
+                mergeTasks.add(Executors.callable(() -> {
+                    for (int j = mergeStart; j < mergeEnd; j++) {
+                        for (int threadId = 0; threadId < numberOfThreads; threadId++) {
+                            Particle tempParticle = particles.get(j);
+                            tempParticle.forceX += threadForcesX[threadId][j];
+                            tempParticle.forceY += threadForcesY[threadId][j];
+                        }
                     }
-                }
-                latch.countDown();
+                }));
+            }
 
-            });
+            invokeAll(executor, mergeTasks, "Particle force merge");
+            phaseStart = profiler.lap(SimulationPhase.MERGE, phaseStart);
         }
 
+        for (int i = 0; i < n; i++) {
+            applyBoundaryForces(particles.get(i));
+        }
+        profiler.lap(SimulationPhase.BOUNDARY, phaseStart);
+    }
+
+    /// Runs the tasks and waits for all of them.
+    /// invokeAll instead of a latch lets a ForkJoinPool worker that waits here help with the tasks,
+    /// so several simulations can share one pool without blocking all of its threads.
+    static void invokeAll(ExecutorService executor, List<Callable<Object>> tasks, String phase) {
         try {
-            latch.await();
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
         }
         catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            Logger.error("Force computation interrupted: " + e.getMessage());
+            Logger.error(phase + " interrupted: " + e.getMessage());
         }
+        catch (ExecutionException e) {
+            Logger.error(phase + " failed: " + e.getCause());
+        }
+    }
 
-        CountDownLatch mergeLatch = new CountDownLatch(numberOfThreads);
-
-        for (int i = 0; i < numberOfThreads; i++) {
-            int tempThreadId = i;
-
-            executor.submit(() -> {
-                for (int j = start[tempThreadId]; j < end[tempThreadId]; j++) {
-                    for (int threadId = 0; threadId < numberOfThreads; threadId++) {
-                        Particle tempParticle = particles.get(j);
-                        tempParticle.forceX += threadForcesX[threadId][j];
-                        tempParticle.forceY += threadForcesY[threadId][j];
-                    }
+    /// Splits the rows of the pair loop between the threads according to config.partition
+    void partitionRows(int numberOfThreads, int[] start, int[] end) {
+        int n = particles.size();
+        if (config.partition == ForcePartition.BALANCED && config.reduction == ForceReduction.MERGE) {
+            /// Rows before r hold r * n - r * (r + 1) / 2 pairs, every thread gets an equal share of the total
+            double totalPairs = (double) n * (n - 1) / 2;
+            int row = 0;
+            for (int i = 0; i < numberOfThreads; i++) {
+                start[i] = row;
+                if (i == numberOfThreads - 1) {
+                    row = n;
                 }
-                mergeLatch.countDown();
-            });
+                else {
+                    double target = totalPairs * (i + 1) / numberOfThreads;
+                    double remaining = n - 0.5;
+                    row = (int) Math.round(remaining - Math.sqrt(Math.max(0, remaining * remaining - 2 * target)));
+                    row = Math.max(start[i], Math.min(n, row));
+                }
+                end[i] = row;
+            }
+            return;
         }
 
-        try {
-            mergeLatch.await();
-        }
-        catch (Exception e) {
-            Thread.currentThread().interrupt();
-            Logger.error("Particle force merge interrupted: " + e.getMessage());
+        int particlesPerThread = n / numberOfThreads;
+        for(int i = 0; i < numberOfThreads; i++){
+            start[i] = i * particlesPerThread;
+            if(i == numberOfThreads - 1) {
+                end[i] = n;
+            }
+            else{
+                end[i] = (i + 1) * particlesPerThread;
+            }
         }
+    }
 
-
-        for (int i = 0; i < config.numOfParticles; i++) {
-            applyBoundaryForces(particles.get(i));
+    /// Sums the forces of every other particle on particle i, only particle i is written
+    void applyRowForces(int i) {
+        Particle particle1 = particles.get(i);
+        double sumX = 0;
+        double sumY = 0;
+        int n = particles.size();
+        int tileSize = config.tileSize > 0 ? config.tileSize : n;
+
+        for (int tileStart = 0; tileStart < n; tileStart += tileSize) {
+            int tileEnd = Math.min(tileStart + tileSize, n);
+            for (int k = tileStart; k < tileEnd; k++) {
+                if (k == i) {
+                    continue;
+                }
+                Particle particle2 = particles.get(k);
+                double distanceX = particle2.x - particle1.x;
+                double distanceY = particle2.y - particle1.y;
+                double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2.charge, MINIMUM_DISTANCE);
+                sumX += strength * distanceX;
+                sumY += strength * distanceY;
+            }
         }
+
+        particle1.forceX += sumX;
+        particle1.forceY += sumY;
     }
 
-    private void applyForceParallel(int i, int j, double[] forcesX, double[] forcesY) {
+    void applyForceParallel(int i, int j, double[] forcesX, double[] forcesY) {
         double distanceX = particles.get(j).x - particles.get(i).x;
         double distanceY = particles.get(j).y - particles.get(i).y;
-        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
-        double distance = Math.sqrt(distanceSquared);
-
-        if (distance < MINIMUM_DISTANCE) {
-            distance = MINIMUM_DISTANCE;
-            distanceSquared = distance * distance;
-        }
-
-        double particleAttraction = (particles.get(i).charge * particles.get(j).charge) / distanceSquared;
-        double forceX = particleAttraction * (distanceX / distance);
-        double forceY = particleAttraction * (distanceY / distance);
+        double strength = PairForce.strength(distanceX, distanceY, particles.get(i).charge * particles.get(j).charge, MINIMUM_DISTANCE);
+        double forceX = strength * distanceX;
+        double forceY = strength * distanceY;
 
         forcesX[i] += forceX;
         forcesY[i] += forceY;
@@ -182,98 +348,66 @@ public class ParticleSimulationParallel {
         forcesY[j] -= forceY;
     }
 
-    private void applyBoundaryForces(Particle particle) {
-        double boundaryForce = config.boundaryCharge;
-        double wallMargin = 15.0;
+    /// Replaces the force kernel at the start of the next cycle, ForceKernel.BUILTIN goes back to the engine's own pair loop
+    public void switchKernel(String name) {
+        requestedKernel = ForceKernel.load(name, config);
+        kernelRequested = true;
+    }
 
-        /// Left wall
-        if (particle.x < wallMargin) {
-            double distance;
-            if (particle.x < 1) {
-                distance = 1;
-            }
-            else {
-                distance = particle.x;
-            }
-            particle.forceX += boundaryForce / (distance * distance);
-        }
+    public String kernelName() {
+        ForceKernel current = kernel;
+        return current != null ? current.name() : ForceKernel.BUILTIN;
+    }
 
-        /// Right wall
-        if (particle.x > config.width - wallMargin) {
-            double distance;
-            if (config.width - particle.x < 1) {
-                distance = 1;
-            }
-            else {
-                distance = config.width - particle.x;
-            }
-            particle.forceX -= boundaryForce / (distance * distance);
+    /// Sorts the particles along a Morton curve, helpers that keep state by index follow the permutation
+    private void reorderParticles(ExecutorService executor, int numberOfThreads) {
+        long phaseStart = profiler.start();
+        int[] order = morton.reorder(particles, executor, numberOfThreads);
+        permuteHelpers(order);
+        profiler.lap(SimulationPhase.REORDER, phaseStart);
+    }
 
+    /// Applies the sources and sinks of this cycle, helpers follow the compaction like a reordering
+    private void updatePopulation() {
+        long phaseStart = profiler.start();
+        int[] order = population.update();
+        if (order != null) {
+            permuteHelpers(order);
+            metrics.setParticleCount(particles.size());
         }
+        profiler.lap(SimulationPhase.POPULATION, phaseStart);
+    }
 
-        /// Ceiling
-        if (particle.y < wallMargin) {
-            double distance;
-            if (particle.y < 1) {
-                distance = 1;
-            }
-            else {
-                distance = particle.y;
-            }
-            particle.forceY += boundaryForce / (distance * distance);
+    private void permuteHelpers(int[] order) {
+        int count = particles.size();
+        if (activity != null) {
+            activity.permute(order, count);
         }
-
-        /// Floor
-        if (particle.y > config.height - wallMargin) {
-            double distance;
-            if (config.height - particle.y < 1) {
-                distance = 1;
-            }
-            else {
-                distance = config.height - particle.y;
-            }
-            particle.forceY -= boundaryForce / (distance * distance);
+        if (clusters != null) {
+            clusters.permute(order, count);
+        }
+        if (timestep != null) {
+            timestep.permute(order, count);
         }
     }
 
-    private void updatePositions() {
-        for (int i = 0; i < config.numOfParticles; i++) {
-            Particle currentParticle = particles.get(i);
-            currentParticle.velocityX += currentParticle.forceX * SLOW_DOWN;
-            currentParticle.velocityY += currentParticle.forceY * SLOW_DOWN;
-
-            if (config.clumping) {
-                currentParticle.velocityX = currentParticle.velocityX * DAMPING;
-                currentParticle.velocityY = currentParticle.velocityY * DAMPING;
-            }
-
-            double particleSpeed = Math.sqrt(currentParticle.velocityX * currentParticle.velocityX + currentParticle.velocityY * currentParticle.velocityY);
-
-            if (particleSpeed > MAXIMUM_SPEED) {
-                double maxVelocityMultiplier = MAXIMUM_SPEED / particleSpeed;
-                currentParticle.velocityX *= maxVelocityMultiplier;
-                currentParticle.velocityY *= maxVelocityMultiplier;
-            }
-
-            currentParticle.x += currentParticle.velocityX * SLOW_DOWN;
-            currentParticle.y += currentParticle.velocityY * SLOW_DOWN;
+    void applyBoundaryForces(Particle particle) {
+        BoundaryForces.apply(config, particle);
+    }
 
-            if (currentParticle.x <= 0) {
-                currentParticle.x = 0;
-                currentParticle.velocityX = Math.abs(currentParticle.velocityX) * 0.2;
-            }
-            else if (currentParticle.x >= config.width) {
-                currentParticle.x = config.width;
-                currentParticle.velocityX = -1 * Math.abs(currentParticle.velocityX) * 0.2;
+    void updatePositions() {
+        for (int i = 0; i < particles.size(); i++) {
+            if (activity != null && activity.isAsleep(i)) {
+                continue;
             }
+            Particle particle = particles.get(i);
 
-            if (currentParticle.y <= 0) {
-                currentParticle.y = 0;
-                currentParticle.velocityY = Math.abs(currentParticle.velocityY) * 0.2;
+            /// Particles on a coarse timestep level keep their velocity until their next kick
+            if (timestep != null) {
+                integrator.advance(particle, timestep.isActive(i), timestep.kickStep(i), timestep.damping(i));
             }
-            else if (currentParticle.y >= config.height) {
-                currentParticle.y = config.height;
-                currentParticle.velocityY = -1 * Math.abs(currentParticle.velocityY) * 0.2;
+            else {
+                integrator.advance(particle, true, Integrator.SLOW_DOWN, DAMPING);
             }
         }
     }
@@ -2,214 +2,250 @@ package Particles;
 
 import Utils.Logger;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 public class ParticleSimulationSequential {
-    private final List<Particle> particles;
+    final List<Particle> particles;
     private final SimulationConfig config;
-    private final Random random;
     private final double DAMPING;
     private final double MINIMUM_DISTANCE;
-    private final double MAXIMUM_SPEED;
-
-    private static final double SLOW_DOWN = 0.1;
+    private final PhaseProfiler profiler;
+    private final SimulationMetrics metrics;
+    private final ActivityTracker activity;
+    private final ClusterAggregator clusters;
+    private final BlockTimestep timestep;
+    private final MortonOrder morton;
+    private final ParticlePopulation population;
+    private final Integrator integrator;
+    private ForceKernel kernel;
+    /// Set by switchKernel from any thread, picked up at the start of the next cycle
+    private volatile ForceKernel requestedKernel;
+    private volatile boolean kernelRequested = false;
 
 
     private int cyclesPerSecond = 0;
     private int numberOfCompleteCycles = 0;
     private long startTime;
-    private int chargeModifier = 1;
 
     public ParticleSimulationSequential(SimulationConfig config) {
         this.config = config;
         this.DAMPING = config.damping;
         this.MINIMUM_DISTANCE = config.minimumDistance;
-        this.MAXIMUM_SPEED = config.maximumSpeed;
-        this.random = new Random(config.particleSeed);
-        this.particles = new ArrayList<>();
-        initializeParticles();
-    }
-
-    private void initializeParticles() {
-        for (int i = 0; i < config.numOfParticles; i++) {
-            double x = random.nextDouble() * config.width;
-            double y = random.nextDouble() * config.height;
-
-            double startingVelocityX = (random.nextDouble() - 0.5);
-            double startingVelocityY = (random.nextDouble() - 0.5);
-
-            double chargeStrength = 0.5 + random.nextDouble() * 1.5;
-            double charge = chargeStrength * chargeModifier;
-            chargeModifier = chargeModifier * -1;
-
-            Particle tempParticle = new Particle(x, y, startingVelocityX, startingVelocityY, charge);
-            particles.add(tempParticle);
+        this.profiler = new PhaseProfiler(config.profile || config.metrics, "sequential");
+        this.metrics = new SimulationMetrics("sequential", config.numOfParticles, profiler);
+        this.particles = ParticleGenerator.generate(config, 0, config.numOfParticles, false);
+        this.clusters = config.clustering ? new ClusterAggregator(config, particles) : null;
+        this.activity = config.sleeping && !config.clustering ? new ActivityTracker(config, particles) : null;
+        this.timestep = config.timestepLevels > 0 && !config.clustering && !config.sleeping ? new BlockTimestep(config, particles, Integrator.SLOW_DOWN) : null;
+        this.morton = config.reorderCycles > 0 ? new MortonOrder(config) : null;
+        this.population = ParticlePopulation.isDynamic(config) ? new ParticlePopulation(config, particles) : null;
+        this.integrator = Plugins.load(Integrator.class, config.integrator);
+        integrator.configure(config);
+        this.kernel = ForceKernel.load(config.kernel, config);
+
+        if (config.clustering && (config.sleeping || config.timestepLevels > 0)) {
+            Logger.warn("Clustering takes precedence, --sleeping and --timestepLevels are ignored");
+        }
+        else if (config.sleeping && config.timestepLevels > 0) {
+            Logger.warn("Sleeping takes precedence, --timestepLevels is ignored");
         }
     }
 
     public void runSequential() {
-        GUI gui = null;
-        if (config.enableGUI) {
-            gui = new GUI(config, particles);
-            gui.start();
+        FrameOutputs outputs = FrameOutputs.open(config);
+        if (config.metrics) {
+            metrics.setKernelControl(this::kernelName, this::switchKernel);
+            metrics.register(0);
         }
-
         for (int i = 0; i < config.cycles; i++) {
+            profiler.beginCycle();
+
+            if (kernelRequested) {
+                kernelRequested = false;
+                kernel = requestedKernel;
+                Logger.info("Force kernel switched to {}", kernelName());
+            }
+            if (population != null) {
+                updatePopulation();
+            }
+            if (morton != null && i % config.reorderCycles == 0) {
+                reorderParticles(null, 1);
+            }
+            if (clusters != null) {
+                clusters.refresh(i);
+            }
+            if (timestep != null) {
+                timestep.beginCycle(i);
+            }
             calculateForces();
 
+            long phaseStart = profiler.start();
+            if (activity != null) {
+                activity.wakeDisturbed();
+            }
+            if (timestep != null) {
+                timestep.assignLevels();
+                profiler.setActiveParticles(timestep.activeCount());
+            }
             updatePositions();
+            if (activity != null) {
+                activity.settle();
+                profiler.setActiveParticles(activity.activeCount());
+            }
+            profiler.lap(SimulationPhase.INTEGRATE, phaseStart);
+
+            profiler.endCycle(i);
+            if (clusters != null) {
+                metrics.addPairInteractions(clusters.interactionsLastCycle());
+            }
+            else if (timestep != null) {
+                metrics.addPairInteractions(timestep.pairsLastCycle());
+            }
+            else {
+                long pairsPerCycle = (long) particles.size() * (particles.size() - 1) / 2;
+                metrics.addPairInteractions(activity != null ? activity.pairsLastCycle() : pairsPerCycle);
+            }
+            metrics.cycleCompleted();
+
+            outputs.publish(particles, particles.size(), i);
 
             cyclesPerSecond++;
             if (System.currentTimeMillis() - startTime > 1000 || i == config.cycles - 1) {
                 numberOfCompleteCycles = numberOfCompleteCycles + cyclesPerSecond;
                 startTime = System.currentTimeMillis();
-                Logger.info("Number of cycles completed: " + numberOfCompleteCycles + "/" + config.cycles);
-                if (gui != null) {
-                    gui.update(cyclesPerSecond);
+                if (config.logProgress) {
+                    Logger.info("Number of cycles completed: {}/{}", numberOfCompleteCycles, config.cycles);
+                    if (activity != null) {
+                        Logger.info("Active particles: {}/{}", activity.activeCount(), particles.size());
+                    }
+                    if (population != null) {
+                        Logger.info("Particles: {} ({} spawned)", particles.size(), population.spawned());
+                        Logger.info("Particles removed: {} absorbed, {} merged", population.absorbed(), population.merged());
+                    }
+                    if (clusters != null) {
+                        Logger.info("Clusters: {} holding {} particles", clusters.clusterCount(), clusters.clusteredParticles());
+                    }
+                    if (timestep != null) {
+                        int[] particlesOnLevel = timestep.particlesOnLevel();
+                        for (int level = 0; level < particlesOnLevel.length; level++) {
+                            Logger.info("Timestep level {}: {} particles", level, particlesOnLevel[level]);
+                        }
+                    }
                 }
+                outputs.update(cyclesPerSecond);
                 cyclesPerSecond = 0;
             }
 
         }
 
-        if (gui != null) {
-            gui.stop();
+        outputs.close();
+        metrics.unregister();
+        if (config.profile) {
+            profiler.logSummary();
         }
     }
 
-    private void calculateForces() {
-        for (int i = 0; i < config.numOfParticles; i++) {
+    void calculateForces() {
+        long phaseStart = profiler.start();
+        int n = particles.size();
+        for (int i = 0; i < n; i++) {
             particles.get(i).forceX = 0;
             particles.get(i).forceY = 0;
         }
+        phaseStart = profiler.lap(SimulationPhase.ZERO, phaseStart);
 
-        for (int i = 0; i < config.numOfParticles; i++) {
-            for (int j = i + 1; j < config.numOfParticles; j++) {
-                applyForce(particles.get(i), particles.get(j));
+        if (clusters != null) {
+            clusters.computeForces(null, 1);
+        }
+        else if (activity != null) {
+            activity.computePairForces(null, 1);
+        }
+        else if (timestep != null) {
+            timestep.computeForces(null, 1);
+        }
+        else if (kernel != null) {
+            kernel.apply(particles, MINIMUM_DISTANCE, null, 1);
+        }
+        else {
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    applyForce(particles.get(i), particles.get(j));
+                }
             }
         }
+        phaseStart = profiler.lap(SimulationPhase.PAIR_FORCES, phaseStart);
 
-        for (int i = 0; i < config.numOfParticles; i++) {
+        for (int i = 0; i < n; i++) {
             applyBoundaryForces(particles.get(i));
         }
+        profiler.lap(SimulationPhase.BOUNDARY, phaseStart);
     }
 
-    private void applyForce(Particle particle1, Particle particle2) {
-        double distanceX = particle2.x - particle1.x;
-        double distanceY = particle2.y - particle1.y;
-        double distanceSquared = distanceX * distanceX + distanceY * distanceY;
-        double distance = Math.sqrt(distanceSquared);
-
-        if (distance < MINIMUM_DISTANCE) {
-            distance = MINIMUM_DISTANCE;
-            distanceSquared = distance * distance;
-        }
-
-        double particleAttraction = (particle1.charge * particle2.charge) / distanceSquared;
+    void applyForce(Particle particle1, Particle particle2) {
+        PairForce.apply(particle1, particle2, MINIMUM_DISTANCE);
+    }
 
-        double forceX = particleAttraction * (distanceX / distance);
-        double forceY = particleAttraction * (distanceY / distance);
+    /// Replaces the force kernel at the start of the next cycle, ForceKernel.BUILTIN goes back to the engine's own pair loop
+    public void switchKernel(String name) {
+        requestedKernel = ForceKernel.load(name, config);
+        kernelRequested = true;
+    }
 
-        particle1.forceX += forceX;
-        particle1.forceY += forceY;
-        particle2.forceX -= forceX;
-        particle2.forceY -= forceY;
+    public String kernelName() {
+        ForceKernel current = kernel;
+        return current != null ? current.name() : ForceKernel.BUILTIN;
     }
 
-    private void applyBoundaryForces(Particle particle) {
-        double boundaryForce = config.boundaryCharge;
-        double wallMargin = 15.0;
+    /// Sorts the particles along a Morton curve, helpers that keep state by index follow the permutation
+    private void reorderParticles(ExecutorService executor, int numberOfThreads) {
+        long phaseStart = profiler.start();
+        int[] order = morton.reorder(particles, executor, numberOfThreads);
+        permuteHelpers(order);
+        profiler.lap(SimulationPhase.REORDER, phaseStart);
+    }
 
-        /// Left wall
-        if (particle.x < wallMargin) {
-            double distance;
-            if (particle.x < 1) {
-                distance = 1;
-            }
-            else {
-                distance = particle.x;
-            }
-            particle.forceX += boundaryForce / (distance * distance);
+    /// Applies the sources and sinks of this cycle, helpers follow the compaction like a reordering
+    private void updatePopulation() {
+        long phaseStart = profiler.start();
+        int[] order = population.update();
+        if (order != null) {
+            permuteHelpers(order);
+            metrics.setParticleCount(particles.size());
         }
+        profiler.lap(SimulationPhase.POPULATION, phaseStart);
+    }
 
-        /// Right wall
-        if (particle.x > config.width - wallMargin) {
-            double distance;
-            if (config.width - particle.x < 1) {
-                distance = 1;
-            }
-            else {
-                distance = config.width - particle.x;
-            }
-            particle.forceX -= boundaryForce / (distance * distance);
-
+    private void permuteHelpers(int[] order) {
+        int count = particles.size();
+        if (activity != null) {
+            activity.permute(order, count);
         }
-
-        /// Ceiling
-        if (particle.y < wallMargin) {
-            double distance;
-            if (particle.y < 1) {
-                distance = 1;
-            }
-            else {
-                distance = particle.y;
-            }
-            particle.forceY += boundaryForce / (distance * distance);
+        if (clusters != null) {
+            clusters.permute(order, count);
         }
-
-        /// Floor
-        if (particle.y > config.height - wallMargin) {
-            double distance;
-            if (config.height - particle.y < 1) {
-                distance = 1;
-            }
-            else {
-                distance = config.height - particle.y;
-            }
-            particle.forceY -= boundaryForce / (distance * distance);
+        if (timestep != null) {
+            timestep.permute(order, count);
         }
     }
 
-    private void updatePositions() {
-        for (int i = 0; i < config.numOfParticles; i++) {
-            Particle currentParticle = particles.get(i);
-            currentParticle.velocityX += currentParticle.forceX * SLOW_DOWN;
-            currentParticle.velocityY += currentParticle.forceY * SLOW_DOWN;
-
-            if (config.clumping) {
-                currentParticle.velocityX = currentParticle.velocityX * DAMPING;
-                currentParticle.velocityY = currentParticle.velocityY * DAMPING;
-            }
-
-            double particleSpeed = Math.sqrt(currentParticle.velocityX * currentParticle.velocityX + currentParticle.velocityY * currentParticle.velocityY);
-
-            if (particleSpeed > MAXIMUM_SPEED) {
-                double maxVelocityMultiplier = MAXIMUM_SPEED / particleSpeed;
-                currentParticle.velocityX *= maxVelocityMultiplier;
-                currentParticle.velocityY *= maxVelocityMultiplier;
-            }
-
-            currentParticle.x += currentParticle.velocityX * SLOW_DOWN;
-            currentParticle.y += currentParticle.velocityY * SLOW_DOWN;
+    void applyBoundaryForces(Particle particle) {
+        BoundaryForces.apply(config, particle);
+    }
 
-            if (currentParticle.x <= 0) {
-                currentParticle.x = 0;
-                currentParticle.velocityX = Math.abs(currentParticle.velocityX) * 0.2;
-            }
-            else if (currentParticle.x >= config.width) {
-                currentParticle.x = config.width;
-                currentParticle.velocityX = -1 * Math.abs(currentParticle.velocityX) * 0.2;
+    void updatePositions() {
+        for (int i = 0; i < particles.size(); i++) {
+            if (activity != null && activity.isAsleep(i)) {
+                continue;
             }
+            Particle particle = particles.get(i);
 
-            if (currentParticle.y <= 0) {
-                currentParticle.y = 0;
-                currentParticle.velocityY = Math.abs(currentParticle.velocityY) * 0.2;
+            /// Particles on a coarse timestep level keep their velocity until their next kick
+            if (timestep != null) {
+                integrator.advance(particle, timestep.isActive(i), timestep.kickStep(i), timestep.damping(i));
             }
-            else if (currentParticle.y >= config.height) {
-                currentParticle.y = config.height;
-                currentParticle.velocityY = -1 * Math.abs(currentParticle.velocityY) * 0.2;
+            else {
+                integrator.advance(particle, true, Integrator.SLOW_DOWN, DAMPING);
             }
         }
     }
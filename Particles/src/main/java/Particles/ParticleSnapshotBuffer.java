@@ -0,0 +1,118 @@
+package Particles;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Lock-free triple buffer used to hand particle frames from the compute thread to the renderer.
+/// The engine writes into its private back buffer and publishes it with a single atomic swap,
+/// the renderer swaps the latest published buffer into its private front buffer.
+/// Neither side ever waits for the other and a frame is never read while it is being written.
+public class ParticleSnapshotBuffer implements FrameSink {
+
+    public static final class Snapshot {
+        float[] x;
+        float[] y;
+        float[] charge;
+        int count;
+        long cycle;
+
+        private Snapshot(int capacity) {
+            this.x = new float[capacity];
+            this.y = new float[capacity];
+            this.charge = new float[capacity];
+        }
+    }
+
+    /// Lowest two bits hold the index of the shared middle buffer, FRESH marks it as not yet taken
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH = 0b100;
+
+    private final Snapshot[] snapshots = new Snapshot[3];
+    private final AtomicInteger middle = new AtomicInteger(2);
+
+    /// Only touched by the publishing (compute) thread
+    private int back = 0;
+
+    /// Only touched by the consuming (render) thread
+    private int front = 1;
+
+    /// Particles from a list are written at their id, only possible while the ids are exactly 0 .. count - 1
+    private final boolean byId;
+
+    public ParticleSnapshotBuffer(int capacity) {
+        this(capacity, false);
+    }
+
+    public ParticleSnapshotBuffer(int capacity, boolean byId) {
+        this.byId = byId;
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new Snapshot(capacity);
+        }
+    }
+
+    /// Cheap check for the compute thread, there is no point in copying a new frame
+    /// while the previous one has not been picked up by the renderer yet
+    @Override
+    public boolean isFrameWanted() {
+        return (middle.get() & FRESH) == 0;
+    }
+
+    @Override
+    public void publish(List<Particle> particles, int count, long cycle) {
+        Snapshot snapshot = backSnapshot(count);
+        /// Written by id so reordering the particles in memory does not shuffle the frame
+        for (int i = 0; i < count; i++) {
+            Particle particle = particles.get(i);
+            int slot = byId ? particle.id : i;
+            snapshot.x[slot] = (float) particle.x;
+            snapshot.y[slot] = (float) particle.y;
+            snapshot.charge[slot] = (float) particle.charge;
+        }
+        swapBack(snapshot, count, cycle);
+    }
+
+    @Override
+    public void publish(double[] positionsX, double[] positionsY, double[] charges, int count, long cycle) {
+        Snapshot snapshot = backSnapshot(count);
+        for (int i = 0; i < count; i++) {
+            snapshot.x[i] = (float) positionsX[i];
+            snapshot.y[i] = (float) positionsY[i];
+            snapshot.charge[i] = (float) charges[i];
+        }
+        swapBack(snapshot, count, cycle);
+    }
+
+    public void publish(float[] positionsX, float[] positionsY, float[] charges, int count, long cycle) {
+        Snapshot snapshot = backSnapshot(count);
+        System.arraycopy(positionsX, 0, snapshot.x, 0, count);
+        System.arraycopy(positionsY, 0, snapshot.y, 0, count);
+        System.arraycopy(charges, 0, snapshot.charge, 0, count);
+        swapBack(snapshot, count, cycle);
+    }
+
+    /// The back buffer belongs to the publishing thread alone, so it can grow in place when the particle count grows
+    private Snapshot backSnapshot(int count) {
+        Snapshot snapshot = snapshots[back];
+        if (snapshot.x.length < count) {
+            int capacity = ParticlePopulation.capacityFor(snapshot.x.length, count);
+            snapshot.x = new float[capacity];
+            snapshot.y = new float[capacity];
+            snapshot.charge = new float[capacity];
+        }
+        return snapshot;
+    }
+
+    private void swapBack(Snapshot snapshot, int count, long cycle) {
+        snapshot.count = count;
+        snapshot.cycle = cycle;
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /// Returns the most recently published frame, must only be called from the render thread
+    public Snapshot latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return snapshots[front];
+    }
+}
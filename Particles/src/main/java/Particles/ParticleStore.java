@@ -0,0 +1,220 @@
+package Particles;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/// Particle state kept outside the Java heap, so very large runs need only a small heap and the GC never scans or moves it.
+/// The particles are split into chunks of a power of two particles, every chunk is one direct buffer
+/// holding one block per field (x, y, velocities, forces, charge), which keeps every buffer far below the 2 GB limit.
+/// Fields are read and written through a byte buffer view VarHandle, in little endian order on every platform.
+/// A store opened on a file still runs in anonymous memory, checkpoint writes a header holding the particle count
+/// and the completed cycles plus all chunks to a temporary file and renames it over the store file.
+/// The store file therefore always holds a complete checkpoint, a crash in the middle of a cycle or a checkpoint
+/// leaves the previous one in place for the next run to continue from.
+public final class ParticleStore {
+    /// 'PSTO', the first int of a store file
+    static final int MAGIC = 0x5053544F;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4096;
+    private static final int MAX_CHUNK_SHIFT = 20;
+
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int VELOCITY_X = 2;
+    private static final int VELOCITY_Y = 3;
+    private static final int FORCE_X = 4;
+    private static final int FORCE_Y = 5;
+    private static final int CHARGE = 6;
+    private static final int FIELDS = 7;
+
+    private static final VarHandle DOUBLE = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int size;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final ByteBuffer[] chunks;
+    private final Path file;
+    private final boolean resumed;
+    private final long completedCycles;
+
+    private ParticleStore(int size, int chunkShift, Path file, boolean resumed, long completedCycles) {
+        this.size = size;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+        this.chunks = new ByteBuffer[chunkCount(size, chunkShift)];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = ByteBuffer.allocateDirect(chunkBytes(chunkShift));
+        }
+        this.file = file;
+        this.resumed = resumed;
+        this.completedCycles = completedCycles;
+    }
+
+    /// Zeroed particles in anonymous off-heap memory
+    public static ParticleStore allocate(int size) {
+        return new ParticleStore(size, chunkShift(size), null, false, 0);
+    }
+
+    /// Particles checkpointed to file. An existing store file is read back with its own particle count,
+    /// otherwise the store starts with size zeroed particles and the file is only written by the first checkpoint.
+    public static ParticleStore open(Path file, int size) throws IOException {
+        if (!Files.exists(file)) {
+            return new ParticleStore(size, chunkShift(size), file, false, 0);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a particle store");
+            }
+            int storedSize = header.getInt(8);
+            int chunkShift = header.getInt(12);
+            if (storedSize < 0 || chunkShift != chunkShift(storedSize)
+                    || channel.size() != HEADER_BYTES + (long) chunkCount(storedSize, chunkShift) * chunkBytes(chunkShift)) {
+                throw new IOException(file + " is not a complete particle store");
+            }
+
+            ParticleStore store = new ParticleStore(storedSize, chunkShift, file, true, header.getLong(16));
+            for (int c = 0; c < store.chunks.length; c++) {
+                readFully(channel, store.chunks[c].duplicate().clear(), HEADER_BYTES + (long) c * chunkBytes(chunkShift));
+            }
+            return store;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Particle store ends early");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /// Chunks hold up to 2^20 particles, small stores use a single chunk just big enough
+    private static int chunkShift(int size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, size - 1));
+        return Math.min(MAX_CHUNK_SHIFT, shift);
+    }
+
+    private static int chunkCount(int size, int chunkShift) {
+        return Math.max(1, (int) (((long) size + (1L << chunkShift) - 1) >>> chunkShift));
+    }
+
+    private static int chunkBytes(int chunkShift) {
+        return FIELDS * (Double.BYTES << chunkShift);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /// True when the particles were read from an existing store file instead of starting zeroed
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /// Cycles completed at the checkpoint the particles were read from, 0 for a new store
+    public long completedCycles() {
+        return completedCycles;
+    }
+
+    private double get(int field, int i) {
+        return (double) DOUBLE.get(chunks[i >>> chunkShift], ((field << chunkShift) | (i & chunkMask)) << 3);
+    }
+
+    private void set(int field, int i, double value) {
+        DOUBLE.set(chunks[i >>> chunkShift], ((field << chunkShift) | (i & chunkMask)) << 3, value);
+    }
+
+    public double x(int i) {
+        return get(X, i);
+    }
+
+    public double y(int i) {
+        return get(Y, i);
+    }
+
+    public double charge(int i) {
+        return get(CHARGE, i);
+    }
+
+    public double forceX(int i) {
+        return get(FORCE_X, i);
+    }
+
+    public double forceY(int i) {
+        return get(FORCE_Y, i);
+    }
+
+    public void addForce(int i, double forceX, double forceY) {
+        set(FORCE_X, i, get(FORCE_X, i) + forceX);
+        set(FORCE_Y, i, get(FORCE_Y, i) + forceY);
+    }
+
+    public void zeroForce(int i) {
+        set(FORCE_X, i, 0);
+        set(FORCE_Y, i, 0);
+    }
+
+    /// Copies particle i into particle, so code written for Particle objects (integrators, wall forces) can work on the store
+    public void load(int i, Particle particle) {
+        particle.x = get(X, i);
+        particle.y = get(Y, i);
+        particle.velocityX = get(VELOCITY_X, i);
+        particle.velocityY = get(VELOCITY_Y, i);
+        particle.forceX = get(FORCE_X, i);
+        particle.forceY = get(FORCE_Y, i);
+        particle.charge = get(CHARGE, i);
+    }
+
+    public void store(int i, Particle particle) {
+        set(X, i, particle.x);
+        set(Y, i, particle.y);
+        set(VELOCITY_X, i, particle.velocityX);
+        set(VELOCITY_Y, i, particle.velocityY);
+        set(FORCE_X, i, particle.forceX);
+        set(FORCE_Y, i, particle.forceY);
+        set(CHARGE, i, particle.charge);
+    }
+
+    /// Writes the particles and the number of completed cycles to a temporary file next to the store file,
+    /// forces it to disk and atomically renames it over the store file. Does nothing for anonymous memory.
+    public void checkpoint(long completedCycles) throws IOException {
+        if (file == null) {
+            return;
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, size);
+            header.putInt(12, chunkShift);
+            header.putLong(16, completedCycles);
+            writeFully(channel, header, 0);
+            for (int c = 0; c < chunks.length; c++) {
+                writeFully(channel, chunks[c].duplicate().clear(), HEADER_BYTES + (long) c * chunkBytes(chunkShift));
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,139 @@
+package Particles;
+
+import Utils.LatencyHistogram;
+import Utils.Logger;
+
+import java.util.Locale;
+
+/// Per cycle timing of the simulation phases.
+/// Engines call start() once and lap() after every phase, at the end of the cycle the phase times
+/// go into preallocated histograms and a CycleEvent is emitted for JFR.
+/// When disabled every call returns right away without reading the clock.
+public class PhaseProfiler {
+    private static final SimulationPhase[] PHASES = SimulationPhase.values();
+
+    private final boolean enabled;
+    private final String engine;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+    private final LatencyHistogram cycleHistogram = new LatencyHistogram();
+    private final long[] cycleNanos = new long[PHASES.length];
+    private final boolean[] used = new boolean[PHASES.length];
+    private int rank = 0;
+    private int activeParticles = -1;
+    private long cycleStart;
+
+    public PhaseProfiler(boolean enabled, String engine) {
+        this.enabled = enabled;
+        this.engine = engine;
+        for (int i = 0; i < PHASES.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /// Only used to label events and the summary of distributed runs
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    /// Reported with the next CycleEvent when particles can sleep
+    public void setActiveParticles(int activeParticles) {
+        this.activeParticles = activeParticles;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void beginCycle() {
+        if (enabled) {
+            cycleStart = System.nanoTime();
+        }
+    }
+
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /// Adds the time since lapStart to the phase and returns the start of the next phase
+    public long lap(SimulationPhase phase, long lapStart) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        cycleNanos[phase.ordinal()] += now - lapStart;
+        used[phase.ordinal()] = true;
+        return now;
+    }
+
+    public void endCycle(long cycle) {
+        if (!enabled) {
+            return;
+        }
+
+        cycleHistogram.record(System.nanoTime() - cycleStart);
+        for (int i = 0; i < PHASES.length; i++) {
+            if (used[i]) {
+                histograms[i].record(cycleNanos[i]);
+            }
+        }
+
+        CycleEvent event = new CycleEvent();
+        if (event.isEnabled()) {
+            event.engine = engine;
+            event.rank = rank;
+            event.cycle = cycle;
+            event.activeParticles = activeParticles;
+            event.zero = cycleNanos[SimulationPhase.ZERO.ordinal()];
+            event.pairForces = cycleNanos[SimulationPhase.PAIR_FORCES.ordinal()];
+            event.merge = cycleNanos[SimulationPhase.MERGE.ordinal()];
+            event.boundary = cycleNanos[SimulationPhase.BOUNDARY.ordinal()];
+            event.integrate = cycleNanos[SimulationPhase.INTEGRATE.ordinal()];
+            event.pack = cycleNanos[SimulationPhase.PACK.ordinal()];
+            event.collective = cycleNanos[SimulationPhase.COLLECTIVE.ordinal()];
+            event.unpack = cycleNanos[SimulationPhase.UNPACK.ordinal()];
+            event.waitTime = cycleNanos[SimulationPhase.WAIT.ordinal()];
+            event.reorder = cycleNanos[SimulationPhase.REORDER.ordinal()];
+            event.population = cycleNanos[SimulationPhase.POPULATION.ordinal()];
+            event.commit();
+        }
+
+        for (int i = 0; i < PHASES.length; i++) {
+            cycleNanos[i] = 0;
+        }
+    }
+
+    public LatencyHistogram histogram(SimulationPhase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public LatencyHistogram cycleHistogram() {
+        return cycleHistogram;
+    }
+
+    /// Logs where the time of an average cycle went
+    public void logSummary() {
+        if (!enabled || cycleHistogram.count() == 0) {
+            return;
+        }
+
+        double totalMean = 0;
+        for (LatencyHistogram histogram : histograms) {
+            totalMean += histogram.mean();
+        }
+
+        Logger.info("Phase profile of " + engine + " rank " + rank + " over " + cycleHistogram.count() + " cycles (times in microseconds)");
+        Logger.info(String.format(Locale.ROOT, "%-12s %10s %10s %10s %10s %10s %7s", "phase", "mean", "p50", "p99", "p99.9", "max", "share"));
+        for (SimulationPhase phase : PHASES) {
+            LatencyHistogram histogram = histograms[phase.ordinal()];
+            if (histogram.count() == 0) {
+                continue;
+            }
+            Logger.info(String.format(Locale.ROOT, "%-12s %10.1f %10.1f %10.1f %10.1f %10.1f %6.1f%%",
+                    phase, histogram.mean() / 1000, histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0,
+                    histogram.percentile(99.9) / 1000.0, histogram.max() / 1000.0, 100 * histogram.mean() / totalMean));
+        }
+        Logger.info(String.format(Locale.ROOT, "%-12s %10.1f %10.1f %10.1f %10.1f %10.1f", "cycle",
+                cycleHistogram.mean() / 1000, cycleHistogram.percentile(50) / 1000.0, cycleHistogram.percentile(99) / 1000.0,
+                cycleHistogram.percentile(99.9) / 1000.0, cycleHistogram.max() / 1000.0));
+    }
+}
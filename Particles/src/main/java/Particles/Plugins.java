@@ -0,0 +1,30 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/// Finds SimulationPlugin implementations by name.
+/// Every lookup creates a new instance, so plugins may keep state for the run they are used in.
+public final class Plugins {
+
+    private Plugins() {
+    }
+
+    public static <T extends SimulationPlugin> T load(Class<T> type, String name) {
+        for (T plugin : ServiceLoader.load(type)) {
+            if (plugin.name().equalsIgnoreCase(name)) {
+                return plugin;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + name + ", available: " + names(type));
+    }
+
+    public static <T extends SimulationPlugin> List<String> names(Class<T> type) {
+        List<String> names = new ArrayList<>();
+        for (T plugin : ServiceLoader.load(type)) {
+            names.add(plugin.name());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,102 @@
+package Particles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// Every particle sums its own row and only writes its own force, so threads need no buffers and no merge,
+/// at the price of computing every pair twice.
+public class RowKernel implements StoreKernel {
+
+    @Override
+    public String name() {
+        return "rows";
+    }
+
+    @Override
+    public long apply(List<Particle> particles, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        int n = particles.size();
+
+        if (executor == null || numberOfThreads <= 1) {
+            applyRows(particles, minimumDistance, 0, n);
+            return (long) n * (n - 1);
+        }
+
+        /// Rows all cost the same, so contiguous slices are balanced
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int start = t * particlesPerThread;
+            int end = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> applyRows(particles, minimumDistance, start, end)));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+        return (long) n * (n - 1);
+    }
+
+    @Override
+    public long apply(ParticleStore store, double minimumDistance, ExecutorService executor, int numberOfThreads) {
+        int n = store.size();
+
+        if (executor == null || numberOfThreads <= 1) {
+            applyRows(store, minimumDistance, 0, n);
+            return (long) n * (n - 1);
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(numberOfThreads);
+        int particlesPerThread = n / numberOfThreads;
+        for (int t = 0; t < numberOfThreads; t++) {
+            int start = t * particlesPerThread;
+            int end = t == numberOfThreads - 1 ? n : (t + 1) * particlesPerThread;
+            tasks.add(Executors.callable(() -> applyRows(store, minimumDistance, start, end)));
+        }
+        ParticleSimulationParallel.invokeAll(executor, tasks, "Force computation");
+        return (long) n * (n - 1);
+    }
+
+    private static void applyRows(ParticleStore store, double minimumDistance, int start, int end) {
+        int n = store.size();
+        for (int i = start; i < end; i++) {
+            double x = store.x(i);
+            double y = store.y(i);
+            double charge = store.charge(i);
+            double sumX = 0;
+            double sumY = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                double distanceX = store.x(j) - x;
+                double distanceY = store.y(j) - y;
+                double strength = PairForce.strength(distanceX, distanceY, charge * store.charge(j), minimumDistance);
+                sumX += strength * distanceX;
+                sumY += strength * distanceY;
+            }
+            store.addForce(i, sumX, sumY);
+        }
+    }
+
+    private static void applyRows(List<Particle> particles, double minimumDistance, int start, int end) {
+        int n = particles.size();
+        for (int i = start; i < end; i++) {
+            Particle particle1 = particles.get(i);
+            double sumX = 0;
+            double sumY = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                Particle particle2 = particles.get(j);
+                double distanceX = particle2.x - particle1.x;
+                double distanceY = particle2.y - particle1.y;
+                double strength = PairForce.strength(distanceX, distanceY, particle1.charge * particle2.charge, minimumDistance);
+                sumX += strength * distanceX;
+                sumY += strength * distanceY;
+            }
+            particle1.forceX += sumX;
+            particle1.forceY += sumY;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package Particles;
+
+import mpi.Intracomm;
+import mpi.MPI;
+
+/// One Allgatherv per field, no copying around the collectives
+public class SeparateExchange implements ExchangeStrategy {
+
+    @Override
+    public String name() {
+        return "separate";
+    }
+
+    @Override
+    public void exchange(Intracomm comm, double[][] local, int myCount, double[][] all, int[] counts, int[] displacements) {
+        for (int field = 0; field < local.length; field++) {
+            comm.Allgatherv(local[field], 0, myCount, MPI.DOUBLE, all[field], 0, counts, displacements, MPI.DOUBLE);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package Particles;
+
+public class SequentialEngine implements SimulationEngine {
+
+    @Override
+    public String name() {
+        return "sequential";
+    }
+
+    @Override
+    public void run(SimulationConfig config) {
+        new ParticleSimulationSequential(config).runSequential();
+    }
+}
@@ -1,6 +1,6 @@
 package Particles;
 
-public class SimulationConfig  {
+public class SimulationConfig implements Cloneable {
 
     /// Parameter used to set wanted mode of simulation
     /// Possible values:
@@ -9,6 +9,46 @@ public class SimulationConfig  {
     /// SimulationMode.DISTRIBUTED
     SimulationMode mode = SimulationMode.DISTRIBUTED;
 
+    /// Name of the SimulationEngine to run, see Plugins
+    /// Possible values:
+    /// null - the engine named like mode
+    /// sequential, parallel, distributed, offheap or the name of an engine found on the class path
+    String engine = null;
+
+    /// Name of the ForceKernel the shared memory engines use for the pair forces
+    /// Possible values:
+    /// null or builtin - the engine's own pair loop
+    /// pairwise, rows, approximate or the name of a kernel found on the class path
+    /// Ignored while clustering, sleeping or block timesteps compute the forces, can be switched at runtime over JMX
+    String kernel = null;
+
+    /// Newton steps refining the fast inverse square root of the approximate kernel, see ApproximateKernel
+    /// Possible values:
+    /// 0 - no guess, 1 / Math.sqrt in vector instructions, usually fastest and only rounds differently
+    /// 1 - pair forces are off by up to about 0.5%
+    /// 2 - pair forces are off by up to about 1.4e-5
+    /// 3 - pair forces match the exact kernels to about 1e-10
+    int newtonSteps = 0;
+
+    /// Name of the Integrator that moves the particles, euler is the only built in one
+    String integrator = "euler";
+
+    /// File the offheap engine checkpoints its particles to, see ParticleStore
+    /// Possible values:
+    /// null - particles live in anonymous off-heap memory
+    /// path - particles are checkpointed to the file, an existing store file is resumed from its last checkpoint
+    String storeFile = null;
+
+    /// Number of cycles between checkpoints to storeFile, it is always written at the end
+    /// 0 - only at the end
+    int checkpointCycles = 0;
+
+    /// Name of the ExchangeStrategy the distributed engine shares particles with
+    /// Possible values:
+    /// separate - one Allgatherv per field
+    /// packed - all fields in one Allgatherv
+    String exchange = "separate";
+
     /// Parameter to toggle on/off GUI
     /// Possible values:
     /// true - GUI is rendered
@@ -62,4 +102,144 @@ public class SimulationConfig  {
     /// Anything below 100 promotes clumping
     /// Anything above 100 creates chaos
     double boundaryCharge = 1000.0;
+
+    /// Parameter to let settled particles sleep, see ActivityTracker
+    /// Possible values:
+    /// true - particles that stay slow and balanced for sleepCycles cycles stop moving and most of their pairs are skipped
+    /// false - every pair is computed every cycle
+    boolean sleeping = false;
+
+    /// Speed below which a particle counts as quiet
+    double sleepVelocity = 0.01;
+
+    /// Net force (per axis) below which a particle counts as quiet, twice this wakes a sleeping particle
+    double sleepForce = 0.01;
+
+    /// Number of quiet cycles in a row before a particle falls asleep
+    int sleepCycles = 50;
+
+    /// Parameter to replace the far field of dense clumps by their multipole, see ClusterAggregator
+    /// Possible values:
+    /// true - particles closer than clusterLinkDistance form clusters, distant clusters act as a single charge plus dipole
+    /// false - every pair is computed every cycle
+    /// Takes precedence over sleeping
+    boolean clustering = false;
+
+    /// Distance below which two particles are linked into the same cluster
+    double clusterLinkDistance = 10.0;
+
+    /// Smallest number of linked particles treated as a cluster, smaller groups interact pairwise
+    int minClusterSize = 8;
+
+    /// Cluster radius divided by distance below which a cluster is not opened, smaller is more accurate and slower
+    double clusterOpeningAngle = 0.5;
+
+    /// Number of cycles between recomputing cluster membership, the moments are updated every cycle
+    int clusterRefreshCycles = 10;
+
+    /// Parameter to give every particle its own power of two timestep, see BlockTimestep
+    /// Possible values:
+    /// 0 - every particle is kicked every cycle
+    /// n - particles with small forces are kicked only every 2, 4 ... 2^n cycles, one cycle still advances the same time
+    /// Ignored when clustering or sleeping is on
+    int timestepLevels = 0;
+
+    /// Accuracy of the timestep levels, a particle may use steps up to sqrt(timestepAccuracy * minimumDistance / force)
+    /// Smaller is more accurate and slower
+    double timestepAccuracy = 0.02;
+
+    /// Parameter to sort the particles in memory along a Morton (Z-order) curve, see MortonOrder
+    /// Possible values:
+    /// 0 - particles keep their initial order
+    /// n - particles are reordered every n cycles so spatial neighbours are also neighbours in memory
+    int reorderCycles = 0;
+
+    /// Parameter to add particles while the simulation runs, see ParticlePopulation
+    /// Possible values:
+    /// 0 - the particles of the start are all there is
+    /// r - r new particles per cycle on average, fractions carry over to the next cycles
+    double spawnRate = 0;
+
+    /// Region new particles appear in as "x,y,width,height"
+    /// null - the whole box
+    String spawnRegion = null;
+
+    /// Upper limit for the number of particles, spawning pauses while it is reached
+    /// 0 - no limit
+    int maxParticles = 0;
+
+    /// Parameter to turn the walls into sinks
+    /// Possible values:
+    /// true - particles that reach a wall are removed
+    /// false - particles bounce off the walls
+    boolean absorbingWalls = false;
+
+    /// Distance below which two particles merge into one carrying the sum of their charges
+    /// 0 - particles never merge
+    double mergeDistance = 0;
+
+    /// Number of worker threads of the parallel engine
+    /// 0 - one per available processor
+    int threads = 0;
+
+    /// Split of the pair loop between threads in the parallel engine, see ForcePartition
+    ForcePartition partition = ForcePartition.CONTIGUOUS;
+
+    /// Combination of per thread forces in the parallel engine, see ForceReduction
+    ForceReduction reduction = ForceReduction.MERGE;
+
+    /// Number of inner particles processed as one block by the parallel engine
+    /// 0 - no tiling
+    int tileSize = 0;
+
+    /// Parameter to let AutoTuner pick threads, partition, reduction and tileSize for this machine at startup
+    /// Possible values:
+    /// true - the variants are measured for a few hundred milliseconds (or read from tuneCache) and the fastest is used
+    /// false - the values above are used as given
+    boolean autoTune = false;
+
+    /// File the AutoTuner keeps its results in, keyed by CPU, JVM and particle count
+    String tuneCache = "particles-tuning.properties";
+
+    /// Parameter to toggle per phase timing of every cycle
+    /// Possible values:
+    /// true - phase times are recorded into histograms, emitted as JFR events and summarized at the end
+    /// false - no timing at all
+    boolean profile = false;
+
+    /// Parameter to publish live metrics as a JMX MBean (Particles:type=SimulationMetrics)
+    /// Possible values:
+    /// true - cycles, CPS, allocation rate and phase percentiles can be watched with jconsole or any JMX client
+    /// false - nothing is registered
+    boolean metrics = false;
+
+    /// Parameter to toggle the "Number of cycles completed" line logged every second
+    boolean logProgress = true;
+
+    /// Address to stream frames to a separate FrameViewer process, null disables streaming
+    /// Possible values:
+    /// port - TCP on localhost
+    /// host:port - TCP bound to the given interface
+    /// unix:/path/to/socket - Unix domain socket
+    String streamAddress = null;
+
+    /// Address of a streaming simulation, when set the program only runs the FrameViewer
+    /// Same format as streamAddress
+    String viewAddress = null;
+
+    /// Parameter to run an ensemble of simulations described by this sweep file instead of a single one, see EnsembleSpec
+    String ensembleSpec = null;
+
+    /// CSV file the results of an ensemble are written to, one line per finished member
+    String ensembleOutput = "ensemble.csv";
+
+    /// Independent copy, every ensemble member gets its own
+    SimulationConfig copy() {
+        try {
+            return (SimulationConfig) clone();
+        }
+        catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package Particles;
+
+/// A way of running the whole simulation, selected with --engine or by --mode.
+/// Main calls start, run and stop in this order and prints the summary if reportsSummary is true.
+public interface SimulationEngine extends SimulationPlugin {
+
+    /// Called once before the clock starts with the raw command line, distributed engines start MPI here
+    default void start(String[] args, SimulationConfig config) {
+    }
+
+    void run(SimulationConfig config);
+
+    /// Only one process of a distributed run should print the summary
+    default boolean reportsSummary() {
+        return true;
+    }
+
+    default void stop() {
+    }
+}
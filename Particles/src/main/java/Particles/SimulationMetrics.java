@@ -0,0 +1,215 @@
+package Particles;
+
+import Utils.LatencyHistogram;
+import Utils.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/// Counters behind the SimulationMetricsMXBean.
+/// Compute threads only ever add to LongAdders, everything else (rates, percentiles) is worked out
+/// on the JMX thread when a client reads an attribute, so watching a run does not slow it down.
+/// Phase percentiles come from the histograms of the PhaseProfiler.
+public class SimulationMetrics implements SimulationMetricsMXBean {
+    private static final long SAMPLE_INTERVAL = 1_000_000_000L;
+
+    private final String engine;
+    private int rank;
+    /// Changes with sources and sinks, written by the compute thread
+    private volatile int particleCount;
+    private final PhaseProfiler profiler;
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder pairInteractions = new LongAdder();
+    private final com.sun.management.ThreadMXBean threads;
+    private ObjectName name;
+    private Supplier<String> kernelName = () -> ForceKernel.BUILTIN;
+    private Consumer<String> kernelSwitch;
+
+    private long sampleTime;
+    private long sampleCycles;
+    private long sampleAllocatedBytes;
+    private double cyclesPerSecond;
+    private double allocationRate;
+
+    public SimulationMetrics(String engine, int particleCount, PhaseProfiler profiler) {
+        this.engine = engine;
+        this.particleCount = particleCount;
+        this.profiler = profiler;
+        this.threads = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean ? threadBean : null;
+        this.sampleTime = System.nanoTime();
+        this.sampleAllocatedBytes = allocatedBytes();
+    }
+
+    /// Makes the metrics visible on the platform MBean server, without it they only count
+    public void register(int rank) {
+        this.rank = rank;
+        try {
+            ObjectName name = new ObjectName("Particles:type=SimulationMetrics,engine=" + engine + ",rank=" + rank);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            this.name = name;
+            Logger.info("Metrics registered as " + name);
+        }
+        catch (JMException e) {
+            Logger.warn("Registering simulation metrics failed: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch (JMException e) {
+            Logger.warn("Unregistering simulation metrics failed: " + e.getMessage());
+        }
+        name = null;
+    }
+
+    /// Lets JMX clients see and switch the force kernel of engines that support kernels
+    public void setKernelControl(Supplier<String> kernelName, Consumer<String> kernelSwitch) {
+        this.kernelName = kernelName;
+        this.kernelSwitch = kernelSwitch;
+    }
+
+    public void cycleCompleted() {
+        cycles.increment();
+    }
+
+    public void addPairInteractions(long count) {
+        pairInteractions.add(count);
+    }
+
+    @Override
+    public String getEngine() {
+        return engine;
+    }
+
+    @Override
+    public int getRank() {
+        return rank;
+    }
+
+    @Override
+    public int getParticleCount() {
+        return particleCount;
+    }
+
+    public void setParticleCount(int particleCount) {
+        this.particleCount = particleCount;
+    }
+
+    @Override
+    public long getCyclesCompleted() {
+        return cycles.sum();
+    }
+
+    @Override
+    public long getPairInteractions() {
+        return pairInteractions.sum();
+    }
+
+    @Override
+    public synchronized double getCyclesPerSecond() {
+        sample();
+        return cyclesPerSecond;
+    }
+
+    @Override
+    public synchronized double getAllocationRateBytesPerSecond() {
+        sample();
+        return allocationRate;
+    }
+
+    @Override
+    public double getCollectiveWaitMillis() {
+        long nanos = profiler.histogram(SimulationPhase.WAIT).sum() + profiler.histogram(SimulationPhase.COLLECTIVE).sum();
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP50Micros() {
+        return phasePercentiles(50);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        return phasePercentiles(99);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP999Micros() {
+        return phasePercentiles(99.9);
+    }
+
+    @Override
+    public double getCycleP50Micros() {
+        return profiler.cycleHistogram().percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getCycleP99Micros() {
+        return profiler.cycleHistogram().percentile(99) / 1000.0;
+    }
+
+    @Override
+    public String getForceKernel() {
+        return kernelName.get();
+    }
+
+    @Override
+    public void setForceKernel(String name) {
+        if (kernelSwitch == null) {
+            throw new UnsupportedOperationException("The " + engine + " engine has no force kernels");
+        }
+        kernelSwitch.accept(name);
+    }
+
+    private Map<String, Double> phasePercentiles(double percentile) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (SimulationPhase phase : SimulationPhase.values()) {
+            LatencyHistogram histogram = profiler.histogram(phase);
+            if (histogram.count() > 0) {
+                percentiles.put(phase.toString(), histogram.percentile(percentile) / 1000.0);
+            }
+        }
+        return percentiles;
+    }
+
+    /// Rates are only recomputed once a second so clients polling quickly still see stable values
+    private void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - sampleTime;
+        if (elapsed < SAMPLE_INTERVAL) {
+            return;
+        }
+
+        long currentCycles = cycles.sum();
+        long currentAllocatedBytes = allocatedBytes();
+        cyclesPerSecond = (currentCycles - sampleCycles) * 1e9 / elapsed;
+        allocationRate = (currentAllocatedBytes - sampleAllocatedBytes) * 1e9 / elapsed;
+
+        sampleTime = now;
+        sampleCycles = currentCycles;
+        sampleAllocatedBytes = currentAllocatedBytes;
+    }
+
+    private long allocatedBytes() {
+        if (threads == null || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return 0;
+        }
+        return threads.getTotalThreadAllocatedBytes();
+    }
+}
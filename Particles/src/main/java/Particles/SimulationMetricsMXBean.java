@@ -0,0 +1,42 @@
+package Particles;
+
+import java.util.Map;
+
+/// Live view of a running simulation for jconsole, VisualVM or any other JMX client.
+/// Registered as Particles:type=SimulationMetrics,engine=<engine>,rank=<rank>
+public interface SimulationMetricsMXBean {
+    String getEngine();
+
+    int getRank();
+
+    int getParticleCount();
+
+    long getCyclesCompleted();
+
+    long getPairInteractions();
+
+    /// Cycles per second since the previous sample, samples are taken at most once per second
+    double getCyclesPerSecond();
+
+    /// Bytes allocated by all threads of the JVM per second since the previous sample
+    double getAllocationRateBytesPerSecond();
+
+    /// Time this rank spent blocked in collectives, zero for the shared memory engines
+    double getCollectiveWaitMillis();
+
+    Map<String, Double> getPhaseP50Micros();
+
+    Map<String, Double> getPhaseP99Micros();
+
+    Map<String, Double> getPhaseP999Micros();
+
+    double getCycleP50Micros();
+
+    double getCycleP99Micros();
+
+    /// Force kernel in use, ForceKernel.BUILTIN for the engine's own pair loop
+    String getForceKernel();
+
+    /// Switches the force kernel at the start of the next cycle
+    void setForceKernel(String name);
+}
@@ -0,0 +1,16 @@
+package Particles;
+
+/// Parts of a simulation cycle that are timed separately when profiling is enabled
+public enum SimulationPhase {
+    ZERO,
+    PAIR_FORCES,
+    MERGE,
+    BOUNDARY,
+    INTEGRATE,
+    PACK,
+    COLLECTIVE,
+    UNPACK,
+    WAIT,
+    REORDER,
+    POPULATION
+}
@@ -0,0 +1,9 @@
+package Particles;
+
+/// Common part of everything that can be plugged into the simulation through ServiceLoader, see Plugins.
+/// Implementations need a public no-argument constructor and a line in META-INF/services/<interface name>.
+public interface SimulationPlugin {
+
+    /// Name used to select the implementation on the command line, compared ignoring case
+    String name();
+}
@@ -0,0 +1,11 @@
+package Particles;
+
+import java.util.concurrent.ExecutorService;
+
+/// Force kernel that also runs on particles kept off-heap in a ParticleStore.
+/// The offheap engine only loads kernels implementing this, others are rejected when they are selected.
+public interface StoreKernel extends ForceKernel {
+
+    /// Same as apply for the particles of the store, whose forces are zeroed
+    long apply(ParticleStore store, double minimumDistance, ExecutorService executor, int numberOfThreads);
+}
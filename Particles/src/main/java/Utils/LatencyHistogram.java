@@ -0,0 +1,99 @@
+package Utils;
+
+import java.util.Arrays;
+
+/// Fixed size log-linear histogram in the style of HdrHistogram.
+/// Values below 128 are counted exactly, above that every power of two is split into 64 buckets,
+/// which keeps the relative error of every percentile below 1.6%.
+/// All memory is allocated up front so recording never allocates.
+/// There must only be one writing thread, readers on other threads may see slightly stale counts.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    /// Anything above 2^40 ns (about 18 minutes) lands in the last bucket
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 2) * SUB_BUCKET_HALF;
+
+    private final long[] counts = new long[BUCKETS];
+    private volatile long totalCount;
+    private long sum;
+    private long max;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+
+        counts[bucketIndex(value)]++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+        totalCount++;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        long count = totalCount;
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    /// Value below which the given percentage (0 - 100) of the recorded values lie
+    public long percentile(double percentile) {
+        long count = totalCount;
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, bucketUpperBound(i));
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        sum = 0;
+        max = 0;
+        totalCount = 0;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - (long) shift * SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
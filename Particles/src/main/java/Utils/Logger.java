@@ -1,7 +1,18 @@
 package Utils;
 
-import java.text.SimpleDateFormat;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
+/// Asynchronous logger.
+/// Callers only copy the message into a preallocated ring buffer, a single background thread formats and prints it.
+/// Logging never blocks the caller, when the ring is full the message is dropped and counted instead.
+/// Messages can be templates with {} placeholders for long values, so hot loops can log numbers without building strings.
+/// A text value such as a name or a path can fill the placeholder after the long values.
 public class Logger {
 
     private static final String RED =  "\u001B[31m";
@@ -10,7 +21,12 @@ public class Logger {
     private static final String BLUE = "\u001B[34m";
     private static final String RESET = "\u001B[0m";
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /// Must be a power of two
+    private static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+    private static final long IDLE_PARK_NANOS = 2_000_000;
 
     public enum LogLevel{
         Debug,
@@ -19,37 +35,290 @@ public class Logger {
         Error,
     }
 
-    private static void log(String message, LogLevel level){
-        String date = dateFormat.format(System.currentTimeMillis());
-        String name = Thread.currentThread().getName();
+    public enum LogFormat{
+        /// Colored human readable lines
+        Text,
+        /// One JSON object per line
+        Json,
+    }
+
+    /// One slot of the ring, reused for every message that passes through it
+    private static final class Record {
+        LogLevel level;
+        long time;
+        String thread;
+        String message;
+        int argumentCount;
+        long argument0;
+        long argument1;
+        /// Fills the placeholder after the long arguments, null when there is none
+        String text;
+    }
+
+    private static final Record[] records = new Record[CAPACITY];
+    /// Vyukov style sequence numbers, a slot is free for producer position p when its sequence is p
+    /// and holds a message for the consumer at position p when its sequence is p + 1
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static long head = 0;
 
-        String messagePrefix = "[" + date + "][" +  name + "] " + level + ": ";
+    private static volatile LogLevel level = LogLevel.Info;
+    private static volatile LogFormat format = LogFormat.Text;
+    private static volatile boolean shuttingDown = false;
 
-        switch (level){
-            case Debug -> messagePrefix = BLUE + messagePrefix + RESET;
-            case Info -> messagePrefix = GREEN + messagePrefix + RESET;
-            case Warn -> messagePrefix = YELLOW + messagePrefix + RESET;
-            case Error -> messagePrefix = RED + messagePrefix + RESET;
+    private static final PrintStream out = System.out;
+    private static final StringBuilder line = new StringBuilder(256);
+    private static long cachedSecond = Long.MIN_VALUE;
+    private static String cachedDate = "";
+
+    private static final Thread consumer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            records[i] = new Record();
+            sequences.set(i, i);
         }
 
-        System.out.println(messagePrefix + message);
+        consumer = new Thread(Logger::consume, "logger");
+        consumer.setDaemon(true);
+        consumer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "logger-shutdown"));
+    }
+
+    public static void setLevel(LogLevel newLevel){
+        level = newLevel;
+    }
+
+    public static void setFormat(LogFormat newFormat){
+        format = newFormat;
+    }
+
+    /// Check this before building an expensive message
+    public static boolean isEnabled(LogLevel messageLevel){
+        return messageLevel.ordinal() >= level.ordinal();
+    }
+
+    private static void log(LogLevel messageLevel, String message, int argumentCount, long argument0, long argument1){
+        log(messageLevel, message, argumentCount, argument0, argument1, null);
+    }
+
+    private static void log(LogLevel messageLevel, String message, int argumentCount, long argument0, long argument1, String text){
+        if (!isEnabled(messageLevel)) {
+            return;
+        }
+
+        long position;
+        while (true) {
+            position = tail.get();
+            long difference = sequences.get((int) position & MASK) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            }
+            else if (difference < 0) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+
+        int index = (int) position & MASK;
+        Record record = records[index];
+        record.level = messageLevel;
+        record.time = System.currentTimeMillis();
+        record.thread = Thread.currentThread().getName();
+        record.message = message;
+        record.argumentCount = argumentCount;
+        record.argument0 = argument0;
+        record.argument1 = argument1;
+        record.text = text;
+        sequences.set(index, position + 1);
+    }
+
+    private static void consume(){
+        while (true) {
+            boolean wasShuttingDown = shuttingDown;
+            if (!drain() && wasShuttingDown) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /// Prints everything currently in the ring, returns false if there was nothing to print
+    private static boolean drain(){
+        boolean printed = false;
+        while (true) {
+            int index = (int) head & MASK;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+
+            Record record = records[index];
+            write(record);
+            record.message = null;
+            record.thread = null;
+            record.text = null;
+            sequences.set(index, head + CAPACITY);
+            head++;
+            printed = true;
+        }
+
+        long droppedMessages = dropped.getAndSet(0);
+        if (droppedMessages > 0) {
+            Record record = new Record();
+            record.level = LogLevel.Warn;
+            record.time = System.currentTimeMillis();
+            record.thread = consumer.getName();
+            record.message = "Log buffer full, dropped {} messages";
+            record.argumentCount = 1;
+            record.argument0 = droppedMessages;
+            write(record);
+            printed = true;
+        }
+
+        if (printed) {
+            out.flush();
+        }
+        return printed;
+    }
+
+    private static void write(Record record){
+        line.setLength(0);
+        if (format == LogFormat.Json) {
+            line.append("{\"time\":").append(record.time)
+                    .append(",\"thread\":\"");
+            appendEscaped(record.thread);
+            line.append("\",\"level\":\"").append(record.level).append("\",\"message\":\"");
+            appendMessage(record, true);
+            line.append("\"}");
+        }
+        else {
+            String color = switch (record.level){
+                case Debug -> BLUE;
+                case Info -> GREEN;
+                case Warn -> YELLOW;
+                case Error -> RED;
+            };
+            line.append(color).append('[').append(date(record.time)).append("][").append(record.thread).append("] ")
+                    .append(record.level).append(": ").append(RESET);
+            appendMessage(record, false);
+        }
+        out.println(line);
+    }
+
+    private static void appendMessage(Record record, boolean escape){
+        String message = record.message;
+        int argument = 0;
+        int from = 0;
+        int placeholder;
+        while (argument < record.argumentCount && (placeholder = message.indexOf("{}", from)) >= 0) {
+            appendPart(message, from, placeholder, escape);
+            line.append(argument == 0 ? record.argument0 : record.argument1);
+            argument++;
+            from = placeholder + 2;
+        }
+        if (record.text != null && argument == record.argumentCount && (placeholder = message.indexOf("{}", from)) >= 0) {
+            appendPart(message, from, placeholder, escape);
+            appendPart(record.text, 0, record.text.length(), escape);
+            from = placeholder + 2;
+        }
+        appendPart(message, from, message.length(), escape);
+    }
+
+    private static void appendPart(String message, int from, int to, boolean escape){
+        if (!escape) {
+            line.append(message, from, to);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            char c = message.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            }
+            else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                line.append(c);
+            }
+        }
+    }
+
+    private static void appendEscaped(String text){
+        appendPart(text, 0, text.length(), true);
+    }
+
+    /// The date only changes once a second, so it is formatted once a second
+    private static String date(long time){
+        long second = time / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedDate = DATE_FORMAT.format(Instant.ofEpochMilli(time));
+        }
+        return cachedDate;
+    }
+
+    /// Lets the consumer print what is left, so the last lines before System.exit are not lost
+    private static void shutdown(){
+        shuttingDown = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
 
     public static void debug(String message){
-        log(message, LogLevel.Debug);
+        log(LogLevel.Debug, message, 0, 0, 0);
+    }
+
+    public static void debug(String message, long argument){
+        log(LogLevel.Debug, message, 1, argument, 0);
+    }
+
+    public static void debug(String message, long argument0, long argument1){
+        log(LogLevel.Debug, message, 2, argument0, argument1);
     }
 
     public static void info(String message){
-        log(message, LogLevel.Info);
+        log(LogLevel.Info, message, 0, 0, 0);
+    }
+
+    public static void info(String message, long argument){
+        log(LogLevel.Info, message, 1, argument, 0);
+    }
+
+    public static void info(String message, long argument0, long argument1){
+        log(LogLevel.Info, message, 2, argument0, argument1);
+    }
+
+    public static void info(String message, String text){
+        log(LogLevel.Info, message, 0, 0, 0, text);
+    }
+
+    public static void info(String message, long argument0, long argument1, String text){
+        log(LogLevel.Info, message, 2, argument0, argument1, text);
     }
 
     public static void warn(String message){
-        log(message, LogLevel.Warn);
+        log(LogLevel.Warn, message, 0, 0, 0);
+    }
+
+    public static void warn(String message, long argument){
+        log(LogLevel.Warn, message, 1, argument, 0);
     }
 
     public static void error(String message){
-        log(message, LogLevel.Error);
+        log(LogLevel.Error, message, 0, 0, 0);
+    }
+
+    public static void error(String message, long argument){
+        log(LogLevel.Error, message, 1, argument, 0);
     }
 
 
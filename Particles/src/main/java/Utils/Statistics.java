@@ -0,0 +1,44 @@
+package Utils;
+
+public class Statistics {
+
+    /// Two sided 95% quantiles of the Student t distribution for 1 to 30 degrees of freedom
+    private static final double[] T_95 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    public static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /// Sample standard deviation, 0 for less than two values
+    public static double standardDeviation(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    /// Half width of the 95% confidence interval of the mean
+    public static double confidenceInterval95(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+
+        int degreesOfFreedom = values.length - 1;
+        double t = degreesOfFreedom <= T_95.length ? T_95[degreesOfFreedom - 1] : 1.96;
+        return t * standardDeviation(values) / Math.sqrt(values.length);
+    }
+}
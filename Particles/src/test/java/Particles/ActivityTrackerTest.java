@@ -0,0 +1,114 @@
+package Particles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityTrackerTest {
+
+    private static SimulationConfig config(int sleepCycles) {
+        SimulationConfig config = new SimulationConfig();
+        config.sleeping = true;
+        config.sleepCycles = sleepCycles;
+        return config;
+    }
+
+    /// Uncharged particles at rest are quiet every cycle
+    private static List<Particle> restingParticles(int count) {
+        List<Particle> particles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            particles.add(new Particle(i, 100 + 50 * i, 100, 0, 0, 0));
+        }
+        return particles;
+    }
+
+    /// A particle falls asleep after exactly sleepCycles quiet cycles, not before
+    @Test
+    void quietParticleSleepsAfterSleepCycles() {
+        List<Particle> particles = restingParticles(3);
+        ActivityTracker tracker = new ActivityTracker(config(3), particles);
+
+        tracker.settle();
+        tracker.settle();
+        assertFalse(tracker.isAsleep(0));
+        assertEquals(3, tracker.activeCount());
+
+        tracker.settle();
+        assertTrue(tracker.isAsleep(0));
+        assertEquals(0, tracker.activeCount());
+    }
+
+    /// A moving particle resets its quiet cycles and stays awake while the others fall asleep
+    @Test
+    void movingParticleStaysAwake() {
+        List<Particle> particles = restingParticles(3);
+        particles.get(1).velocityX = 1;
+        ActivityTracker tracker = new ActivityTracker(config(2), particles);
+
+        tracker.settle();
+        tracker.settle();
+        assertTrue(tracker.isAsleep(0));
+        assertFalse(tracker.isAsleep(1));
+        assertTrue(tracker.isAsleep(2));
+        assertEquals(1, tracker.activeCount());
+    }
+
+    /// A sleeper wakes once its net force grows above twice config.sleepForce, a smaller force leaves it asleep
+    @Test
+    void disturbedSleeperWakes() {
+        SimulationConfig config = config(1);
+        List<Particle> particles = restingParticles(2);
+        ActivityTracker tracker = new ActivityTracker(config, particles);
+        tracker.settle();
+        assertTrue(tracker.isAsleep(0));
+
+        particles.get(0).forceX = 1.5 * config.sleepForce;
+        tracker.wakeDisturbed();
+        assertTrue(tracker.isAsleep(0));
+
+        particles.get(0).forceX = 3 * config.sleepForce;
+        tracker.wakeDisturbed();
+        assertFalse(tracker.isAsleep(0));
+        assertTrue(tracker.isAsleep(1));
+        assertEquals(1, tracker.activeCount());
+    }
+
+    /// Frozen sleeper pairs plus the computed pairs with awake particles must add up to the full pair loop
+    @Test
+    void frozenFieldMatchesAllPairs() {
+        SimulationConfig config = config(1);
+        config.sleepForce = Double.MAX_VALUE;
+        List<Particle> particles = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            particles.add(new Particle(i, 100 + 37 * i, 200 + 23 * (i % 3), 0, 0, i % 2 == 0 ? 1 : -2));
+        }
+        particles.get(4).velocityY = 1;
+        ActivityTracker tracker = new ActivityTracker(config, particles);
+        tracker.settle();
+        assertEquals(1, tracker.activeCount());
+
+        List<Particle> expected = new ArrayList<>();
+        for (Particle particle : particles) {
+            particle.forceX = 0;
+            particle.forceY = 0;
+            expected.add(particle.copy());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            for (int j = i + 1; j < expected.size(); j++) {
+                PairForce.apply(expected.get(i), expected.get(j), config.minimumDistance);
+            }
+        }
+
+        tracker.computePairForces(null, 1);
+        assertEquals(5, tracker.pairsLastCycle());
+        for (int i = 0; i < particles.size(); i++) {
+            assertEquals(expected.get(i).forceX, particles.get(i).forceX, 1e-12, "particle " + i);
+            assertEquals(expected.get(i).forceY, particles.get(i).forceY, 1e-12, "particle " + i);
+        }
+    }
+}
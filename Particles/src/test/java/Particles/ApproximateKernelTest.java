@@ -0,0 +1,58 @@
+package Particles;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ApproximateKernelTest {
+
+    private static SimulationConfig config(int numOfParticles) {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = numOfParticles;
+        config.particleSeed = 42;
+        config.newtonSteps = 2;
+        return config;
+    }
+
+    /// The report only looks at the first 2000 particles, a run a thousand times larger must not cost more
+    @Test
+    void errorReportDoesNotDependOnParticleCount() {
+        String small = ApproximateKernel.errorReport(config(2000));
+        String large = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> ApproximateKernel.errorReport(config(2_000_000_000)));
+        assertEquals(small, large);
+    }
+
+    /// The store is read in place row by row, the forces must match the list path that copies to the heap
+    @Test
+    void storeMatchesList() throws Exception {
+        SimulationConfig config = config(500);
+        List<Particle> particles = ParticleGenerator.generate(config, 0, config.numOfParticles, false);
+        ParticleStore store = ParticleStore.allocate(config.numOfParticles);
+        ParticleGenerator.generate(config, store);
+        ApproximateKernel kernel = new ApproximateKernel();
+        kernel.configure(config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            kernel.apply(particles, config.minimumDistance, null, 1);
+            kernel.apply(store, config.minimumDistance, executor, 3);
+        }
+        finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < particles.size(); i++) {
+            Particle particle = particles.get(i);
+            double magnitude = Math.hypot(particle.forceX, particle.forceY);
+            double error = Math.hypot(store.forceX(i) - particle.forceX, store.forceY(i) - particle.forceY);
+            assertTrue(error <= 1e-9 * magnitude + 1e-12, "particle " + i);
+        }
+    }
+}
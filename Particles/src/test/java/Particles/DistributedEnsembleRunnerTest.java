@@ -0,0 +1,43 @@
+package Particles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class DistributedEnsembleRunnerTest {
+
+    private static List<SimulationConfig> members(int... particles) {
+        List<SimulationConfig> members = new ArrayList<>();
+        for (int numOfParticles : particles) {
+            SimulationConfig member = new SimulationConfig();
+            member.numOfParticles = numOfParticles;
+            member.cycles = 10;
+            members.add(member);
+        }
+        return members;
+    }
+
+    /// The largest member is placed first, the smaller ones fill up the group that is behind
+    @Test
+    void largestMembersArePlacedFirst() {
+        int[] groupOfMember = DistributedEnsembleRunner.assignMembers(members(100, 400, 200), new int[] { 1, 1 });
+        assertArrayEquals(new int[] { 1, 0, 1 }, groupOfMember);
+    }
+
+    /// Work is balanced per rank, a group with two ranks takes three of four equal members
+    @Test
+    void largerGroupsTakeMoreWork() {
+        int[] groupOfMember = DistributedEnsembleRunner.assignMembers(members(100, 100, 100, 100), new int[] { 2, 1 });
+        assertArrayEquals(new int[] { 0, 0, 1, 0 }, groupOfMember);
+    }
+
+    /// Equal groups and equal members alternate, so every rank computes the same assignment without talking
+    @Test
+    void equalMembersAlternate() {
+        int[] groupOfMember = DistributedEnsembleRunner.assignMembers(members(300, 300, 300, 300), new int[] { 1, 1 });
+        assertArrayEquals(new int[] { 0, 1, 0, 1 }, groupOfMember);
+    }
+}
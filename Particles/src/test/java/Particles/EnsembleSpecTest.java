@@ -0,0 +1,85 @@
+package Particles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnsembleSpecTest {
+
+    private static SimulationConfig base() {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = 100;
+        config.cycles = 7;
+        config.damping = 0.5;
+        return config;
+    }
+
+    /// Every combination of the listed values, the later lines varying fastest
+    @Test
+    void membersAreTheCrossProduct() {
+        List<SimulationConfig> members = EnsembleSpec.parse(List.of(
+                "particles = 500, 1000",
+                "damping = 0.9, 0.99, 0.999"), "spec", base());
+
+        assertEquals(6, members.size());
+        int[] particles = { 500, 500, 500, 1000, 1000, 1000 };
+        double[] damping = { 0.9, 0.99, 0.999, 0.9, 0.99, 0.999 };
+        for (int i = 0; i < members.size(); i++) {
+            assertEquals(particles[i], members.get(i).numOfParticles, "member " + i);
+            assertEquals(damping[i], members.get(i).damping, "member " + i);
+            assertEquals(7, members.get(i).cycles, "member " + i);
+        }
+    }
+
+    /// Comments and blank lines are skipped, parameters that are not listed keep the base value
+    /// and the base itself is never changed
+    @Test
+    void unlistedParametersKeepBaseValues() {
+        SimulationConfig base = base();
+        List<SimulationConfig> members = EnsembleSpec.parse(List.of(
+                "# sweep",
+                "",
+                "  kernel = rows  ",
+                "clumping = true"), "spec", base);
+
+        assertEquals(1, members.size());
+        SimulationConfig member = members.get(0);
+        assertNotSame(base, member);
+        assertEquals("rows", member.kernel);
+        assertTrue(member.clumping);
+        assertEquals(100, member.numOfParticles);
+        assertEquals(0.5, member.damping);
+        assertEquals(0.5, base.damping);
+    }
+
+    /// A spec without parameters is a single copy of the base
+    @Test
+    void emptySpecIsTheBase() {
+        SimulationConfig base = base();
+        List<SimulationConfig> members = EnsembleSpec.parse(List.of("# nothing to sweep"), "spec", base);
+
+        assertEquals(1, members.size());
+        assertNotSame(base, members.get(0));
+        assertEquals(100, members.get(0).numOfParticles);
+    }
+
+    /// Errors name the source and the line
+    @Test
+    void badLinesAreRejected() {
+        IllegalArgumentException missingValues = assertThrows(IllegalArgumentException.class,
+                () -> EnsembleSpec.parse(List.of("# header", "particles 500"), "sweep.txt", base()));
+        assertTrue(missingValues.getMessage().startsWith("sweep.txt:2:"), missingValues.getMessage());
+
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> EnsembleSpec.parse(List.of("speed = 1"), "sweep.txt", base()));
+        assertTrue(unknown.getMessage().contains("unknown parameter speed"), unknown.getMessage());
+
+        assertThrows(NumberFormatException.class,
+                () -> EnsembleSpec.parse(List.of("particles = many"), "sweep.txt", base()));
+    }
+}
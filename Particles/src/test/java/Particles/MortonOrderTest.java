@@ -0,0 +1,92 @@
+package Particles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MortonOrderTest {
+
+    private static SimulationConfig config(int numOfParticles) {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = numOfParticles;
+        config.particleSeed = 42;
+        return config;
+    }
+
+    /// The returned order is a permutation that maps every new slot back to the particle it came from,
+    /// and the particles end up sorted by their Morton code
+    @Test
+    void orderMapsBackToOriginalParticles() {
+        SimulationConfig config = config(3000);
+        List<Particle> particles = ParticleGenerator.generate(config, 0, config.numOfParticles, false);
+        List<Particle> original = new ArrayList<>(particles);
+        MortonOrder mortonOrder = new MortonOrder(config);
+
+        int[] order = mortonOrder.reorder(particles, null, 1);
+
+        assertEquals(original.size(), particles.size());
+        int[] seen = new int[original.size()];
+        for (int i = 0; i < particles.size(); i++) {
+            seen[order[i]]++;
+            Particle before = original.get(order[i]);
+            Particle after = particles.get(i);
+            assertNotSame(before, after);
+            assertEquals(before.id, after.id);
+            assertEquals(before.x, after.x);
+            assertEquals(before.y, after.y);
+            assertEquals(before.charge, after.charge);
+        }
+        int[] once = new int[original.size()];
+        Arrays.fill(once, 1);
+        assertArrayEquals(once, seen);
+
+        for (int i = 1; i < particles.size(); i++) {
+            long previous = Integer.toUnsignedLong(mortonOrder.mortonCode(particles.get(i - 1).x, particles.get(i - 1).y));
+            long current = Integer.toUnsignedLong(mortonOrder.mortonCode(particles.get(i).x, particles.get(i).y));
+            assertTrue(previous <= current, "slot " + i);
+        }
+    }
+
+    /// The sort is stable, so splitting the passes between threads gives exactly the single thread order
+    @Test
+    void threadsGiveTheSameOrder() {
+        SimulationConfig config = config(5000);
+        List<Particle> sequential = ParticleGenerator.generate(config, 0, config.numOfParticles, false);
+        List<Particle> parallel = ParticleGenerator.generate(config, 0, config.numOfParticles, false);
+
+        int[] sequentialOrder = new MortonOrder(config).reorder(sequential, null, 1).clone();
+        int[] parallelOrder;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            parallelOrder = new MortonOrder(config).reorder(parallel, executor, 3);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertArrayEquals(Arrays.copyOf(sequentialOrder, config.numOfParticles), Arrays.copyOf(parallelOrder, config.numOfParticles));
+    }
+
+    /// Reordering an already sorted list keeps it as it is
+    @Test
+    void sortedListStaysInPlace() {
+        SimulationConfig config = config(1000);
+        List<Particle> particles = ParticleGenerator.generate(config, 0, config.numOfParticles, false);
+        MortonOrder mortonOrder = new MortonOrder(config);
+        mortonOrder.reorder(particles, null, 1);
+
+        int[] order = mortonOrder.reorder(particles, null, 1);
+        for (int i = 0; i < particles.size(); i++) {
+            assertEquals(i, order[i]);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package Particles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParticlePopulationTest {
+
+    private static SimulationConfig config(int numOfParticles) {
+        SimulationConfig config = new SimulationConfig();
+        config.numOfParticles = numOfParticles;
+        config.particleSeed = 42;
+        return config;
+    }
+
+    /// Particles spread along the middle of the box, far from the walls and from each other
+    private static List<Particle> particles(SimulationConfig config) {
+        List<Particle> particles = new ArrayList<>();
+        for (int i = 0; i < config.numOfParticles; i++) {
+            particles.add(new Particle(i, 50 + 60 * i, config.height / 2.0, 0, 0, 1));
+        }
+        return particles;
+    }
+
+    private static int[] ids(List<Particle> particles) {
+        return particles.stream().mapToInt(particle -> particle.id).toArray();
+    }
+
+    /// Particles on an absorbing wall are removed and the survivors move down in their old order
+    @Test
+    void absorbedParticlesAreCompactedInOrder() {
+        SimulationConfig config = config(10);
+        config.absorbingWalls = true;
+        List<Particle> particles = particles(config);
+        particles.get(2).x = 0;
+        particles.get(5).y = config.height;
+        particles.get(9).x = config.width;
+        List<Particle> before = new ArrayList<>(particles);
+        ParticlePopulation population = new ParticlePopulation(config, particles);
+
+        int[] order = population.update();
+
+        int[] expected = { 0, 1, 3, 4, 6, 7, 8 };
+        assertEquals(expected.length, particles.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], order[i]);
+            assertSame(before.get(expected[i]), particles.get(i));
+        }
+        assertArrayEquals(expected, ids(particles));
+        assertEquals(3, population.absorbed());
+    }
+
+    /// Without a source or sink firing nothing moves and update says so
+    @Test
+    void unchangedPopulationReturnsNull() {
+        SimulationConfig config = config(5);
+        config.absorbingWalls = true;
+        config.mergeDistance = 2;
+        List<Particle> particles = particles(config);
+        ParticlePopulation population = new ParticlePopulation(config, particles);
+
+        assertNull(population.update());
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, ids(particles));
+    }
+
+    /// Two close particles merge into the lower index at their midpoint with the summed charge
+    @Test
+    void mergedParticleKeepsLowerIndex() {
+        SimulationConfig config = config(5);
+        config.mergeDistance = 2;
+        List<Particle> particles = particles(config);
+        particles.get(3).x = particles.get(1).x + 1;
+        particles.get(3).velocityX = 2;
+        ParticlePopulation population = new ParticlePopulation(config, particles);
+
+        int[] order = population.update();
+
+        assertEquals(4, particles.size());
+        assertArrayEquals(new int[] { 0, 1, 2, 4 }, new int[] { order[0], order[1], order[2], order[3] });
+        assertArrayEquals(new int[] { 0, 1, 2, 4 }, ids(particles));
+        Particle merged = particles.get(1);
+        assertEquals(110.5, merged.x);
+        assertEquals(1, merged.velocityX);
+        assertEquals(2, merged.charge);
+        assertEquals(1, population.merged());
+    }
+
+    /// New particles are appended behind the survivors with fresh ids and marked -1 in the order
+    @Test
+    void spawnedParticlesAreAppended() {
+        SimulationConfig config = config(4);
+        config.absorbingWalls = true;
+        config.spawnRate = 2;
+        List<Particle> particles = particles(config);
+        particles.get(0).x = 0;
+        ParticlePopulation population = new ParticlePopulation(config, particles);
+
+        int[] order = population.update();
+
+        assertEquals(5, particles.size());
+        assertArrayEquals(new int[] { 1, 2, 3, -1, -1 }, new int[] { order[0], order[1], order[2], order[3], order[4] });
+        assertArrayEquals(new int[] { 1, 2, 3, 4, 5 }, ids(particles));
+        assertEquals(2, population.spawned());
+    }
+
+    /// Spawning stops at config.maxParticles
+    @Test
+    void spawningRespectsMaxParticles() {
+        SimulationConfig config = config(4);
+        config.spawnRate = 3;
+        config.maxParticles = 5;
+        List<Particle> particles = particles(config);
+        ParticlePopulation population = new ParticlePopulation(config, particles);
+
+        population.update();
+        assertEquals(5, particles.size());
+        assertNull(population.update());
+        assertEquals(5, particles.size());
+    }
+
+    /// Arrays grow at least twofold and only shrink once less than a quarter is used
+    @Test
+    void capacityGrowsAndShrinksGeometrically() {
+        assertEquals(200, ParticlePopulation.capacityFor(100, 101));
+        assertEquals(500, ParticlePopulation.capacityFor(100, 500));
+        assertEquals(100, ParticlePopulation.capacityFor(100, 25));
+        assertEquals(48, ParticlePopulation.capacityFor(100, 24));
+        assertEquals(16, ParticlePopulation.capacityFor(100, 0));
+        assertTrue(ParticlePopulation.capacityFor(10, 1) <= 10);
+    }
+}
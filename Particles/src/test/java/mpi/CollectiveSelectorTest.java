@@ -0,0 +1,111 @@
+package mpi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectiveSelectorTest {
+
+    /// The built-in rules switch algorithm exactly at the MPICH thresholds
+    @Test
+    void defaultsSwitchAtThresholds() throws MPIException {
+        CollectiveSelector selector = new CollectiveSelector();
+
+        assertEquals(CollectiveSelector.RECURSIVE_DOUBLING, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 8, 2048));
+        assertEquals(CollectiveSelector.RABENSEIFNER, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 8, 2049));
+        assertEquals(CollectiveSelector.MST, selector.select(CollectiveSelector.GATHER, "smpdev", 8, 16384));
+        assertEquals(CollectiveSelector.FLAT_TREE, selector.select(CollectiveSelector.GATHER, "smpdev", 8, 16385));
+        assertEquals(CollectiveSelector.RECURSIVE_HALVING, selector.select(CollectiveSelector.REDUCE_SCATTER, "smpdev", 8, 524287));
+        assertEquals(CollectiveSelector.PAIRWISE, selector.select(CollectiveSelector.REDUCE_SCATTER, "smpdev", 8, 524288));
+    }
+
+    /// Recursive doubling for allgatherv only applies to powers of two, other sizes fall through to bruck
+    @Test
+    void pof2MatchesOnlyPowersOfTwo() throws MPIException {
+        CollectiveSelector selector = new CollectiveSelector();
+
+        assertEquals(CollectiveSelector.FLAT_TREE, selector.select(CollectiveSelector.ALLGATHERV, "niodev", 2, 1000));
+        assertEquals(CollectiveSelector.RECURSIVE_DOUBLING, selector.select(CollectiveSelector.ALLGATHERV, "niodev", 8, 81919));
+        assertEquals(CollectiveSelector.BRUCK, selector.select(CollectiveSelector.ALLGATHERV, "niodev", 8, 81920));
+        assertEquals(CollectiveSelector.BRUCK, selector.select(CollectiveSelector.ALLGATHERV, "niodev", 6, 1000));
+        assertEquals(CollectiveSelector.RING, selector.select(CollectiveSelector.ALLGATHERV, "niodev", 8, 524288));
+    }
+
+    /// Own rules come before the defaults and only match their device, size and bytes
+    @Test
+    void ownRulesTakePrecedence() throws MPIException {
+        CollectiveSelector selector = new CollectiveSelector();
+        selector.addRule("allreduce  smpdev  4-8  4097-  reduce_bcast");
+
+        assertEquals(CollectiveSelector.REDUCE_BCAST, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 4, 4097));
+        assertEquals(CollectiveSelector.REDUCE_BCAST, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 8, Long.MAX_VALUE));
+        assertEquals(CollectiveSelector.RABENSEIFNER, selector.select(CollectiveSelector.ALLREDUCE, "niodev", 4, 4097));
+        assertEquals(CollectiveSelector.RABENSEIFNER, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 9, 4097));
+        assertEquals(CollectiveSelector.RECURSIVE_DOUBLING, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 4, 2048));
+    }
+
+    /// The first matching rule wins, a later rule never overrides an earlier one
+    @Test
+    void firstMatchingRuleWins() throws MPIException {
+        CollectiveSelector selector = new CollectiveSelector();
+        selector.addRule("bcast  *  *  *  flat_tree");
+        selector.addRule("bcast  *  *  *  mst");
+
+        assertEquals(CollectiveSelector.FLAT_TREE, selector.select(CollectiveSelector.BCAST, "smpdev", 4, 100));
+    }
+
+    /// A rule for every operation skips the operations that do not implement its algorithm
+    @Test
+    void wildcardOperationNeedsKnownAlgorithm() throws MPIException {
+        CollectiveSelector selector = new CollectiveSelector();
+        selector.addRule("*  *  *  *  ring");
+
+        assertEquals(CollectiveSelector.RING, selector.select(CollectiveSelector.ALLGATHERV, "smpdev", 8, 100));
+        assertEquals(CollectiveSelector.RECURSIVE_DOUBLING, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 8, 100));
+        assertEquals(CollectiveSelector.TREE, selector.select(CollectiveSelector.BARRIER, "smpdev", 8, 0));
+    }
+
+    @Test
+    void badRulesAreRejected() {
+        CollectiveSelector selector = new CollectiveSelector();
+
+        assertThrows(MPIException.class, () -> selector.addRule("allreduce  *  *  rabenseifner"));
+        assertThrows(MPIException.class, () -> selector.addRule("allreduce  *  *  *  bucket"));
+        assertThrows(MPIException.class, () -> selector.addRule("allreduce  *  x-4  *  rabenseifner"));
+        assertEquals("", selector.toString());
+    }
+
+    /// Tuning files skip comments and blank lines and keep the order of their rules
+    @Test
+    void loadsTuningFile(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("collectives.conf");
+        Files.writeString(file, """
+                # operation  device  size  bytes  algorithm
+
+                allreduce    *       *     0-64   reduce_bcast  # tiny vectors
+                bcast        niodev  *     *      flat_tree
+                """);
+        CollectiveSelector selector = new CollectiveSelector();
+        selector.load(file.toFile());
+
+        assertEquals(CollectiveSelector.REDUCE_BCAST, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 4, 64));
+        assertEquals(CollectiveSelector.RECURSIVE_DOUBLING, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 4, 65));
+        assertEquals(CollectiveSelector.FLAT_TREE, selector.select(CollectiveSelector.BCAST, "niodev", 4, 100));
+        assertEquals(CollectiveSelector.MST, selector.select(CollectiveSelector.BCAST, "smpdev", 4, 100));
+        assertEquals("allreduce    *       *     0-64   reduce_bcast\nbcast        niodev  *     *      flat_tree\n", selector.toString());
+    }
+
+    @Test
+    void knowsOnlyImplementedAlgorithms() {
+        assertTrue(CollectiveSelector.knows(CollectiveSelector.ALLREDUCE, CollectiveSelector.RABENSEIFNER));
+        assertFalse(CollectiveSelector.knows(CollectiveSelector.ALLREDUCE, CollectiveSelector.BUCKET));
+        assertFalse(CollectiveSelector.knows("alltoall", CollectiveSelector.FLAT_TREE));
+    }
+}
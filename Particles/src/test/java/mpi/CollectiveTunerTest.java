@@ -0,0 +1,53 @@
+package mpi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CollectiveTunerTest {
+
+    /// Whole vectors for most operations, one block for gather and scatter, rounded down to whole doubles per process
+    @Test
+    void selectorIsAskedAboutTheMeasuredBytes() {
+        assertEquals(0, CollectiveTuner.vectorBytes(CollectiveSelector.BARRIER, 4096, 4));
+        assertEquals(4096, CollectiveTuner.vectorBytes(CollectiveSelector.ALLREDUCE, 4096, 4));
+        assertEquals(4096, CollectiveTuner.vectorBytes(CollectiveSelector.GATHER, 4096, 4));
+        assertEquals(4080, CollectiveTuner.vectorBytes(CollectiveSelector.ALLGATHERV, 4096, 3));
+        assertEquals(24, CollectiveTuner.vectorBytes(CollectiveSelector.REDUCE_SCATTER, 8, 3));
+        assertEquals(1, CollectiveTuner.count(CollectiveSelector.BCAST, 4, 1));
+    }
+
+    /// A run replaces the rules of its own device and process count and keeps everything else in the file
+    @Test
+    void writeReplacesOnlyItsOwnRules(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("collectives.conf");
+        Files.write(file, List.of(
+                "# hand written",
+                "bcast  niodev  8  *  flat_tree",
+                CollectiveTuner.header("smpdev", 4),
+                "allreduce  smpdev  4  0-  rabenseifner",
+                "allreduce  smpdev  8  0-  rabenseifner"));
+
+        CollectiveTuner.write(file.toFile(), "smpdev", 4, List.of(
+                "allreduce  smpdev  4  0-2048  recursive_doubling",
+                "allreduce  smpdev  4  2049-  reduce_bcast"));
+
+        assertEquals(List.of(
+                "# hand written",
+                "bcast  niodev  8  *  flat_tree",
+                "allreduce  smpdev  8  0-  rabenseifner",
+                CollectiveTuner.header("smpdev", 4),
+                "allreduce  smpdev  4  0-2048  recursive_doubling",
+                "allreduce  smpdev  4  2049-  reduce_bcast"), Files.readAllLines(file));
+
+        CollectiveSelector selector = new CollectiveSelector();
+        selector.load(file.toFile());
+        assertEquals(CollectiveSelector.REDUCE_BCAST, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 4, 4096));
+        assertEquals(CollectiveSelector.RABENSEIFNER, selector.select(CollectiveSelector.ALLREDUCE, "smpdev", 8, 4096));
+    }
+}